@@ -36,22 +36,59 @@
 package com.salesforce.bazel.eclipse;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
+import org.osgi.service.prefs.BackingStoreException;
 
 import com.salesforce.bazel.eclipse.abstractions.BazelAspectLocation;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
+import com.salesforce.bazel.eclipse.classpath.BazelClasspathContainer;
+import com.salesforce.bazel.eclipse.classpath.BazelJarStagingArea;
+import com.salesforce.bazel.eclipse.classpath.BazelProjectDependencyIndexListener;
+import com.salesforce.bazel.eclipse.classpath.BazelRawClasspathChangeListener;
+import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelCommandManager;
+import com.salesforce.bazel.eclipse.command.BazelIdeOutputBase;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.command.CommandBuilder;
 import com.salesforce.bazel.eclipse.command.shell.ShellCommandBuilder;
 import com.salesforce.bazel.eclipse.config.BazelAspectLocationImpl;
 import com.salesforce.bazel.eclipse.config.BazelEclipseProjectFactory;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
+import com.salesforce.bazel.eclipse.config.BazelProjectDeletionListener;
+import com.salesforce.bazel.eclipse.config.BazelProjectHelper;
+import com.salesforce.bazel.eclipse.logging.AsyncLoggerFacade;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.logging.LogLevel;
+import com.salesforce.bazel.eclipse.logging.LoggerFacade;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 import com.salesforce.bazel.eclipse.model.BazelWorkspace;
 import com.salesforce.bazel.eclipse.model.OperatingEnvironmentDetectionStrategy;
 import com.salesforce.bazel.eclipse.model.RealOperatingEnvironmentDetectionStrategy;
@@ -61,6 +98,7 @@ import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 import com.salesforce.bazel.eclipse.runtime.impl.EclipseConsole;
 import com.salesforce.bazel.eclipse.runtime.impl.EclipseJavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.impl.EclipseResourceHelper;
+import com.salesforce.bazel.eclipse.ui.BazelMetricsDumpHandler;
 
 /**
  * The activator class controls the Bazel Eclipse plugin life cycle
@@ -75,6 +113,24 @@ public class BazelPluginActivator extends AbstractUIPlugin {
 
     // The preference key for the bazel workspace root path
     public static final String BAZEL_WORKSPACE_PATH_PREF_NAME = "bazel.workspace.root";
+
+    // the root directories of all the Bazel workspaces that have been imported, separated by File.pathSeparator
+    public static final String BAZEL_WORKSPACE_PATHS_PREF_NAME = "bazel.workspace.roots";
+
+    // How long the plugin waits on shutdown for the pending log messages to be written
+    private static final long LOG_FLUSH_TIMEOUT_MS = 2000;
+
+    // The directory in the plugin state location where the Bazel profiles are written while tracing
+    public static final String BAZEL_PROFILES_DIR_NAME = "bazel-profiles";
+
+    // The directory in the plugin state location where the full output of the Bazel commands is written
+    public static final String CONSOLE_LOGS_DIR_NAME = "console-logs";
+
+    // The directory in the plugin state location where the jars of the classpaths are staged, see BazelJarStagingArea
+    public static final String STAGED_JARS_DIR_NAME = "staged-jars";
+
+    // The directory in the plugin state location where the dedicated output bases of the workspaces are, see BazelIdeOutputBase
+    public static final String IDE_OUTPUT_BASES_DIR_NAME = "output-bases";
     
     // GLOBAL COLLABORATORS
     // TODO move the collaborators to some other place, perhaps a dedicated static context object
@@ -83,20 +139,21 @@ public class BazelPluginActivator extends AbstractUIPlugin {
     private static BazelPluginActivator plugin;
 
     /**
-     * The Bazel workspace that is in scope.
-     * Currently, we only support one Bazel workspace in an Eclipse workspace so this is a static singleton.
+     * The Bazel workspace that is in scope: the one imported last. It is the workspace of the operations that are not
+     * tied to a project, use {@link #getBazelWorkspace(IProject)} for the others.
      */
     private static BazelWorkspace bazelWorkspace = null;
-    
+
     /**
-     * Facade that enables the plugin to execute the bazel command line tool outside of a workspace
+     * All the Bazel workspaces of the Eclipse workspace, keyed by root directory. Each one has its own command runner,
+     * so the commands of one don't wait for the commands of another.
      */
-    private static BazelCommandManager bazelCommandManager;
+    private static final Map<File, BazelWorkspace> bazelWorkspaces = new LinkedHashMap<>();
     
     /**
-     * Runs bazel commands in the loaded workspace.
+     * Facade that enables the plugin to execute the bazel command line tool outside of a workspace
      */
-    private static BazelWorkspaceCommandRunner bazelWorkspaceCommandRunner;
+    private static BazelCommandManager bazelCommandManager;
     
     /**
      * ResourceHelper is a useful singleton for looking up workspace/projects from the Eclipse environment
@@ -113,6 +170,21 @@ public class BazelPluginActivator extends AbstractUIPlugin {
      */
     private static OperatingEnvironmentDetectionStrategy osEnvStrategy;
 
+    /**
+     * Drops the cached classpath contributions of the targets when the source folders of a project may have changed
+     */
+    private final BazelRawClasspathChangeListener rawClasspathChangeListener = new BazelRawClasspathChangeListener();
+
+    /**
+     * Removes a Bazel workspace when its last project is deleted
+     */
+    private final BazelProjectDeletionListener projectDeletionListener = new BazelProjectDeletionListener();
+
+    /**
+     * Updates the project dependency index when a project is opened, closed or deleted
+     */
+    private final BazelProjectDependencyIndexListener dependencyIndexListener = new BazelProjectDependencyIndexListener();
+
     // LIFECYCLE
     
     /**
@@ -128,13 +200,22 @@ public class BazelPluginActivator extends AbstractUIPlugin {
         EclipseLoggerFacade.install(context.getBundle());
         super.start(context);
         BazelAspectLocation aspectLocation = new BazelAspectLocationImpl();
-        CommandConsoleFactory consoleFactory = new EclipseConsole();
+        CommandConsoleFactory consoleFactory = new EclipseConsole(getStateLocation().append(CONSOLE_LOGS_DIR_NAME).toFile());
         CommandBuilder  commandBuilder = new ShellCommandBuilder(consoleFactory);
         ResourceHelper eclipseResourceHelper = new EclipseResourceHelper();
         JavaCoreHelper eclipseJavaCoreHelper = new EclipseJavaCoreHelper();
         OperatingEnvironmentDetectionStrategy osEnvStrategy = new RealOperatingEnvironmentDetectionStrategy();
+        BazelJarStagingArea.getInstance().setStagingDirectory(getStateLocation().append(STAGED_JARS_DIR_NAME).toFile());
         
         startInternal(aspectLocation, commandBuilder, consoleFactory, eclipseResourceHelper, eclipseJavaCoreHelper, osEnvStrategy);
+        JavaCore.addElementChangedListener(rawClasspathChangeListener, ElementChangedEvent.POST_CHANGE);
+        resourceHelper.getEclipseWorkspace().addResourceChangeListener(projectDeletionListener,
+            IResourceChangeEvent.PRE_DELETE);
+        resourceHelper.getEclipseWorkspace().addResourceChangeListener(dependencyIndexListener,
+            IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+
+        // make the performance metrics visible in jconsole/VisualVM
+        MetricsRegistry.getInstance().registerMBean();
     }
 
     /**
@@ -146,7 +227,9 @@ public class BazelPluginActivator extends AbstractUIPlugin {
             ResourceHelper rh, JavaCoreHelper javac, OperatingEnvironmentDetectionStrategy osEnv) throws Exception {
         // reset internal state (this is so tests run in a clean env)
         bazelWorkspace = null;
-        bazelWorkspaceCommandRunner = null;
+        synchronized (bazelWorkspaces) {
+            bazelWorkspaces.clear();
+        }
         
         // global collaborators
         resourceHelper = rh;
@@ -160,26 +243,187 @@ public class BazelPluginActivator extends AbstractUIPlugin {
         File bazelPathFile = new File(bazelPath);
 
         bazelCommandManager = new BazelCommandManager(aspectLocation, commandBuilder, consoleFactory, bazelPathFile);
+        applyTracePreferences(prefsStore);
+        applyLogLevelPreference(prefsStore);
 
         prefsStore.addPropertyChangeListener(new IPropertyChangeListener() {
             @Override
             public void propertyChange(PropertyChangeEvent event) {
                 if (event.getProperty().equals(BazelPreferencePage.BAZEL_PATH_PREF_NAME)) {
                     bazelCommandManager.setBazelExecutablePath(event.getNewValue().toString());
+                } else if (event.getProperty().equals(BazelPreferencePage.TRACE_PREF_NAME)
+                        || event.getProperty().equals(BazelPreferencePage.TRACE_BAZEL_PROFILE_PREF_NAME)) {
+                    applyTracePreferences(prefsStore);
+                } else if (event.getProperty().equals(BazelPreferencePage.LOG_LEVEL_PREF_NAME)) {
+                    applyLogLevelPreference(prefsStore);
+                } else if (event.getProperty().equals(BazelPreferencePage.CLASSPATH_INTERFACE_JARS_PREF_NAME)) {
+                    // the classpaths are computed again with the other jars the next time JDT asks for them
+                    BazelClasspathContainer.clean();
                 }
+                // the output base preferences are applied together by BazelPreferencePage, see
+                // applyIdeOutputBasePreferences()
             }
         });
 
-        // Get the bazel workspace path from the settings, defaults to /usr/local/bin/bazel
+        // Get the bazel workspace paths from the settings, the one in scope is opened last
         String bazelWorkspacePathFromPrefs = prefsStore.getString(BAZEL_WORKSPACE_PATH_PREF_NAME);
+        for (String bazelWorkspacePath : getBazelWorkspacePaths(prefsStore)) {
+            // a workspace that has been deleted since is left out
+            if (!bazelWorkspacePath.equals(bazelWorkspacePathFromPrefs) && new File(bazelWorkspacePath).isDirectory()) {
+                String workspaceName = BazelEclipseProjectFactory.getBazelWorkspaceName(bazelWorkspacePath);
+                this.setBazelWorkspaceRootDirectory(workspaceName, new File(bazelWorkspacePath));
+            }
+        }
         if (bazelWorkspacePathFromPrefs != null && !bazelWorkspacePathFromPrefs.isEmpty()) {
             String workspaceName = BazelEclipseProjectFactory.getBazelWorkspaceName(bazelWorkspacePathFromPrefs);
             this.setBazelWorkspaceRootDirectory(workspaceName, new File(bazelWorkspacePathFromPrefs));
         }
 }
     
+    /**
+     * Starts or stops recording the trace of the plugin operations, as configured in the preferences. The Bazel
+     * profiles are written into the state location of the plugin.
+     */
+    private void applyTracePreferences(IPreferenceStore prefsStore) {
+        TraceRecorder traceRecorder = TraceRecorder.getInstance();
+        if (prefsStore.getBoolean(BazelPreferencePage.TRACE_PREF_NAME)) {
+            File bazelProfileDirectory = null;
+            if (prefsStore.getBoolean(BazelPreferencePage.TRACE_BAZEL_PROFILE_PREF_NAME)) {
+                bazelProfileDirectory = getStateLocation().append(BAZEL_PROFILES_DIR_NAME).toFile();
+            }
+            traceRecorder.start(bazelProfileDirectory);
+        } else if (traceRecorder.isEnabled()) {
+            // the trace is only written while tracing is on, drop it along with its Bazel profiles
+            traceRecorder.stop();
+            traceRecorder.clear();
+        }
+    }
+
+    /**
+     * Applies the output base preferences to all the Bazel workspaces, once all of them have been saved. Applied one by
+     * one, each change of the preferences would restart the Bazel server of the dedicated output base. The Bazel
+     * servers are shut down in a job, so that the preference page does not wait for them.
+     */
+    public void applyIdeOutputBasePreferences() {
+        IPreferenceStore prefsStore = resourceHelper.getPreferenceStore(this);
+        Collection<BazelWorkspace> workspaces = getBazelWorkspaces();
+        Job job = new Job("Apply the Bazel output base preferences") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                for (BazelWorkspace workspace : workspaces) {
+                    if (monitor.isCanceled()) {
+                        return Status.CANCEL_STATUS;
+                    }
+                    if (applyIdeOutputBasePreferences(prefsStore, workspace)) {
+                        updateClasspathContainers(workspace, monitor);
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.schedule();
+    }
+
+    /**
+     * Runs the commands of the workspace with a dedicated output base in the plugin state location, or with the default
+     * output base of the workspace, as configured in the preferences. When the output base changes, the classpaths are
+     * computed again with the jars of the other output base. A dedicated output base that is turned off is deleted.
+     * 
+     * @return true if the output base changed
+     */
+    private boolean applyIdeOutputBasePreferences(IPreferenceStore prefsStore, BazelWorkspace workspace) {
+        BazelIdeOutputBase ideOutputBase = null;
+        if (prefsStore.getBoolean(BazelPreferencePage.IDE_OUTPUT_BASE_PREF_NAME)) {
+            File rootDirectory = workspace.getBazelWorkspaceRootDirectory();
+            // two checkouts of a workspace have the same name
+            String outputBaseName = workspace.getName() + "-" + Integer.toHexString(rootDirectory.getPath().hashCode());
+            File outputBase = getStateLocation().append(IDE_OUTPUT_BASES_DIR_NAME).append(outputBaseName).toFile();
+            String diskCache = prefsStore.getString(BazelPreferencePage.IDE_DISK_CACHE_PREF_NAME);
+            String jvmArgs = prefsStore.getString(BazelPreferencePage.IDE_SERVER_JVM_ARGS_PREF_NAME).trim();
+            ideOutputBase = new BazelIdeOutputBase(outputBase, diskCache.isEmpty() ? null : new File(diskCache),
+                    jvmArgs.isEmpty() ? Collections.emptyList() : Arrays.asList(jvmArgs.split("\\s+")),
+                    prefsStore.getInt(BazelPreferencePage.IDE_SERVER_MAX_IDLE_SECS_PREF_NAME));
+        }
+        BazelWorkspaceCommandRunner runner = getWorkspaceCommandRunner(workspace);
+        if (Objects.equals(runner.getIdeOutputBase(), ideOutputBase)) {
+            return false;
+        }
+        runner.setIdeOutputBase(ideOutputBase);
+        // the execution root and the jars of the classpaths are in the other output base
+        workspace.resetBazelDirectories();
+        BazelClasspathContainer.clean();
+        return true;
+    }
+
+    /**
+     * Sets new classpath containers on the Java projects of the workspace, so that JDT resolves their classpaths again
+     * right away. Cleaning the containers only drops the cached entries, JDT would keep the jars of the old output base
+     * until it asks for the classpath again.
+     */
+    private static void updateClasspathContainers(BazelWorkspace workspace, IProgressMonitor monitor) {
+        List<IJavaProject> javaProjects = new ArrayList<>();
+        List<IClasspathContainer> containers = new ArrayList<>();
+        for (IJavaProject javaProject : javaCoreHelper.getAllBazelJavaProjects(true)) {
+            IProject project = javaProject.getProject();
+            if (getBazelWorkspace(project) != workspace) {
+                continue;
+            }
+            try {
+                containers.add(new BazelClasspathContainer(project));
+                javaProjects.add(javaProject);
+            } catch (IOException | InterruptedException | BackingStoreException | CoreException
+                    | BazelCommandLineToolConfigurationException e) {
+                LOG.error("Could not create the classpath container of project {}", e, project.getName());
+            }
+        }
+        if (javaProjects.isEmpty()) {
+            return;
+        }
+        try {
+            javaCoreHelper.setClasspathContainer(new Path(BazelClasspathContainer.CONTAINER_NAME),
+                javaProjects.toArray(new IJavaProject[0]), containers.toArray(new IClasspathContainer[0]), monitor);
+        } catch (CoreException e) {
+            LOG.error("Could not update the classpaths of the projects of workspace {}", e, workspace.getName());
+        }
+    }
+
+    private static void applyLogLevelPreference(IPreferenceStore prefsStore) {
+        String level = prefsStore.getString(BazelPreferencePage.LOG_LEVEL_PREF_NAME);
+        if (level != null && !level.isEmpty()) {
+            try {
+                LoggerFacade.instance().setLevel(LogLevel.valueOf(level));
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unknown log level {}", level);
+            }
+        }
+    }
+
     @Override
     public void stop(BundleContext context) throws Exception {
+        JavaCore.removeElementChangedListener(rawClasspathChangeListener);
+        resourceHelper.getEclipseWorkspace().removeResourceChangeListener(projectDeletionListener);
+        resourceHelper.getEclipseWorkspace().removeResourceChangeListener(dependencyIndexListener);
+        MetricsRegistry.getInstance().unregisterMBean();
+        if (TraceRecorder.getInstance().isEnabled()) {
+            // keep the trace of the session, it is overwritten by the next one
+            File traceFile = getStateLocation().append(BazelMetricsDumpHandler.TRACE_FILE_NAME).toFile();
+            try {
+                TraceRecorder.getInstance().writeChromeTrace(traceFile);
+            } catch (IOException e) {
+                LOG.error("Could not write the trace to {}", e, traceFile);
+            }
+            TraceRecorder.getInstance().stop();
+            TraceRecorder.getInstance().clear();
+        }
+        LoggerFacade logger = LoggerFacade.instance();
+        if (logger instanceof AsyncLoggerFacade) {
+            ((AsyncLoggerFacade) logger).flush(LOG_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        if (bazelCommandManager != null) {
+            for (BazelWorkspaceCommandRunner runner : bazelCommandManager.getWorkspaceCommandRunners()) {
+                runner.close();
+            }
+        }
         plugin = null;
         bazelCommandManager = null;
         resourceHelper = null;
@@ -213,6 +457,43 @@ public class BazelPluginActivator extends AbstractUIPlugin {
         return bazelWorkspace;
     }
 
+    /**
+     * Returns the Bazel workspace the project was imported from. Falls back to the workspace in scope if the project
+     * does not belong to one of the known workspaces.
+     */
+    public static BazelWorkspace getBazelWorkspace(IProject project) {
+        synchronized (bazelWorkspaces) {
+            if (project == null || bazelWorkspaces.size() <= 1) {
+                return bazelWorkspace;
+            }
+        }
+        File rootDirectory = BazelEclipseProjectSupport.getBazelWorkspaceRootDirectory(project);
+        BazelWorkspace projectWorkspace = rootDirectory == null ? null : getBazelWorkspace(rootDirectory);
+        if (projectWorkspace == null) {
+            LOG.debug("Project {} is not in a known Bazel workspace, using {}", project.getName(), bazelWorkspace);
+            return bazelWorkspace;
+        }
+        return projectWorkspace;
+    }
+
+    /**
+     * Returns the Bazel workspace with the (canonical) root directory, null if it has not been imported.
+     */
+    public static BazelWorkspace getBazelWorkspace(File rootDirectory) {
+        synchronized (bazelWorkspaces) {
+            return bazelWorkspaces.get(rootDirectory);
+        }
+    }
+
+    /**
+     * Returns all the Bazel workspaces of the Eclipse workspace, the one in scope included.
+     */
+    public static Collection<BazelWorkspace> getBazelWorkspaces() {
+        synchronized (bazelWorkspaces) {
+            return new ArrayList<>(bazelWorkspaces.values());
+        }
+    }
+
     /**
      * Returns the location on disk where the Bazel workspace is located. There must be a WORKSPACE file
      * in this location. Prior to importing/opening a Bazel workspace, this location will be null
@@ -235,12 +516,83 @@ public class BazelPluginActivator extends AbstractUIPlugin {
                 return;
             }
         }
-        bazelWorkspace = new BazelWorkspace(workspaceName, rootDirectory, osEnvStrategy);
-        bazelWorkspace.setBazelWorkspaceMetadataStrategy(getWorkspaceCommandRunner());
+        // a workspace that is imported again replaces the previous instance, the command runner of its root is kept
+        BazelWorkspace workspace = new BazelWorkspace(workspaceName, rootDirectory, osEnvStrategy);
+        synchronized (bazelWorkspaces) {
+            bazelWorkspaces.put(workspace.getBazelWorkspaceRootDirectory(), workspace);
+        }
+        bazelWorkspace = workspace;
+        BazelWorkspaceCommandRunner runner = getWorkspaceCommandRunner(workspace);
+        workspace.setBazelWorkspaceMetadataStrategy(runner);
+        IPreferenceStore prefsStore =  resourceHelper.getPreferenceStore(this);
+        applyIdeOutputBasePreferences(prefsStore, workspace);
+        // the aspect builds may run before the first build, they need the build flags of the projects too
+        runner.setProjectBuildFlags(BazelEclipseProjectSupport.getBazelBuildFlagsForBazelWorkspace(workspace));
 
         // write it to the preferences file
-        IPreferenceStore prefsStore =  resourceHelper.getPreferenceStore(this);
         prefsStore.setValue(BAZEL_WORKSPACE_PATH_PREF_NAME, rootDirectory.getAbsolutePath());
+        List<String> bazelWorkspacePaths = getBazelWorkspacePaths(prefsStore);
+        if (!bazelWorkspacePaths.contains(rootDirectory.getAbsolutePath())) {
+            bazelWorkspacePaths.add(rootDirectory.getAbsolutePath());
+            prefsStore.setValue(BAZEL_WORKSPACE_PATHS_PREF_NAME, String.join(File.pathSeparator, bazelWorkspacePaths));
+        }
+    }
+
+    /**
+     * Forgets the Bazel workspace with the (canonical) root directory, once its last project has been deleted from the
+     * Eclipse workspace. Its command runner is closed, which stops its Bazel server, and its root directory is removed
+     * from the preferences so that it is not opened again at the next start. If it was the workspace in scope, the
+     * last one opened of the others is now in scope.
+     */
+    public void removeBazelWorkspace(File rootDirectory) {
+        BazelWorkspace workspace;
+        BazelWorkspace workspaceInScope = null;
+        synchronized (bazelWorkspaces) {
+            workspace = bazelWorkspaces.remove(rootDirectory);
+            if (workspace == null) {
+                return;
+            }
+            for (BazelWorkspace otherWorkspace : bazelWorkspaces.values()) {
+                workspaceInScope = otherWorkspace;
+            }
+            if (workspace == bazelWorkspace && workspaceInScope != null) {
+                bazelWorkspace = workspaceInScope;
+            }
+        }
+        LOG.info("Removing the Bazel workspace {}, it has no project left", rootDirectory);
+        bazelCommandManager.closeWorkspaceCommandRunner(workspace);
+
+        IPreferenceStore prefsStore = resourceHelper.getPreferenceStore(this);
+        List<String> bazelWorkspacePaths = getBazelWorkspacePaths(prefsStore);
+        bazelWorkspacePaths.removeIf(path -> isBazelWorkspacePath(path, rootDirectory));
+        prefsStore.setValue(BAZEL_WORKSPACE_PATHS_PREF_NAME, String.join(File.pathSeparator, bazelWorkspacePaths));
+        String bazelWorkspacePathFromPrefs = prefsStore.getString(BAZEL_WORKSPACE_PATH_PREF_NAME);
+        if (isBazelWorkspacePath(bazelWorkspacePathFromPrefs, rootDirectory)) {
+            if (workspaceInScope != null) {
+                prefsStore.setValue(BAZEL_WORKSPACE_PATH_PREF_NAME,
+                    workspaceInScope.getBazelWorkspaceRootDirectory().getAbsolutePath());
+            } else {
+                prefsStore.setValue(BAZEL_WORKSPACE_PATH_PREF_NAME, "");
+            }
+        }
+    }
+
+    private static boolean isBazelWorkspacePath(String path, File rootDirectory) {
+        return path != null && !path.isEmpty()
+                && rootDirectory.equals(BazelProjectHelper.getCanonicalFileSafely(new File(path)));
+    }
+
+    private static List<String> getBazelWorkspacePaths(IPreferenceStore prefsStore) {
+        List<String> paths = new ArrayList<>();
+        String pathsFromPrefs = prefsStore.getString(BAZEL_WORKSPACE_PATHS_PREF_NAME);
+        if (pathsFromPrefs != null) {
+            for (String path : pathsFromPrefs.split(File.pathSeparator)) {
+                if (!path.isEmpty()) {
+                    paths.add(path);
+                }
+            }
+        }
+        return paths;
     }
     
     
@@ -256,15 +608,17 @@ public class BazelPluginActivator extends AbstractUIPlugin {
      * Once the workspace is set, the workspace command runner is available. Otherwise returns null
      */
     public BazelWorkspaceCommandRunner getWorkspaceCommandRunner() {
-        if (bazelWorkspaceCommandRunner == null) {
-            if (bazelWorkspace == null) {
-                return null;
-            }
-            if (bazelWorkspace.hasBazelWorkspaceRootDirectory()) {
-                bazelWorkspaceCommandRunner = bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
-            }
+        return getWorkspaceCommandRunner(bazelWorkspace);
+    }
+
+    /**
+     * Returns the command runner of the Bazel workspace, null if the workspace is null or has no root directory.
+     */
+    public BazelWorkspaceCommandRunner getWorkspaceCommandRunner(BazelWorkspace workspace) {
+        if (workspace == null || !workspace.hasBazelWorkspaceRootDirectory()) {
+            return null;
         }
-        return bazelWorkspaceCommandRunner;
+        return bazelCommandManager.getWorkspaceCommandRunner(workspace);
     }
     
     /**
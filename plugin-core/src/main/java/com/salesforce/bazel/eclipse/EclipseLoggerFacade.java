@@ -37,6 +37,7 @@ package com.salesforce.bazel.eclipse;
 
 import org.osgi.framework.Bundle;
 
+import com.salesforce.bazel.eclipse.logging.AsyncLoggerFacade;
 import com.salesforce.bazel.eclipse.logging.BasicLoggerFacade;
 import com.salesforce.bazel.eclipse.logging.LoggerFacade;
 
@@ -50,14 +51,15 @@ public class EclipseLoggerFacade extends BasicLoggerFacade {
    // private static final ILog LOG = Platform.getLog(BUNDLE);
 
     /**
-     * Install the facade as the singleton and configure logging system
+     * Install the facade as the singleton and configure logging system. The messages are written on a background thread
+     * (see AsyncLoggerFacade) so that logging never blocks the caller on console I/O.
      * 
      * @param bundle
      * @throws Exception
      */
     public static void install(Bundle bundle) throws Exception {
         EclipseLoggerFacade instance = new EclipseLoggerFacade();
-        LoggerFacade.setInstance(instance);
+        LoggerFacade.setInstance(new AsyncLoggerFacade(instance));
         //instance.configureLogging(bundle);
     }
 
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.builder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.BazelCommandCancelledException;
+import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
+import com.salesforce.bazel.eclipse.command.BazelCommandManager;
+import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectFactory;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+import com.salesforce.bazel.eclipse.preferences.BazelPreferencePage;
+import com.salesforce.bazel.eclipse.runtime.impl.EclipseWorkProgressMonitor;
+
+/**
+ * Collects the build requests issued by the {@link BazelBuilder} and runs them as a single Bazel build.
+ * <p>
+ * Eclipse invokes the builder once per dirty project, so a save-all across many projects would otherwise turn into a
+ * chain of serialized 'bazel build' invocations (one for the project, then one more for its downstream projects).
+ * Instead, each request marks the project as dirty and (re)starts a short debounce window. When the window elapses,
+ * all dirty projects plus their downstream projects are built with one Bazel invocation, and the resulting errors are
+ * partitioned back onto the owning projects as problem markers. When the changed files of a project are known, only
+ * the targets that own them (and the targets that depend on those) are built, see {@link BazelBuildTargetSelector}.
+ * <p>
+ * If new requests arrive while a build is running, the running build is cancelled and its projects are merged into
+ * the next build, so the developer always gets feedback for the latest state of the code. A build cancelled by the
+ * user is not run again.
+ * <p>
+ * There is one coalescer per Bazel workspace, each with its own build job.
+ */
+public class BazelBuildCoalescer {
+    static final LogHelper LOG = LogHelper.log(BazelBuildCoalescer.class);
+
+    private final BazelWorkspace bazelWorkspace;
+
+    /**
+     * The length of the coalescing window, read on each request so that a change of the preference applies to the next
+     * build.
+     */
+    private final LongSupplier coalesceDelayMS;
+
+    /**
+     * The projects that have been reported as dirty by the builder and are waiting for the next build, along with the
+     * changed files (relative to the Bazel workspace root) of each project. A null set of changed files means that the
+     * whole project needs to be built.
+     */
+    private final Map<IProject, Set<String>> pendingProjects = new LinkedHashMap<>();
+
+    /**
+     * Incremented each time the pending builds are dropped, so that a build cancelled by a clean is not requeued.
+     * Guarded by pendingProjects.
+     */
+    private int cancelGeneration = 0;
+
+    /**
+     * Incremented on each build request, so that a cancelled build can tell whether a newer request superseded it or
+     * the user cancelled it. Guarded by pendingProjects.
+     */
+    private int requestGeneration = 0;
+
+    private final Job buildJob;
+
+    public BazelBuildCoalescer(BazelWorkspace bazelWorkspace) {
+        this(bazelWorkspace, () -> BazelPluginActivator.getInstance().getPreferenceStore()
+                .getInt(BazelPreferencePage.BUILD_COALESCE_DELAY_PREF_NAME));
+    }
+
+    BazelBuildCoalescer(BazelWorkspace bazelWorkspace, LongSupplier coalesceDelayMS) {
+        this.bazelWorkspace = bazelWorkspace;
+        this.coalesceDelayMS = coalesceDelayMS;
+        this.buildJob = new Job("Bazel build [" + bazelWorkspace.getName() + "]") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                return runCoalescedBuild(monitor);
+            }
+        };
+    }
+
+    /**
+     * Marks the whole project as needing a Bazel build. The build itself happens asynchronously, after the coalescing
+     * window has elapsed without further requests.
+     */
+    public void requestBuild(IProject project) {
+        requestBuild(project, null);
+    }
+
+    /**
+     * Marks the project as needing a Bazel build because of the passed changed files. Only the targets that own the
+     * changed files (and the targets that depend on them) will be built. The build itself happens asynchronously, after
+     * the coalescing window has elapsed without further requests.
+     *
+     * @param changedPaths
+     *            the changed files, relative to the Bazel workspace root, or null if the whole project must be built
+     */
+    public void requestBuild(IProject project, Collection<String> changedPaths) {
+        synchronized (pendingProjects) {
+            addPendingProject(project, changedPaths);
+            requestGeneration++;
+        }
+        // cancel() removes a waiting job from the queue, which restarts the debounce window. If the job is already
+        // running the cancel request supersedes it, and schedule() makes it run again as soon as it finishes.
+        buildJob.cancel();
+        buildJob.schedule(getCoalesceDelayMS());
+    }
+
+    /**
+     * Drops any build requests that have not yet started. Used when the workspace is cleaned, as the pending builds
+     * would be run against a flushed state.
+     */
+    public void cancelPendingBuilds() {
+        synchronized (pendingProjects) {
+            pendingProjects.clear();
+            cancelGeneration++;
+        }
+        buildJob.cancel();
+    }
+
+    // INTERNAL
+
+    private IStatus runCoalescedBuild(IProgressMonitor monitor) {
+        int generation;
+        int request;
+        Map<IProject, Set<String>> dirtyProjects;
+        synchronized (pendingProjects) {
+            generation = cancelGeneration;
+            request = requestGeneration;
+            dirtyProjects = takePendingProjects();
+        }
+        if (dirtyProjects.isEmpty()) {
+            return Status.OK_STATUS;
+        }
+        buildDirtyProjects(dirtyProjects, monitor);
+
+        if (monitor.isCanceled()) {
+            // superseded by newer edits, fold these projects into the next build unless the pending builds have been
+            // dropped since this one started. A build cancelled by the user is not requeued.
+            synchronized (pendingProjects) {
+                if (generation != cancelGeneration || request == requestGeneration) {
+                    return Status.CANCEL_STATUS;
+                }
+                for (Map.Entry<IProject, Set<String>> dirtyProject : dirtyProjects.entrySet()) {
+                    addPendingProject(dirtyProject.getKey(), dirtyProject.getValue());
+                }
+            }
+            // a no-op if newer edits have already rescheduled the job
+            buildJob.schedule(getCoalesceDelayMS());
+            return Status.CANCEL_STATUS;
+        }
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Builds the dirty projects and their downstream projects with a single Bazel invocation.
+     */
+    void buildDirtyProjects(Map<IProject, Set<String>> dirtyProjects, IProgressMonitor monitor) {
+        WorkProgressMonitor progressMonitor = new EclipseWorkProgressMonitor(monitor);
+        progressMonitor.beginTask("Bazel build", 1);
+
+        BazelCommandManager bazelCommandManager = BazelPluginActivator.getBazelCommandManager();
+        BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner = bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
+        Collection<IProject> projectsToBuild = dirtyProjects.keySet();
+
+        try {
+            // the downstream projects are built in the same invocation, instead of in a second build after the dirty ones
+            BazelBuildTargetSelector targetSelector = new BazelBuildTargetSelector(bazelWorkspaceCmdRunner, progressMonitor);
+            Map<IProject, Collection<String>> targetsByProject = selectTargets(targetSelector, dirtyProjects);
+            projectsToBuild = targetsByProject.keySet();
+            // the build flags may have been changed in the project preferences since the previous build
+            bazelWorkspaceCmdRunner.setProjectBuildFlags(
+                BazelEclipseProjectSupport.getBazelBuildFlagsForBazelWorkspace(bazelWorkspace));
+            LOG.info("Running a coalesced Bazel build for {} dirty project(s) and {} downstream project(s)",
+                dirtyProjects.size(), projectsToBuild.size() - dirtyProjects.size());
+
+            BazelBuilder.buildProjects(bazelWorkspaceCmdRunner, targetsByProject, targetSelector, progressMonitor, monitor);
+        } catch (BazelCommandCancelledException e) {
+            // the Bazel process has been torn down, the projects are requeued below if newer edits superseded the build
+            LOG.info("Bazel build of {} was cancelled", projectsToBuild);
+        } catch (IOException | InterruptedException e) {
+            LOG.error("Failed to build {}", e, projectsToBuild);
+        } catch (BazelCommandLineToolConfigurationException e) {
+            LOG.error("Bazel not found: {} ", e.getMessage());
+        } finally {
+            progressMonitor.done();
+        }
+    }
+
+    /**
+     * Computes the targets to build for each dirty project and for each of their downstream projects. A project maps
+     * to null if all of its targets need to be built. Projects without affected targets are left out.
+     */
+    private static Map<IProject, Collection<String>> selectTargets(BazelBuildTargetSelector targetSelector,
+            Map<IProject, Set<String>> dirtyProjects)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        boolean importInProgress = BazelEclipseProjectFactory.importInProgress.get();
+
+        Map<IProject, Collection<String>> targetsByProject = new LinkedHashMap<>();
+        Set<String> changedLabels = new HashSet<>();
+        Set<IProject> narrowedDownstreams = new LinkedHashSet<>();
+        for (Map.Entry<IProject, Set<String>> dirtyProject : dirtyProjects.entrySet()) {
+            IProject project = dirtyProject.getKey();
+            Set<String> owningTargets = null;
+            if (dirtyProject.getValue() != null) {
+                owningTargets = targetSelector.getOwningTargets(project, dirtyProject.getValue());
+            }
+            Set<IProject> downstreams = importInProgress ? Collections.emptySet() : BazelBuilder.getDownstreamProjectsOf(project);
+            if (owningTargets == null) {
+                // the whole project is built, so everything downstream of it is affected too
+                targetsByProject.put(project, null);
+                for (IProject downstream : downstreams) {
+                    targetsByProject.put(downstream, null);
+                }
+            } else {
+                changedLabels.addAll(owningTargets);
+                narrowedDownstreams.add(project);
+                narrowedDownstreams.addAll(downstreams);
+            }
+        }
+        for (IProject project : narrowedDownstreams) {
+            if (!targetsByProject.containsKey(project)) {
+                Set<String> affectedTargets = targetSelector.getAffectedTargets(project, changedLabels);
+                if (!affectedTargets.isEmpty()) {
+                    targetsByProject.put(project, affectedTargets);
+                }
+            }
+        }
+        return targetsByProject;
+    }
+
+    private void addPendingProject(IProject project, Collection<String> changedPaths) {
+        if (!pendingProjects.containsKey(project)) {
+            pendingProjects.put(project, changedPaths == null ? null : new LinkedHashSet<>(changedPaths));
+        } else {
+            Set<String> pendingPaths = pendingProjects.get(project);
+            if (pendingPaths != null) {
+                if (changedPaths == null) {
+                    pendingProjects.put(project, null);
+                } else {
+                    pendingPaths.addAll(changedPaths);
+                }
+            }
+        }
+    }
+
+    private Map<IProject, Set<String>> takePendingProjects() {
+        Map<IProject, Set<String>> projects = new LinkedHashMap<>();
+        synchronized (pendingProjects) {
+            for (Map.Entry<IProject, Set<String>> pendingProject : pendingProjects.entrySet()) {
+                // the project may have been closed or deleted during the coalescing window
+                if (pendingProject.getKey().isAccessible()) {
+                    projects.put(pendingProject.getKey(), pendingProject.getValue());
+                }
+            }
+            pendingProjects.clear();
+        }
+        return projects;
+    }
+
+    private long getCoalesceDelayMS() {
+        return Math.max(0, coalesceDelayMS.getAsLong());
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.builder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+
+import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
+import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfos;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+
+/**
+ * Narrows a build down to the Bazel targets affected by a set of changed files.
+ * <p>
+ * The changed files are mapped to the targets that list them as sources, using the (normally already cached) build
+ * info aspect data of each project. The targets to build for a project are then the targets of the project that are, or
+ * transitively depend on, one of the changed targets. This way the time it takes to get feedback after saving a file
+ * is driven by the size of the change, not by the number of targets in the project.
+ * <p>
+ * An instance is meant to be used for a single build, as it holds on to the aspect data it looked up.
+ */
+class BazelBuildTargetSelector {
+
+    private final BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner;
+    private final WorkProgressMonitor progressMonitor;
+    private final Map<IProject, AspectPackageInfos> aspectsByProject = new HashMap<>();
+
+    BazelBuildTargetSelector(BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner, WorkProgressMonitor progressMonitor) {
+        this.bazelWorkspaceCmdRunner = bazelWorkspaceCmdRunner;
+        this.progressMonitor = progressMonitor;
+    }
+
+    /**
+     * Returns the labels of the targets of the project that have one of the changed files as a source. Returns null if
+     * a changed file cannot be mapped to a target (a BUILD file, a file that was just added, a resource file...), in
+     * which case the whole project needs to be built.
+     *
+     * @param changedPaths
+     *            the changed files, relative to the Bazel workspace root
+     */
+    Set<String> getOwningTargets(IProject project, Collection<String> changedPaths)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        AspectPackageInfos aspects = getAspectPackageInfos(project);
+        Set<String> ownLabels = getOwnLabels(project, aspects);
+        Set<String> owningTargets = new LinkedHashSet<>();
+        for (String changedPath : changedPaths) {
+            boolean found = false;
+            for (AspectPackageInfo aspect : aspects.lookupBySourcePath(changedPath)) {
+                if (ownLabels.contains(aspect.getLabel())) {
+                    owningTargets.add(aspect.getLabel());
+                    found = true;
+                }
+            }
+            if (!found) {
+                return null;
+            }
+        }
+        return owningTargets;
+    }
+
+    /**
+     * Returns the labels of the targets of the project that need to be rebuilt because they are, or depend on, one of
+     * the changed targets.
+     */
+    Set<String> getAffectedTargets(IProject project, Set<String> changedLabels)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        AspectPackageInfos aspects = getAspectPackageInfos(project);
+        Set<String> ownLabels = getOwnLabels(project, aspects);
+        Set<String> affectedTargets = new LinkedHashSet<>();
+        for (String label : aspects.lookupTransitiveDependents(changedLabels)) {
+            if (ownLabels.contains(label)) {
+                affectedTargets.add(label);
+            }
+        }
+        return affectedTargets;
+    }
+
+    /**
+     * Returns the source files of the passed targets of the project, relative to the project. Only problem markers on
+     * these files are affected by a build of just these targets.
+     */
+    Set<String> getProjectRelativeSourcePaths(IProject project, Collection<String> targets)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        AspectPackageInfos aspects = getAspectPackageInfos(project);
+        Set<String> packagePaths = getPackagePaths(project);
+        Set<String> sourcePaths = new HashSet<>();
+        for (String target : targets) {
+            AspectPackageInfo aspect = aspects.lookupByLabel(target);
+            if (aspect == null) {
+                continue;
+            }
+            for (String source : aspect.getSources()) {
+                for (String packagePath : packagePaths) {
+                    if (source.startsWith(packagePath + "/")) {
+                        sourcePaths.add(source.substring(packagePath.length() + 1));
+                    }
+                }
+            }
+        }
+        return sourcePaths;
+    }
+
+    // INTERNAL
+
+    private AspectPackageInfos getAspectPackageInfos(IProject project)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        AspectPackageInfos aspects = aspectsByProject.get(project);
+        if (aspects == null) {
+            List<String> targets = BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(project, false);
+            Map<String, AspectPackageInfo> packageInfos =
+                    bazelWorkspaceCmdRunner.getAspectPackageInfos(project.getName(), targets, progressMonitor, "build");
+            aspects = new AspectPackageInfos(packageInfos.values());
+            aspectsByProject.put(project, aspects);
+        }
+        return aspects;
+    }
+
+    /**
+     * The aspect data of a project also contains its (transitive) dependencies, the labels owned by the project are the
+     * ones that live in one of its Bazel packages.
+     */
+    private static Set<String> getOwnLabels(IProject project, AspectPackageInfos aspects) {
+        Set<String> packagePaths = getPackagePaths(project);
+        Set<String> ownLabels = new HashSet<>();
+        for (AspectPackageInfo aspect : aspects.getAll()) {
+            if (packagePaths.contains(new BazelLabel(aspect.getLabel()).getPackagePath())) {
+                ownLabels.add(aspect.getLabel());
+            }
+        }
+        return ownLabels;
+    }
+
+    private static Set<String> getPackagePaths(IProject project) {
+        Set<String> packagePaths = new HashSet<>();
+        for (String target : BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(project, false)) {
+            packagePaths.add(new BazelLabel(target).getPackagePath());
+        }
+        return packagePaths;
+    }
+}
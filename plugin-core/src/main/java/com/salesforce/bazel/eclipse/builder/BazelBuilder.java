@@ -35,21 +35,29 @@
  */
 package com.salesforce.bazel.eclipse.builder;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaModelException;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
@@ -57,16 +65,17 @@ import com.google.common.collect.Multimap;
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.classpath.BazelClasspathContainer;
+import com.salesforce.bazel.eclipse.classpath.BazelProjectDependencyIndex;
+import com.salesforce.bazel.eclipse.classpath.BazelProjectDependencyIndexListener;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelCommandManager;
+import com.salesforce.bazel.eclipse.command.BazelTargetCompletionIndex;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
-import com.salesforce.bazel.eclipse.config.BazelEclipseProjectFactory;
 import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
 import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
 import com.salesforce.bazel.eclipse.model.BazelWorkspace;
-import com.salesforce.bazel.eclipse.runtime.impl.EclipseWorkProgressMonitor;
 
 /**
  * Project builder that calls out to Bazel to run a workspace build.
@@ -80,28 +89,35 @@ public class BazelBuilder extends IncrementalProjectBuilder {
 
     public static final String BUILDER_NAME = "com.salesforce.bazel.eclipse.builder";
 
+    /**
+     * Coalesces the per-project build requests that Eclipse issues into a single Bazel build, one per Bazel workspace
+     * (keyed by root directory) so the builds of different workspaces run side by side.
+     */
+    private static final Map<File, BazelBuildCoalescer> BUILD_COALESCERS = new ConcurrentHashMap<>();
+
+    private static final BazelProjectDependencyIndex DEPENDENCY_INDEX = BazelProjectDependencyIndex.getInstance();
+
+    private static final Set<String> BUILD_FILE_NAMES = new HashSet<>(Arrays.asList("BUILD", "BUILD.bazel"));
+
     @Override
     protected IProject[] build(int kind, Map<String, String> args, IProgressMonitor monitor) throws CoreException {
-        WorkProgressMonitor progressMonitor = new EclipseWorkProgressMonitor(monitor);
+        // Eclipse calls this once per dirty project; the actual Bazel build runs in the background once the burst of
+        // requests settles, building all dirty projects and their downstream projects together
         IProject project = getProject();
-        progressMonitor.beginTask("Bazel build", 1);
-
-        BazelCommandManager bazelCommandManager = BazelPluginActivator.getBazelCommandManager();
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
-        BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner = bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
-
-        try {
-            boolean buildSuccessful = buildProjects(bazelWorkspaceCmdRunner, Collections.singletonList(project), progressMonitor, monitor);
-            if (buildSuccessful && !importInProgress()) {
-                Set<IProject> downstreams = getDownstreamProjectsOf(project);
-                buildProjects(bazelWorkspaceCmdRunner, downstreams, progressMonitor, monitor);
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(project);
+        BazelBuildCoalescer buildCoalescer = getBuildCoalescer(bazelWorkspace);
+        IResourceDelta delta = kind == FULL_BUILD ? null : getDelta(project);
+        if (delta == null) {
+            buildCoalescer.requestBuild(project);
+        } else {
+            Set<String> changedPackages = new HashSet<>();
+            List<String> changedPaths = getChangedPaths(bazelWorkspace, delta, changedPackages);
+            invalidateTargetCompletions(bazelWorkspace, changedPackages);
+            if (changedPaths == null) {
+                buildCoalescer.requestBuild(project);
+            } else if (!changedPaths.isEmpty()) {
+                buildCoalescer.requestBuild(project, changedPaths);
             }
-        } catch (IOException | InterruptedException e) {
-            LOG.error("Failed to build {}", e, project.getName());
-        } catch (BazelCommandLineToolConfigurationException e) {
-            LOG.error("Bazel not found: {} ", e.getMessage());
-        } finally {
-            progressMonitor.done();
         }
         return null;
     }
@@ -112,8 +128,10 @@ public class BazelBuilder extends IncrementalProjectBuilder {
         // this may not have a severe performance impact as bazel handles it efficiently but we may want to revisit
         // TODO: revisit if we want to clean only once when multiple targets are selected
         
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(getProject());
+        getBuildCoalescer(bazelWorkspace).cancelPendingBuilds();
+
         BazelCommandManager bazelCommandManager = BazelPluginActivator.getBazelCommandManager();
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
         BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner = bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
         
         if (bazelWorkspaceCmdRunner == null) {
@@ -126,39 +144,61 @@ public class BazelBuilder extends IncrementalProjectBuilder {
         BazelClasspathContainer.clean();
     }
     
-    private boolean buildProjects(BazelWorkspaceCommandRunner cmdRunner, Collection<IProject> projects, WorkProgressMonitor progressMonitor, IProgressMonitor monitor)
+    private static BazelBuildCoalescer getBuildCoalescer(BazelWorkspace bazelWorkspace) {
+        return BUILD_COALESCERS.computeIfAbsent(bazelWorkspace.getBazelWorkspaceRootDirectory(),
+            root -> new BazelBuildCoalescer(bazelWorkspace));
+    }
+
+    /**
+     * Builds the passed projects with a single Bazel invocation, and publishes the resulting problem markers.
+     *
+     * @param targetsByProject
+     *            the projects to build, each mapped to the targets to build for it, or to null to build all the targets
+     *            configured for the project
+     */
+    static boolean buildProjects(BazelWorkspaceCommandRunner cmdRunner, Map<IProject, Collection<String>> targetsByProject,
+            BazelBuildTargetSelector targetSelector, WorkProgressMonitor progressMonitor, IProgressMonitor monitor)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException 
     {
         List<String> bazelTargets = Lists.newArrayList();
         Multimap<IProject, BazelLabel> projectToLabels = HashMultimap.create();
+        Map<IProject, Set<String>> markerScopeByProject = new HashMap<>();
+        Collection<IProject> projects = targetsByProject.keySet();
         
         // figure out the list of targets to build and map projects to targets
         for (IProject project : projects) {
             List<String> targets = BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(project, false);
-            bazelTargets.addAll(targets);
+            Collection<String> targetsToBuild = targetsByProject.get(project);
+            if (targetsToBuild == null) {
+                bazelTargets.addAll(targets);
+            } else {
+                // only some targets are built, so only the markers on the sources of those targets may change
+                bazelTargets.addAll(targetsToBuild);
+                markerScopeByProject.put(project, targetSelector.getProjectRelativeSourcePaths(project, targetsToBuild));
+            }
             List<BazelLabel> labels = targets.stream().map(t -> new BazelLabel(t)).collect(Collectors.toList());
             projectToLabels.putAll(project, labels);
+            DEPENDENCY_INDEX.updateProjectPackagePaths(project,
+                labels.stream().map(BazelLabel::getPackagePath).collect(Collectors.toSet()));
         }
         
         if (bazelTargets.isEmpty()) {
             return true;
         } else {
-            List<String> bazelBuildFlags = getAllBazelBuildFlags(projects);
-        
-            // run build
-            List<BazelMarkerDetails> errors = cmdRunner.runBazelBuild(bazelTargets, progressMonitor, bazelBuildFlags);
+            // run build, the build flags of the projects are part of the analysis options of the runner
+            List<BazelMarkerDetails> errors = cmdRunner.runBazelBuild(bazelTargets, progressMonitor, Collections.emptyList());
             Multimap<IProject, BazelMarkerDetails> errorsByProject = paritionErrorsByProject(errors, projectToLabels);
-            for (IProject project : projects) {
-                BazelEclipseProjectSupport.publishProblemMarkers(project, monitor, errorsByProject.get(project), projectToLabels.get(project));
-            }
+            BazelEclipseProjectSupport.publishProblemMarkers(projects, monitor, errorsByProject, projectToLabels, markerScopeByProject);
             return errors.isEmpty();
         }
     }
     
-    private Multimap<IProject, BazelMarkerDetails> paritionErrorsByProject(List<BazelMarkerDetails> errors, Multimap<IProject, BazelLabel> projectToLabels) {
+    private static Multimap<IProject, BazelMarkerDetails> paritionErrorsByProject(List<BazelMarkerDetails> errors, Multimap<IProject, BazelLabel> projectToLabels) {
         Multimap<IProject, BazelMarkerDetails> m = HashMultimap.create();
         for (BazelMarkerDetails error : errors) {
-            for (IProject project : projectToLabels.keys()) {
+            // look up the project that owns the innermost package of the file, instead of testing every project
+            IProject project = DEPENDENCY_INDEX.getOwningProject(error.getResourcePath());
+            if (project != null && projectToLabels.containsKey(project)) {
                 String resourcePath = error.getResourcePathRelativeToBazelPackage(projectToLabels.get(project));
                 if (resourcePath != null) {
                     m.put(project, error);
@@ -168,32 +208,77 @@ public class BazelBuilder extends IncrementalProjectBuilder {
         return m;
     }
     
-    private static List<String> getAllBazelBuildFlags(Collection<IProject> projects) {
-        List<String> buildFlags = Lists.newArrayList();
-        for (IProject project : projects) {
-            buildFlags.addAll(BazelEclipseProjectSupport.getBazelBuildFlagsForEclipseProject(project));
+    /**
+     * Returns the changed files of the delta relative to the Bazel workspace root, or null if the change cannot be
+     * narrowed down to individual source files (for example a BUILD file changed). The packages whose BUILD file
+     * changed are added to the passed set.
+     */
+    private static List<String> getChangedPaths(BazelWorkspace bazelWorkspace, IResourceDelta delta,
+            Set<String> changedPackages) throws CoreException {
+        File bazelWorkspaceRoot = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        if (bazelWorkspaceRoot == null) {
+            return null;
+        }
+        Path bazelWorkspaceRootPath = bazelWorkspaceRoot.toPath();
+        List<String> changedPaths = new ArrayList<>();
+        AtomicBoolean narrowable = new AtomicBoolean(true);
+        delta.accept(d -> {
+            IResource resource = d.getResource();
+            if (resource.getType() != IResource.FILE || (d.getKind() == IResourceDelta.CHANGED && d.getFlags() == IResourceDelta.MARKERS)) {
+                return true;
+            }
+            String name = resource.getName();
+            IPath location = resource.getLocation();
+            if (location == null) {
+                narrowable.set(false);
+                return false;
+            }
+            Path path = location.toFile().toPath();
+            if (!path.startsWith(bazelWorkspaceRootPath)) {
+                narrowable.set(false);
+                return false;
+            }
+            if (BUILD_FILE_NAMES.contains(name)) {
+                Path packagePath = bazelWorkspaceRootPath.relativize(path).getParent();
+                changedPackages.add(packagePath == null ? "" : packagePath.toString().replace(File.separatorChar, '/'));
+                narrowable.set(false);
+                return false;
+            }
+            changedPaths.add(bazelWorkspaceRootPath.relativize(path).toString().replace(File.separatorChar, '/'));
+            return true;
+        });
+        return narrowable.get() ? changedPaths : null;
+    }
+
+
+    /**
+     * The targets of a package whose BUILD file changed are queried again the next time they are completed.
+     */
+    private static void invalidateTargetCompletions(BazelWorkspace bazelWorkspace, Set<String> changedPackages) {
+        if (changedPackages.isEmpty()) {
+            return;
+        }
+        BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
+                BazelPluginActivator.getBazelCommandManager().getWorkspaceCommandRunner(bazelWorkspace);
+        BazelTargetCompletionIndex targetCompletionIndex =
+                bazelWorkspaceCmdRunner == null ? null : bazelWorkspaceCmdRunner.getTargetCompletionIndex();
+        if (targetCompletionIndex == null) {
+            return;
+        }
+        for (String changedPackage : changedPackages) {
+            targetCompletionIndex.invalidatePackage(changedPackage);
         }
-        return buildFlags;         
     }
 
-    private static Set<IProject> getDownstreamProjectsOf(IProject upstream) {
+    static Set<IProject> getDownstreamProjectsOf(IProject upstream) {
+        // the classpath of some projects may not have been computed yet in this session
+        BazelProjectDependencyIndexListener.seedDependencyIndex();
         Set<IProject> downstreams = new HashSet<>();
-        for (IJavaProject project : BazelPluginActivator.getJavaCoreHelper().getAllBazelJavaProjects(false)) {
-            try {
-                for (String requiredProjectName : project.getRequiredProjectNames()) {
-                    if (upstream.getProject().getName().equals(requiredProjectName)) {
-                        downstreams.add(project.getProject());
-                    }
-                }
-            } catch (JavaModelException ex) {
-                throw new IllegalStateException(ex);
+        for (IProject downstream : DEPENDENCY_INDEX.getDownstreamProjects(upstream)) {
+            if (downstream.isAccessible()) {
+                downstreams.add(downstream);
             }
         }
         return downstreams;
     }
-
-    private boolean importInProgress() {
-        // what's the right way to do this?
-        return BazelEclipseProjectFactory.importInProgress.get();
-    }
 }
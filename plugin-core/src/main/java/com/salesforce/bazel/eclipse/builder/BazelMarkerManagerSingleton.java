@@ -33,7 +33,14 @@
  */
 package com.salesforce.bazel.eclipse.builder;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -59,41 +66,128 @@ public class BazelMarkerManagerSingleton {
     
     public static final String BAZEL_MARKER = "com.salesforce.bazel.eclipse.bazelmarker";
 
+    private static final String[] MARKER_ATTRIBUTE_NAMES = new String[] { IMarker.LINE_NUMBER, IMarker.LOCATION,
+            IMarker.MESSAGE, IMarker.PRIORITY, IMarker.SEVERITY };
+
     /**
+     * Brings the problem markers of the project in line with the specified errors: markers for errors that went away
+     * are deleted, markers for new errors are created, and markers for errors that are still present are left alone.
+     * Compared to clearing and re-publishing all markers, this keeps the number of marker changes (and therefore
+     * resource change events) proportional to what actually changed between two builds.
+     * <p>
      * This method modifies the workspace and must always be executed within a WorkspaceModifyOperation
      *
      * @param project
-     *            the project to clear problem markers for
+     *            the project the problem markers are related to
+     * @param errorDetails
+     *            the errors that problem markers should exist for
+     * @param labels
+     *            the Bazel Labels that were built and resulted in the specified errors
      * @throws CoreException
      */
-    public void clearProblemMarkersForProject(IProject project) throws CoreException {
-        project.deleteMarkers(BazelMarkerManagerSingleton.BAZEL_MARKER, true, IResource.DEPTH_INFINITE);
+    public void syncProblemMarkersForProject(IProject project, Collection<BazelMarkerDetails> errorDetails, Collection<BazelLabel> labels) throws CoreException {
+        syncProblemMarkersForProject(project, errorDetails, labels, null);
     }
 
     /**
+     * Same as {@link #syncProblemMarkersForProject(IProject, Collection, Collection)}, but existing markers are only
+     * considered if they are on one of the scoped files. This is used when only a subset of the targets of the project
+     * were built, as the build output then says nothing about the other files of the project.
+     * <p>
      * This method modifies the workspace and must always be executed within a WorkspaceModifyOperation
      *
-     * @param the
-     *            project the problem markers are related to
-     * @param errorDetails
-     *            the errors that problem markers should be created for
-     * @param labels
-     *            the Bazel Labels that were built and resulted in the specified errors
-     * @throws CoreException
+     * @param scopedPaths
+     *            the project relative paths of the files whose markers are synced, or null to sync the whole project
      */
-    public void publishProblemMarkersForProject(IProject project, Collection<BazelMarkerDetails> errorDetails, Collection<BazelLabel> labels) throws CoreException {
+    public void syncProblemMarkersForProject(IProject project, Collection<BazelMarkerDetails> errorDetails,
+            Collection<BazelLabel> labels, Set<String> scopedPaths) throws CoreException {
+        // index the existing markers by resource, line and message; identical duplicates are redundant and get deleted
+        Map<MarkerKey, IMarker> existingMarkers = new HashMap<>();
+        List<IMarker> markersToDelete = new ArrayList<>();
+        for (IMarker marker : project.findMarkers(BAZEL_MARKER, true, IResource.DEPTH_INFINITE)) {
+            if (scopedPaths != null && !scopedPaths.contains(marker.getResource().getProjectRelativePath().toString())) {
+                continue;
+            }
+            MarkerKey key = new MarkerKey(marker.getResource(), marker.getAttribute(IMarker.LINE_NUMBER, -1),
+                    marker.getAttribute(IMarker.MESSAGE, ""));
+            if (existingMarkers.putIfAbsent(key, marker) != null) {
+                markersToDelete.add(marker);
+            }
+        }
+
+        Map<MarkerKey, BazelMarkerDetails> markersToCreate = new LinkedHashMap<>();
         for (BazelMarkerDetails errorDetail : errorDetails) {
-            String resourcePath = errorDetail.getResourcePathRelativeToBazelPackage(labels);
-            IResource resource = project.findMember(resourcePath);
-            IMarker marker = resource.createMarker(BAZEL_MARKER);
-            marker.setAttribute(IMarker.LINE_NUMBER, errorDetail.getLineNumber());
-            marker.setAttribute(IMarker.LOCATION, "line " + errorDetail.getLineNumber());
-            marker.setAttribute(IMarker.MESSAGE, errorDetail.getDescription());
-            marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
-            marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+            IResource resource = findResource(project, errorDetail, labels);
+            if (resource == null) {
+                continue;
+            }
+            MarkerKey key = new MarkerKey(resource, errorDetail.getLineNumber(), errorDetail.getDescription());
+            if (existingMarkers.remove(key) == null) {
+                markersToCreate.putIfAbsent(key, errorDetail);
+            }
+        }
+        // whatever is left over no longer corresponds to an error
+        markersToDelete.addAll(existingMarkers.values());
+
+        if (!markersToDelete.isEmpty()) {
+            project.getWorkspace().deleteMarkers(markersToDelete.toArray(new IMarker[markersToDelete.size()]));
+        }
+        for (Map.Entry<MarkerKey, BazelMarkerDetails> entry : markersToCreate.entrySet()) {
+            createMarker(entry.getKey().resource, entry.getValue());
         }
     }
-    
+
+    // INTERNAL
+
+    private static IResource findResource(IProject project, BazelMarkerDetails errorDetail, Collection<BazelLabel> labels) {
+        String resourcePath = errorDetail.getResourcePathRelativeToBazelPackage(labels);
+        if (resourcePath == null) {
+            return null;
+        }
+        return project.findMember(resourcePath);
+    }
+
+    private static IMarker createMarker(IResource resource, BazelMarkerDetails errorDetail) throws CoreException {
+        IMarker marker = resource.createMarker(BAZEL_MARKER);
+        // set all attributes in one call, each setAttribute call is a separate marker change
+        marker.setAttributes(MARKER_ATTRIBUTE_NAMES,
+            new Object[] { errorDetail.getLineNumber(), "line " + errorDetail.getLineNumber(),
+                    errorDetail.getDescription(), IMarker.PRIORITY_HIGH, IMarker.SEVERITY_ERROR });
+        return marker;
+    }
+
+    /**
+     * Identifies a problem marker by the resource it is on, its line number and its message.
+     */
+    private static final class MarkerKey {
+        private final IResource resource;
+        private final int lineNumber;
+        private final String message;
+
+        MarkerKey(IResource resource, int lineNumber, String message) {
+            this.resource = resource;
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, lineNumber, message);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof MarkerKey)) {
+                return false;
+            }
+            MarkerKey o = (MarkerKey) other;
+            return lineNumber == o.lineNumber && resource.equals(o.resource) && message.equals(o.message);
+        }
+    }
+
     public static BazelMarkerManagerSingleton getInstance() {
         if(singletonInstance == null) {
             singletonInstance = new BazelMarkerManagerSingleton();
@@ -37,25 +37,24 @@ package com.salesforce.bazel.eclipse.classpath;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IWorkspace;
-import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
@@ -64,27 +63,55 @@ import org.osgi.service.prefs.BackingStoreException;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.classpath.BazelTargetClasspathCache.TargetClasspath;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelCommandManager;
+import com.salesforce.bazel.eclipse.command.BazelCommandPriority;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.config.BazelEclipseProjectFactory;
 import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.Timer;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 import com.salesforce.bazel.eclipse.model.AspectOutputJarSet;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfos;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
 import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
 import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+import com.salesforce.bazel.eclipse.preferences.BazelPreferencePage;
+import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 import com.salesforce.bazel.eclipse.runtime.impl.EclipseWorkProgressMonitor;
 
 /**
  * Computes the classpath for a Bazel package and provides it to the JDT tooling in Eclipse.
+ * <p>
+ * The jars of the dependencies that are not imported as projects are the full jars by default. When the interface jar
+ * preference is set (see BazelPreferencePage), the interface jars (ijar/hjar) are used instead when Bazel produces
+ * them: they only change when the API of a dependency changes, so an implementation change does not make JDT index the
+ * jar again and rebuild the dependent projects, and they are smaller to index. The entries keep the source jars as
+ * attachments, and name their full jar in the {@link #RUNTIME_JAR_ATTRIBUTE} attribute so that launches run with the
+ * full jars (see BazelClasspathContainerRuntimeResolver).
  */
 public class BazelClasspathContainer implements IClasspathContainer {
+    static final LogHelper LOG = LogHelper.log(BazelClasspathContainer.class);
+
     public static final String CONTAINER_NAME = "com.salesforce.bazel.eclipse.BAZEL_CONTAINER";
+
+    /**
+     * Classpath attribute of the interface jar entries, the absolute path of the full jar to run with.
+     */
+    public static final String RUNTIME_JAR_ATTRIBUTE = "com.salesforce.bazel.eclipse.runtimeJar";
     
     // TODO make classpath cache timeout configurable
     private static final long CLASSPATH_CACHE_TIMEOUT_MS = 30000; 
 
+    // how much of the directory of a missing jar is logged
+    private static final int DIAGNOSTICS_MAX_DEPTH = 3;
+    private static final int DIAGNOSTICS_MAX_ENTRIES = 100;
+
     private final IPath eclipseProjectPath;
     private final IProject eclipseProject;
     private final String eclipseProjectName;
@@ -94,9 +121,16 @@ public class BazelClasspathContainer implements IClasspathContainer {
     private IClasspathEntry[] cachedEntries;
     private long cachePutTimeMillis = 0;
     
-    private static List<BazelClasspathContainer> instances = new ArrayList<>();
+    // containers are also created in the job that applies the output base preferences
+    private static List<BazelClasspathContainer> instances = new CopyOnWriteArrayList<>();
     
     private ImplicitDependencyHelper implicitDependencyHelper = new ImplicitDependencyHelper();
+
+    /**
+     * compile classpath jar -> the size and last modified time of the jar when the classpath was last computed; JDT
+     * indexes a jar that changed again and rebuilds the project
+     */
+    private Map<IPath, BazelOutputFileCache.FileStamp> compileJarStamps = new HashMap<>();
     
     public BazelClasspathContainer(IProject eclipseProject)
             throws IOException, InterruptedException, BackingStoreException, JavaModelException,
@@ -121,12 +155,15 @@ public class BazelClasspathContainer implements IClasspathContainer {
             instance.cachedEntries = null;
             instance.cachePutTimeMillis = 0;
         }
+        BazelTargetClasspathCache.clearAll();
+        BazelOutputFileCache.clearAll();
     }
 
     @Override
     public IClasspathEntry[] getClasspathEntries() {
         // sanity check
-        if (!BazelPluginActivator.hasBazelWorkspaceRootDirectory()) {
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(eclipseProject);
+        if (bazelWorkspace == null || !bazelWorkspace.hasBazelWorkspaceRootDirectory()) {
             throw new IllegalStateException("Attempt to retrieve the classpath of a Bazel Java project prior to setting up the Bazel workspace.");
         }
 
@@ -151,10 +188,10 @@ public class BazelClasspathContainer implements IClasspathContainer {
                         // earlier in the import process, project refs might be brought in as jars because the associated project
                         //   may not have been imported yet. 
                         // by not caching during import, the classpath is continually recomputed and eventually arrives in the right state
-                        BazelPluginActivator.debug("  Recomputing classpath for project "+eclipseProjectName+" because we are in an import operation.");
+                        LOG.debug("  Recomputing classpath for project {} because we are in an import operation.", eclipseProjectName);
                         isImport = true;
                     } else {
-                        BazelPluginActivator.debug("  Using cached classpath for project "+eclipseProjectName);
+                        LOG.debug("  Using cached classpath for project {}", eclipseProjectName);
                         return this.cachedEntries;
                     }
                 }
@@ -168,81 +205,121 @@ public class BazelClasspathContainer implements IClasspathContainer {
                 return new IClasspathEntry[] {};
             }
     
-            BazelPluginActivator.info("Computing classpath for project "+eclipseProjectName+" (cached entries: "+foundCachedEntries+", is import: "+isImport+")");
+            LOG.info("Computing classpath for project {} (cached entries: {}, is import: {})", eclipseProjectName, foundCachedEntries, isImport);
     
             List<IClasspathEntry> classpathEntries = new ArrayList<>();
-            Set<IPath> projectsAddedToClasspath = new HashSet<>();
+            // the paths of the entries, an entry is only added once
+            Set<IPath> entryPaths = new HashSet<>();
+            Set<IProject> referencedProjects = new LinkedHashSet<>();
     
-            BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
             BazelCommandManager commandFacade = BazelPluginActivator.getBazelCommandManager();
             BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner = commandFacade.getWorkspaceCommandRunner(bazelWorkspace);
+            boolean useInterfaceJars = resourceHelper.getPreferenceStore(BazelPluginActivator.getInstance())
+                    .getBoolean(BazelPreferencePage.CLASSPATH_INTERFACE_JARS_PREF_NAME);
             
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            // the time of all the projects, and the time of this project (classpath.entries.<project name>)
+            Timer.Context timing = metrics.timer("classpath.entries").time();
+            Timer.Context projectTiming = metrics.timer("classpath.entries." + eclipseProjectName).time();
+            TraceRecorder.Span span = TraceRecorder.getInstance().span("getClasspathEntries", "classpath")
+                    .arg("project", eclipseProjectName);
             try {
                 IProject eclipseIProject = eclipseProject.getProject();
                 List<String> bazelTargetsForProject = BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(eclipseIProject, false);
                 
                 Map<String, AspectPackageInfo> packageInfos = bazelWorkspaceCmdRunner.getAspectPackageInfos(
                     eclipseIProject.getName(), bazelTargetsForProject, progressMonitor, "getClasspathEntries");
+                // after the aspect, which may have run a build
+                BazelOutputFileCache fileCache = BazelOutputFileCache.getInstance(bazelWorkspace);
+                fileCache.setBuildGeneration(bazelWorkspaceCmdRunner.getBuildGeneration());
     
-                for (AspectPackageInfo packageInfo : packageInfos.values()) {
-                    IJavaProject otherProject = getSourceProjectForSourcePaths(bazelWorkspaceCmdRunner, packageInfo.getSources());
+                // the targets of the project and their dependencies, a target after the targets it depends on; each
+                // target is resolved once for all projects, see BazelTargetClasspathCache
+                AspectPackageInfos aspects = new AspectPackageInfos(packageInfos.values());
+                // projects and their source folders are created during an import, nothing is cached until it is over
+                boolean importInProgress = BazelEclipseProjectFactory.importInProgress.get();
+                BazelTargetClasspathCache targetCache = BazelTargetClasspathCache.getInstance(bazelWorkspace);
+                IProject[] projects = getBazelWorkspaceProjects(bazelWorkspace);
+                BazelSourceRootIndex sourceRootIndex;
+                if (importInProgress) {
+                    sourceRootIndex = new BazelSourceRootIndex(resourceHelper, projects);
+                } else {
+                    targetCache.setProjectCount(projects.length);
+                    sourceRootIndex = targetCache.getSourceRootIndex(() -> new BazelSourceRootIndex(resourceHelper, projects));
+                }
+                long buildGeneration = bazelWorkspaceCmdRunner.getBuildGeneration();
+                int resolvedTargets = 0;
+                for (AspectPackageInfo packageInfo : aspects.getAllInDependencyOrder()) {
+                    TargetClasspath targetClasspath = importInProgress ? null : targetCache.get(packageInfo);
+                    if (targetClasspath == null || !targetClasspath.isValidFor(buildGeneration, fileCache)) {
+                        targetClasspath = resolveTargetClasspath(sourceRootIndex, bazelWorkspace, progressMonitor,
+                            packageInfo, targetClasspath, buildGeneration, useInterfaceJars);
+                        resolvedTargets++;
+                        if (!targetClasspath.isComplete()) {
+                            // there was a problem with the aspect computation, this might resolve itself if we recompute it
+                            bazelWorkspaceCmdRunner.flushAspectInfoCache(bazelTargetsForProject);
+                        } else if (!importInProgress) {
+                            targetCache.put(targetClasspath);
+                        }
+                    }
+                    IProject otherProject = targetClasspath.getSourceProject();
                     
                     if (otherProject == null) {
                         // no project found that houses the sources of this bazel target, add the jars to the classpath
                         // this means that this is an external jar, or a jar produced by a bazel target that was not imported
-                        for (AspectOutputJarSet jarSet : packageInfo.getGeneratedJars()) {
-                            IClasspathEntry cpEntry = jarsToClasspathEntry(bazelWorkspace, progressMonitor, jarSet); 
-                            if (cpEntry != null) {
-                                classpathEntries.add(cpEntry);
-                            } else {
-                                // there was a problem with the aspect computation, this might resolve itself if we recompute it
-                                bazelWorkspaceCmdRunner.flushAspectInfoCache(bazelTargetsForProject);
-                            }
-                        }
-                        for (AspectOutputJarSet jarSet : packageInfo.getJars()) {
-                            IClasspathEntry cpEntry = jarsToClasspathEntry(bazelWorkspace, progressMonitor, jarSet);
-                            if (cpEntry != null) {
-                                classpathEntries.add(cpEntry);
-                            } else {
-                                // there was a problem with the aspect computation, this might resolve itself if we recompute it
-                                bazelWorkspaceCmdRunner.flushAspectInfoCache(bazelTargetsForProject);
-                            }
+                        for (IClasspathEntry cpEntry : targetClasspath.getJarEntries()) {
+                            addClasspathEntry(classpathEntries, entryPaths, cpEntry);
                         }
                                                 
-                    } else if (eclipseProject.getProject().getFullPath().equals(otherProject.getProject().getFullPath())) {
+                    } else if (eclipseProject.getProject().getFullPath().equals(otherProject.getFullPath())) {
                         // the project referenced is actually the the current project that this classpath container is for
                         
                         // some rule types have hidden dependencies that we need to add
                         // if our Eclipse project has any of those rules, we need to add in the dependencies to our classpath
                         Set<IClasspathEntry> implicitDeps = implicitDependencyHelper.computeImplicitDependencies(eclipseIProject, bazelWorkspace, packageInfo);
-                        classpathEntries.addAll(implicitDeps);
+                        for (IClasspathEntry cpEntry : implicitDeps) {
+                            addClasspathEntry(classpathEntries, entryPaths, cpEntry);
+                        }
                         
                     } else {
                         // otherProject != null
                         // add the referenced project to the classpath, directly as a project classpath entry
-                        IPath projectFullPath = otherProject.getProject().getFullPath();
-                        if (!projectsAddedToClasspath.contains(projectFullPath)) {
+                        IPath projectFullPath = otherProject.getFullPath();
+                        if (entryPaths.add(projectFullPath)) {
                             classpathEntries.add(BazelPluginActivator.getJavaCoreHelper().newProjectEntry(projectFullPath));
-                        }
-                        projectsAddedToClasspath.add(projectFullPath);
                         
-                        // now make a project reference between this project and the other project; this allows for features like
-                        // code refactoring across projects to work correctly
-                        addProjectReference(eclipseIProject, otherProject.getProject());
+                            // now make a project reference between this project and the other project; this allows for features like
+                            // code refactoring across projects to work correctly
+                            addProjectReference(eclipseIProject, otherProject);
+                            referencedProjects.add(otherProject);
+                        }
                     }
                 }
+                metrics.counter("classpath.targets").inc(packageInfos.size());
+                metrics.counter("classpath.targets.resolved").inc(resolvedTargets);
+
+                // keep the reverse dependency index in sync, the builder uses it to find downstream projects
+                BazelProjectDependencyIndex dependencyIndex = BazelProjectDependencyIndex.getInstance();
+                dependencyIndex.updateProjectDependencies(eclipseIProject, referencedProjects);
+                dependencyIndex.updateProjectPackagePaths(eclipseIProject, getPackagePaths(bazelTargetsForProject));
+
+                recordCompileJars(BazelOutputFileCache.getInstance(bazelWorkspace), classpathEntries);
             } catch (IOException | InterruptedException e) {
                 BazelPluginActivator.error("Unable to compute classpath containers entries for project "+eclipseProjectName, e);
                 return new IClasspathEntry[] {};
             } catch (BazelCommandLineToolConfigurationException e) {
                 BazelPluginActivator.error("Bazel not found: " + e.getMessage());
                 return new IClasspathEntry[] {};
+            } finally {
+                span.close();
+                projectTiming.close();
+                timing.close();
             }
     
             // cache the entries
             this.cachePutTimeMillis = System.currentTimeMillis();
             this.cachedEntries = classpathEntries.toArray(new IClasspathEntry[] {});
-            BazelPluginActivator.debug("Cached the classpath for project "+eclipseProjectName);
+            LOG.debug("Cached the classpath for project {}", eclipseProjectName);
         }
         return cachedEntries;
     }
@@ -263,7 +340,7 @@ public class BazelClasspathContainer implements IClasspathContainer {
     }
 
     public boolean isValid() throws BackingStoreException, IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(eclipseProject);
         File bazelWorkspaceRootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
         if (bazelWorkspaceRootDirectory == null) {
             return false;
@@ -277,7 +354,8 @@ public class BazelClasspathContainer implements IClasspathContainer {
             }
             List<String> targets =
                     BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(this.eclipseProject.getProject(), false);
-            List<BazelMarkerDetails> details = bazelWorkspaceCmdRunner.runBazelBuild(targets, null, Collections.emptyList());
+            List<BazelMarkerDetails> details = bazelWorkspaceCmdRunner.runBazelBuild(targets, null,
+                Collections.emptyList(), BazelCommandPriority.BACKGROUND);
             for (BazelMarkerDetails detail : details) {
                 BazelPluginActivator.error(detail.toString());
             }
@@ -290,104 +368,168 @@ public class BazelClasspathContainer implements IClasspathContainer {
     // INTERNAL
 
     /**
-     * Returns the IJavaProject in the current workspace that contains at least one of the specified sources.
+     * Counts the jars of the compile classpath, their size, and the ones that changed or were added since the classpath
+     * was last computed. These are the jars JDT has to index, and a changed jar makes JDT rebuild the project. A staged
+     * jar whose content changed is a new jar, as its staged path changes.
      */
-    private IJavaProject getSourceProjectForSourcePaths(BazelWorkspaceCommandRunner bazelCommandRunner, List<String> sources) {
-        for (String candidate : sources) {
-            IJavaProject project = getSourceProjectForSourcePath(bazelCommandRunner, candidate);
-            if (project != null) {
-                return project;
+    private void recordCompileJars(BazelOutputFileCache fileCache, List<IClasspathEntry> classpathEntries) {
+        Map<IPath, BazelOutputFileCache.FileStamp> jarStamps = new HashMap<>();
+        long jarBytes = 0;
+        int changedJars = 0;
+        for (IClasspathEntry entry : classpathEntries) {
+            if (entry.getEntryKind() != IClasspathEntry.CPE_LIBRARY) {
+                continue;
             }
+            // the file system is only looked at once per build generation
+            BazelOutputFileCache.FileStamp jarStamp = fileCache.getFileStamp(entry.getPath().toFile());
+            BazelOutputFileCache.FileStamp previousJarStamp = compileJarStamps.get(entry.getPath());
+            if (!compileJarStamps.isEmpty() && !jarStamp.equals(previousJarStamp)) {
+                changedJars++;
+            }
+            jarStamps.put(entry.getPath(), jarStamp);
+            jarBytes += jarStamp.getLength();
         }
-        return null;
-    }
+        compileJarStamps = jarStamps;
 
-    private IJavaProject getSourceProjectForSourcePath(BazelWorkspaceCommandRunner bazelCommandRunner, String sourcePath) {
-
-        // TODO this code is messy, why get workspace root two different ways, and is there a better way to handle source paths?
-        IWorkspaceRoot eclipseWorkspaceRoot = this.resourceHelper.getEclipseWorkspaceRoot();
-        IWorkspace eclipseWorkspace = this.resourceHelper.getEclipseWorkspace();
-        IWorkspaceRoot rootResource = eclipseWorkspace.getRoot();
-        IProject[] projects = rootResource.getProjects();
-
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
-        String absoluteSourcePathString = bazelWorkspace.getBazelWorkspaceRootDirectory().getAbsolutePath() + File.separator + sourcePath;
-        Path absoluteSourcePath = new File(absoluteSourcePathString).toPath();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.counter("classpath.compile.jars").inc(jarStamps.size());
+        metrics.counter("classpath.compile.jars.bytes").inc(jarBytes);
+        metrics.counter("classpath.compile.jars.changed").inc(changedJars);
+        if (changedJars > 0) {
+            LOG.debug("{} jar(s) of the classpath of project {} changed", changedJars, eclipseProjectName);
+        }
+    }
 
-        for (IProject project : projects) {
-            IJavaProject jProject = BazelPluginActivator.getJavaCoreHelper().getJavaProjectForProject(project);
-            IClasspathEntry[] classpathEntries = BazelPluginActivator.getJavaCoreHelper().getRawClasspath(jProject);
-            if (classpathEntries == null) {
-                BazelPluginActivator.error("No classpath entries found for project ["+jProject.getElementName()+"]");
-                continue;
+    /**
+     * Resolves what the target contributes to the classpath: the project that holds its sources, or its jars. If the
+     * target was resolved to its jars in an earlier build generation, it is known to have no source project.
+     */
+    private TargetClasspath resolveTargetClasspath(BazelSourceRootIndex sourceRootIndex,
+            BazelWorkspace bazelWorkspace, WorkProgressMonitor progressMonitor, AspectPackageInfo packageInfo,
+            TargetClasspath previousTargetClasspath, long buildGeneration, boolean useInterfaceJars) {
+        if (previousTargetClasspath == null) {
+            IJavaProject sourceProject = getSourceProjectForSourcePaths(sourceRootIndex, bazelWorkspace, packageInfo.getSources());
+            if (sourceProject != null) {
+                return new TargetClasspath(packageInfo, sourceProject.getProject(), Collections.emptyList(),
+                        Collections.emptyMap(), buildGeneration, true);
             }
-            for (IClasspathEntry entry : classpathEntries) {
-                if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE) {
-                    continue;
-                }
-                IResource res = this.resourceHelper.findMemberInWorkspace(eclipseWorkspaceRoot, entry.getPath());
-                if (res == null) {
-                    continue;
-                }
-                IPath projectLocation = res.getLocation();
-                String absProjectRoot = projectLocation.toOSString();
-                if (absProjectRoot != null && !absProjectRoot.isEmpty()) {
-                    if (absoluteSourcePath.startsWith(absProjectRoot)) {
-                        IPath[] inclusionPatterns = entry.getInclusionPatterns();
-                        IPath[] exclusionPatterns = entry.getExclusionPatterns();
-                        if (!matchPatterns(absoluteSourcePath, exclusionPatterns)) {
-                            if (inclusionPatterns == null || inclusionPatterns.length == 0 || matchPatterns(absoluteSourcePath, inclusionPatterns)) {
-                                return jProject;
-                            }
-                        }
-                    }
-                }
+        }
+        List<IClasspathEntry> jarEntries = new ArrayList<>();
+        Map<File, BazelOutputFileCache.FileStamp> stagedJarStamps = new HashMap<>();
+        boolean complete = true;
+        List<AspectOutputJarSet> jarSets = new ArrayList<>(packageInfo.getGeneratedJars());
+        jarSets.addAll(packageInfo.getJars());
+        for (AspectOutputJarSet jarSet : jarSets) {
+            IClasspathEntry cpEntry = jarsToClasspathEntry(bazelWorkspace, progressMonitor, jarSet, useInterfaceJars,
+                stagedJarStamps);
+            if (cpEntry != null) {
+                jarEntries.add(cpEntry);
+            } else {
+                complete = false;
             }
         }
-        return null;
+        return new TargetClasspath(packageInfo, null, jarEntries, stagedJarStamps, buildGeneration, complete);
+    }
+
+    private static void addClasspathEntry(List<IClasspathEntry> classpathEntries, Set<IPath> entryPaths,
+            IClasspathEntry entry) {
+        if (entryPaths.add(entry.getPath())) {
+            classpathEntries.add(entry);
+        }
+    }
+
+    private static Set<String> getPackagePaths(List<String> bazelTargets) {
+        Set<String> packagePaths = new HashSet<>();
+        for (String target : bazelTargets) {
+            packagePaths.add(new BazelLabel(target).getPackagePath());
+        }
+        return packagePaths;
     }
 
     /**
-     * Globby match of file system patterns for a given path. If the path matches any of the patterns, this method
-     * returns true.
+     * Returns the IJavaProject in the current workspace that contains at least one of the specified sources.
      */
-    private boolean matchPatterns(Path path, IPath[] patterns) {
-        if (patterns != null) {
-            for (IPath p : patterns) {
-                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + p.toOSString());
-                if (matcher.matches(path)) {
-                    return true;
-                }
+    private static IJavaProject getSourceProjectForSourcePaths(BazelSourceRootIndex sourceRootIndex,
+            BazelWorkspace bazelWorkspace, List<String> sources) {
+        String bazelWorkspaceRoot = bazelWorkspace.getBazelWorkspaceRootDirectory().getAbsolutePath();
+        for (String candidate : sources) {
+            Path absoluteSourcePath = new File(bazelWorkspaceRoot + File.separator + candidate).toPath();
+            IJavaProject project = sourceRootIndex.getProjectForSourceFile(absoluteSourcePath);
+            if (project != null) {
+                return project;
             }
         }
-        return false;
+        return null;
     }
 
     private IClasspathEntry jarsToClasspathEntry(BazelWorkspace bazelWorkspace, WorkProgressMonitor progressMonitor, 
-            AspectOutputJarSet jarSet) {
+            AspectOutputJarSet jarSet, boolean useInterfaceJar,
+            Map<File, BazelOutputFileCache.FileStamp> stagedJarStamps) {
         IClasspathEntry cpEntry = null;
+        BazelOutputFileCache fileCache = BazelOutputFileCache.getInstance(bazelWorkspace);
         File bazelOutputBase = bazelWorkspace.getBazelOutputBaseDirectory();
         File bazelExecRoot = bazelWorkspace.getBazelExecRootDirectory();
-        IPath jarPath = getJarPathOnDisk(bazelOutputBase, bazelExecRoot, jarSet.getJar());
+        IPath jarPath = getJarPathOnDisk(fileCache, bazelOutputBase, bazelExecRoot, jarSet.getJar());
         if (jarPath != null) {
-            IPath srcJarPath = getJarPathOnDisk(bazelOutputBase, bazelExecRoot, jarSet.getSrcJar());
+            IPath srcJarPath = getJarPathOnDisk(fileCache, bazelOutputBase, bazelExecRoot, jarSet.getSrcJar());
             IPath srcJarRootPath = null;
-            cpEntry = BazelPluginActivator.getJavaCoreHelper().newLibraryEntry(jarPath, srcJarPath, srcJarRootPath);
+            JavaCoreHelper javaCoreHelper = BazelPluginActivator.getJavaCoreHelper();
+            IPath interfaceJarPath = null;
+            if (useInterfaceJar) {
+                interfaceJarPath = getJarPathOnDisk(fileCache, bazelOutputBase, bazelExecRoot, jarSet.getInterfaceJar());
+            }
+            if (interfaceJarPath != null) {
+                IClasspathAttribute runtimeJar = javaCoreHelper.newClasspathAttribute(RUNTIME_JAR_ATTRIBUTE, jarPath.toOSString());
+                cpEntry = javaCoreHelper.newLibraryEntry(stageJar(fileCache, interfaceJarPath, stagedJarStamps), srcJarPath, srcJarRootPath,
+                    new IClasspathAttribute[] { runtimeJar });
+            } else {
+                cpEntry = javaCoreHelper.newLibraryEntry(stageJar(fileCache, jarPath, stagedJarStamps), srcJarPath, srcJarRootPath);
+            }
         }
         return cpEntry;
     }
 
+    /**
+     * Returns the staged copy of a jar of the compile classpath, so that JDT does not index the jar again when Bazel
+     * rewrites it with the same content. See BazelJarStagingArea. The size and last modified time of the jar are
+     * recorded in the passed map, a rewritten jar is staged again.
+     */
+    private static IPath stageJar(BazelOutputFileCache fileCache, IPath jarPath,
+            Map<File, BazelOutputFileCache.FileStamp> stagedJarStamps) {
+        File jar = jarPath.toFile();
+        stagedJarStamps.put(jar, fileCache.getFileStamp(jar));
+        File stagedJar = fileCache.getStagedJar(jar, BazelJarStagingArea.getInstance()::stage);
+        if (stagedJar == jar) {
+            return jarPath;
+        }
+        return org.eclipse.core.runtime.Path.fromOSString(stagedJar.getAbsolutePath());
+    }
+
+    /**
+     * Returns the jar to run with for a library entry of the classpath: the full jar of an interface jar entry, the jar
+     * of the entry otherwise.
+     */
+    public static IPath getRuntimeJarPath(IClasspathEntry entry) {
+        for (IClasspathAttribute attribute : entry.getExtraAttributes()) {
+            if (RUNTIME_JAR_ATTRIBUTE.equals(attribute.getName())) {
+                return org.eclipse.core.runtime.Path.fromOSString(attribute.getValue());
+            }
+        }
+        return entry.getPath();
+    }
+
     @SuppressWarnings("unused")
     private IClasspathEntry[] jarsToClasspathEntries(BazelWorkspace bazelWorkspace, WorkProgressMonitor progressMonitor, 
             Set<AspectOutputJarSet> jars) {
         IClasspathEntry[] entries = new IClasspathEntry[jars.size()];
         int i = 0;
+        BazelOutputFileCache fileCache = BazelOutputFileCache.getInstance(bazelWorkspace);
         File bazelOutputBase = bazelWorkspace.getBazelOutputBaseDirectory();
         File bazelExecRoot = bazelWorkspace.getBazelExecRootDirectory();
         for (AspectOutputJarSet j : jars) {
-            IPath jarPath = getJarPathOnDisk(bazelOutputBase, bazelExecRoot, j.getJar());
+            IPath jarPath = getJarPathOnDisk(fileCache, bazelOutputBase, bazelExecRoot, j.getJar());
             if (jarPath != null) {
-                IPath srcJarPath = getJarPathOnDisk(bazelOutputBase, bazelExecRoot, j.getSrcJar());
+                IPath srcJarPath = getJarPathOnDisk(fileCache, bazelOutputBase, bazelExecRoot, j.getSrcJar());
                 IPath srcJarRootPath = null;
                 entries[i] = BazelPluginActivator.getJavaCoreHelper().newLibraryEntry(jarPath, srcJarPath, srcJarRootPath);
                 i++;
@@ -396,7 +538,7 @@ public class BazelClasspathContainer implements IClasspathContainer {
         return entries;
     }
 
-    private IPath getJarPathOnDisk(File bazelOutputBase, File bazelExecRoot, String file) {
+    private IPath getJarPathOnDisk(BazelOutputFileCache fileCache, File bazelOutputBase, File bazelExecRoot, String file) {
         if (file == null) {
             return null;
         }
@@ -409,25 +551,47 @@ public class BazelClasspathContainer implements IClasspathContainer {
 
         // We have had issues with Eclipse complaining about symlinks in the Bazel output directories not being real,
         // so we resolve them before handing them back to Eclipse.
-        if (Files.isSymbolicLink(path)) {
-            try {
-                // resolving the link will fail if the symlink does not a point to a real file
-                path = Files.readSymbolicLink(path);
-            } catch (IOException ex) {
-                BazelPluginActivator.error("Problem adding jar to project ["+eclipseProjectName+"] because it does not exist on the filesystem: "+path);
-                printDirectoryDiagnostics(path.toFile().getParentFile().getParentFile(), " ");
-            }
-        } else {
+        // The file system is only looked at once per build generation, see BazelOutputFileCache
+        Optional<Path> resolvedPath = fileCache.resolveSymbolicLink(path);
+        if (!resolvedPath.isPresent()) {
+            // resolving the link will fail if the symlink does not a point to a real file
+            reportMissingJar(fileCache, path);
+        } else if (!resolvedPath.get().equals(path)) {
+            path = resolvedPath.get();
+        } else if (!fileCache.exists(path.toFile())) {
             // it is a normal path, check for existence
-            if (!Files.exists(path)) {
-                BazelPluginActivator.error("Problem adding jar to project ["+eclipseProjectName+"] because it does not exist on the filesystem: "+path);
-                printDirectoryDiagnostics(path.toFile().getParentFile().getParentFile(), " ");
-            }            
+            reportMissingJar(fileCache, path);
         }
         
         return org.eclipse.core.runtime.Path.fromOSString(path.toString());
     }
 
+    /**
+     * Returns the projects of the Eclipse workspace that can hold the sources of a target of the Bazel workspace: all
+     * of them, unless projects of other Bazel workspaces have been imported too.
+     */
+    private IProject[] getBazelWorkspaceProjects(BazelWorkspace bazelWorkspace) {
+        IProject[] projects = resourceHelper.getEclipseWorkspace().getRoot().getProjects();
+        if (BazelPluginActivator.getBazelWorkspaces().size() <= 1) {
+            return projects;
+        }
+        File bazelWorkspaceRootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        return Arrays.stream(projects).filter(project -> bazelWorkspaceRootDirectory
+                .equals(BazelPluginActivator.getBazelWorkspace(project).getBazelWorkspaceRootDirectory()))
+                .toArray(IProject[]::new);
+    }
+
+    private void reportMissingJar(BazelOutputFileCache fileCache, Path path) {
+        if (!fileCache.isFirstReport(path)) {
+            return;
+        }
+        BazelPluginActivator.error("Problem adding jar to project ["+eclipseProjectName+"] because it does not exist on the filesystem: "+path);
+        File parentDirectory = path.toFile().getParentFile();
+        if (parentDirectory != null && parentDirectory.getParentFile() != null) {
+            printDirectoryDiagnostics(parentDirectory.getParentFile());
+        }
+    }
+
     /**
      * Creates a project reference between this project and that project.
      * The direction of reference goes from this->that
@@ -456,17 +620,34 @@ public class BazelClasspathContainer implements IClasspathContainer {
     }
     
     
-    private static void printDirectoryDiagnostics(File path, String indent) {
+    /**
+     * Logs the content of the directory that should contain a missing jar. The listing is capped, as the directory can
+     * be as large as the output tree of the workspace.
+     */
+    private static void printDirectoryDiagnostics(File directory) {
+        int[] remainingEntries = { DIAGNOSTICS_MAX_ENTRIES };
+        LOG.info(" {}", directory.getAbsolutePath());
+        printDirectoryDiagnostics(directory, "    ", 1, remainingEntries);
+        if (remainingEntries[0] < 0) {
+            LOG.info(" ... (only the first {} entries are listed)", DIAGNOSTICS_MAX_ENTRIES);
+        }
+    }
+
+    private static void printDirectoryDiagnostics(File path, String indent, int depth, int[] remainingEntries) {
         File[] children = path.listFiles();
-        System.out.println(indent+path.getAbsolutePath());
-        if (children != null) {
-            for (File child : children) {
-                System.out.println(indent+child.getName());
-                if (child.isDirectory()) {
-                    printDirectoryDiagnostics(child, "   "+indent);
-                }
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (--remainingEntries[0] < 0) {
+                return;
             }
-        } 
-        
+            boolean isDirectory = child.isDirectory();
+            LOG.info("{}{}{}", indent, child.getName(), isDirectory ? "/" : "");
+            if (isDirectory && depth < DIAGNOSTICS_MAX_DEPTH) {
+                printDirectoryDiagnostics(child, "   "+indent, depth + 1, remainingEntries);
+            }
+        }
     }
 }
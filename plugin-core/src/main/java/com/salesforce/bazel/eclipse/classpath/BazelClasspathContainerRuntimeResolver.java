@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.launching.IRuntimeClasspathEntry;
+import org.eclipse.jdt.launching.IRuntimeClasspathEntryResolver;
+import org.eclipse.jdt.launching.IVMInstall;
+import org.eclipse.jdt.launching.JavaRuntime;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+
+/**
+ * Resolves the Bazel classpath container for launches. The interface jars the container puts on the compile classpath
+ * (see BazelClasspathContainer) have no method bodies and cannot be run, so they are replaced by their full jars; the
+ * other entries are resolved as JDT does for any container.
+ */
+public class BazelClasspathContainerRuntimeResolver implements IRuntimeClasspathEntryResolver {
+
+    @Override
+    public IRuntimeClasspathEntry[] resolveRuntimeClasspathEntry(IRuntimeClasspathEntry entry,
+            ILaunchConfiguration configuration) throws CoreException {
+        IJavaProject project = entry.getJavaProject();
+        if (project == null) {
+            project = JavaRuntime.getJavaProject(configuration);
+        }
+        return resolveRuntimeClasspathEntry(entry, project);
+    }
+
+    @Override
+    public IRuntimeClasspathEntry[] resolveRuntimeClasspathEntry(IRuntimeClasspathEntry entry, IJavaProject project)
+            throws CoreException {
+        if (project == null) {
+            return new IRuntimeClasspathEntry[0];
+        }
+        IClasspathContainer container = JavaCore.getClasspathContainer(entry.getPath(), project);
+        if (container == null) {
+            return new IRuntimeClasspathEntry[0];
+        }
+        List<IRuntimeClasspathEntry> resolvedEntries = new ArrayList<>();
+        for (IClasspathEntry classpathEntry : container.getClasspathEntries()) {
+            if (classpathEntry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+                IRuntimeClasspathEntry jarEntry = JavaRuntime.newArchiveRuntimeClasspathEntry(
+                    BazelClasspathContainer.getRuntimeJarPath(classpathEntry), classpathEntry.getSourceAttachmentPath(),
+                    classpathEntry.getSourceAttachmentRootPath(), classpathEntry.getAccessRules(),
+                    classpathEntry.getExtraAttributes(), classpathEntry.isExported());
+                jarEntry.setClasspathProperty(entry.getClasspathProperty());
+                resolvedEntries.add(jarEntry);
+            } else if (classpathEntry.getEntryKind() == IClasspathEntry.CPE_PROJECT) {
+                IProject otherProject = BazelPluginActivator.getResourceHelper().getEclipseWorkspaceRoot()
+                        .getProject(classpathEntry.getPath().segment(0));
+                IJavaProject otherJavaProject = BazelPluginActivator.getJavaCoreHelper().getJavaProjectForProject(otherProject);
+                IRuntimeClasspathEntry projectEntry = JavaRuntime.newProjectRuntimeClasspathEntry(otherJavaProject);
+                projectEntry.setClasspathProperty(entry.getClasspathProperty());
+                for (IRuntimeClasspathEntry outputEntry : JavaRuntime.resolveRuntimeClasspathEntry(projectEntry, project)) {
+                    resolvedEntries.add(outputEntry);
+                }
+            }
+        }
+        return resolvedEntries.toArray(new IRuntimeClasspathEntry[resolvedEntries.size()]);
+    }
+
+    @Override
+    public IVMInstall resolveVMInstall(IClasspathEntry entry) throws CoreException {
+        // not a JRE container
+        return null;
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.salesforce.bazel.eclipse.classpath.BazelOutputFileCache.FileStamp;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Content addressed copies of the jars put on the classpath of the projects.
+ * <p>
+ * Bazel rewrites many of its output jars on every build, even when their content does not change, and JDT indexes a
+ * jar of the classpath again (and rebuilds the projects that depend on it) every time its timestamp changes. The
+ * classpath entries therefore point to a staged copy of each jar, under a directory named after the hash of its
+ * content: a jar that Bazel rewrote with the same content keeps its staged path and timestamp, and JDT only sees a
+ * change (a new path) when the content really changed.
+ * <p>
+ * The staged copies are hard links when the file system allows it, Bazel replaces its outputs instead of writing into
+ * them, so a link keeps the content it was staged with. A link also keeps that content on disk after a 'bazel clean',
+ * until no jar uses the staged copy anymore, or the copy has not been used for {@link #UNUSED_RETENTION_MS}. Jars are
+ * only hashed again when their size or last modified time changed since they were staged, and they are hashed and
+ * copied outside of the lock, so that a large jar does not hold up the staging of the others. The staging area is
+ * disabled (jars are used in place) until its directory is set, which the plugin does with a directory of its state
+ * location.
+ */
+public class BazelJarStagingArea {
+    static final LogHelper LOG = LogHelper.log(BazelJarStagingArea.class);
+
+    private static final BazelJarStagingArea INSTANCE = new BazelJarStagingArea();
+
+    /**
+     * Staged copies that no session used for that long are deleted when the staging area is set up.
+     */
+    private static final long UNUSED_RETENTION_MS = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * The directory of a staged copy is touched when the copy is used, at most once per interval, see
+     * {@link #deleteUnusedCopies(File, long)}.
+     */
+    private static final long USE_TOUCH_INTERVAL_MS = 60L * 60 * 1000;
+
+    private File stagingDirectory;
+
+    /**
+     * jar -> its staged copy
+     */
+    private final Map<File, StagedJar> stagedJars = new HashMap<>();
+
+    /**
+     * staged copy -> the number of jars staged as this copy, the copy is deleted once no jar uses it anymore; jars of
+     * the same content and name share their staged copy
+     */
+    private final Map<File, StagedCopy> stagedCopies = new HashMap<>();
+
+    private static class StagedJar {
+        final long length;
+        final long lastModified;
+        final String hash;
+        final File stagedFile;
+
+        StagedJar(long length, long lastModified, String hash, File stagedFile) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.stagedFile = stagedFile;
+        }
+    }
+
+    private static class StagedCopy {
+        int references;
+        long touchedMillis;
+    }
+
+    public static BazelJarStagingArea getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the directory of the staged copies, null disables the staging area. The copies left by previous sessions are
+     * reused, except the ones that have not been used for a long time, which are deleted.
+     */
+    public synchronized void setStagingDirectory(File stagingDirectory) {
+        this.stagingDirectory = stagingDirectory;
+        stagedJars.clear();
+        stagedCopies.clear();
+        if (stagingDirectory != null) {
+            deleteUnusedCopies(stagingDirectory, System.currentTimeMillis() - UNUSED_RETENTION_MS);
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return stagingDirectory != null;
+    }
+
+    /**
+     * Returns the staged copy of the jar, staging it if it is new or if its content changed. Returns the jar itself if
+     * the staging area is disabled, or if the jar cannot be staged (for example because it does not exist).
+     */
+    public File stage(File jar) {
+        return stage(jar, FileStamp.of(jar));
+    }
+
+    /**
+     * Same as {@link #stage(File)}, with the size and last modified time of the jar already known, see
+     * {@link BazelOutputFileCache#getFileStamp(File)}.
+     */
+    public File stage(File jar, FileStamp jarStamp) {
+        long length = jarStamp.getLength();
+        long lastModified = jarStamp.getLastModified();
+        synchronized (this) {
+            if (stagingDirectory == null || lastModified == 0) {
+                // the jar does not exist
+                return jar;
+            }
+            StagedJar stagedJar = stagedJars.get(jar);
+            if (stagedJar != null && stagedJar.length == length && stagedJar.lastModified == lastModified
+                    && stagedJar.stagedFile.isFile()) {
+                markUsed(stagedJar.stagedFile);
+                return stagedJar.stagedFile;
+            }
+        }
+
+        String hash;
+        try {
+            hash = hash(jar);
+        } catch (IOException e) {
+            LOG.warn("Could not stage {}, the classpath uses it in place: {}", jar, e.getMessage());
+            return jar;
+        }
+
+        File stagedFile;
+        synchronized (this) {
+            if (stagingDirectory == null) {
+                return jar;
+            }
+            // looked up again, the jar may have been staged by another thread while it was hashed
+            StagedJar stagedJar = stagedJars.get(jar);
+            if (stagedJar != null && stagedJar.hash.equals(hash) && stagedJar.stagedFile.isFile()) {
+                // rewritten with the same content, the staged copy stays as it is
+                stagedJars.put(jar, new StagedJar(length, lastModified, hash, stagedJar.stagedFile));
+                markUsed(stagedJar.stagedFile);
+                return stagedJar.stagedFile;
+            }
+            stagedFile = new File(new File(stagingDirectory, hash), jar.getName());
+        }
+
+        // copied outside of the lock too, the staged file only appears once complete
+        if (!stagedFile.isFile()) {
+            try {
+                copy(jar, stagedFile);
+            } catch (IOException e) {
+                LOG.warn("Could not stage {}, the classpath uses it in place: {}", jar, e.getMessage());
+                return jar;
+            }
+        }
+
+        synchronized (this) {
+            if (!stagedFile.getParentFile().getParentFile().equals(stagingDirectory) || !stagedFile.isFile()) {
+                // the staging area was set up again, or another jar released the copy in the meantime; the jar is
+                // staged again the next time
+                return jar;
+            }
+            StagedJar stagedJar = stagedJars.get(jar);
+            if (stagedJar == null || !stagedJar.stagedFile.equals(stagedFile)) {
+                if (stagedJar != null) {
+                    release(stagedJar.stagedFile);
+                }
+                StagedCopy stagedCopy = stagedCopies.get(stagedFile);
+                if (stagedCopy == null) {
+                    stagedCopy = new StagedCopy();
+                    stagedCopies.put(stagedFile, stagedCopy);
+                }
+                stagedCopy.references++;
+            }
+            stagedJars.put(jar, new StagedJar(length, lastModified, hash, stagedFile));
+            // also marks a copy staged by a previous session as used
+            markUsed(stagedFile);
+            LOG.debug("Staged {} as {}", jar, stagedFile);
+            return stagedFile;
+        }
+    }
+
+    // INTERNAL
+
+    /**
+     * Touches the directory of the staged copy, so that it is not deleted as unused by the next session.
+     */
+    private void markUsed(File stagedFile) {
+        StagedCopy stagedCopy = stagedCopies.get(stagedFile);
+        long now = System.currentTimeMillis();
+        if (stagedCopy == null || now - stagedCopy.touchedMillis < USE_TOUCH_INTERVAL_MS) {
+            return;
+        }
+        stagedFile.getParentFile().setLastModified(now);
+        stagedCopy.touchedMillis = now;
+    }
+
+    private void release(File stagedFile) {
+        StagedCopy stagedCopy = stagedCopies.get(stagedFile);
+        if (stagedCopy != null && --stagedCopy.references > 0) {
+            return;
+        }
+        stagedCopies.remove(stagedFile);
+        // JDT may still have the previous copy open, in which case it is left for a later session; the directory is only
+        // deleted once no other jar of the same content is staged in it
+        if (stagedFile.delete()) {
+            stagedFile.getParentFile().delete();
+        }
+    }
+
+    private static void deleteUnusedCopies(File stagingDirectory, long unusedSince) {
+        File[] hashDirectories = stagingDirectory.listFiles(File::isDirectory);
+        if (hashDirectories == null) {
+            return;
+        }
+        int deleted = 0;
+        for (File hashDirectory : hashDirectories) {
+            if (hashDirectory.lastModified() >= unusedSince) {
+                continue;
+            }
+            File[] stagedFiles = hashDirectory.listFiles();
+            if (stagedFiles != null) {
+                for (File stagedFile : stagedFiles) {
+                    stagedFile.delete();
+                }
+            }
+            if (hashDirectory.delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            LOG.info("Deleted {} unused staged jar(s) from {}", deleted, stagingDirectory);
+        }
+    }
+
+    /**
+     * Hard links the jar to the staged file, or copies it if the file system does not support links. The staged file
+     * only appears once complete.
+     */
+    private static void copy(File jar, File stagedFile) throws IOException {
+        File hashDirectory = stagedFile.getParentFile();
+        Files.createDirectories(hashDirectory.toPath());
+        try {
+            Files.createLink(stagedFile.toPath(), jar.toPath());
+            return;
+        } catch (FileAlreadyExistsException e) {
+            // staged by another thread, the jars of the same content and name share the staged file
+            return;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.debug("Could not link {} to {}, copying it: {}", stagedFile, jar, e.getMessage());
+        }
+        Path tempFile = Files.createTempFile(hashDirectory.toPath(), jar.getName(), ".tmp");
+        try {
+            Files.copy(jar.toPath(), tempFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            try {
+                Files.move(tempFile, stagedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, stagedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    static String hash(File jar) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(jar.toPath()), digest)) {
+            while (in.read(buffer) != -1) {
+                // the digest is updated as the stream is read
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+
+/**
+ * Cache of the state of the files of the Bazel output directories that the classpath computation looks at: whether a
+ * file exists, where a symbolic link points to, the size and last modified time of a jar, and the staged copy of a
+ * jar. The classpath of each project is computed many times between two builds, and every computation would otherwise
+ * go to the file system for every jar.
+ * <p>
+ * There is one cache per Bazel workspace. The cache is valid for one build generation of the workspace (see
+ * BazelWorkspaceCommandRunner.getBuildGeneration()), it is emptied when it is used with a newer generation, as a
+ * build may have changed the output directories. Within a generation the file system is not looked at again: a build
+ * run outside of the plugin starts a new generation (the Bazel launches do so when they end), and refreshing the
+ * classpath empties the cache.
+ * <p>
+ * It also remembers the files whose problems have been reported, so each problem is only reported once.
+ */
+public class BazelOutputFileCache {
+
+    /**
+     * One cache per Bazel workspace, keyed by root directory.
+     */
+    private static final Map<File, BazelOutputFileCache> INSTANCES = new ConcurrentHashMap<>();
+
+    // enough for the jars of a large workspace, without growing forever if paths keep changing
+    static final int MAX_REPORTED_PATHS = 10000;
+
+    private volatile long buildGeneration = -1;
+    private volatile Map<File, Boolean> existingFiles = new ConcurrentHashMap<>();
+    private volatile Map<Path, Optional<Path>> resolvedPaths = new ConcurrentHashMap<>();
+    private volatile Map<File, StagedJar> stagedJars = new ConcurrentHashMap<>();
+    private volatile Map<File, FileStamp> fileStamps = new ConcurrentHashMap<>();
+    /**
+     * reported paths, the oldest ones are forgotten first, a problem with them is reported again
+     */
+    private final Set<Path> reportedPaths = Collections.synchronizedSet(Collections.newSetFromMap(
+        new LinkedHashMap<Path, Boolean>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+                return size() > MAX_REPORTED_PATHS;
+            }
+        }));
+
+    /**
+     * Returns the cache of the Bazel workspace.
+     */
+    public static BazelOutputFileCache getInstance(BazelWorkspace bazelWorkspace) {
+        return INSTANCES.computeIfAbsent(bazelWorkspace.getBazelWorkspaceRootDirectory(), root -> new BazelOutputFileCache());
+    }
+
+    /**
+     * Empties the caches of all the Bazel workspaces.
+     */
+    public static void clearAll() {
+        for (BazelOutputFileCache instance : INSTANCES.values()) {
+            instance.clear();
+        }
+    }
+
+    /**
+     * Empties the cache if the passed build generation is not the one the cache was filled with.
+     */
+    public synchronized void setBuildGeneration(long buildGeneration) {
+        if (this.buildGeneration != buildGeneration) {
+            this.buildGeneration = buildGeneration;
+            clearFileState();
+        }
+    }
+
+    /**
+     * Empties the cache, including the reported paths, so the next classpath computation looks at the file system again.
+     */
+    public synchronized void clear() {
+        buildGeneration = -1;
+        clearFileState();
+        reportedPaths.clear();
+    }
+
+    public boolean exists(File file) {
+        return existingFiles.computeIfAbsent(file, File::exists);
+    }
+
+    /**
+     * Returns the target of a symbolic link, or the path itself if it is not a link. Returns an empty Optional if the
+     * link cannot be read.
+     */
+    public Optional<Path> resolveSymbolicLink(Path path) {
+        return resolvedPaths.computeIfAbsent(path, p -> {
+            if (!Files.isSymbolicLink(p)) {
+                return Optional.of(p);
+            }
+            try {
+                return Optional.of(Files.readSymbolicLink(p));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Returns the size and last modified time of the file, 0 for a file that does not exist. The file is only looked at
+     * the first time in the generation.
+     */
+    public FileStamp getFileStamp(File file) {
+        return fileStamps.computeIfAbsent(file, FileStamp::of);
+    }
+
+    /**
+     * Returns the staged copy of the jar, the passed stager is only called the first time a jar is staged in the
+     * generation. It is passed the size and last modified time of the jar, as cached for the generation.
+     */
+    public File getStagedJar(File jar, BiFunction<File, FileStamp, File> stager) {
+        FileStamp jarStamp = getFileStamp(jar);
+        StagedJar stagedJar = stagedJars.get(jar);
+        if (stagedJar == null || !stagedJar.jarStamp.equals(jarStamp)) {
+            stagedJar = new StagedJar(jarStamp, stager.apply(jar, jarStamp));
+            stagedJars.put(jar, stagedJar);
+        }
+        return stagedJar.stagedFile;
+    }
+
+    /**
+     * Returns true the first time it is called for a path, when a problem with the path should be reported.
+     */
+    public boolean isFirstReport(Path path) {
+        return reportedPaths.add(path);
+    }
+
+    // INTERNAL
+
+    private void clearFileState() {
+        existingFiles = new ConcurrentHashMap<>();
+        resolvedPaths = new ConcurrentHashMap<>();
+        stagedJars = new ConcurrentHashMap<>();
+        fileStamps = new ConcurrentHashMap<>();
+    }
+
+    private static class StagedJar {
+        final FileStamp jarStamp;
+        final File stagedFile;
+
+        StagedJar(FileStamp jarStamp, File stagedFile) {
+            this.jarStamp = jarStamp;
+            this.stagedFile = stagedFile;
+        }
+    }
+
+    /**
+     * The size and last modified time of a file, which change when Bazel writes the file again.
+     */
+    public static final class FileStamp {
+        private final long length;
+        private final long lastModified;
+
+        FileStamp(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns the current size and last modified time of the file, without caching them.
+         */
+        public static FileStamp of(File file) {
+            return new FileStamp(file.length(), file.lastModified());
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(length) * 31 + Long.hashCode(lastModified);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) obj;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return length + "@" + lastModified;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+
+/**
+ * In memory index of the relationships between the Bazel Java projects in the Eclipse workspace. It tracks:
+ * <ul>
+ * <li>for each project, the projects that depend on it (the reverse of the project references computed by the
+ * classpath container)</li>
+ * <li>for each Bazel package path, the project that owns it</li>
+ * </ul>
+ * The index is updated by the {@link BazelClasspathContainer} every time it computes the classpath of a project, so
+ * lookups (downstream projects of a changed project, owning project of a file with a build error) are proportional to
+ * the size of the answer instead of the number of projects in the workspace.
+ */
+public class BazelProjectDependencyIndex {
+
+    private static final BazelProjectDependencyIndex INSTANCE = new BazelProjectDependencyIndex();
+
+    /**
+     * Project name -> the project. Contains every project whose dependencies have been indexed.
+     */
+    private final Map<String, IProject> indexedProjects = new HashMap<>();
+
+    /**
+     * Project name -> names of the projects it depends on. Kept so that an update can remove stale reverse edges.
+     */
+    private final Map<String, Set<String>> requiredProjectNames = new HashMap<>();
+
+    /**
+     * Project name -> names of the projects that depend on it.
+     */
+    private final Map<String, Set<String>> dependentProjectNames = new HashMap<>();
+
+    /**
+     * Bazel package path (e.g. projects/libs/apple) -> the project that owns it.
+     */
+    private final Map<String, IProject> projectsByPackagePath = new HashMap<>();
+
+    /**
+     * Project name -> the Bazel package paths it owns. Kept so that an update can remove stale package paths.
+     */
+    private final Map<String, Set<String>> packagePathsOfProject = new HashMap<>();
+
+    public static BazelProjectDependencyIndex getInstance() {
+        return INSTANCE;
+    }
+
+    BazelProjectDependencyIndex() {}
+
+    /**
+     * Replaces the indexed dependencies of the project with the passed projects.
+     */
+    public synchronized void updateProjectDependencies(IProject project, Collection<IProject> requiredProjects) {
+        String projectName = project.getName();
+        indexedProjects.put(projectName, project);
+
+        Set<String> previouslyRequired = requiredProjectNames.remove(projectName);
+        if (previouslyRequired != null) {
+            for (String requiredName : previouslyRequired) {
+                Set<String> dependents = dependentProjectNames.get(requiredName);
+                if (dependents != null) {
+                    dependents.remove(projectName);
+                }
+            }
+        }
+
+        Set<String> required = new HashSet<>();
+        for (IProject requiredProject : requiredProjects) {
+            String requiredName = requiredProject.getName();
+            if (requiredName.equals(projectName)) {
+                continue;
+            }
+            required.add(requiredName);
+            dependentProjectNames.computeIfAbsent(requiredName, n -> new HashSet<>()).add(projectName);
+        }
+        requiredProjectNames.put(projectName, required);
+    }
+
+    /**
+     * Replaces the Bazel package paths owned by the project with the passed package paths.
+     */
+    public synchronized void updateProjectPackagePaths(IProject project, Collection<String> packagePaths) {
+        String projectName = project.getName();
+        Set<String> previousPackagePaths = packagePathsOfProject.remove(projectName);
+        if (previousPackagePaths != null) {
+            for (String packagePath : previousPackagePaths) {
+                IProject owner = projectsByPackagePath.get(packagePath);
+                if (owner != null && owner.getName().equals(projectName)) {
+                    projectsByPackagePath.remove(packagePath);
+                }
+            }
+        }
+        Set<String> ownedPackagePaths = new HashSet<>(packagePaths);
+        for (String packagePath : ownedPackagePaths) {
+            projectsByPackagePath.put(packagePath, project);
+        }
+        packagePathsOfProject.put(projectName, ownedPackagePaths);
+    }
+
+    /**
+     * Returns true if the dependencies of the project have been indexed. The downstream projects of a project are only
+     * complete once every project of the workspace is indexed.
+     */
+    public synchronized boolean isIndexed(IProject project) {
+        return indexedProjects.containsKey(project.getName());
+    }
+
+    /**
+     * Returns the indexed projects that directly depend on the passed project.
+     */
+    public synchronized Set<IProject> getDownstreamProjects(IProject upstream) {
+        Set<String> dependents = dependentProjectNames.get(upstream.getName());
+        if (dependents == null || dependents.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<IProject> downstreams = new LinkedHashSet<>();
+        for (String dependentName : dependents) {
+            IProject dependent = indexedProjects.get(dependentName);
+            if (dependent != null) {
+                downstreams.add(dependent);
+            }
+        }
+        return downstreams;
+    }
+
+    /**
+     * Returns the project that owns the Bazel package containing the passed file, or null if no indexed project owns
+     * it. The file path is relative to the Bazel workspace root, and the innermost Bazel package wins.
+     */
+    public synchronized IProject getOwningProject(String resourcePath) {
+        String path = resourcePath;
+        while (true) {
+            int i = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar));
+            if (i == -1) {
+                // the resource lives in the root package
+                return projectsByPackagePath.get("");
+            }
+            path = path.substring(0, i);
+            IProject owner = projectsByPackagePath.get(path);
+            if (owner != null) {
+                return owner;
+            }
+        }
+    }
+
+    /**
+     * Returns the project that owns the passed Bazel package (e.g. projects/libs/apple), or null if no indexed project
+     * owns it.
+     */
+    public synchronized IProject getProjectForPackagePath(String packagePath) {
+        return projectsByPackagePath.get(packagePath);
+    }
+
+    /**
+     * Drops the project from the index, for example after it has been deleted from the workspace.
+     */
+    public synchronized void removeProject(IProject project) {
+        updateProjectDependencies(project, Collections.emptySet());
+        updateProjectPackagePaths(project, Collections.emptySet());
+        String projectName = project.getName();
+        indexedProjects.remove(projectName);
+        requiredProjectNames.remove(projectName);
+        packagePathsOfProject.remove(projectName);
+    }
+
+    public synchronized void clear() {
+        indexedProjects.clear();
+        requiredProjectNames.clear();
+        dependentProjectNames.clear();
+        projectsByPackagePath.clear();
+        packagePathsOfProject.clear();
+    }
+}
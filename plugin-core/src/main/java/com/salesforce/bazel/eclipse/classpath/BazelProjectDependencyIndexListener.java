@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.salesforce.bazel.eclipse.BazelNature;
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Keeps the {@link BazelProjectDependencyIndex} current as projects are opened, closed and deleted. The classpath
+ * container indexes the projects whose classpath it computes; the other projects of the workspace are indexed once,
+ * from the Java model, by {@link #seedDependencyIndex()}.
+ */
+public class BazelProjectDependencyIndexListener implements IResourceChangeListener {
+    static final LogHelper LOG = LogHelper.log(BazelProjectDependencyIndexListener.class);
+
+    private static boolean seeded = false;
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+        BazelProjectDependencyIndex dependencyIndex = BazelProjectDependencyIndex.getInstance();
+        if (event.getType() == IResourceChangeEvent.PRE_CLOSE || event.getType() == IResourceChangeEvent.PRE_DELETE) {
+            if (event.getResource() instanceof IProject) {
+                dependencyIndex.removeProject((IProject) event.getResource());
+            }
+            return;
+        }
+        if (event.getType() != IResourceChangeEvent.POST_CHANGE || event.getDelta() == null) {
+            return;
+        }
+        // the projects are the children of the workspace root, an open flag is set on them only
+        for (IResourceDelta projectDelta : event.getDelta().getAffectedChildren(IResourceDelta.CHANGED)) {
+            if ((projectDelta.getFlags() & IResourceDelta.OPEN) == 0
+                    || !(projectDelta.getResource() instanceof IProject)) {
+                continue;
+            }
+            IProject project = (IProject) projectDelta.getResource();
+            if (project.isOpen() && isBazelProject(project)) {
+                indexProject(BazelPluginActivator.getJavaCoreHelper().getJavaProjectForProject(project));
+            }
+        }
+    }
+
+    /**
+     * Indexes the Bazel Java projects of the workspace from the Java model, the first time it is called. The
+     * classpath of the projects imported in a previous session may not be computed in this one.
+     */
+    public static synchronized void seedDependencyIndex() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        BazelProjectDependencyIndex dependencyIndex = BazelProjectDependencyIndex.getInstance();
+        for (IJavaProject javaProject : BazelPluginActivator.getJavaCoreHelper().getAllBazelJavaProjects(false)) {
+            if (!dependencyIndex.isIndexed(javaProject.getProject())) {
+                indexProject(javaProject);
+            }
+        }
+    }
+
+    // INTERNAL
+
+    private static void indexProject(IJavaProject javaProject) {
+        IWorkspaceRoot workspaceRoot = BazelPluginActivator.getResourceHelper().getEclipseWorkspaceRoot();
+        List<IProject> requiredProjects = new ArrayList<>();
+        try {
+            for (String requiredProjectName : javaProject.getRequiredProjectNames()) {
+                IProject requiredProject = workspaceRoot.getProject(requiredProjectName);
+                if (requiredProject != null) {
+                    requiredProjects.add(requiredProject);
+                }
+            }
+        } catch (JavaModelException ex) {
+            LOG.warn("Could not read the project references of {}: {}", javaProject.getElementName(), ex.getMessage());
+            return;
+        }
+        BazelProjectDependencyIndex.getInstance().updateProjectDependencies(javaProject.getProject(), requiredProjects);
+    }
+
+    private static boolean isBazelProject(IProject project) {
+        try {
+            return project.hasNature(BazelNature.BAZEL_NATURE_ID);
+        } catch (CoreException ex) {
+            return false;
+        }
+    }
+}
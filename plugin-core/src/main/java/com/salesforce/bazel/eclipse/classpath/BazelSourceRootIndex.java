@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
+import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
+
+/**
+ * The source folders of the Java projects of the Eclipse workspace, indexed by their location, to find the project
+ * that holds a source file by looking up the directories of the file instead of going through every project.
+ */
+class BazelSourceRootIndex {
+
+    private final Map<Path, List<SourceRoot>> locationToSourceRoots = new HashMap<>();
+
+    BazelSourceRootIndex(ResourceHelper resourceHelper, IProject[] projects) {
+        IWorkspaceRoot eclipseWorkspaceRoot = resourceHelper.getEclipseWorkspaceRoot();
+        JavaCoreHelper javaCoreHelper = BazelPluginActivator.getJavaCoreHelper();
+        for (IProject project : projects) {
+            IJavaProject javaProject = javaCoreHelper.getJavaProjectForProject(project);
+            IClasspathEntry[] classpathEntries = javaCoreHelper.getRawClasspath(javaProject);
+            if (classpathEntries == null) {
+                BazelPluginActivator.error("No classpath entries found for project ["+javaProject.getElementName()+"]");
+                continue;
+            }
+            for (IClasspathEntry entry : classpathEntries) {
+                if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE) {
+                    continue;
+                }
+                IResource res = resourceHelper.findMemberInWorkspace(eclipseWorkspaceRoot, entry.getPath());
+                if (res == null || res.getLocation() == null) {
+                    continue;
+                }
+                String location = res.getLocation().toOSString();
+                if (location.isEmpty()) {
+                    continue;
+                }
+                locationToSourceRoots.computeIfAbsent(Paths.get(location), l -> new ArrayList<>())
+                        .add(new SourceRoot(javaProject, entry));
+            }
+        }
+    }
+
+    /**
+     * Returns the project with a source folder that contains the file, and that the inclusion and exclusion patterns
+     * of the folder do not filter out. Returns null if there is none.
+     */
+    IJavaProject getProjectForSourceFile(Path absoluteSourcePath) {
+        for (Path directory = absoluteSourcePath.getParent(); directory != null; directory = directory.getParent()) {
+            List<SourceRoot> sourceRoots = locationToSourceRoots.get(directory);
+            if (sourceRoots == null) {
+                continue;
+            }
+            for (SourceRoot sourceRoot : sourceRoots) {
+                if (sourceRoot.contains(absoluteSourcePath)) {
+                    return sourceRoot.project;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class SourceRoot {
+        private final IJavaProject project;
+        private final IClasspathEntry entry;
+
+        SourceRoot(IJavaProject project, IClasspathEntry entry) {
+            this.project = project;
+            this.entry = entry;
+        }
+
+        boolean contains(Path absoluteSourcePath) {
+            IPath[] inclusionPatterns = entry.getInclusionPatterns();
+            IPath[] exclusionPatterns = entry.getExclusionPatterns();
+            if (matchPatterns(absoluteSourcePath, exclusionPatterns)) {
+                return false;
+            }
+            return inclusionPatterns == null || inclusionPatterns.length == 0
+                    || matchPatterns(absoluteSourcePath, inclusionPatterns);
+        }
+    }
+
+    /**
+     * Globby match of file system patterns for a given path. If the path matches any of the patterns, this method
+     * returns true.
+     */
+    private static boolean matchPatterns(Path path, IPath[] patterns) {
+        if (patterns != null) {
+            for (IPath p : patterns) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + p.toOSString());
+                if (matcher.matches(path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.IClasspathEntry;
+
+import com.salesforce.bazel.eclipse.classpath.BazelOutputFileCache.FileStamp;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+
+/**
+ * Bazel workspace level cache of what each Bazel target contributes to the classpath of the projects that depend on it: the
+ * project that holds the sources of the target, or the jars of the target if no project does. Every project depends
+ * on many of the same targets, with the cache a target is resolved once for all projects instead of once per project.
+ * <p>
+ * An entry is valid as long as the aspect data of the target is the same AspectPackageInfo instance. The jars of a
+ * target are only valid for the build generation they were resolved in, and as long as they are not rewritten by a
+ * build run outside of the plugin, but the target keeps being known as one without a source project. When projects
+ * are added, the targets without a source project are resolved again, as a new project may hold their sources; when
+ * projects are removed, all targets are, and so are they when the raw classpath of a project changes (see
+ * BazelRawClasspathChangeListener). The cache also holds the index of the source folders of the projects, which is
+ * used to find the source project of a target, and which is built again in both cases.
+ */
+public class BazelTargetClasspathCache {
+
+    /**
+     * One cache per Bazel workspace, keyed by root directory.
+     */
+    private static final Map<File, BazelTargetClasspathCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private int projectCount = -1;
+    private final Map<String, TargetClasspath> targetClasspaths = new ConcurrentHashMap<>();
+    private BazelSourceRootIndex sourceRootIndex;
+
+    /**
+     * Returns the cache of the Bazel workspace.
+     */
+    public static BazelTargetClasspathCache getInstance(BazelWorkspace bazelWorkspace) {
+        return INSTANCES.computeIfAbsent(bazelWorkspace.getBazelWorkspaceRootDirectory(), root -> new BazelTargetClasspathCache());
+    }
+
+    /**
+     * Empties the caches of all the Bazel workspaces.
+     */
+    public static void clearAll() {
+        for (BazelTargetClasspathCache instance : INSTANCES.values()) {
+            instance.clear();
+        }
+    }
+
+    /**
+     * Drops the entries that may be stale if the number of projects in the Eclipse workspace changed.
+     */
+    public synchronized void setProjectCount(int projectCount) {
+        if (projectCount < this.projectCount) {
+            targetClasspaths.clear();
+        } else if (projectCount > this.projectCount) {
+            targetClasspaths.values().removeIf(targetClasspath -> targetClasspath.getSourceProject() == null);
+        }
+        if (projectCount != this.projectCount) {
+            sourceRootIndex = null;
+        }
+        this.projectCount = projectCount;
+    }
+
+    public synchronized void clear() {
+        projectCount = -1;
+        targetClasspaths.clear();
+        sourceRootIndex = null;
+    }
+
+    /**
+     * Returns the index of the source folders of the projects, built with the passed supplier if the projects changed
+     * since it was last built.
+     */
+    synchronized BazelSourceRootIndex getSourceRootIndex(Supplier<BazelSourceRootIndex> indexSupplier) {
+        if (sourceRootIndex == null) {
+            sourceRootIndex = indexSupplier.get();
+        }
+        return sourceRootIndex;
+    }
+
+    /**
+     * Returns the last classpath contribution resolved for the target, null if the aspect data of the target changed
+     * since. The jars of the returned contribution may be from an earlier build generation, see
+     * {@link TargetClasspath#isValidFor(long, BazelOutputFileCache)}.
+     */
+    public TargetClasspath get(AspectPackageInfo packageInfo) {
+        TargetClasspath targetClasspath = targetClasspaths.get(packageInfo.getLabel());
+        if (targetClasspath == null || targetClasspath.packageInfo != packageInfo) {
+            return null;
+        }
+        return targetClasspath;
+    }
+
+    public void put(TargetClasspath targetClasspath) {
+        if (!targetClasspath.isComplete()) {
+            return;
+        }
+        targetClasspaths.put(targetClasspath.packageInfo.getLabel(), targetClasspath);
+    }
+
+    /**
+     * The classpath contribution of a target.
+     */
+    public static class TargetClasspath {
+        private final AspectPackageInfo packageInfo;
+        private final IProject sourceProject;
+        private final List<IClasspathEntry> jarEntries;
+        private final Map<File, FileStamp> stagedJarStamps;
+        private final long buildGeneration;
+        private final boolean complete;
+
+        TargetClasspath(AspectPackageInfo packageInfo, IProject sourceProject, List<IClasspathEntry> jarEntries,
+                Map<File, FileStamp> stagedJarStamps, long buildGeneration, boolean complete) {
+            this.packageInfo = packageInfo;
+            this.sourceProject = sourceProject;
+            this.jarEntries = Collections.unmodifiableList(jarEntries);
+            this.stagedJarStamps = stagedJarStamps;
+            this.buildGeneration = buildGeneration;
+            this.complete = complete;
+        }
+
+        public AspectPackageInfo getPackageInfo() {
+            return packageInfo;
+        }
+
+        /**
+         * The project that holds the sources of the target, null for an external jar or a target that was not
+         * imported.
+         */
+        public IProject getSourceProject() {
+            return sourceProject;
+        }
+
+        /**
+         * The library entries of the jars of the target, empty if the target has a source project.
+         */
+        public List<IClasspathEntry> getJarEntries() {
+            return jarEntries;
+        }
+
+        /**
+         * False if a jar of the target was missing from the aspect data, such a target is not cached.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * True if the contribution can be used as is in the build generation, false if the jars have to be resolved
+         * again, because of a build of the plugin or of a build run outside of it.
+         */
+        public boolean isValidFor(long buildGeneration, BazelOutputFileCache fileCache) {
+            if (sourceProject != null) {
+                return true;
+            }
+            if (this.buildGeneration != buildGeneration) {
+                return false;
+            }
+            for (Entry<File, FileStamp> stagedJarStamp : stagedJarStamps.entrySet()) {
+                if (!stagedJarStamp.getValue().equals(fileCache.getFileStamp(stagedJarStamp.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -79,23 +79,31 @@ public class ImplicitDependencyHelper {
         // Because of the way we are doing this, there is no aspect json file written on disk that we can consume.
         // Just write the path to the file directly.
 
+        // the same for every java_test, the file system is only looked at once per build generation
+        BazelOutputFileCache fileCache = BazelOutputFileCache.getInstance(bazelWorkspace);
         File bazelBinDir = bazelWorkspace.getBazelBinDirectory();
         File testRunnerDir = new File(bazelBinDir, "external/bazel_tools/tools/jdk/_ijar/TestRunner");
-        if (!testRunnerDir.exists()) {
-            BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
-                "], directory ["+testRunnerDir.getAbsolutePath()+"] does not exist.");
+        if (!fileCache.exists(testRunnerDir)) {
+            if (fileCache.isFirstReport(testRunnerDir.toPath())) {
+                BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
+                    "], directory ["+testRunnerDir.getAbsolutePath()+"] does not exist.");
+            }
             return null;
         }
         File javaToolsDir = new File(testRunnerDir, "external/remote_java_tools_"+bazelWorkspace.getOperatingSystemFoldername()+"/java_tools");
-        if (!javaToolsDir.exists()) {
-            BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
-                "], directory ["+javaToolsDir.getAbsolutePath()+"] does not exist.");
+        if (!fileCache.exists(javaToolsDir)) {
+            if (fileCache.isFirstReport(javaToolsDir.toPath())) {
+                BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
+                    "], directory ["+javaToolsDir.getAbsolutePath()+"] does not exist.");
+            }
             return null;
         }
         File runnerJar = new File(javaToolsDir, "Runner_deploy-ijar.jar");
-        if (!runnerJar.exists()) {
-            BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
-                "], test runner jar ["+runnerJar.getAbsolutePath()+"] does not exist.");
+        if (!fileCache.exists(runnerJar)) {
+            if (fileCache.isFirstReport(runnerJar.toPath())) {
+                BazelPluginActivator.error("Could not add implicit test deps to target ["+packageInfo.getLabel()+
+                    "], test runner jar ["+runnerJar.getAbsolutePath()+"] does not exist.");
+            }
             return null;
         }
         return runnerJar.getAbsolutePath();
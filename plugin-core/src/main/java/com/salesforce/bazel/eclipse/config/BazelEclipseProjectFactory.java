@@ -75,6 +75,9 @@ import com.salesforce.bazel.eclipse.classpath.JavaLanguageLevelHelper;
 import com.salesforce.bazel.eclipse.command.BazelCommandManager;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.Timer;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfos;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
@@ -129,49 +132,65 @@ public class BazelEclipseProjectFactory {
 
         // Set the flag that an import is in progress
         importInProgress.set(true);
+        Timer.Context importTiming = MetricsRegistry.getInstance().timer("import.workspace").time();
+        TraceRecorder.Span importSpan = TraceRecorder.getInstance().span("importWorkspace", "import")
+                .arg("workspace", bazelWorkspaceName).arg("packages", selectedBazelPackages.size());
+        try {
 
-        // clear out state flag in the Bazel classpath initializer in case there was a previous failed import run
-        BazelClasspathContainerInitializer.isCorrupt.set(false);
+            // clear out state flag in the Bazel classpath initializer in case there was a previous failed import run
+            BazelClasspathContainerInitializer.isCorrupt.set(false);
 
-        // TODO send this message to the EclipseConsole so the user actually sees it
-        LOG.info("Starting import of [{}]. This may take some time, please be patient.", bazelWorkspaceName);
+            // TODO send this message to the EclipseConsole so the user actually sees it
+            LOG.info("Starting import of [{}]. This may take some time, please be patient.", bazelWorkspaceName);
 
-        // get the Workspace options (.bazelrc)
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
-        BazelWorkspaceCommandOptions options = bazelWorkspace.getBazelWorkspaceCommandOptions();
+            // get the Workspace options (.bazelrc)
+            BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
+            BazelWorkspaceCommandOptions options = bazelWorkspace.getBazelWorkspaceCommandOptions();
         
-        // determine the Java levels
-        String javacoptString = options.getContextualOption("build", "javacopt");
-        int sourceLevel = JavaLanguageLevelHelper.getSourceLevelAsInt(javacoptString);
+            // determine the Java levels
+            String javacoptString = options.getContextualOption("build", "javacopt");
+            int sourceLevel = JavaLanguageLevelHelper.getSourceLevelAsInt(javacoptString);
         
-        // create the Eclipse project for the Bazel workspace (directory that contains the WORKSPACE file)
-        IProject rootEclipseProject = createEclipseRootWorkspaceProject(bazelWorkspaceName, bazelWorkspaceRoot, sourceLevel, 
-                selectedBazelPackages, monitor);
-        List<IProject> importedProjectsList = new ArrayList<>();
-        importedProjectsList.add(rootEclipseProject);
-
-        // see the method level comment about this option (currently disabled)
-        if (PRECOMPUTE_ALL_ASPECTS_FOR_WORKSPACE) {
-            precomputeBazelAspectsForWorkspace(rootEclipseProject, selectedBazelPackages, progressMonitor);
-        }
+            // create the Eclipse project for the Bazel workspace (directory that contains the WORKSPACE file)
+            IProject rootEclipseProject = createEclipseRootWorkspaceProject(bazelWorkspaceName, bazelWorkspaceRoot, sourceLevel, 
+                    selectedBazelPackages, monitor);
+            List<IProject> importedProjectsList = new ArrayList<>();
+            importedProjectsList.add(rootEclipseProject);
+
+            // see the method level comment about this option (currently disabled)
+            if (PRECOMPUTE_ALL_ASPECTS_FOR_WORKSPACE) {
+                precomputeBazelAspectsForWorkspace(rootEclipseProject, selectedBazelPackages, progressMonitor);
+            }
 
-        // finally, create an Eclipse Project for each Bazel Package being imported
-        subMonitor.setTaskName("Importing bazel packages: ");
-        for (BazelPackageLocation childPackageInfo : selectedBazelPackages) {
-            subMonitor.subTask("Importing " + childPackageInfo.getBazelPackageFSRelativePath());
-            if (childPackageInfo.isWorkspaceRoot()) {
-                // the workspace root node has already been created (above)
-                continue;
+            // finally, create an Eclipse Project for each Bazel Package being imported
+            subMonitor.setTaskName("Importing bazel packages: ");
+            for (BazelPackageLocation childPackageInfo : selectedBazelPackages) {
+                subMonitor.subTask("Importing " + childPackageInfo.getBazelPackageFSRelativePath());
+                if (childPackageInfo.isWorkspaceRoot()) {
+                    // the workspace root node has already been created (above)
+                    continue;
+                }
+                Timer.Context timing = MetricsRegistry.getInstance().timer("import.project").time();
+                TraceRecorder.Span span = TraceRecorder.getInstance().span("importPackage", "import")
+                        .arg("package", childPackageInfo.getBazelPackageFSRelativePath());
+                try {
+                    importBazelWorkspacePackagesAsProjects(childPackageInfo, bazelWorkspaceRoot, importedProjectsList, sourceLevel);
+                } finally {
+                    span.close();
+                    timing.close();
+                }
+                subMonitor.split(1);
             }
-            importBazelWorkspacePackagesAsProjects(childPackageInfo, bazelWorkspaceRoot, importedProjectsList, sourceLevel);
-            subMonitor.split(1);
-        }
 
-        subMonitor.done();
-        // reset flag that indicates we are doing import
-        importInProgress.set(false);
+            subMonitor.done();
 
-        return importedProjectsList;
+            return importedProjectsList;
+        } finally {
+            importSpan.close();
+            importTiming.close();
+            // reset flag that indicates we are doing import
+            importInProgress.set(false);
+        }
     }
     
     public static String getBazelWorkspaceName(String bazelWorkspaceRootDirectory) {
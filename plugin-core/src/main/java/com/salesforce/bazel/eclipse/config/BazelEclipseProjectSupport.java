@@ -33,9 +33,14 @@
  */
 package com.salesforce.bazel.eclipse.config;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -46,11 +51,16 @@ import org.eclipse.ui.actions.WorkspaceModifyOperation;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
 import com.salesforce.bazel.eclipse.builder.BazelMarkerManagerSingleton;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.Timer;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
 import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
 
 /**
  * Support class that provides interaction methods for existing Eclipse Bazel projects.
@@ -89,6 +99,19 @@ public class BazelEclipseProjectSupport {
         return listBuilder.build();
     }
 
+    /**
+     * Returns the root directory of the Bazel workspace the project was imported from, null if the project does not
+     * record it.
+     */
+    public static File getBazelWorkspaceRootDirectory(IProject eclipseProject) {
+        Preferences eclipseProjectBazelPrefs = BazelPluginActivator.getResourceHelper().getProjectBazelPreferences(eclipseProject);
+        String bazelWorkspaceRoot = eclipseProjectBazelPrefs.get(WORKSPACE_ROOT_PROPERTY, "");
+        if (bazelWorkspaceRoot.isEmpty()) {
+            return null;
+        }
+        return BazelProjectHelper.getCanonicalFileSafely(new File(bazelWorkspaceRoot));
+    }
+
     /**
      * List of Bazel build flags for this Eclipse project, taken from the project configuration
      */
@@ -106,15 +129,62 @@ public class BazelEclipseProjectSupport {
         return listBuilder.build();
     }
 
+    /**
+     * The build flags of all the open Eclipse projects imported from the Bazel workspace. They are passed to every Bazel
+     * command that builds code in the workspace, see BazelWorkspaceCommandRunner#setProjectBuildFlags.
+     */
+    public static Set<String> getBazelBuildFlagsForBazelWorkspace(BazelWorkspace bazelWorkspace) {
+        Set<String> buildFlags = new TreeSet<>();
+        File bazelWorkspaceRoot = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        for (IProject eclipseProject : BazelPluginActivator.getResourceHelper().getEclipseWorkspace().getRoot().getProjects()) {
+            if (eclipseProject.isOpen() && bazelWorkspaceRoot.equals(getBazelWorkspaceRootDirectory(eclipseProject))) {
+                buildFlags.addAll(getBazelBuildFlagsForEclipseProject(eclipseProject));
+            }
+        }
+        return buildFlags;
+    }
+
     /**
      * Publishes problem markers for the specified project.
      */
     public static void publishProblemMarkers(IProject project, IProgressMonitor monitor, Collection<BazelMarkerDetails> errors, Collection<BazelLabel> labels) {
+        Multimap<IProject, BazelMarkerDetails> errorsByProject = HashMultimap.create();
+        errorsByProject.putAll(project, errors);
+        Multimap<IProject, BazelLabel> labelsByProject = HashMultimap.create();
+        labelsByProject.putAll(project, labels);
+        publishProblemMarkers(Collections.singleton(project), monitor, errorsByProject, labelsByProject);
+    }
+
+    /**
+     * Publishes problem markers for the specified projects. All marker changes are made in a single workspace
+     * operation, and only markers that differ from the ones already present are deleted or created.
+     */
+    public static void publishProblemMarkers(Collection<IProject> projects, IProgressMonitor monitor,
+            Multimap<IProject, BazelMarkerDetails> errorsByProject, Multimap<IProject, BazelLabel> labelsByProject) {
+        publishProblemMarkers(projects, monitor, errorsByProject, labelsByProject, Collections.emptyMap());
+    }
+
+    /**
+     * Publishes problem markers for the specified projects, like
+     * {@link #publishProblemMarkers(Collection, IProgressMonitor, Multimap, Multimap)}. For the projects that have an
+     * entry in markerScopeByProject, only the markers on the listed project relative file paths are updated; this is
+     * used when only some of the targets of a project were built.
+     */
+    public static void publishProblemMarkers(Collection<IProject> projects, IProgressMonitor monitor,
+            Multimap<IProject, BazelMarkerDetails> errorsByProject, Multimap<IProject, BazelLabel> labelsByProject,
+            Map<IProject, Set<String>> markerScopeByProject) {
         runWithProgress(monitor, new WorkspaceModifyOperation() {
             @Override
             protected void execute(IProgressMonitor monitor) throws CoreException {
-                MARKER_MANAGER.clearProblemMarkersForProject(project);
-                MARKER_MANAGER.publishProblemMarkersForProject(project, errors, labels);
+                Timer.Context timing = MetricsRegistry.getInstance().timer("markers.publish").time();
+                try {
+                    for (IProject project : projects) {
+                        MARKER_MANAGER.syncProblemMarkersForProject(project, errorsByProject.get(project),
+                            labelsByProject.get(project), markerScopeByProject.get(project));
+                    }
+                } finally {
+                    timing.close();
+                }
             }
         });
     }
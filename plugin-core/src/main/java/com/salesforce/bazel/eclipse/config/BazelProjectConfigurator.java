@@ -35,11 +35,14 @@ package com.salesforce.bazel.eclipse.config;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -78,20 +81,33 @@ public class BazelProjectConfigurator implements ProjectConfigurator {
     public Set<File> findConfigurableLocations(File root, IProgressMonitor monitor) {
         Set<File> buildFileLocations = new TreeSet<>();
 
-        findBuildFileLocations(root, monitor, buildFileLocations, 0);
+        findConfigurableLocations(root, monitor, buildFileLocations::add);
 
         return buildFileLocations;
     }
 
+    /**
+     * Same as {@link #findConfigurableLocations(File, IProgressMonitor)}, but each location is passed to the listener
+     * as soon as it is found, so that a caller can show the first ones while the rest of the tree is scanned. The
+     * directories are walked in name order and a package is reported before the packages below it. The scan stops
+     * when the monitor is cancelled.
+     */
+    public void findConfigurableLocations(File root, IProgressMonitor monitor, Consumer<File> locationListener) {
+        findBuildFileLocations(root, monitor, locationListener, 0);
+    }
+
     // TODO our workspace scanner is looking for Java packages, but uses primitive techniques. switch to use the aspect
     // approach here, like we do with the classpath computation. 
-    private void findBuildFileLocations(File dir, IProgressMonitor monitor, Set<File> buildFileLocations, int depth) {
-        if (!dir.isDirectory()) {
+    private void findBuildFileLocations(File dir, IProgressMonitor monitor, Consumer<File> locationListener,
+            int depth) {
+        if (!dir.isDirectory() || (monitor != null && monitor.isCanceled())) {
             return;
         }
 
         try {
             File[] dirFiles = dir.listFiles();
+            Arrays.sort(dirFiles);
+            List<File> subDirs = new ArrayList<>();
             for (File dirFile : dirFiles) {
 
                 if (shouldIgnore(dirFile, depth)) {
@@ -103,12 +119,16 @@ public class BazelProjectConfigurator implements ProjectConfigurator {
                     // great, this dir is a Bazel package (but this may be a non-Java package)
                     // scan the BUILD file looking for java rules, only add if this is a java project
                     if (BazelBuildFileHelper.hasJavaRules(dirFile)) {
-                        buildFileLocations.add(BazelProjectHelper.getCanonicalFileSafely(dir));
+                        locationListener.accept(BazelProjectHelper.getCanonicalFileSafely(dir));
                     }
                 } else if (dirFile.isDirectory()) {
-                    findBuildFileLocations(dirFile, monitor, buildFileLocations, depth + 1);
+                    subDirs.add(dirFile);
                 }
             }
+            // after the BUILD file of this dir, so that the package of this dir comes before the packages below it
+            for (File subDir : subDirs) {
+                findBuildFileLocations(subDir, monitor, locationListener, depth + 1);
+            }
         } catch (Exception anyE) {
             LOG.error("ERROR scanning for Bazel packages: {}", anyE.getMessage());
         }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.config;
+
+import java.io.File;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+
+/**
+ * Removes the Bazel workspace of a project that is deleted, when it is the last project of the workspace, so that the
+ * Bazel server of the workspace is stopped and the workspace is not opened again at the next start.
+ */
+public class BazelProjectDeletionListener implements IResourceChangeListener {
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+        if (event.getType() != IResourceChangeEvent.PRE_DELETE || !(event.getResource() instanceof IProject)) {
+            return;
+        }
+        IProject project = (IProject) event.getResource();
+        File rootDirectory = BazelEclipseProjectSupport.getBazelWorkspaceRootDirectory(project);
+        if (rootDirectory != null && !hasOtherProject(rootDirectory, project)) {
+            BazelPluginActivator.getInstance().removeBazelWorkspace(rootDirectory);
+        }
+    }
+
+    /**
+     * Returns true if a project other than the deleted one may belong to the Bazel workspace. The preferences of a
+     * closed project cannot be read, so a closed project is assumed to belong to it.
+     */
+    static boolean hasOtherProject(File rootDirectory, IProject deletedProject) {
+        for (IProject project : BazelPluginActivator.getResourceHelper().getEclipseWorkspace().getRoot().getProjects()) {
+            if (project.equals(deletedProject)) {
+                continue;
+            }
+            if (!project.isOpen()
+                    || rootDirectory.equals(BazelEclipseProjectSupport.getBazelWorkspaceRootDirectory(project))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
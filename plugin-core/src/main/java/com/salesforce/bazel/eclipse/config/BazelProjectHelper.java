@@ -11,7 +11,7 @@ public class BazelProjectHelper {
   /**
    * Resolve softlinks and other abstractions in the workspace paths.
    */
-  static File getCanonicalFileSafely(File directory) {
+  public static File getCanonicalFileSafely(File directory) {
       if (directory == null) {
           return null;
       }
@@ -35,7 +35,9 @@ package com.salesforce.bazel.eclipse.importer;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Set;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 
 import com.salesforce.bazel.eclipse.config.BazelProjectConfigurator;
 import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
@@ -116,35 +118,54 @@ public class BazelProjectImportScanner {
      * @return the workspace root BazelPackageInfo
      */
     public BazelPackageInfo getProjects(File rootDirectoryFile) {
+        return getProjects(rootDirectoryFile, null, null);
+    }
+
+    /**
+     * Same as {@link #getProjects(File)}, but the packages are passed to the listener while the workspace is scanned:
+     * the workspace root first, then each Java package as soon as it is found, a package before the packages below it.
+     * The scan stops early if the monitor is cancelled, the returned tree then has the packages found so far.
+     * <p>
+     * The listener is called on the scanning thread. The tree of the returned root is being built while the scan
+     * runs, so another thread should only walk it once this method has returned.
+     *
+     * @param monitor
+     *            can be null
+     * @param packageListener
+     *            can be null
+     */
+    public BazelPackageInfo getProjects(File rootDirectoryFile, IProgressMonitor monitor,
+            Consumer<BazelPackageInfo> packageListener) {
         if (rootDirectoryFile == null || !rootDirectoryFile.exists() || !rootDirectoryFile.isDirectory()) {
             // this is the initialization state of the wizard
             return null;
         }
         String rootDirectory = rootDirectoryFile.getAbsolutePath();
 
-        // TODO the correct way to do this is put the configurator on another thread, and allow it to update the progress monitor.
-        // Do it on-thread for now as it is easiest.
-
-        BazelProjectConfigurator configurator = new BazelProjectConfigurator();
-        Set<File> projects = configurator.findConfigurableLocations(rootDirectoryFile, null);
-
         BazelPackageInfo workspace = new BazelPackageInfo(rootDirectoryFile);
+        if (packageListener != null) {
+            packageListener.accept(workspace);
+        }
 
         int sizeOfWorkspacePath = rootDirectory.length();
-        for (File project : projects) {
+        BazelProjectConfigurator configurator = new BazelProjectConfigurator();
+        configurator.findConfigurableLocations(rootDirectoryFile, monitor, project -> {
             String projectPath = project.getAbsolutePath();
 
             if (projectPath.equals(rootDirectory)) {
                 // root path, already created the root node
-                continue;
+                return;
             }
 
             // TODO ooh, this bazel package path manipulation seems error prone
             String relativePath = projectPath.substring(sizeOfWorkspacePath + 1);
 
             // instantiate the project info object, which will automatically hook itself to the appropriate parents
-            new BazelPackageInfo(workspace, relativePath);
-        }
+            BazelPackageInfo packageInfo = new BazelPackageInfo(workspace, relativePath);
+            if (packageListener != null) {
+                packageListener.accept(packageInfo);
+            }
+        });
 
         return workspace;
     }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import com.salesforce.bazel.eclipse.command.BazelTestResult;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Shows the results of a Bazel test launch in the JUnit view, by importing the JUnit XML report of each test action as
+ * a test run session, the same way the Import action of the JUnit view does.
+ * <p>
+ * JUnitCore lives in org.eclipse.jdt.junit.core, which org.eclipse.jdt.junit re-exports at runtime but which is not
+ * one of the Eclipse SDK jars the plugin is built against (see tools/eclipse_jars), so it is looked up reflectively.
+ */
+class BazelJUnitViewImporter {
+    static final LogHelper LOG = LogHelper.log(BazelJUnitViewImporter.class);
+
+    private static final String JUNIT_CORE_CLASS_NAME = "org.eclipse.jdt.junit.JUnitCore";
+
+    private static Method importTestRunSessionMethod;
+    private static boolean lookedUp;
+
+    /**
+     * Imports the report of the test action into the JUnit view. Returns false if the JUnit view is not available.
+     */
+    boolean importResult(BazelTestResult result) {
+        Method importMethod = getImportTestRunSessionMethod();
+        if (importMethod == null) {
+            return false;
+        }
+        try {
+            importMethod.invoke(null, result.getTestXmlFile());
+            return true;
+        } catch (InvocationTargetException e) {
+            LOG.error("Could not show the test results of {} in the JUnit view", e.getCause(), result.getLabel());
+        } catch (IllegalAccessException e) {
+            LOG.error("Could not show the test results of {} in the JUnit view", e, result.getLabel());
+        }
+        return false;
+    }
+
+    // INTERNAL
+
+    private static synchronized Method getImportTestRunSessionMethod() {
+        if (!lookedUp) {
+            lookedUp = true;
+            try {
+                importTestRunSessionMethod =
+                        Class.forName(JUNIT_CORE_CLASS_NAME).getMethod("importTestRunSession", File.class);
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                LOG.warn("The JUnit view is not available, test results are only shown in the console: {}",
+                    e.getMessage());
+            }
+        }
+        return importTestRunSessionMethod;
+    }
+}
@@ -34,24 +34,24 @@
 package com.salesforce.bazel.eclipse.launch;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupDirector;
 import org.eclipse.debug.core.sourcelookup.ISourceContainer;
 import org.eclipse.debug.core.sourcelookup.ISourceLookupParticipant;
-import org.eclipse.debug.core.sourcelookup.containers.ExternalArchiveSourceContainer;
-import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.launching.sourcelookup.containers.JavaProjectSourceContainer;
 import org.eclipse.jdt.launching.sourcelookup.containers.JavaSourceLookupParticipant;
 
-import com.salesforce.bazel.eclipse.BazelPluginActivator;
-
 /**
  * Copied and adapted from org.eclipse.jdt.internal.launching.JavaSourceLookupDirector.
+ * <p>
+ * The source is looked up in the projects of the launched target and of its dependencies, and then in the source jars
+ * of the dependencies that are not imported as projects, see {@link BazelSourceLookupScope}. The source jars are
+ * searched through a single {@link BazelSourceJarContainer}.
  * 
  * @author stoens
  * @since summer 2019
@@ -62,10 +62,17 @@ public class BazelJavaSourceLookupDirector extends AbstractSourceLookupDirector
 
     private final IJavaProject mainProject;
     private final List<IJavaProject> otherProjects;
+    private final Collection<String> sourceJarPaths;
 
-    public BazelJavaSourceLookupDirector(IJavaProject mainProject, List<IJavaProject> otherProjects) {
+    /**
+     * @param sourceJarPaths
+     *            the absolute paths of the source jars, without duplicates
+     */
+    public BazelJavaSourceLookupDirector(IJavaProject mainProject, List<IJavaProject> otherProjects,
+            Collection<String> sourceJarPaths) {
         this.mainProject = mainProject;
         this.otherProjects = otherProjects;
+        this.sourceJarPaths = sourceJarPaths;
         setSourcePathComputer(getLaunchManager().getSourcePathComputer(JAVA_SRC_PATH_COMP));
     }
 
@@ -74,24 +81,13 @@ public class BazelJavaSourceLookupDirector extends AbstractSourceLookupDirector
         addParticipants(new ISourceLookupParticipant[] { new JavaSourceLookupParticipant() });
         List<ISourceContainer> sourceContainers = new ArrayList<>();
         sourceContainers.add(new JavaProjectSourceContainer(this.mainProject));
-        addSourceJarsForDependencies(this.mainProject, sourceContainers);
         for (IJavaProject project : this.otherProjects) {
             sourceContainers.add(new JavaProjectSourceContainer(project));
-            addSourceJarsForDependencies(project, sourceContainers);
         }
-        setSourceContainers(sourceContainers.toArray(new ISourceContainer[sourceContainers.size()]));
-    }
-
-    private static void addSourceJarsForDependencies(IJavaProject project, List<ISourceContainer> sourceContainers) {
-        IClasspathEntry[] resolvedClasspath = BazelPluginActivator.getJavaCoreHelper().getResolvedClasspath(project, true);
-        for (IClasspathEntry e : resolvedClasspath) {
-            if (e.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
-                IPath sourceAttachmentPath = e.getSourceAttachmentPath();
-                if (sourceAttachmentPath != null) {
-                    sourceContainers.add(new ExternalArchiveSourceContainer(sourceAttachmentPath.toOSString(), false));
-                }
-            }
+        if (!this.sourceJarPaths.isEmpty()) {
+            sourceContainers.add(new BazelSourceJarContainer(new BazelSourceJarIndex(this.sourceJarPaths)));
         }
+        setSourceContainers(sourceContainers.toArray(new ISourceContainer[sourceContainers.size()]));
     }
 
     private static ILaunchManager getLaunchManager() {
@@ -36,15 +36,19 @@ package com.salesforce.bazel.eclipse.launch;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IDebugEventSetListener;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchManager;
@@ -61,11 +65,13 @@ import org.eclipse.jdt.launching.JavaRuntime;
 import com.google.common.collect.ImmutableMap;
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
 import com.salesforce.bazel.eclipse.command.BazelProcessBuilder;
+import com.salesforce.bazel.eclipse.command.BazelTestResultCollector;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.command.Command;
 import com.salesforce.bazel.eclipse.launch.BazelLaunchConfigurationSupport.BazelLaunchConfigAttributes;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
 import com.salesforce.bazel.eclipse.model.TargetKind;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 
@@ -96,17 +102,40 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
         BazelLabel label = new BazelLabel(getAttributeValue(configuration, BazelLaunchConfigAttributes.LABEL));
         String targetKindStr = getAttributeValueWithDefault(configuration, BazelLaunchConfigAttributes.TARGET_KIND, "java_binary");
         TargetKind targetKind = TargetKind.valueOfIgnoresCaseRequiresMatch(targetKindStr);
+        List<BazelLabel> labels = new ArrayList<>();
+        labels.add(label);
+        for (String additionalLabel : getAttributeList(configuration, BazelLaunchConfigAttributes.ADDITIONAL_LABELS)) {
+            labels.add(new BazelLabel(additionalLabel));
+        }
+        if (isDebugMode && labels.size() > 1) {
+            // the debugger attaches to a single JVM, on the one debug port
+            throw new CoreException(new Status(IStatus.ERROR, BazelPluginActivator.PLUGIN_ID,
+                    "Only a single target can be debugged, the launch configuration has " + labels.size() + " targets: "
+                            + labels));
+        }
         IProject project = BazelPluginActivator.getResourceHelper().getProjectByName(projectName);
-        BazelWorkspaceCommandRunner bazelCommandRunner = BazelPluginActivator.getInstance().getWorkspaceCommandRunner();
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(project);
+        BazelWorkspaceCommandRunner bazelCommandRunner = BazelPluginActivator.getInstance().getWorkspaceCommandRunner(bazelWorkspace);
 
-        Command cmd = bazelCommandRunner.getBazelLauncherBuilder().setLabel(label).setTargetKind(targetKind).setArgs(bazelArgs)
+        Command cmd = bazelCommandRunner.getBazelLauncherBuilder().setLabels(labels).setTargetKind(targetKind).setArgs(bazelArgs)
+                .setTestFilter(getOptionalAttributeValue(configuration, BazelLaunchConfigAttributes.TEST_FILTER))
+                .setCacheTestResults(getAttributeBoolean(configuration, BazelLaunchConfigAttributes.CACHE_TEST_RESULTS))
+                .setTestShardingStrategy(getOptionalAttributeValue(configuration, BazelLaunchConfigAttributes.TEST_SHARDING_STRATEGY))
+                .setLocalTestJobs(getAttributeInt(configuration, BazelLaunchConfigAttributes.LOCAL_TEST_JOBS))
                 .setDebugMode(isDebugMode, DEBUG_HOST, DEBUG_PORT).build();
         BazelProcessBuilder processBuilder = cmd.getProcessBuilder();
 
         List<String> commandTokens = processBuilder.command();
         LOG.info("Launching Bazel: " + String.join(" ", commandTokens));
 
-        launchExec(configuration, project, commandTokens, processBuilder, launch, monitor);
+        long launchTimeMillis = System.currentTimeMillis();
+        IProcess process = launchExec(configuration, project, commandTokens, processBuilder, launch, monitor);
+        if (process != null) {
+            startBuildGenerationOnTermination(bazelCommandRunner, process);
+        }
+        if (targetKind.isTestable() && process != null) {
+            collectTestResults(bazelWorkspace, labels, launchTimeMillis, process);
+        }
     }
 
     // OVERRIDABLE FOR TESTS
@@ -115,7 +144,7 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
         return BazelPluginActivator.getResourceHelper().getProjectByName(projectName);
     }
 
-    protected void launchExec(ILaunchConfiguration configuration, IProject project, List<String> commandTokens,
+    protected IProcess launchExec(ILaunchConfiguration configuration, IProject project, List<String> commandTokens,
             BazelProcessBuilder processBuilder, ILaunch launch, IProgressMonitor monitor) throws CoreException {
         
         String[] cmdLine = commandTokens.toArray(new String[commandTokens.size()]);
@@ -138,10 +167,52 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
                 }
             });
         }
+        return debugProcess;
     }
 
     // INTERNAL
 
+    /**
+     * The launch builds its targets outside of the command runner. A new build generation is started when it ends, so
+     * the state of the output files cached for the classpath is read again.
+     */
+    private static void startBuildGenerationOnTermination(BazelWorkspaceCommandRunner bazelCommandRunner,
+            IProcess process) {
+        DebugPlugin debugPlugin = DebugPlugin.getDefault();
+        if (debugPlugin == null) {
+            // not running in Eclipse
+            return;
+        }
+        IDebugEventSetListener terminationListener = new IDebugEventSetListener() {
+            @Override
+            public void handleDebugEvents(DebugEvent[] events) {
+                for (DebugEvent event : events) {
+                    if (event.getSource() == process && event.getKind() == DebugEvent.TERMINATE) {
+                        debugPlugin.removeDebugEventListener(this);
+                        bazelCommandRunner.incrementBuildGeneration();
+                    }
+                }
+            }
+        };
+        debugPlugin.addDebugEventListener(terminationListener);
+        if (process.isTerminated()) {
+            // ended before the listener was added
+            debugPlugin.removeDebugEventListener(terminationListener);
+            bazelCommandRunner.incrementBuildGeneration();
+        }
+    }
+
+    private static void collectTestResults(BazelWorkspace bazelWorkspace, List<BazelLabel> labels, long launchTimeMillis,
+            IProcess process) {
+        File testLogsDirectory = bazelWorkspace.getBazelTestLogsDirectory();
+        if (testLogsDirectory == null) {
+            LOG.warn("The Bazel testlogs directory is unknown, test results are only shown in the console");
+            return;
+        }
+        BazelTestResultCollector collector = new BazelTestResultCollector(testLogsDirectory, labels, launchTimeMillis);
+        new BazelTestResultJob(collector, process).start();
+    }
+
     private static Map<String, String> getConnectorDebugArgs() {
         return ImmutableMap.of("hostname", DEBUG_HOST, "port", String.valueOf(DEBUG_PORT));
     }
@@ -174,6 +245,45 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
         }
     }
 
+    private static String getOptionalAttributeValue(ILaunchConfiguration configuration,
+            BazelLaunchConfigAttributes attribute) {
+        try {
+            String value = configuration.getAttribute(attribute.getAttributeName(), (String) null);
+            return value == null || value.trim().isEmpty() ? null : value.trim();
+        } catch (CoreException ex) {
+            throw new IllegalStateException(
+                    "Launch Configuration Attribute does not exist: " + attribute.getAttributeName());
+        }
+    }
+
+    private static boolean getAttributeBoolean(ILaunchConfiguration configuration, BazelLaunchConfigAttributes attribute) {
+        try {
+            return configuration.getAttribute(attribute.getAttributeName(), false);
+        } catch (CoreException ex) {
+            throw new IllegalStateException(
+                    "Launch Configuration Attribute does not exist: " + attribute.getAttributeName());
+        }
+    }
+
+    private static int getAttributeInt(ILaunchConfiguration configuration, BazelLaunchConfigAttributes attribute) {
+        try {
+            return configuration.getAttribute(attribute.getAttributeName(), 0);
+        } catch (CoreException ex) {
+            throw new IllegalStateException(
+                    "Launch Configuration Attribute does not exist: " + attribute.getAttributeName());
+        }
+    }
+
+    private static List<String> getAttributeList(ILaunchConfiguration configuration,
+            BazelLaunchConfigAttributes attribute) {
+        try {
+            return configuration.getAttribute(attribute.getAttributeName(), Collections.<String> emptyList());
+        } catch (CoreException ex) {
+            throw new IllegalStateException(
+                    "Launch Configuration Attribute does not exist: " + attribute.getAttributeName());
+        }
+    }
+
     private static Map<String, String> getAttributeMap(ILaunchConfiguration configuration,
             BazelLaunchConfigAttributes attribute) {
         try {
@@ -190,8 +300,13 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
         // https://github.com/eclipse/eclipse.jdt.debug/blob/master/org.eclipse.jdt.launching/launching/org/eclipse/jdt/internal/launching/JavaRemoteApplicationLaunchConfigurationDelegate.java
         
         IJavaProject mainProject = BazelPluginActivator.getJavaCoreHelper().getJavaProjectForProject(project);
-        List<IJavaProject> otherProjects = getOtherJavaProjects(mainProject);
-        ISourceLookupDirector sourceLocator = new BazelJavaSourceLookupDirector(mainProject, otherProjects);
+        // only the projects and source jars the launched target depends on, not every project of the workspace
+        BazelLabel label = new BazelLabel(getAttributeValue(configuration, BazelLaunchConfigAttributes.LABEL));
+        BazelSourceLookupScope scope = BazelSourceLookupScope.compute(mainProject, label);
+        List<IJavaProject> otherProjects = scope.getProjects();
+        otherProjects.remove(mainProject);
+        ISourceLookupDirector sourceLocator =
+                new BazelJavaSourceLookupDirector(mainProject, otherProjects, scope.getSourceJarPaths());
         try {
             sourceLocator.initializeDefaults(configuration);
             launch.setSourceLocator(sourceLocator);
@@ -202,11 +317,6 @@ public class BazelLaunchConfigurationDelegate implements ILaunchConfigurationDel
         }
     }
     
-    private static List<IJavaProject> getOtherJavaProjects(IJavaProject mainProject) {
-        return Arrays.stream(BazelPluginActivator.getJavaCoreHelper().getAllBazelJavaProjects(false))
-                .filter(p -> p != mainProject).collect(Collectors.toList());
-    }
-
     private static int getAvailablePort() {
         //Possible race condition if this port is used by another process right before being used by the debugProcess
         try (ServerSocket socket = new ServerSocket(0)) {
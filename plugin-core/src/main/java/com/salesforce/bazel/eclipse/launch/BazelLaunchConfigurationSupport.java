@@ -49,9 +49,8 @@ import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
-import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
-import com.salesforce.bazel.eclipse.model.AspectPackageInfos;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
 import com.salesforce.bazel.eclipse.model.TargetKind;
 
 /**
@@ -134,7 +133,33 @@ class BazelLaunchConfigurationSupport {
          * The keys of the Map are argument names and the values are argument values; each
          * Map Entry is added to the bazel command line as <key>=<value>.
          */
-        INTERNAL_BAZEL_ARGS("internal_bazel_args");
+        INTERNAL_BAZEL_ARGS("internal_bazel_args"),
+
+        /*
+         * A List<String> of test target labels launched in the same "bazel test" invocation as LABEL.
+         */
+        ADDITIONAL_LABELS("additional_labels"),
+
+        /*
+         * The --test_filter of a test launch, to run only some of the test classes or methods of the targets.
+         */
+        TEST_FILTER("test_filter"),
+
+        /*
+         * Boolean, true if a test launch reuses the cached results of up to date tests and runs the others in parallel,
+         * false (the default) if it reruns all the tests, one at a time.
+         */
+        CACHE_TEST_RESULTS("cache_test_results"),
+
+        /*
+         * The --test_sharding_strategy of a test launch (explicit, disabled), the Bazel default if not set.
+         */
+        TEST_SHARDING_STRATEGY("test_sharding_strategy"),
+
+        /*
+         * Integer, the --local_test_jobs of a test launch, the Bazel default (the number of cores) if not set or 0.
+         */
+        LOCAL_TEST_JOBS("local_test_jobs");
 
         private final String attributeName;
 
@@ -160,23 +185,58 @@ class BazelLaunchConfigurationSupport {
         config.setAttribute(BazelLaunchConfigAttributes.TARGET_KIND.getAttributeName(), kindStr);
     }
 
+    /**
+     * Sets the options that only apply to test launches.
+     *
+     * @param additionalLabels
+     *            the test targets launched along with the label of the config, may be empty
+     * @param testFilter
+     *            the --test_filter, null to run all tests of the targets
+     * @param testShardingStrategy
+     *            the --test_sharding_strategy, null to use the Bazel default
+     * @param localTestJobs
+     *            the --local_test_jobs, 0 to use the Bazel default
+     */
+    void populateBazelTestLaunchConfig(ILaunchConfigurationWorkingCopy config, List<BazelLabel> additionalLabels,
+            String testFilter, boolean cacheTestResults, String testShardingStrategy, int localTestJobs) {
+        Objects.requireNonNull(config);
+        Objects.requireNonNull(additionalLabels);
+
+        List<String> additionalLabelStrs = new ArrayList<>();
+        for (BazelLabel additionalLabel : additionalLabels) {
+            additionalLabelStrs.add(additionalLabel.getLabel());
+        }
+        config.setAttribute(BazelLaunchConfigAttributes.ADDITIONAL_LABELS.getAttributeName(), additionalLabelStrs);
+        config.setAttribute(BazelLaunchConfigAttributes.TEST_FILTER.getAttributeName(), testFilter);
+        config.setAttribute(BazelLaunchConfigAttributes.CACHE_TEST_RESULTS.getAttributeName(), cacheTestResults);
+        config.setAttribute(BazelLaunchConfigAttributes.TEST_SHARDING_STRATEGY.getAttributeName(), testShardingStrategy);
+        config.setAttribute(BazelLaunchConfigAttributes.LOCAL_TEST_JOBS.getAttributeName(), localTestJobs);
+    }
+
 
     /**
-     * Returns all runnable AspectPackageInfo instances for the specified project.
+     * Returns the structure of all runnable targets of the specified project.
      * 
      * @see {@link TargetKind#isRunnable()}
      */
-    Collection<AspectPackageInfo> getLaunchableAspectPackageInfosForProject(IProject project) {
-        return getAspectPackageInfosForProject(project, LAUNCHABLE_TARGET_KINDS);
+    Collection<BazelTargetInfo> getLaunchableTargetInfosForProject(IProject project) {
+        return getTargetInfosForProject(project, LAUNCHABLE_TARGET_KINDS);
     }
     
     /**
-     * Returns all AspectPackageInfo instances that represent targets of the specified type, for the specified project.
+     * Returns the structure of the targets of the specified type, for the specified project. It comes from a Bazel
+     * query, so nothing is built to list the targets a launch can be created for.
      */
-    Collection<AspectPackageInfo> getAspectPackageInfosForProject(IProject project, EnumSet<TargetKind> targetTypes) {
-        BazelWorkspaceCommandRunner bazelRunner = BazelPluginActivator.getInstance().getWorkspaceCommandRunner();
-        AspectPackageInfos apis = computeAspectPackageInfos(project, bazelRunner, WorkProgressMonitor.NOOP);
-        return apis.lookupByTargetKind(targetTypes);
+    Collection<BazelTargetInfo> getTargetInfosForProject(IProject project, EnumSet<TargetKind> targetTypes) {
+        BazelWorkspaceCommandRunner bazelRunner =
+                BazelPluginActivator.getInstance().getWorkspaceCommandRunner(BazelPluginActivator.getBazelWorkspace(project));
+        List<BazelTargetInfo> targetInfos = new ArrayList<>();
+        for (BazelTargetInfo targetInfo : computeTargetInfos(project, bazelRunner, WorkProgressMonitor.NOOP)) {
+            if (targetTypes.contains(targetInfo.getTargetKind())) {
+                targetInfos.add(targetInfo);
+            }
+        }
+        return targetInfos;
     }
 
     /**
@@ -193,21 +253,20 @@ class BazelLaunchConfigurationSupport {
      */
     Collection<TypedBazelLabel> getBazelTargetsForProject(IProject project, EnumSet<TargetKind> targetTypes) {
         List<TypedBazelLabel> typedBazelLabels = new ArrayList<>();
-        for (AspectPackageInfo api : getAspectPackageInfosForProject(project, targetTypes)) {
-            BazelLabel label = new BazelLabel(api.getLabel());
-            TargetKind kind = TargetKind.valueOfIgnoresCase(api.getKind());
-            typedBazelLabels.add(new TypedBazelLabel(label, kind));
+        for (BazelTargetInfo targetInfo : getTargetInfosForProject(project, targetTypes)) {
+            BazelLabel label = new BazelLabel(targetInfo.getLabel());
+            typedBazelLabels.add(new TypedBazelLabel(label, targetInfo.getTargetKind()));
         }
         return typedBazelLabels;
     }
     
-    private static AspectPackageInfos computeAspectPackageInfos(IProject project, BazelWorkspaceCommandRunner bazelRunner,
-            WorkProgressMonitor monitor) {
+    private static Collection<BazelTargetInfo> computeTargetInfos(IProject project,
+            BazelWorkspaceCommandRunner bazelRunner, WorkProgressMonitor monitor) {
         try {
             List<String> targets = BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(project, false);
-            Map<String, AspectPackageInfo> packageInfos = bazelRunner.getAspectPackageInfos(project.getName(), targets,
-                monitor, "launcher:computeAspectPackageInfos");
-            return new AspectPackageInfos(packageInfos.values());
+            Map<String, BazelTargetInfo> targetInfos = bazelRunner.getBazelTargetInfos(project.getName(), targets,
+                monitor, "launcher:computeTargetInfos");
+            return targetInfos.values();
         } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException ex) {
             throw new IllegalStateException(ex);
         }
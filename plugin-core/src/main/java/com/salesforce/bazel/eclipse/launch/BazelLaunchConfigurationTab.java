@@ -33,7 +33,10 @@
  */
 package com.salesforce.bazel.eclipse.launch;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -50,12 +53,14 @@ import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.ElementListSelectionDialog;
 
@@ -78,6 +83,11 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
 
     private Text projectTextInput;
     private Text targetTextInput;
+    private Text additionalTargetsTextInput;
+    private Text testFilterTextInput;
+    private Button cacheTestResultsCheckbox;
+    private Text testShardingStrategyTextInput;
+    private Text localTestJobsTextInput;
     
     private String loadedProjectName = "";
     private String loadedTargetKind;
@@ -90,7 +100,10 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
     }
 
     @Override
-    public void setDefaults(ILaunchConfigurationWorkingCopy configuration) {}
+    public void setDefaults(ILaunchConfigurationWorkingCopy configuration) {
+        // new launch configs reuse cached test results, existing ones keep rerunning all tests
+        configuration.setAttribute(BazelLaunchConfigAttributes.CACHE_TEST_RESULTS.getAttributeName(), true);
+    }
 
     @Override
     public void initializeFrom(ILaunchConfiguration configuration) {
@@ -105,6 +118,16 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
                 targetTextInput.setText(targetName);
             }
             loadedTargetKind = configuration.getAttribute(BazelLaunchConfigAttributes.TARGET_KIND.getAttributeName(), (String)null);
+            additionalTargetsTextInput.setText(String.join(" ", configuration.getAttribute(
+                BazelLaunchConfigAttributes.ADDITIONAL_LABELS.getAttributeName(), Collections.<String> emptyList())));
+            testFilterTextInput.setText(
+                configuration.getAttribute(BazelLaunchConfigAttributes.TEST_FILTER.getAttributeName(), ""));
+            cacheTestResultsCheckbox.setSelection(
+                configuration.getAttribute(BazelLaunchConfigAttributes.CACHE_TEST_RESULTS.getAttributeName(), false));
+            testShardingStrategyTextInput.setText(
+                configuration.getAttribute(BazelLaunchConfigAttributes.TEST_SHARDING_STRATEGY.getAttributeName(), ""));
+            int localTestJobs = configuration.getAttribute(BazelLaunchConfigAttributes.LOCAL_TEST_JOBS.getAttributeName(), 0);
+            localTestJobsTextInput.setText(localTestJobs > 0 ? String.valueOf(localTestJobs) : "");
         } catch (CoreException ex) {
             throw new IllegalStateException(ex);
         }
@@ -128,6 +151,28 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
         }
         
         support.populateBazelLaunchConfig(configuration, projectName, label, targetKind);
+
+        List<BazelLabel> additionalLabels = new ArrayList<>();
+        for (String additionalTarget : additionalTargetsTextInput.getText().trim().split("\\s+")) {
+            if (!additionalTarget.isEmpty()) {
+                additionalLabels.add(new BazelLabel(additionalTarget));
+            }
+        }
+        String testFilter = testFilterTextInput.getText().trim();
+        String testShardingStrategy = testShardingStrategyTextInput.getText().trim();
+        support.populateBazelTestLaunchConfig(configuration, additionalLabels, testFilter.isEmpty() ? null : testFilter,
+            cacheTestResultsCheckbox.getSelection(), testShardingStrategy.isEmpty() ? null : testShardingStrategy,
+            getLocalTestJobs());
+    }
+
+    @Override
+    public boolean isValid(ILaunchConfiguration launchConfig) {
+        setErrorMessage(null);
+        if (getLocalTestJobs() < 0) {
+            setErrorMessage("Local test jobs must be a positive number");
+            return false;
+        }
+        return true;
     }
 
     @Override
@@ -139,6 +184,7 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
         ((GridLayout) comp.getLayout()).verticalSpacing = 0;
         createProjectEditor(comp);
         createBazelTargetEditor(comp);
+        createTestOptionsEditor(comp);
         setControl(comp);
     }
 
@@ -163,6 +209,64 @@ public class BazelLaunchConfigurationTab extends AbstractLaunchConfigurationTab
         });
     }
 
+    private void createTestOptionsEditor(Composite parent) {
+        Group group = BazelSWTFactory.createGroup(parent, "Test Options", 2, 1, GridData.FILL_HORIZONTAL);
+        ModifyListener modifyListener = new ModifyListener() {
+            @Override
+            public void modifyText(ModifyEvent e) {
+                updateLaunchConfigurationDialog();
+            }
+        };
+        createLabel(group, "Additional test targets:");
+        additionalTargetsTextInput = BazelSWTFactory.createSingleText(group, 1);
+        additionalTargetsTextInput.setToolTipText("Test targets run along with the Bazel target, separated by spaces");
+        additionalTargetsTextInput.addModifyListener(modifyListener);
+        createLabel(group, "Test filter:");
+        testFilterTextInput = BazelSWTFactory.createSingleText(group, 1);
+        testFilterTextInput.setToolTipText("Runs only the matching tests, e.g. com\\.example\\.FooTest#testBar$");
+        testFilterTextInput.addModifyListener(modifyListener);
+        cacheTestResultsCheckbox = createCheckButton(group, "Reuse cached results of up to date tests and run tests in parallel");
+        cacheTestResultsCheckbox.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+        cacheTestResultsCheckbox.addSelectionListener(new SelectionListener() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                updateLaunchConfigurationDialog();
+            }
+
+            @Override
+            public void widgetDefaultSelected(SelectionEvent e) {}
+        });
+        createLabel(group, "Test sharding strategy:");
+        testShardingStrategyTextInput = BazelSWTFactory.createSingleText(group, 1);
+        testShardingStrategyTextInput.setToolTipText("explicit or disabled, empty for the Bazel default");
+        testShardingStrategyTextInput.addModifyListener(modifyListener);
+        createLabel(group, "Local test jobs:");
+        localTestJobsTextInput = BazelSWTFactory.createSingleText(group, 1);
+        localTestJobsTextInput.setToolTipText("Tests run at the same time, empty for the number of cores");
+        localTestJobsTextInput.addModifyListener(modifyListener);
+    }
+
+    private static void createLabel(Composite parent, String text) {
+        Label label = new Label(parent, SWT.NONE);
+        label.setText(text);
+    }
+
+    /**
+     * Returns 0 if no value is set, -1 if the value is not a positive number.
+     */
+    private int getLocalTestJobs() {
+        String localTestJobs = localTestJobsTextInput.getText().trim();
+        if (localTestJobs.isEmpty()) {
+            return 0;
+        }
+        try {
+            int value = Integer.parseInt(localTestJobs);
+            return value > 0 ? value : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
     private void handleBazelTargetButtonSelected() {
         IJavaProject selectedProject = getSelectedProject();
         if (selectedProject == null) {
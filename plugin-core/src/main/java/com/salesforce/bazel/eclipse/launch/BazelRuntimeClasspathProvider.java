@@ -133,7 +133,7 @@ public class BazelRuntimeClasspathProvider extends StandardClasspathProvider {
             throws CoreException{
         List<IRuntimeClasspathEntry> result = new ArrayList<>();
         IJavaProject project = JavaRuntime.getJavaProject(configuration);
-        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();        
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(project.getProject());
         File base = bazelWorkspace.getBazelExecRootDirectory();
 
         String testClassName = configuration.getAttribute("org.eclipse.jdt.launching.MAIN_TYPE", (String) null);
@@ -147,7 +147,7 @@ public class BazelRuntimeClasspathProvider extends StandardClasspathProvider {
         	if( testClassName == null || testClassName.equals("")) {
                 String query = "tests("+ eachTarget +")";
                 List<String> labels = bazelWorkspace.getTargetsForBazelQuery(query);
-                File bazelBinDir = BazelPluginActivator.getBazelWorkspace().getBazelBinDirectory();
+                File bazelBinDir = bazelWorkspace.getBazelBinDirectory();
                 
                 for(String label : labels) {
                 	String testRuleName = label.substring(label.lastIndexOf(":")+1);
@@ -215,7 +215,8 @@ public class BazelRuntimeClasspathProvider extends StandardClasspathProvider {
     	
         String targetPath = target.split(":")[0];
         // testJar for bazel's iterative test rules
-        File bazelBinDir = BazelPluginActivator.getBazelWorkspace().getBazelBinDirectory();
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(project.getProject());
+        File bazelBinDir = bazelWorkspace.getBazelBinDirectory();
         String paramsName = className.replace('.', '/') + suffix;
         
         File paramFile = new File(new File(new File(bazelBinDir, targetPath), "src/test/java"), paramsName);
@@ -225,7 +226,6 @@ public class BazelRuntimeClasspathProvider extends StandardClasspathProvider {
             // testJar for single test rule
             // test rules where testName is not the same as testClass 
         	String query = "attr(test_class, "+className+"$, "+target+")";
-        	BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(); 
         	List<String> labels = bazelWorkspace.getTargetsForBazelQuery(query);
         	for(String label : labels) {
                 paramFile = new File(new File(bazelBinDir, targetPath), label.substring(label.lastIndexOf(":")+1) +suffix );
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.sourcelookup.ISourceContainerType;
+import org.eclipse.debug.core.sourcelookup.containers.AbstractSourceContainer;
+import org.eclipse.debug.core.sourcelookup.containers.ExternalArchiveSourceContainer;
+
+/**
+ * A single source container for all the source jars of a debug launch. Instead of one
+ * {@link ExternalArchiveSourceContainer} per jar (each of which is searched in turn for every lookup), the lookup goes
+ * through a {@link BazelSourceJarIndex} and only the jars that contain the package of the type are searched. The
+ * archive container of a jar is created the first time the jar is searched.
+ */
+class BazelSourceJarContainer extends AbstractSourceContainer {
+
+    private final BazelSourceJarIndex index;
+    private final Map<String, ExternalArchiveSourceContainer> archiveContainers = new HashMap<>();
+
+    BazelSourceJarContainer(BazelSourceJarIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public Object[] findSourceElements(String name) throws CoreException {
+        List<Object> sourceElements = new ArrayList<>();
+        for (String sourceJar : index.getSourceJars(name)) {
+            Object[] found = getArchiveContainer(sourceJar).findSourceElements(name);
+            for (Object element : found) {
+                sourceElements.add(element);
+            }
+            if (!sourceElements.isEmpty() && !isFindDuplicates()) {
+                break;
+            }
+        }
+        return sourceElements.toArray();
+    }
+
+    @Override
+    public String getName() {
+        return "Bazel source jars (" + index.getAllSourceJars().size() + ")";
+    }
+
+    @Override
+    public ISourceContainerType getType() {
+        return getSourceContainerType(ExternalArchiveSourceContainer.TYPE_ID);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        for (ExternalArchiveSourceContainer archiveContainer : archiveContainers.values()) {
+            archiveContainer.dispose();
+        }
+        archiveContainers.clear();
+        super.dispose();
+    }
+
+    // INTERNAL
+
+    private synchronized ExternalArchiveSourceContainer getArchiveContainer(String sourceJar) {
+        ExternalArchiveSourceContainer archiveContainer = archiveContainers.get(sourceJar);
+        if (archiveContainer == null) {
+            archiveContainer = new ExternalArchiveSourceContainer(sourceJar, false);
+            archiveContainer.init(getDirector());
+            archiveContainers.put(sourceJar, archiveContainer);
+        }
+        return archiveContainer;
+    }
+}
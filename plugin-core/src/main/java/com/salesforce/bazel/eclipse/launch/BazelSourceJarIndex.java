@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Maps Java packages to the source jars that contain them, so a source lookup only has to open the few jars that can
+ * contain the type, instead of trying every source jar on the classpath in turn.
+ * <p>
+ * The index is built on the first lookup, which happens when the debugger first stops, not when it attaches. Building
+ * it only reads the central directory of each jar.
+ */
+class BazelSourceJarIndex {
+    static final LogHelper LOG = LogHelper.log(BazelSourceJarIndex.class);
+
+    private final Collection<String> sourceJarPaths;
+
+    /**
+     * Package path (com/salesforce/apple) -> the source jars that have at least one file in the package, in classpath
+     * order. Null until the first lookup.
+     */
+    private Map<String, List<String>> sourceJarsByPackage;
+
+    /**
+     * @param sourceJarPaths
+     *            the absolute paths of the source jars, in classpath order, without duplicates
+     */
+    BazelSourceJarIndex(Collection<String> sourceJarPaths) {
+        this.sourceJarPaths = sourceJarPaths;
+    }
+
+    /**
+     * Returns the source jars that may contain the passed source file.
+     *
+     * @param sourceName
+     *            the path of the source file within the jars, e.g. com/salesforce/apple/Apple.java
+     */
+    List<String> getSourceJars(String sourceName) {
+        int lastSlash = sourceName.lastIndexOf('/');
+        String packagePath = lastSlash == -1 ? "" : sourceName.substring(0, lastSlash);
+        List<String> sourceJars = getIndex().get(packagePath);
+        return sourceJars == null ? Collections.emptyList() : sourceJars;
+    }
+
+    Collection<String> getAllSourceJars() {
+        return sourceJarPaths;
+    }
+
+    // INTERNAL
+
+    private synchronized Map<String, List<String>> getIndex() {
+        if (sourceJarsByPackage == null) {
+            long startTimeMS = System.currentTimeMillis();
+            Map<String, List<String>> index = new HashMap<>();
+            for (String sourceJarPath : sourceJarPaths) {
+                for (String packagePath : getPackagePaths(sourceJarPath)) {
+                    index.computeIfAbsent(packagePath, p -> new ArrayList<>(1)).add(sourceJarPath);
+                }
+            }
+            sourceJarsByPackage = index;
+            LOG.info("Indexed {} packages in {} source jars in {} ms", index.size(), sourceJarPaths.size(),
+                System.currentTimeMillis() - startTimeMS);
+        }
+        return sourceJarsByPackage;
+    }
+
+    private static Set<String> getPackagePaths(String sourceJarPath) {
+        Set<String> packagePaths = new LinkedHashSet<>();
+        try (ZipFile zipFile = new ZipFile(sourceJarPath)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                int lastSlash = name.lastIndexOf('/');
+                packagePaths.add(lastSlash == -1 ? "" : name.substring(0, lastSlash));
+            }
+        } catch (IOException e) {
+            // a missing source jar is common (the target was never built), the debugger just shows no source
+            LOG.debug("Could not read source jar {}: {}", sourceJarPath, e.getMessage());
+        }
+        return packagePaths;
+    }
+}
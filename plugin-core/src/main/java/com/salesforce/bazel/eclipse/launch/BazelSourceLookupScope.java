@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.classpath.BazelProjectDependencyIndex;
+import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
+import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectSupport;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.model.AspectOutputJarSet;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfos;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+import com.salesforce.bazel.eclipse.runtime.impl.EclipseWorkProgressMonitor;
+
+/**
+ * The projects and source jars that can contain the code run by a debug launch: the ones of the launched target and of
+ * its transitive dependencies, as found in the (cached) build info aspect data. Dependencies that live in an imported
+ * project are looked up in the project, the others in their source jar. Each source jar is listed once, even if many
+ * targets depend on it.
+ */
+class BazelSourceLookupScope {
+    static final LogHelper LOG = LogHelper.log(BazelSourceLookupScope.class);
+
+    private final Set<IJavaProject> projects = new LinkedHashSet<>();
+    private final Set<String> sourceJarPaths = new LinkedHashSet<>();
+
+    private BazelSourceLookupScope(IJavaProject mainProject) {
+        projects.add(mainProject);
+    }
+
+    /**
+     * The main project first, then the projects of the dependencies.
+     */
+    List<IJavaProject> getProjects() {
+        return new ArrayList<>(projects);
+    }
+
+    /**
+     * The absolute paths of the source jars of the dependencies that are not in an imported project.
+     */
+    Collection<String> getSourceJarPaths() {
+        return Collections.unmodifiableCollection(sourceJarPaths);
+    }
+
+    /**
+     * Computes the scope of the launched target, which lives in the main project. If the aspect data is not available,
+     * the scope falls back to the main project and the source attachments of its classpath.
+     */
+    static BazelSourceLookupScope compute(IJavaProject mainProject, BazelLabel launchedLabel) {
+        BazelSourceLookupScope scope = new BazelSourceLookupScope(mainProject);
+        IProject project = mainProject.getProject();
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace(project);
+        BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner = BazelPluginActivator.getInstance().getWorkspaceCommandRunner(bazelWorkspace);
+        try {
+            List<String> targets = BazelEclipseProjectSupport.getBazelTargetsForEclipseProject(project, false);
+            Map<String, AspectPackageInfo> packageInfos = bazelWorkspaceCmdRunner.getAspectPackageInfos(
+                project.getName(), targets, new EclipseWorkProgressMonitor(null), "connectDebugger");
+            AspectPackageInfos aspects = new AspectPackageInfos(packageInfos.values());
+            Set<String> labels = aspects.lookupTransitiveDependencies(Collections.singleton(launchedLabel.getLabel()));
+            if (labels.isEmpty()) {
+                // the launched target is not in the aspect data, use everything the project depends on
+                for (AspectPackageInfo aspect : aspects.getAll()) {
+                    labels.add(aspect.getLabel());
+                }
+            }
+            scope.addLabels(aspects, labels, bazelWorkspace);
+        } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
+            LOG.warn("Could not compute the dependencies of {}, source lookup falls back to the classpath of {}: {}",
+                launchedLabel, project.getName(), e.getMessage());
+            scope.addClasspathSourceAttachments(mainProject);
+        }
+        LOG.info("Source lookup for {}: {} project(s), {} source jar(s)", launchedLabel, scope.projects.size(),
+            scope.sourceJarPaths.size());
+        return scope;
+    }
+
+    // INTERNAL
+
+    private void addLabels(AspectPackageInfos aspects, Collection<String> labels, BazelWorkspace bazelWorkspace) {
+        BazelProjectDependencyIndex dependencyIndex = BazelProjectDependencyIndex.getInstance();
+        for (String label : labels) {
+            AspectPackageInfo aspect = aspects.lookupByLabel(label);
+            if (!label.startsWith("@")) {
+                IProject owningProject = dependencyIndex.getProjectForPackagePath(new BazelLabel(label).getPackagePath());
+                if (owningProject != null) {
+                    projects.add(BazelPluginActivator.getJavaCoreHelper().getJavaProjectForProject(owningProject));
+                    continue;
+                }
+            }
+            // an external jar, or a workspace target that was not imported
+            addSourceJars(aspect.getJars(), bazelWorkspace);
+            addSourceJars(aspect.getGeneratedJars(), bazelWorkspace);
+        }
+    }
+
+    private void addSourceJars(List<AspectOutputJarSet> jarSets, BazelWorkspace bazelWorkspace) {
+        for (AspectOutputJarSet jarSet : jarSets) {
+            String srcJar = jarSet.getSrcJar();
+            if (srcJar == null) {
+                continue;
+            }
+            // same layout as the classpath container: external jars are in the output base, the rest in the exec root
+            File root = srcJar.startsWith("external") ? bazelWorkspace.getBazelOutputBaseDirectory()
+                    : bazelWorkspace.getBazelExecRootDirectory();
+            sourceJarPaths.add(new File(root, srcJar).getAbsolutePath());
+        }
+    }
+
+    private void addClasspathSourceAttachments(IJavaProject project) {
+        IClasspathEntry[] resolvedClasspath = BazelPluginActivator.getJavaCoreHelper().getResolvedClasspath(project, true);
+        if (resolvedClasspath == null) {
+            return;
+        }
+        for (IClasspathEntry entry : resolvedClasspath) {
+            if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+                IPath sourceAttachmentPath = entry.getSourceAttachmentPath();
+                if (sourceAttachmentPath != null) {
+                    sourceJarPaths.add(sourceAttachmentPath.toOSString());
+                }
+            }
+        }
+    }
+}
@@ -46,8 +46,8 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.ui.IEditorPart;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
-import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
 import com.salesforce.bazel.eclipse.model.TargetKind;
 
 /**
@@ -89,8 +89,8 @@ public class BazelTargetLaunchShortcut implements ILaunchShortcut {
         IJavaModel eclipseJavaModel = BazelPluginActivator.getJavaCoreHelper().getJavaModelForWorkspace(eclipseWorkspaceRoot);
         IProject project = eclipseJavaModel.getJavaProject(projectName).getProject();
 
-        Collection<AspectPackageInfo> apis = support.getLaunchableAspectPackageInfosForProject(project);
-        Collection<AspectPackageInfo> matchingInfos = apis.stream().filter(api -> fqClassName.equals(api.getMainClass())).collect(Collectors.toList());
+        Collection<BazelTargetInfo> targetInfos = support.getLaunchableTargetInfosForProject(project);
+        Collection<BazelTargetInfo> matchingInfos = targetInfos.stream().filter(targetInfo -> fqClassName.equals(targetInfo.getMainClass())).collect(Collectors.toList());
         if (matchingInfos.isEmpty()) {
             // bazel allows a java binary rule to specify the main_class as the target name, so we should also look at the name of the targets
             // however bazel does not like the common "src/main/java" root:
@@ -105,9 +105,9 @@ public class BazelTargetLaunchShortcut implements ILaunchShortcut {
         ILaunchConfigurationType type = manager.getLaunchConfigurationType(BazelLaunchConfigurationDelegate.ID);
         try {
             ILaunchConfigurationWorkingCopy config = type.newInstance(null, fileName);
-            AspectPackageInfo api = matchingInfos.iterator().next();
-            BazelLabel label = new BazelLabel(api.getLabel());
-            TargetKind kind = TargetKind.valueOfIgnoresCase(api.getKind());
+            BazelTargetInfo targetInfo = matchingInfos.iterator().next();
+            BazelLabel label = new BazelLabel(targetInfo.getLabel());
+            TargetKind kind = targetInfo.getTargetKind();
             support.populateBazelLaunchConfig(config, projectName, label, kind);
             if (mode.equalsIgnoreCase(ILaunchManager.DEBUG_MODE)) {
                 config.setAttribute(IJavaLaunchConfigurationConstants.ATTR_ALLOW_TERMINATE, true);
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationType;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.ui.DebugUITools;
+import org.eclipse.debug.ui.ILaunchShortcut;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IEditorPart;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.command.BazelLauncherBuilder;
+import com.salesforce.bazel.eclipse.launch.BazelLaunchConfigurationSupport.TypedBazelLabel;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
+import com.salesforce.bazel.eclipse.model.TargetKind;
+import com.salesforce.bazel.eclipse.util.SelectionUtil;
+
+/**
+ * Supports the Run/Debug operations for the selected test classes and test methods, which are run with "bazel test".
+ * <p>
+ * All selected tests are run in a single invocation: the test targets that have one of the selected classes as a source
+ * are launched together, and a --test_filter restricts them to the selected classes and methods. Cached results of
+ * tests that are up to date are reused, and the other tests run in parallel. Only the tests of a single target can be
+ * debugged. Running the same tests again reuses their launch config, so the list of launch configs does not grow with
+ * each run.
+ */
+public class BazelTestLaunchShortcut implements ILaunchShortcut {
+    static final LogHelper LOG = LogHelper.log(BazelTestLaunchShortcut.class);
+
+    private static final EnumSet<TargetKind> TESTABLE_TARGET_KINDS = EnumSet.noneOf(TargetKind.class);
+
+    static {
+        for (TargetKind kind : TargetKind.values()) {
+            if (kind.isTestable()) {
+                TESTABLE_TARGET_KINDS.add(kind);
+            }
+        }
+    }
+
+    private final BazelLaunchConfigurationSupport support = new BazelLaunchConfigurationSupport();
+
+    @Override
+    public void launch(ISelection selection, String mode) {
+        List<IJavaElement> elements = new ArrayList<>();
+        for (Object selected : ((IStructuredSelection) selection).toList()) {
+            IJavaElement element = SelectionUtil.getType(selected, IJavaElement.class);
+            if (element != null) {
+                elements.add(element);
+            }
+        }
+        launch(elements, mode);
+    }
+
+    @Override
+    public void launch(IEditorPart editor, String mode) {
+        IJavaElement element = SelectionUtil.getType(editor.getEditorInput(), IJavaElement.class);
+        if (element != null) {
+            launch(Collections.singletonList(element), mode);
+        }
+    }
+
+    // INTERNAL
+
+    private void launch(List<IJavaElement> elements, String mode) {
+        String projectName = null;
+        Set<TypedBazelLabel> labels = new LinkedHashSet<>();
+        Set<String> testFilters = new LinkedHashSet<>();
+        for (IJavaElement element : elements) {
+            IType type = getType(element);
+            if (type == null) {
+                continue;
+            }
+            IProject project = element.getJavaProject().getProject();
+            Collection<TypedBazelLabel> testLabels = getTestTargetsForSource(project, type.getCompilationUnit().getResource());
+            if (testLabels.isEmpty()) {
+                throw new IllegalStateException("Unable to find a test target that has " + type.getFullyQualifiedName()
+                        + " as a source");
+            }
+            if (projectName == null) {
+                projectName = project.getName();
+            }
+            labels.addAll(testLabels);
+            String methodName = element instanceof IMethod ? element.getElementName() : null;
+            testFilters.add(BazelLauncherBuilder.getTestFilter(type.getFullyQualifiedName(), methodName));
+        }
+        if (labels.isEmpty()) {
+            throw new IllegalStateException("The selection does not contain a test class or test method");
+        }
+        if (mode.equalsIgnoreCase(ILaunchManager.DEBUG_MODE) && labels.size() > 1) {
+            // the debugger attaches to a single JVM, on the one debug port
+            throw new IllegalStateException("Only the tests of a single target can be debugged, the selected tests "
+                    + "belong to " + labels);
+        }
+        LOG.info("Launching {} test(s) of {} target(s): {}", testFilters.size(), labels.size(), labels);
+
+        // the first target is the one the launch config is for, the others are launched along with it
+        List<BazelLabel> additionalLabels = new ArrayList<>();
+        for (TypedBazelLabel typedLabel : labels) {
+            additionalLabels.add(typedLabel.getBazelLabel());
+        }
+        BazelLabel label = additionalLabels.remove(0);
+        TargetKind targetKind = labels.iterator().next().getTargetKind();
+        ILaunchManager manager = DebugPlugin.getDefault().getLaunchManager();
+        ILaunchConfigurationType configType = manager.getLaunchConfigurationType(BazelLaunchConfigurationDelegate.ID);
+        try {
+            String configName =
+                    elements.size() == 1 ? elements.get(0).getElementName() : label.getLastComponentOfTargetName();
+            ILaunchConfigurationWorkingCopy config = configType.newInstance(null, configName);
+            support.populateBazelLaunchConfig(config, projectName, label, targetKind);
+            support.populateBazelTestLaunchConfig(config, additionalLabels, String.join("|", testFilters), true, null, 0);
+            if (mode.equalsIgnoreCase(ILaunchManager.DEBUG_MODE)) {
+                config.setAttribute(IJavaLaunchConfigurationConstants.ATTR_ALLOW_TERMINATE, true);
+            }
+            // launching the same tests again reuses the config saved the first time
+            ILaunchConfiguration savedConfig = findLaunchConfiguration(manager, configType, config);
+            if (savedConfig == null) {
+                config.rename(manager.generateLaunchConfigurationName(configName));
+                savedConfig = config.doSave();
+            }
+            DebugUITools.launch(savedConfig, mode);
+        } catch (CoreException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the saved launch config that has the same attributes as the passed one, null if there is none. A config
+     * that the user has edited since is not reused.
+     */
+    private static ILaunchConfiguration findLaunchConfiguration(ILaunchManager manager,
+            ILaunchConfigurationType configType, ILaunchConfiguration config) throws CoreException {
+        Map<String, Object> attributes = config.getAttributes();
+        for (ILaunchConfiguration savedConfig : manager.getLaunchConfigurations(configType)) {
+            if (attributes.equals(savedConfig.getAttributes())) {
+                return savedConfig;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the test class of the selected compilation unit, type or method, null for other elements.
+     */
+    private static IType getType(IJavaElement element) {
+        if (element instanceof ICompilationUnit) {
+            return ((ICompilationUnit) element).findPrimaryType();
+        } else if (element instanceof IType) {
+            return (IType) element;
+        } else if (element instanceof IMethod) {
+            return ((IMethod) element).getDeclaringType();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the test targets of the project that list the source file as one of their sources.
+     */
+    private Collection<TypedBazelLabel> getTestTargetsForSource(IProject project, IResource sourceFile) {
+        IPath location = sourceFile == null ? null : sourceFile.getLocation();
+        File bazelWorkspaceRoot = BazelPluginActivator.getBazelWorkspace(project).getBazelWorkspaceRootDirectory();
+        if (location == null || bazelWorkspaceRoot == null) {
+            return Collections.emptyList();
+        }
+        Path path = location.toFile().toPath();
+        Path bazelWorkspaceRootPath = bazelWorkspaceRoot.toPath();
+        if (!path.startsWith(bazelWorkspaceRootPath)) {
+            return Collections.emptyList();
+        }
+        String sourcePath = bazelWorkspaceRootPath.relativize(path).toString().replace(File.separatorChar, '/');
+        List<TypedBazelLabel> labels = new ArrayList<>();
+        for (BazelTargetInfo targetInfo : support.getTargetInfosForProject(project, TESTABLE_TARGET_KINDS)) {
+            if (targetInfo.getSources().contains(sourcePath)) {
+                labels.add(new TypedBazelLabel(new BazelLabel(targetInfo.getLabel()), targetInfo.getTargetKind()));
+            }
+        }
+        return labels;
+    }
+}
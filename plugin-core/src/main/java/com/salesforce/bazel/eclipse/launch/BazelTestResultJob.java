@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.model.IProcess;
+
+import com.salesforce.bazel.eclipse.command.BazelTestResult;
+import com.salesforce.bazel.eclipse.command.BazelTestResultCollector;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Polls the results of a running Bazel test launch and shows each result in the JUnit view as soon as its test action
+ * finishes, instead of once the whole launch is over. When the Bazel process ends, the remaining results (including
+ * the ones Bazel took from its cache) are shown and the job stops.
+ */
+class BazelTestResultJob extends Job {
+    static final LogHelper LOG = LogHelper.log(BazelTestResultJob.class);
+
+    static final long POLL_INTERVAL_MS = 1000;
+
+    private final BazelTestResultCollector collector;
+    private final IProcess process;
+    private final BazelJUnitViewImporter importer = new BazelJUnitViewImporter();
+
+    BazelTestResultJob(BazelTestResultCollector collector, IProcess process) {
+        super("Bazel test results");
+        this.collector = collector;
+        this.process = process;
+        setSystem(true);
+    }
+
+    /**
+     * Starts polling, until the process terminates.
+     */
+    void start() {
+        schedule(POLL_INTERVAL_MS);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        // check before collecting, so that nothing written before the process ended is missed
+        boolean isTerminated = process.isTerminated();
+        showResults(collector.collectFinishedResults());
+        if (isTerminated) {
+            showResults(collector.collectRemainingResults());
+        } else if (!monitor.isCanceled()) {
+            schedule(POLL_INTERVAL_MS);
+        }
+        return Status.OK_STATUS;
+    }
+
+    private void showResults(List<BazelTestResult> results) {
+        for (BazelTestResult result : results) {
+            if (result.isPassed()) {
+                LOG.info("Test result: {}", result);
+            } else {
+                LOG.warn("Test result: {}", result);
+            }
+            importer.importResult(result);
+        }
+    }
+}
@@ -41,10 +41,12 @@ import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 import org.eclipse.jface.preference.IPreferenceStore;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.logging.LogLevel;
 
 /**
- * Initialize the preferences of Bazel. The only preferences stored for now is the path to the Bazel binary, which is
- * expected to be in /usr/local/bin/bazel by default.
+ * Initialize the preferences of Bazel. The main preference is the path to the Bazel binary, which is expected to be in
+ * /usr/local/bin/bazel by default. Tracing is off, the log level is INFO and the commands run with the default output
+ * base, by default.
  */
 public class BazelPreferenceInitializer extends AbstractPreferenceInitializer {
 
@@ -62,6 +64,16 @@ public class BazelPreferenceInitializer extends AbstractPreferenceInitializer {
     public void initializeDefaultPreferences() {
         IPreferenceStore store = BazelPluginActivator.getInstance().getPreferenceStore();
         store.setDefault(BazelPreferencePage.BAZEL_PATH_PREF_NAME, which("bazel", "/usr/local/bin/bazel"));
+        store.setDefault(BazelPreferencePage.TRACE_PREF_NAME, false);
+        store.setDefault(BazelPreferencePage.TRACE_BAZEL_PROFILE_PREF_NAME, false);
+        store.setDefault(BazelPreferencePage.LOG_LEVEL_PREF_NAME, LogLevel.INFO.name());
+        store.setDefault(BazelPreferencePage.CLASSPATH_INTERFACE_JARS_PREF_NAME, false);
+        store.setDefault(BazelPreferencePage.BUILD_COALESCE_DELAY_PREF_NAME, 300);
+        store.setDefault(BazelPreferencePage.IDE_OUTPUT_BASE_PREF_NAME, false);
+        store.setDefault(BazelPreferencePage.IDE_DISK_CACHE_PREF_NAME, "");
+        store.setDefault(BazelPreferencePage.IDE_SERVER_JVM_ARGS_PREF_NAME, "");
+        // the Bazel default
+        store.setDefault(BazelPreferencePage.IDE_SERVER_MAX_IDLE_SECS_PREF_NAME, 3 * 60 * 60);
     }
 
 }
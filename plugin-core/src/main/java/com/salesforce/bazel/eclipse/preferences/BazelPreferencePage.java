@@ -37,17 +37,23 @@ package com.salesforce.bazel.eclipse.preferences;
 
 import java.io.File;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.ComboFieldEditor;
+import org.eclipse.jface.preference.DirectoryFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.FileFieldEditor;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.logging.LogLevel;
 
 /**
- * Page to configure the Bazel Eclipse plugin. The only configuration parameter is the path to the Bazel binary so this
- * page provides a file field to specify it.
+ * Page to configure the Bazel Eclipse plugin. The main configuration parameter is the path to the Bazel binary so this
+ * page provides a file field to specify it. It also allows to record a performance trace of the plugin operations.
  * <p>
  * See BazelPreferenceInitializer for how this preference is initialized with a default value.
  */
@@ -55,6 +61,55 @@ public class BazelPreferencePage extends FieldEditorPreferencePage implements IW
 
     public static final String BAZEL_PATH_PREF_NAME = "BAZEL_PATH";
 
+    /**
+     * Records a trace of the plugin operations, see TraceRecorder.
+     */
+    public static final String TRACE_PREF_NAME = "BAZEL_TRACE";
+
+    /**
+     * While recording a trace, runs the Bazel commands with --profile so their profiles are merged into the trace.
+     */
+    public static final String TRACE_BAZEL_PROFILE_PREF_NAME = "BAZEL_TRACE_PROFILE";
+
+    /**
+     * The least severe level of the messages written to the plugin log (one of the LogLevel names).
+     */
+    public static final String LOG_LEVEL_PREF_NAME = "BAZEL_LOG_LEVEL";
+
+    /**
+     * Puts the interface jars (ijar/hjar) of the dependencies on the compile classpath of the projects instead of their
+     * full jars, launches still run with the full jars. See BazelClasspathContainer.
+     */
+    public static final String CLASSPATH_INTERFACE_JARS_PREF_NAME = "BAZEL_CLASSPATH_INTERFACE_JARS";
+
+    /**
+     * How long the builder waits for further changes before running a Bazel build, in milliseconds. See
+     * BazelBuildCoalescer.
+     */
+    public static final String BUILD_COALESCE_DELAY_PREF_NAME = "BAZEL_BUILD_COALESCE_DELAY_MS";
+
+    /**
+     * Runs the commands of the plugin with an output base of their own, so with a Bazel server that does not wait for the
+     * builds run in a terminal. See BazelIdeOutputBase.
+     */
+    public static final String IDE_OUTPUT_BASE_PREF_NAME = "BAZEL_IDE_OUTPUT_BASE";
+
+    /**
+     * The disk cache the builds of the dedicated output base share with the terminal builds, empty to use the one of the
+     * .bazelrc files.
+     */
+    public static final String IDE_DISK_CACHE_PREF_NAME = "BAZEL_IDE_DISK_CACHE";
+
+    /**
+     * The JVM arguments of the Bazel server of the dedicated output base, separated by spaces.
+     */
+    public static final String IDE_SERVER_JVM_ARGS_PREF_NAME = "BAZEL_IDE_SERVER_JVM_ARGS";
+
+    /**
+     * How long the Bazel server of the dedicated output base stays up without running a command, in seconds.
+     */
+    public static final String IDE_SERVER_MAX_IDLE_SECS_PREF_NAME = "BAZEL_IDE_SERVER_MAX_IDLE_SECS";
+
     private static class BazelBinaryFieldEditor extends FileFieldEditor {
         BazelBinaryFieldEditor(Composite parent) {
             super(BAZEL_PATH_PREF_NAME, "Path to the &Bazel binary:", true, VALIDATE_ON_KEY_STROKE, parent);
@@ -92,6 +147,44 @@ public class BazelPreferencePage extends FieldEditorPreferencePage implements IW
 
     public void createFieldEditors() {
         addField(new BazelBinaryFieldEditor(getFieldEditorParent()));
+        addField(new BooleanFieldEditor(TRACE_PREF_NAME, "Record a performance &trace of Bazel operations",
+                getFieldEditorParent()));
+        addField(new BooleanFieldEditor(TRACE_BAZEL_PROFILE_PREF_NAME,
+                "Include the Bazel &profile of each command in the trace (--profile)", getFieldEditorParent()));
+        addField(new ComboFieldEditor(LOG_LEVEL_PREF_NAME, "&Log level:", getLogLevelEntries(), getFieldEditorParent()));
+        addField(new BooleanFieldEditor(CLASSPATH_INTERFACE_JARS_PREF_NAME,
+                "Compile against the &interface jars of dependencies (full jars are used to launch)",
+                getFieldEditorParent()));
+        addField(new IntegerFieldEditor(BUILD_COALESCE_DELAY_PREF_NAME,
+                "Wait for further changes before &building (milliseconds):", getFieldEditorParent()));
+        addField(new BooleanFieldEditor(IDE_OUTPUT_BASE_PREF_NAME,
+                "Run the Bazel commands of the IDE with a dedicated &output base", getFieldEditorParent()));
+        addField(new DirectoryFieldEditor(IDE_DISK_CACHE_PREF_NAME, "&Disk cache shared with terminal builds:",
+                getFieldEditorParent()));
+        addField(new StringFieldEditor(IDE_SERVER_JVM_ARGS_PREF_NAME, "JVM arguments of the IDE Bazel server:",
+                getFieldEditorParent()));
+        addField(new IntegerFieldEditor(IDE_SERVER_MAX_IDLE_SECS_PREF_NAME,
+                "Shut down the idle IDE Bazel server after (seconds):", getFieldEditorParent()));
+    }
+
+    private static String[][] getLogLevelEntries() {
+        LogLevel[] levels = LogLevel.values();
+        String[][] entries = new String[levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            entries[i] = new String[] { levels[i].name(), levels[i].name() };
+        }
+        return entries;
+    }
+
+    /**
+     * Stores the preferences, then applies the output base preferences all at once, so that saving the page restarts
+     * the Bazel server of the dedicated output base at most once.
+     */
+    @Override
+    public boolean performOk() {
+        boolean ok = super.performOk();
+        BazelPluginActivator.getInstance().applyIdeOutputBasePreferences();
+        return ok;
     }
 
     @Override
@@ -1,12 +1,9 @@
 package com.salesforce.bazel.eclipse.projectview;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DocumentEvent;
@@ -24,6 +21,10 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.command.BazelTargetCompletionIndex;
+import com.salesforce.bazel.eclipse.command.BazelTargetCompletionIndex.Completions;
+import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
 
 /**
  * File system path based Content Assistant (auto-completion). Adapted from
@@ -37,52 +38,57 @@ public final class BazelPackageContentAssistProcessor implements IContentAssistP
     private static final ICompletionProposal[] NO_PROPOSALS= new ICompletionProposal[0];
     private static final IContextInformation[] NO_CONTEXTS= new IContextInformation[0];
     
+    private final Supplier<BazelWorkspace> bazelWorkspace;
+    private String errorMessage;
+
+    /**
+     * @param bazelWorkspace
+     *            supplies the Bazel workspace of the edited file, whose directories are proposed
+     */
+    public BazelPackageContentAssistProcessor(Supplier<BazelWorkspace> bazelWorkspace) {
+        this.bazelWorkspace = bazelWorkspace;
+    }
+
+    /**
+     * Proposes the sub directories of the directory on the current line. The directories come from the completion
+     * index of the workspace, which is filled in the background, so this does not touch the file system on the UI
+     * thread. While the index is being filled, the proposals may be incomplete.
+     */
     @Override
     public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+        errorMessage = null;
         try {
             String prefix = getPrefix(viewer, offset);
-            String matchSuffix = null;
+            BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
+                    BazelPluginActivator.getInstance().getWorkspaceCommandRunner(bazelWorkspace.get());
+            if (prefix == null || bazelWorkspaceCmdRunner == null) {
+                return NO_PROPOSALS;
+            }
+            BazelTargetCompletionIndex index = bazelWorkspaceCmdRunner.getTargetCompletionIndex();
+            String path = prefix.replace(File.separatorChar, '/');
+            String directory = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            String matchSuffix = "";
             String suggestionPrefix = "";
 
-            File f = new File(BazelPluginActivator.getBazelWorkspaceRootDirectory(), prefix);
-            if (f.isDirectory()) {
-                if (!prefix.isEmpty() && !prefix.endsWith(File.separator)) {
+            if (index.isDirectory(directory)) {
+                if (!path.isEmpty() && !path.endsWith("/")) {
                     suggestionPrefix = File.separator;
-                }                
-            } else {
-                int i = prefix.lastIndexOf(File.separator);
-                if (i == -1) {
-                    f = BazelPluginActivator.getBazelWorkspaceRootDirectory();
-                } else {
-                    f = new File(BazelPluginActivator.getBazelWorkspaceRootDirectory(), prefix.substring(0, i));
                 }
-                matchSuffix = prefix.substring(i+1);    
+            } else {
+                int i = path.lastIndexOf('/');
+                directory = i == -1 ? "" : path.substring(0, i);
+                matchSuffix = path.substring(i+1);
             }
-            
-            if (f.isDirectory()) {
-                List<String> directories = Arrays.asList(f.list(new FilenameFilter() {                    
-                    @Override
-                    public boolean accept(File dir, String name) {
-                        File f = new File(dir, name);
-                        return !name.startsWith(".") && f.isDirectory() && !Files.isSymbolicLink(f.toPath());
-                    }
-                }));
-                if (matchSuffix != null) {
-                    List<String> updatedDirectories = new ArrayList<>();
-                    for (String d : directories) {
-                        if (d.startsWith(matchSuffix)) {
-                            updatedDirectories.add(d.substring(matchSuffix.length()));
-                        }
-                    }
-                    directories = updatedDirectories;
-                }
-                Collections.sort(directories);
-                List<ICompletionProposal> proposals = new ArrayList<>(directories.size());
-                for (String dir : directories) {
-                    proposals.add(new Proposal(suggestionPrefix + dir, prefix, offset));
-                }
-                return proposals.toArray(new ICompletionProposal[proposals.size()]);
+
+            Completions completions = index.getChildDirectories(directory, matchSuffix);
+            if (!completions.isComplete()) {
+                errorMessage = "The Bazel workspace is still being indexed, some directories may be missing";
             }
+            List<ICompletionProposal> proposals = new ArrayList<>(completions.getProposals().size());
+            for (String dir : completions.getProposals()) {
+                proposals.add(new Proposal(suggestionPrefix + dir.substring(matchSuffix.length()), prefix, offset));
+            }
+            return proposals.toArray(new ICompletionProposal[proposals.size()]);
         } catch (BadLocationException x) {
 
         }
@@ -124,7 +130,7 @@ public final class BazelPackageContentAssistProcessor implements IContentAssistP
 
     @Override
     public String getErrorMessage() {
-        return null;
+        return errorMessage;
     }
 
     private static final class Proposal implements ICompletionProposal, ICompletionProposalExtension, ICompletionProposalExtension2, ICompletionProposalExtension3 {
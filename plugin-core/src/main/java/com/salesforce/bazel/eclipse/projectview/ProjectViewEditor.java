@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -20,8 +21,10 @@ import org.eclipse.jface.text.source.DefaultAnnotationHover;
 import org.eclipse.jface.text.source.IAnnotationHover;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.SourceViewerConfiguration;
+import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.actions.WorkspaceModifyOperation;
 import org.eclipse.ui.editors.text.TextFileDocumentProvider;
+import org.eclipse.ui.ide.ResourceUtil;
 import org.eclipse.ui.texteditor.AbstractDecoratedTextEditor;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
@@ -30,6 +33,7 @@ import com.salesforce.bazel.eclipse.logging.LogHelper;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
 import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
 import com.salesforce.bazel.eclipse.model.BazelPackageLocation;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
 import com.salesforce.bazel.eclipse.model.projectview.ProjectView;
 import com.salesforce.bazel.eclipse.model.projectview.ProjectViewConstants;
 import com.salesforce.bazel.eclipse.model.projectview.ProjectViewPackageLocation;
@@ -45,19 +49,17 @@ public class ProjectViewEditor extends AbstractDecoratedTextEditor {
     private static final String PROJECT_VIEW_RESOURCE = File.separator + ProjectViewConstants.PROJECT_VIEW_FILE_NAME;
     private static final BazelLabel ROOT_LABEL = new BazelLabel("//:*");
     
-    private final IProject rootProject;
-    private final File rootDirectory;
-    private final ProjectViewPackageLocation rootPackage;
+    private IProject rootProject;
+    private BazelWorkspace bazelWorkspace;
+    private File rootDirectory;
+    private ProjectViewPackageLocation rootPackage;
     
     public ProjectViewEditor() {
-        this.rootProject = getBazelRootProject();
-        this.rootDirectory = BazelPluginActivator.getBazelWorkspace().getBazelWorkspaceRootDirectory();
-        this.rootPackage = new ProjectViewPackageLocation(this.rootDirectory, "");
         setDocumentProvider(new TextFileDocumentProvider());
         super.setSourceViewerConfiguration(new SourceViewerConfiguration() {             
             public IContentAssistant getContentAssistant(ISourceViewer sourceViewer) {
                 ContentAssistant ca = new ContentAssistant();
-                IContentAssistProcessor cap = new BazelPackageContentAssistProcessor();
+                IContentAssistProcessor cap = new BazelPackageContentAssistProcessor(() -> bazelWorkspace);
                 ca.setContentAssistProcessor(cap, IDocument.DEFAULT_CONTENT_TYPE);
                 ca.setInformationControlCreator(getInformationControlCreator(sourceViewer));
                 return ca;
@@ -70,6 +72,22 @@ public class ProjectViewEditor extends AbstractDecoratedTextEditor {
         });
     }
     
+    /**
+     * The edited file is in the root project of a Bazel workspace, which is the workspace the packages of the file
+     * belong to.
+     */
+    @Override
+    protected void doSetInput(IEditorInput input) throws CoreException {
+        super.doSetInput(input);
+        IFile file = input == null ? null : ResourceUtil.getFile(input);
+        IProject project = file == null ? null : file.getProject();
+        this.rootProject = project != null && BazelPluginActivator.getResourceHelper().isBazelRootProject(project)
+                ? project : getBazelRootProject();
+        this.bazelWorkspace = BazelPluginActivator.getBazelWorkspace(this.rootProject);
+        this.rootDirectory = this.bazelWorkspace.getBazelWorkspaceRootDirectory();
+        this.rootPackage = new ProjectViewPackageLocation(this.rootDirectory, "");
+    }
+    
     protected void editorSaved() {
         super.editorSaved();        
         String projectViewContent = getSourceViewer().getTextWidget().getText();
@@ -130,8 +148,17 @@ public class ProjectViewEditor extends AbstractDecoratedTextEditor {
         });
     }
 
-    private static IJavaProject[] getAllJavaBazelProjects() {
-        return BazelPluginActivator.getJavaCoreHelper().getAllBazelJavaProjects(false);
+    /**
+     * Returns the Bazel projects imported from the Bazel workspace of the edited file, the root project excluded.
+     */
+    private IJavaProject[] getAllJavaBazelProjects() {
+        List<IJavaProject> projects = new ArrayList<>();
+        for (IJavaProject project : BazelPluginActivator.getJavaCoreHelper().getAllBazelJavaProjects(false)) {
+            if (BazelPluginActivator.getBazelWorkspace(project.getProject()) == this.bazelWorkspace) {
+                projects.add(project);
+            }
+        }
+        return projects.toArray(new IJavaProject[projects.size()]);
     }
     
     private static IProject getBazelRootProject() {
@@ -243,6 +243,33 @@ public interface JavaCoreHelper {
      * @return a new library classpath entry
      */
     IClasspathEntry newLibraryEntry(IPath path, IPath sourceAttachmentPath, IPath sourceAttachmentRootPath);
+
+    /**
+     * Creates and returns a new non-exported classpath entry of kind <code>CPE_LIBRARY</code> for the
+     * JAR or folder identified by the given absolute path, with the given extra attributes.
+     * This method is fully equivalent to calling
+     * {@link #newLibraryEntry(IPath, IPath, IPath, IAccessRule[], IClasspathAttribute[], boolean)
+     * newLibraryEntry(path, sourceAttachmentPath, sourceAttachmentRootPath, new IAccessRule[0], extraAttributes, false)}.
+     *
+     * @param path the path to the library
+     * @param sourceAttachmentPath the absolute path of the corresponding source archive or folder,
+     *    or <code>null</code> if none.
+     * @param sourceAttachmentRootPath the location of the root of the source files within the source archive or folder
+     *    or <code>null</code> if this location should be automatically detected.
+     * @param extraAttributes the extra attributes of the entry
+     * @return a new library classpath entry
+     */
+    IClasspathEntry newLibraryEntry(IPath path, IPath sourceAttachmentPath, IPath sourceAttachmentRootPath,
+            IClasspathAttribute[] extraAttributes);
+
+    /**
+     * Creates and returns a new classpath attribute with the given name and the given value.
+     *
+     * @param name the name of the attribute
+     * @param value the value of the attribute
+     * @return a new classpath attribute
+     */
+    IClasspathAttribute newClasspathAttribute(String name, String value);
     
     /**
      * Creates and returns a new classpath entry of kind <code>CPE_CONTAINER</code>
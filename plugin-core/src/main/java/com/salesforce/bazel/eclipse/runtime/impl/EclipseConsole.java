@@ -35,9 +35,22 @@
  */
 package com.salesforce.bazel.eclipse.runtime.impl;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.console.ConsolePlugin;
@@ -48,21 +61,62 @@ import org.eclipse.ui.console.MessageConsoleStream;
 
 import com.salesforce.bazel.eclipse.abstractions.CommandConsole;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
+import com.salesforce.bazel.eclipse.command.shell.BoundedConsoleOutputStream;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
 
-/** Implementation of {@link CommandConsoleFactory} using Eclipse's console */
+/**
+ * Implementation of {@link CommandConsoleFactory} using Eclipse's console.
+ * <p>
+ * Rendering text in the Eclipse console is slow, and a Bazel command can print megabytes of output. So the output of
+ * a command is buffered in a bounded {@link BoundedConsoleOutputStream} and written to the console in batches by a
+ * background job, the console document itself is capped, and the full output of each command is written to a log file
+ * of its own in the spill directory. The spill directory keeps the logs of the last {@value #MAX_SPILL_FILES} commands.
+ */
 public class EclipseConsole implements CommandConsoleFactory {
+    static final LogHelper LOG = LogHelper.log(EclipseConsole.class);
+
+    static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    static final int CONSOLE_LOW_WATER_MARK = 800 * 1024;
+    static final int CONSOLE_HIGH_WATER_MARK = 1000 * 1024;
+
+    /**
+     * Delay between output becoming available and it being written to the console, so the output is written in
+     * batches.
+     */
+    static final long FLUSH_DELAY_MS = 100;
+
+    static final int MAX_SPILL_FILES = 50;
+    private static final String SPILL_FILE_SUFFIX = ".log";
+
+    private final File spillDirectory;
+    private final AtomicInteger spillFileCount = new AtomicInteger();
+    private final ConsoleFlushJob flushJob = new ConsoleFlushJob();
+
+    /**
+     * @param spillDirectory
+     *            the directory the full output of the commands is written to, or null to only keep the output in the
+     *            console
+     */
+    public EclipseConsole(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
 
-    private static class CommandConsoleImpl implements CommandConsole {
+    private class CommandConsoleImpl implements CommandConsole {
 
-        private MessageConsole console;
+        private final MessageConsole console;
+        private final OutputStream spill;
+        private final File spillFile;
+        private final AtomicInteger openStreams = new AtomicInteger();
 
-        CommandConsoleImpl(MessageConsole console) {
+        CommandConsoleImpl(MessageConsole console, OutputStream spill, File spillFile) {
             this.console = console;
+            this.spill = spill;
+            this.spillFile = spillFile;
         }
 
         @Override
         public OutputStream createOutputStream() {
-            return console.newMessageStream();
+            return createBufferedStream(console.newMessageStream());
         }
 
         @Override
@@ -74,7 +128,58 @@ public class EclipseConsole implements CommandConsoleFactory {
                 display = Display.getDefault();
             }
             display.asyncExec(() -> errorStream.setColor(new Color(null, 255, 0, 0)));
-            return errorStream;
+            return createBufferedStream(errorStream);
+        }
+
+        private OutputStream createBufferedStream(MessageConsoleStream consoleStream) {
+            openStreams.incrementAndGet();
+            return new BoundedConsoleOutputStream(consoleStream, STREAM_BUFFER_SIZE, spill, spillFile,
+                    flushJob::requestFlush) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // the spill file is shared by the output and error streams of the command
+                        if (openStreams.decrementAndGet() == 0 && spill != null) {
+                            synchronized (spill) {
+                                spill.close();
+                            }
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Writes the pending output of the command streams to the console. It is scheduled when a stream goes from empty
+     * to having pending output, so it runs at most once per {@link #FLUSH_DELAY_MS} for a busy stream.
+     */
+    private static class ConsoleFlushJob extends Job {
+        private final Queue<BoundedConsoleOutputStream> streamsToFlush = new ConcurrentLinkedQueue<>();
+
+        ConsoleFlushJob() {
+            super("Bazel console output");
+            setSystem(true);
+        }
+
+        void requestFlush(BoundedConsoleOutputStream stream) {
+            streamsToFlush.add(stream);
+            schedule(FLUSH_DELAY_MS);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            BoundedConsoleOutputStream stream;
+            while ((stream = streamsToFlush.poll()) != null) {
+                try {
+                    stream.drain();
+                } catch (IOException e) {
+                    LOG.error("Failed to write the command output to the console", e);
+                }
+            }
+            return Status.OK_STATUS;
         }
     }
 
@@ -84,7 +189,34 @@ public class EclipseConsole implements CommandConsoleFactory {
         MessageConsoleStream stream = console.newMessageStream();
         stream.setActivateOnWrite(true);
         stream.write("*** " + title + " ***\n");
-        return new CommandConsoleImpl(console);
+
+        File spillFile = null;
+        OutputStream spill = null;
+        if (spillDirectory != null && (spillDirectory.isDirectory() || spillDirectory.mkdirs())) {
+            deleteOldSpillFiles();
+            // a file per command, so the output of a command is not overwritten by the next one in the same console
+            spillFile = new File(spillDirectory, System.currentTimeMillis() + "-" + spillFileCount.incrementAndGet() + "-"
+                    + name.replaceAll("[^A-Za-z0-9._-]", "_") + SPILL_FILE_SUFFIX);
+            spill = new BufferedOutputStream(new FileOutputStream(spillFile));
+            spill.write(("*** " + title + " ***\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return new CommandConsoleImpl(console, spill, spillFile);
+    }
+
+    /**
+     * Deletes the oldest spill files, leaving room for one more.
+     */
+    private void deleteOldSpillFiles() {
+        File[] spillFiles = spillDirectory.listFiles((dir, fileName) -> fileName.endsWith(SPILL_FILE_SUFFIX));
+        if (spillFiles == null || spillFiles.length < MAX_SPILL_FILES) {
+            return;
+        }
+        Arrays.sort(spillFiles, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i <= spillFiles.length - MAX_SPILL_FILES; i++) {
+            if (!spillFiles[i].delete()) {
+                LOG.warn("Could not delete the console log {}", spillFiles[i]);
+            }
+        }
     }
 
     // Taken from the eclipse website, find a console
@@ -99,6 +231,8 @@ public class EclipseConsole implements CommandConsoleFactory {
         }
         // no console found, so create a new one
         MessageConsole myConsole = new MessageConsole(name, null);
+        // the oldest output is discarded when the console grows past the high water mark
+        myConsole.setWaterMarks(CONSOLE_LOW_WATER_MARK, CONSOLE_HIGH_WATER_MARK);
         conMan.addConsoles(new IConsole[] { myConsole });
         return myConsole;
     }
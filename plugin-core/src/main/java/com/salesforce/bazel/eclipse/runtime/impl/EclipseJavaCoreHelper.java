@@ -31,6 +31,7 @@ import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IAccessRule;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
@@ -114,6 +115,18 @@ public class EclipseJavaCoreHelper implements JavaCoreHelper {
         return JavaCore.newLibraryEntry(path, sourceAttachmentPath, sourceAttachmentRootPath);
     }
 
+    @Override
+    public IClasspathEntry newLibraryEntry(IPath path, IPath sourceAttachmentPath, IPath sourceAttachmentRootPath,
+            IClasspathAttribute[] extraAttributes) {
+        return JavaCore.newLibraryEntry(path, sourceAttachmentPath, sourceAttachmentRootPath, new IAccessRule[0],
+            extraAttributes, false);
+    }
+
+    @Override
+    public IClasspathAttribute newClasspathAttribute(String name, String value) {
+        return JavaCore.newClasspathAttribute(name, value);
+    }
+
     @Override
     public IJavaProject[] getAllBazelJavaProjects(boolean includeBazelWorkspaceRootProject) {
         // cache all of this?
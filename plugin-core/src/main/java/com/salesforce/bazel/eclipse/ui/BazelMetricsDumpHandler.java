@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.ui;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
+
+/**
+ * Handler of the 'Dump Bazel Performance Metrics' command. Writes the content of the {@link MetricsRegistry} as JSON
+ * into the state location of the plugin, so it can be attached to a bug report. If a trace is being recorded, the
+ * trace is written next to it (see {@link TraceRecorder}).
+ */
+public class BazelMetricsDumpHandler extends AbstractHandler {
+    static final LogHelper LOG = LogHelper.log(BazelMetricsDumpHandler.class);
+
+    public static final String METRICS_FILE_NAME = "bazel-metrics.json";
+    public static final String TRACE_FILE_NAME = "bazel-trace.json";
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        IPath stateLocation = BazelPluginActivator.getInstance().getStateLocation();
+        File metricsFile = stateLocation.append(METRICS_FILE_NAME).toFile();
+        File traceFile = stateLocation.append(TRACE_FILE_NAME).toFile();
+        try {
+            String message = "The Bazel performance metrics were written to "
+                    + MetricsRegistry.getInstance().dumpJson(metricsFile.getAbsolutePath());
+            if (TraceRecorder.getInstance().isEnabled()) {
+                TraceRecorder.getInstance().writeChromeTrace(traceFile);
+                message += "\nThe trace was written to " + traceFile.getAbsolutePath()
+                        + ", open it in chrome://tracing or https://ui.perfetto.dev";
+            }
+            LOG.info(message);
+            MessageDialog.openInformation(HandlerUtil.getActiveShell(event), "Bazel Performance Metrics", message);
+        } catch (IOException e) {
+            throw new ExecutionException("Could not write the Bazel performance metrics to " + stateLocation, e);
+        }
+        return null;
+    }
+}
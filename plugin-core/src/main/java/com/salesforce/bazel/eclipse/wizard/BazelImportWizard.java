@@ -45,7 +45,6 @@
 package com.salesforce.bazel.eclipse.wizard;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -120,10 +119,10 @@ public class BazelImportWizard extends Wizard implements IImportWizard {
         // the first node in the project tree is the root node - for now we'll always import this root node regardless of what the user actually selected
         BazelPackageInfo workspaceRootProject = page.workspaceRootPackage;
 
-        Object[] selectedBazelPackages = page.projectTree.projectTreeViewer.getCheckedElements();
+        List<BazelPackageInfo> selectedBazelPackages = page.projectTree.getCheckedPackages();
         List<BazelPackageLocation> bazelPackagesToImport =
-                Arrays.asList(selectedBazelPackages).stream().filter(bpi -> bpi != workspaceRootProject)
-                        .map(bpi -> (BazelPackageInfo) bpi).collect(Collectors.toList());
+                selectedBazelPackages.stream().filter(bpi -> bpi != workspaceRootProject)
+                        .collect(Collectors.toList());
 
         BazelProjectImporter.run(workspaceRootProject, bazelPackagesToImport);
 
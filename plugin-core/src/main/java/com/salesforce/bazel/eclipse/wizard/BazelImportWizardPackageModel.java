@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.wizard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
+
+/**
+ * The packages shown in the project tree of the import wizard, and which of them are checked. The check state lives
+ * here rather than in the (virtual) tree viewer, which only knows the items that have been shown, so checking a whole
+ * subtree or listing the checked packages does not need to create an item per package.
+ * <p>
+ * Packages are added while the workspace is scanned, a package after its parent. The children are kept here, as the
+ * child links of the {@link BazelPackageInfo} tree are updated by the scanning thread. Only used on the UI thread.
+ */
+class BazelImportWizardPackageModel {
+
+    private final BazelPackageInfo root;
+
+    /**
+     * The packages in the order they were added, the index of a package is its bit in {@link #checked}.
+     */
+    private final List<BazelPackageInfo> packages = new ArrayList<>();
+    private final Map<BazelPackageInfo, Integer> indexes = new HashMap<>();
+    private final Map<BazelPackageInfo, List<BazelPackageInfo>> children = new HashMap<>();
+    private final BitSet checked = new BitSet();
+    /**
+     * The state of the last select all or deselect all, which the packages added since then get: selecting all while
+     * the workspace is scanned also selects the packages that have not been found yet.
+     */
+    private boolean addedChecked;
+
+    BazelImportWizardPackageModel(BazelPackageInfo root) {
+        this.root = root;
+        addPackage(root);
+    }
+
+    BazelPackageInfo getRoot() {
+        return root;
+    }
+
+    /**
+     * Adds a package found by the scan, whose parent has already been added. Returns the parent.
+     */
+    BazelPackageInfo add(BazelPackageInfo packageInfo) {
+        BazelPackageInfo parent = packageInfo.getParentPackageInfo();
+        if (!indexes.containsKey(parent)) {
+            throw new IllegalArgumentException("The parent of " + packageInfo.getBazelPackageName() + " is unknown");
+        }
+        addPackage(packageInfo);
+        children.get(parent).add(packageInfo);
+        if (addedChecked) {
+            checked.set(packages.size() - 1);
+        }
+        return parent;
+    }
+
+    List<BazelPackageInfo> getChildren(BazelPackageInfo packageInfo) {
+        List<BazelPackageInfo> packageChildren = children.get(packageInfo);
+        return packageChildren == null ? Collections.emptyList() : Collections.unmodifiableList(packageChildren);
+    }
+
+    /**
+     * All packages, the workspace root first.
+     */
+    List<BazelPackageInfo> getPackages() {
+        return Collections.unmodifiableList(packages);
+    }
+
+    int size() {
+        return packages.size();
+    }
+
+    boolean isChecked(BazelPackageInfo packageInfo) {
+        Integer index = indexes.get(packageInfo);
+        return index != null && checked.get(index);
+    }
+
+    void setChecked(BazelPackageInfo packageInfo, boolean state) {
+        Integer index = indexes.get(packageInfo);
+        if (index != null) {
+            checked.set(index, state);
+        }
+    }
+
+    void setSubtreeChecked(BazelPackageInfo packageInfo, boolean state) {
+        Deque<BazelPackageInfo> toVisit = new ArrayDeque<>();
+        toVisit.push(packageInfo);
+        while (!toVisit.isEmpty()) {
+            BazelPackageInfo visited = toVisit.pop();
+            setChecked(visited, state);
+            for (BazelPackageInfo child : getChildren(visited)) {
+                toVisit.push(child);
+            }
+        }
+    }
+
+    /**
+     * Checks or unchecks all the packages, including the ones added later.
+     */
+    void setAllChecked(boolean state) {
+        checked.set(0, packages.size(), state);
+        addedChecked = state;
+    }
+
+    boolean hasCheckedPackages() {
+        return !checked.isEmpty();
+    }
+
+    /**
+     * The checked packages, in the order they were added.
+     */
+    List<BazelPackageInfo> getCheckedPackages() {
+        List<BazelPackageInfo> checkedPackages = new ArrayList<>(checked.cardinality());
+        for (int i = checked.nextSetBit(0); i >= 0; i = checked.nextSetBit(i + 1)) {
+            checkedPackages.add(packages.get(i));
+        }
+        return checkedPackages;
+    }
+
+    // INTERNAL
+
+    private void addPackage(BazelPackageInfo packageInfo) {
+        indexes.put(packageInfo, packages.size());
+        packages.add(packageInfo);
+        children.put(packageInfo, new ArrayList<>());
+    }
+}
@@ -45,6 +45,8 @@
 
 package com.salesforce.bazel.eclipse.wizard;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,7 +55,6 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 
-import com.salesforce.bazel.eclipse.importer.BazelProjectImportScanner;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
 import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
 
@@ -73,6 +74,11 @@ public class BazelImportWizardPage extends WizardPage {
 
     BazelPackageInfo workspaceRootPackage = null;
 
+    /**
+     * The scan that is running, null once it is over.
+     */
+    private BazelImportWizardScanJob scanJob;
+
     // errors should be set into this field, which will be shown to the user
     String loadingErrorMessage;
 
@@ -113,53 +119,103 @@ public class BazelImportWizardPage extends WizardPage {
         // determine if there are any checked Bazel packages in the project tree. If there are, that means
         // that the user correctly pointed the location control to a Bazel workspace, and it found one or
         // more Java packages.
-        Object[] checkedElements = projectTree.projectTreeViewer.getCheckedElements();
-        boolean isComplete = checkedElements != null && checkedElements.length > 0;
+        // the packages are only imported once the scan is over
+        boolean isComplete = scanJob == null && projectTree.hasCheckedPackages();
         setPageComplete(isComplete);
         LOG.info("BazelImportWizardPage.setPageComplete: {}", isComplete);
     }
 
-    @SuppressWarnings("deprecation")
+    /**
+     * Starts scanning the selected location for Bazel packages in the background, after cancelling the scan of the
+     * previous location if it is still running. The packages are added to the tree as they are found, see
+     * {@link BazelImportWizardScanJob}.
+     */
     public void scanProjects() {
-        // this the heavy lifting of scanning the file system for BUILD files, checking if BUILD file is a Java package
-        BazelProjectImportScanner projectScanner = new BazelProjectImportScanner();
+        if (scanJob != null) {
+            scanJob.cancel();
+            scanJob = null;
+        }
+        this.workspaceRootPackage = null;
+        this.projectTree.clearPackages();
+        this.projectTree.importProjectViewButton.setEnabled(false);
+        this.locationControl.locations = new ArrayList<>();
+        setPageComplete(false);
+
+        // get the selected location
+        // when the wizard is first opened, the location field is blank and we have a null root package
+        String rootDirectory = this.locationControl.rootDirectory;
+        if (rootDirectory == null || rootDirectory.isEmpty()) {
+            return;
+        }
+        File rootDirectoryFile;
         try {
-            List<String> newFilesystemLocations = new ArrayList<>();
-            List<BazelPackageInfo> newEclipseProjects = new ArrayList<>();
-            
-            // get the selected location
-            // when the wizard is first opened, the location field is blank and we have a null root package
-            if (this.locationControl.rootDirectory != null) {
-                this.projectTree.setRootWorkspaceDirectory(this.locationControl.rootDirectory);
-                this.workspaceRootPackage = projectScanner.getProjects(this.locationControl.rootDirectory);
-                if (workspaceRootPackage != null) {
-                    // make sure the user chose a Bazel workspace
-                    newEclipseProjects.add(workspaceRootPackage);
-                    newFilesystemLocations.add(workspaceRootPackage.getBazelPackageFSAbsolutePath());
-                    this.projectTree.projectTreeViewer.setInput(newEclipseProjects);
-                    this.projectTree.projectTreeViewer.expandAll();
-                    this.projectTree.importProjectViewButton.setEnabled(true);
-                    if (workspaceRootPackage.getChildPackageInfos().size() < 10) {
-                        // short term usability hack, enable all for import if there are less than 10 Bazel packages
-                        this.projectTree.projectTreeViewer.setAllChecked(true);
-                    }
-                } else {
-                    this.projectTree.projectTreeViewer.setAllChecked(true);
-                }
-            }
+            rootDirectoryFile = new File(rootDirectory).getCanonicalFile();
+        } catch (IOException anyE) {
+            LOG.error(anyE.getMessage(), anyE);
+            setErrorMessage("Error importing the Bazel workspace. Details: " + anyE.getMessage());
+            return;
+        }
+        this.projectTree.setRootWorkspaceDirectory(rootDirectory);
+        setErrorMessage(null);
+        setMessage("Scanning " + rootDirectoryFile.getAbsolutePath() + " for Bazel packages...");
 
-            this.locationControl.locations = newFilesystemLocations;
+        // this the heavy lifting of scanning the file system for BUILD files, checking if BUILD file is a Java package
+        scanJob = new BazelImportWizardScanJob(this, rootDirectoryFile, getShell().getDisplay());
+        scanJob.schedule();
+    }
 
-            setPageComplete();
-            setErrorMessage(null);
-            setMessage(null);
+    @Override
+    public void dispose() {
+        if (scanJob != null) {
+            scanJob.cancel();
+            scanJob = null;
+        }
+        super.dispose();
+    }
 
-            this.loadingErrorMessage = null;
-            this.workingSetControl.updateWorkingSet(this.workspaceRootPackage);
-        } catch (Exception anyE) {
-            LOG.error(anyE.getMessage(), anyE);
-            setErrorMessage("Error importing the Bazel workspace. Details: " + anyE.getMessage());
+    /**
+     * Called on the UI thread with the packages the scan found since the previous call, the workspace root first.
+     */
+    void packagesFound(BazelImportWizardScanJob job, List<BazelPackageInfo> packages) {
+        if (job != scanJob || getControl().isDisposed()) {
+            // the scan of a previous location
+            return;
         }
+        this.projectTree.addPackages(packages);
+    }
+
+    /**
+     * Called on the UI thread once the scan is over, after the last {@link #packagesFound} call.
+     */
+    void scanFinished(BazelImportWizardScanJob job, BazelPackageInfo rootPackage, Exception error,
+            boolean isCancelled) {
+        if (job != scanJob || getControl().isDisposed()) {
+            return;
+        }
+        scanJob = null;
+        if (error != null) {
+            LOG.error(error.getMessage(), error);
+            setMessage(null);
+            setErrorMessage("Error importing the Bazel workspace. Details: " + error.getMessage());
+            return;
+        }
+        this.workspaceRootPackage = rootPackage;
+        if (workspaceRootPackage != null) {
+            // make sure the user chose a Bazel workspace
+            this.locationControl.locations.add(workspaceRootPackage.getBazelPackageFSAbsolutePath());
+            this.projectTree.importProjectViewButton.setEnabled(true);
+            if (workspaceRootPackage.getChildPackageInfos().size() < 10) {
+                // short term usability hack, enable all for import if there are less than 10 Bazel packages
+                this.projectTree.setAllChecked(true);
+            }
+        }
+
+        setPageComplete();
+        setErrorMessage(null);
+        setMessage(isCancelled ? "The scan was cancelled, some Bazel packages may be missing" : null);
+
+        this.loadingErrorMessage = null;
+        this.workingSetControl.updateWorkingSet(this.workspaceRootPackage);
     }
 
 }
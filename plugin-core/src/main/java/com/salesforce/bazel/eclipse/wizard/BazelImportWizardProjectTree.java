@@ -49,9 +49,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -62,9 +62,10 @@ import org.eclipse.jface.viewers.CheckStateChangedEvent;
 import org.eclipse.jface.viewers.CheckboxTreeViewer;
 import org.eclipse.jface.viewers.DelegatingStyledCellLabelProvider;
 import org.eclipse.jface.viewers.ICheckStateListener;
+import org.eclipse.jface.viewers.ICheckStateProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
-import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.ITreeSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.Viewer;
@@ -88,8 +89,6 @@ import com.salesforce.bazel.eclipse.model.projectview.ProjectViewConstants;
  * Builds and handles interaction with the project tree view on the Bazel import workspace wizard.
  */
 public class BazelImportWizardProjectTree {
-    private static final Object[] EMPTY = new Object[0];
-    
     private String rootWorkspaceDirectory;
 
     private Button btnSelectTree;
@@ -101,6 +100,12 @@ public class BazelImportWizardProjectTree {
 
     CheckboxTreeViewer projectTreeViewer;
 
+    /**
+     * The packages of the tree and their check state, null until the scan has found the workspace root.
+     */
+    BazelImportWizardPackageModel packageModel;
+    private boolean isRootExpanded = false;
+
     public BazelImportWizardProjectTree(BazelImportWizardPage page, BazelImportWizardLabelProvider labelProvider) {
         this.page = page;
         this.labelProvider = labelProvider;
@@ -111,15 +116,31 @@ public class BazelImportWizardProjectTree {
         projectsLabel.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 3, 1));
         projectsLabel.setText("Bazel Java Packages:");
 
-        projectTreeViewer = new CheckboxTreeViewer(composite, SWT.BORDER);
+        // virtual: an item is only created when it is shown, which keeps large workspaces fast
+        projectTreeViewer = new CheckboxTreeViewer(composite, SWT.BORDER | SWT.VIRTUAL);
+        projectTreeViewer.setUseHashlookup(true);
 
         projectTreeViewer.addCheckStateListener(new ICheckStateListener() {
             public void checkStateChanged(CheckStateChangedEvent event) {
+                if (packageModel != null && event.getElement() instanceof BazelPackageInfo) {
+                    packageModel.setChecked((BazelPackageInfo) event.getElement(), event.getChecked());
+                }
                 updateCheckedState();
                 page.setPageComplete();
             }
         });
 
+        projectTreeViewer.setCheckStateProvider(new ICheckStateProvider() {
+            public boolean isChecked(Object element) {
+                return packageModel != null && element instanceof BazelPackageInfo
+                        && packageModel.isChecked((BazelPackageInfo) element);
+            }
+
+            public boolean isGrayed(Object element) {
+                return false;
+            }
+        });
+
         projectTreeViewer.addSelectionChangedListener(new ISelectionChangedListener() {
 
             public void selectionChanged(SelectionChangedEvent event) {
@@ -141,43 +162,42 @@ public class BazelImportWizardProjectTree {
             }
         });
 
-        projectTreeViewer.setContentProvider(new ITreeContentProvider() {
-
-            public Object[] getElements(Object element) {
-                if (element instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<BazelPackageInfo> projects = (List<BazelPackageInfo>) element;
-                    return projects.toArray(new BazelPackageInfo[projects.size()]);
+        projectTreeViewer.setContentProvider(new ILazyTreeContentProvider() {
+
+            public void updateElement(Object parent, int index) {
+                if (parent instanceof BazelImportWizardPackageModel) {
+                    // the workspace root is the only top level element
+                    BazelPackageInfo root = ((BazelImportWizardPackageModel) parent).getRoot();
+                    projectTreeViewer.replace(parent, index, root);
+                    projectTreeViewer.setChildCount(root, packageModel.getChildren(root).size());
+                } else if (parent instanceof BazelPackageInfo && packageModel != null) {
+                    List<BazelPackageInfo> children = packageModel.getChildren((BazelPackageInfo) parent);
+                    if (index < children.size()) {
+                        BazelPackageInfo child = children.get(index);
+                        projectTreeViewer.replace(parent, index, child);
+                        projectTreeViewer.setChildCount(child, packageModel.getChildren(child).size());
+                    }
                 }
-                return EMPTY;
             }
 
-            public Object[] getChildren(Object parentElement) {
-                if (parentElement instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<BazelPackageInfo> projects = (List<BazelPackageInfo>) parentElement;
-                    return projects.toArray(new BazelPackageInfo[projects.size()]);
-                } else if (parentElement instanceof BazelPackageInfo) {
-                    BazelPackageInfo bazelProjectInfo = (BazelPackageInfo) parentElement;
-                    Collection<BazelPackageInfo> packages = bazelProjectInfo.getChildPackageInfos();
-                    return packages.toArray(new BazelPackageInfo[packages.size()]);
+            public void updateChildCount(Object element, int currentChildCount) {
+                int childCount = 0;
+                if (element instanceof BazelImportWizardPackageModel) {
+                    childCount = 1;
+                } else if (element instanceof BazelPackageInfo && packageModel != null) {
+                    childCount = packageModel.getChildren((BazelPackageInfo) element).size();
+                }
+                if (childCount != currentChildCount) {
+                    projectTreeViewer.setChildCount(element, childCount);
                 }
-                return EMPTY;
             }
 
             public Object getParent(Object element) {
-                return null;
-            }
-
-            public boolean hasChildren(Object parentElement) {
-                if (parentElement instanceof List) {
-                    List<?> projects = (List<?>) parentElement;
-                    return !projects.isEmpty();
-                } else if (parentElement instanceof BazelPackageInfo) {
-                    BazelPackageInfo bazelPackageInfo = (BazelPackageInfo) parentElement;
-                    return !bazelPackageInfo.getChildPackageInfos().isEmpty();
+                if (element instanceof BazelPackageInfo) {
+                    BazelPackageInfo parent = ((BazelPackageInfo) element).getParentPackageInfo();
+                    return parent != null ? parent : packageModel;
                 }
-                return false;
+                return null;
             }
 
             public void dispose() {}
@@ -219,9 +239,7 @@ public class BazelImportWizardProjectTree {
         selectAllButton.setText("Select All");
         selectAllButton.addSelectionListener(new SelectionAdapter() {
             public void widgetSelected(SelectionEvent e) {
-                projectTreeViewer.expandAll();
                 setAllChecked(true);
-                // projectTreeViewer.setSubtreeChecked(projectTreeViewer.getInput(), true);
                 validate(page);
             }
         });
@@ -232,7 +250,6 @@ public class BazelImportWizardProjectTree {
         deselectAllButton.addSelectionListener(new SelectionAdapter() {
             public void widgetSelected(SelectionEvent e) {
                 setAllChecked(false);
-                // projectTreeViewer.setSubtreeChecked(projectTreeViewer.getInput(), false);
                 page.setPageComplete(false);
             }
         });
@@ -279,18 +296,19 @@ public class BazelImportWizardProjectTree {
                 dialog.setFileName(ProjectViewConstants.PROJECT_VIEW_FILE_NAME);
                 dialog.setFilterPath(BazelImportWizardProjectTree.this.rootWorkspaceDirectory);
                 String path = dialog.open();
-                if (path != null) {
+                if (path != null && packageModel != null) {
                     Set<BazelPackageInfo> packagesToImport = new HashSet<>();                        
                     ProjectView projectView = new ProjectView(new File(BazelImportWizardProjectTree.this.rootWorkspaceDirectory), readFile(path));
                     Set<String> projectViewPaths = projectView.getPackages().stream().map(p -> p.getBazelPackageFSRelativePath()).collect(Collectors.toSet());                        
-                    for (BazelPackageInfo bpi : getAllBazelPackageInfos()) {
+                    for (BazelPackageInfo bpi : packageModel.getPackages()) {
                         if (projectViewPaths.contains(bpi.getBazelPackageFSRelativePath())) {
                             packagesToImport.add(bpi);
                         }                            
                     }
                     for (BazelPackageInfo bpi : packagesToImport) {
-                        projectTreeViewer.setChecked(bpi, true);
-                    }                    
+                        packageModel.setChecked(bpi, true);
+                    }
+                    projectTreeViewer.refresh();
                     MessageDialog.openInformation(page.getShell(), "Imported Project View", "Selected " + packagesToImport.size() + " Bazel Packages to import");
                     page.setPageComplete();
                 }
@@ -306,30 +324,54 @@ public class BazelImportWizardProjectTree {
         }
     }
     
-    private List<BazelPackageInfo> getAllBazelPackageInfos() {
-        // seems hacky - but this will change again as we update the import UI
-        setAllChecked(true);
-        try {
-            return Arrays.stream(projectTreeViewer.getCheckedElements())
-                .filter(el -> (el instanceof BazelPackageInfo))
-                .map(el -> (BazelPackageInfo)el)
-                .collect(Collectors.toList());
-        } finally {
-            setAllChecked(false);
+    /**
+     * Clears the tree, before a new scan.
+     */
+    void clearPackages() {
+        packageModel = null;
+        isRootExpanded = false;
+        projectTreeViewer.setInput(null);
+    }
+
+    /**
+     * Adds a batch of packages found by the scan, the workspace root first. Only the parents whose child count
+     * changed are updated, the items of the new packages are created when they are shown.
+     */
+    void addPackages(List<BazelPackageInfo> packages) {
+        Set<BazelPackageInfo> changedParents = new LinkedHashSet<>();
+        for (BazelPackageInfo packageInfo : packages) {
+            if (packageInfo.isWorkspaceRoot()) {
+                packageModel = new BazelImportWizardPackageModel(packageInfo);
+                projectTreeViewer.setInput(packageModel);
+            } else if (packageModel != null) {
+                changedParents.add(packageModel.add(packageInfo));
+            }
+        }
+        for (BazelPackageInfo parent : changedParents) {
+            projectTreeViewer.setChildCount(parent, packageModel.getChildren(parent).size());
         }
-        
-        
+        if (!isRootExpanded && packageModel != null && !packageModel.getChildren(packageModel.getRoot()).isEmpty()) {
+            projectTreeViewer.setExpandedState(packageModel.getRoot(), true);
+            isRootExpanded = true;
+        }
+    }
+
+    List<BazelPackageInfo> getCheckedPackages() {
+        return packageModel == null ? Collections.emptyList() : packageModel.getCheckedPackages();
+    }
+
+    boolean hasCheckedPackages() {
+        return packageModel != null && packageModel.hasCheckedPackages();
     }
 
     public void updateCheckedState() {
-        Object[] elements = projectTreeViewer.getCheckedElements();
-        for (int i = 0; i < elements.length; i++) {
-            Object element = elements[i];
-            if (element instanceof BazelPackageInfo) {
-                BazelPackageInfo info = (BazelPackageInfo) element;
-                if (isAlreadyImported(info)) {
-                    projectTreeViewer.setChecked(info, false);
-                }
+        if (packageModel == null) {
+            return;
+        }
+        for (BazelPackageInfo info : packageModel.getCheckedPackages()) {
+            if (isAlreadyImported(info)) {
+                packageModel.setChecked(info, false);
+                projectTreeViewer.setChecked(info, false);
             }
         }
     }
@@ -353,15 +395,11 @@ public class BazelImportWizardProjectTree {
         if (projectTreeViewer.getControl().isDisposed()) {
             return;
         }
-        Object[] elements = projectTreeViewer.getCheckedElements();
-        for (int i = 0; i < elements.length; i++) {
-            Object element = elements[i];
-            if (element instanceof BazelPackageInfo) {
-                String errorMsg = validateProjectInfo((BazelPackageInfo) element);
-                if (errorMsg != null) {
-                    page.setPageComplete(false);
-                    return;
-                }
+        for (BazelPackageInfo info : getCheckedPackages()) {
+            String errorMsg = validateProjectInfo(info);
+            if (errorMsg != null) {
+                page.setPageComplete(false);
+                return;
             }
         }
         page.setMessage(null);
@@ -370,24 +408,19 @@ public class BazelImportWizardProjectTree {
     }
 
     void setAllChecked(boolean state) {
-        @SuppressWarnings("unchecked")
-        List<BazelPackageInfo> input = (List<BazelPackageInfo>) projectTreeViewer.getInput();
-        if (input != null) {
-            for (BazelPackageInfo bazelProjectInfo : input) {
-                setSubtreeChecked(bazelProjectInfo, state);
-            }
+        if (packageModel != null) {
+            packageModel.setAllChecked(state);
             updateCheckedState();
+            // only the items that have been shown are updated
+            projectTreeViewer.refresh();
         }
     }
 
     void setSubtreeChecked(Object obj, boolean checked) {
-        // CheckBoxTreeViewer#setSubtreeChecked is severely inefficient
-        projectTreeViewer.setChecked(obj, checked);
-        Object[] children = ((ITreeContentProvider) projectTreeViewer.getContentProvider()).getChildren(obj);
-        if (children != null) {
-            for (Object child : children) {
-                setSubtreeChecked(child, checked);
-            }
+        // the check state is in the model, CheckBoxTreeViewer#setSubtreeChecked would create an item per package
+        if (packageModel != null && obj instanceof BazelPackageInfo) {
+            packageModel.setSubtreeChecked((BazelPackageInfo) obj, checked);
+            projectTreeViewer.refresh();
         }
     }
 
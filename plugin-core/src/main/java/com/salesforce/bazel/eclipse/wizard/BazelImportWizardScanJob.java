@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.wizard;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+import com.salesforce.bazel.eclipse.importer.BazelProjectImportScanner;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
+
+/**
+ * Scans a Bazel workspace for Java packages in the background for the import wizard, which stays responsive on large
+ * workspaces. The packages are handed to the page on the UI thread while they are found: everything found since the
+ * previous hand-off goes in one batch, so the tree is updated at the pace the UI thread can take. Cancelled when the
+ * user picks another location or closes the wizard.
+ */
+class BazelImportWizardScanJob extends Job {
+    static final LogHelper LOG = LogHelper.log(BazelImportWizardScanJob.class);
+
+    private final BazelImportWizardPage page;
+    private final File rootDirectory;
+    private final Display display;
+
+    /**
+     * The packages found since the last hand-off, guarded by this.
+     */
+    private List<BazelPackageInfo> foundPackages = new ArrayList<>();
+    private boolean isHandOffScheduled = false;
+
+    BazelImportWizardScanJob(BazelImportWizardPage page, File rootDirectory, Display display) {
+        super("Scanning " + rootDirectory.getAbsolutePath() + " for Bazel packages");
+        this.page = page;
+        this.rootDirectory = rootDirectory;
+        this.display = display;
+        setSystem(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+        BazelPackageInfo workspaceRootPackage = null;
+        Exception error = null;
+        try {
+            workspaceRootPackage =
+                    new BazelProjectImportScanner().getProjects(rootDirectory, monitor, this::packageFound);
+        } catch (Exception anyE) {
+            error = anyE;
+        } finally {
+            monitor.done();
+        }
+        boolean isCancelled = monitor.isCanceled();
+        LOG.info("Scanned {} for Bazel packages{}", rootDirectory, isCancelled ? " (cancelled)" : "");
+
+        BazelPackageInfo scannedRootPackage = workspaceRootPackage;
+        Exception scanError = error;
+        asyncExec(() -> {
+            handOffFoundPackages();
+            page.scanFinished(this, scannedRootPackage, scanError, isCancelled);
+        });
+        return isCancelled ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+    // INTERNAL
+
+    private void packageFound(BazelPackageInfo packageInfo) {
+        synchronized (this) {
+            foundPackages.add(packageInfo);
+            if (isHandOffScheduled) {
+                return;
+            }
+            isHandOffScheduled = true;
+        }
+        asyncExec(this::handOffFoundPackages);
+    }
+
+    private void handOffFoundPackages() {
+        List<BazelPackageInfo> packages;
+        synchronized (this) {
+            packages = foundPackages;
+            foundPackages = new ArrayList<>();
+            isHandOffScheduled = false;
+        }
+        if (!packages.isEmpty()) {
+            page.packagesFound(this, packages);
+        }
+    }
+
+    private void asyncExec(Runnable runnable) {
+        if (!display.isDisposed()) {
+            display.asyncExec(runnable);
+        }
+    }
+}
@@ -14,15 +14,12 @@
 
 package com.salesforce.bazel.eclipse.wizard.old;
 
-import java.io.IOException;
 import java.util.List;
 
 import org.eclipse.jface.fieldassist.ContentProposal;
 import org.eclipse.jface.fieldassist.IContentProposal;
 import org.eclipse.jface.fieldassist.IContentProposalProvider;
 
-import com.salesforce.bazel.eclipse.BazelPluginActivator;
-import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 
 /**
@@ -38,30 +35,24 @@ public class BazelTargetCompletionContentProposalProvider implements IContentPro
 
     private BazelWorkspaceCommandRunner bazel = null;
 
+    /**
+     * Answers from the completion index of the workspace, without waiting for Bazel. The proposals may be incomplete
+     * while the index is being filled.
+     */
     @Override
     public IContentProposal[] getProposals(String contents, int position) {
         if (bazel == null) {
             return null;
         }
-        try {
-            List<String> completions = bazel.getMatchingTargets(contents.substring(0, position), null);
-            if (completions != null) {
-                IContentProposal[] result = new IContentProposal[completions.size()];
-                int i = 0;
-                for (String s : completions) {
-                    result[i] = new ContentProposal(s);
-                    i++;
-                }
-                return result;
-            }
-        } catch (IOException e) {
-            BazelPluginActivator.error("Failed to run Bazel to get completion information", e);
-        } catch (InterruptedException e) {
-            BazelPluginActivator.error("Bazel was interrupted", e);
-        } catch (BazelCommandLineToolConfigurationException e) {
-            BazelPluginActivator.error("Bazel not found: " + e.getMessage());
+        List<String> completions = bazel.getTargetCompletionIndex().getMatchingTargets(contents.substring(0, position))
+                .getProposals();
+        IContentProposal[] result = new IContentProposal[completions.size()];
+        int i = 0;
+        for (String s : completions) {
+            result[i] = new ContentProposal(s);
+            i++;
         }
-        return null;
+        return result;
     }
 
     /**
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.eclipse.model.OperatingEnvironmentDetectionStrategy;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+
+public class BazelBuildCoalescerTest {
+
+    private static final long DELAY_MS = 50;
+
+    @Test
+    public void testRequestsAreCoalesced() throws Exception {
+        IProject apple = mockProject("apple");
+        IProject banana = mockProject("banana");
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+
+        coalescer.requestBuild(apple, Collections.singleton("apple/A.java"));
+        coalescer.requestBuild(banana);
+        coalescer.requestBuild(apple, Collections.singleton("apple/B.java"));
+
+        Map<IProject, Set<String>> build = coalescer.builds.poll(10, TimeUnit.SECONDS);
+        assertNotNull(build);
+        assertEquals(2, build.size());
+        assertEquals(new HashSet<>(Arrays.asList("apple/A.java", "apple/B.java")), build.get(apple));
+        assertTrue(build.containsKey(banana));
+        assertNull(build.get(banana));
+    }
+
+    @Test
+    public void testSupersededBuildIsRescheduled() throws Exception {
+        IProject apple = mockProject("apple");
+        IProject banana = mockProject("banana");
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        coalescer.requestOnNextBuild = banana;
+        coalescer.requestBuild(apple);
+
+        Map<IProject, Set<String>> build = coalescer.builds.poll(10, TimeUnit.SECONDS);
+        assertNotNull(build);
+        assertEquals(Collections.singleton(apple), build.keySet());
+
+        // the superseded project is built again along with the newer request
+        Map<IProject, Set<String>> rebuild = coalescer.builds.poll(10, TimeUnit.SECONDS);
+        assertNotNull(rebuild);
+        assertEquals(new HashSet<>(Arrays.asList(apple, banana)), rebuild.keySet());
+    }
+
+    @Test
+    public void testBuildCancelledByUserIsDropped() throws Exception {
+        IProject apple = mockProject("apple");
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        coalescer.cancelNextBuild = true;
+        coalescer.requestBuild(apple);
+
+        Map<IProject, Set<String>> build = coalescer.builds.poll(10, TimeUnit.SECONDS);
+        assertNotNull(build);
+        assertEquals(Collections.singleton(apple), build.keySet());
+
+        assertNull(coalescer.builds.poll(10 * DELAY_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBuildCancelledByCleanIsDropped() throws Exception {
+        IProject apple = mockProject("apple");
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        coalescer.cancelNextBuild = true;
+        coalescer.cleanOnNextBuild = true;
+        coalescer.requestBuild(apple);
+
+        Map<IProject, Set<String>> build = coalescer.builds.poll(10, TimeUnit.SECONDS);
+        assertNotNull(build);
+        assertEquals(Collections.singleton(apple), build.keySet());
+
+        assertNull(coalescer.builds.poll(10 * DELAY_MS, TimeUnit.MILLISECONDS));
+    }
+
+    // HELPERS
+
+    private static IProject mockProject(String name) {
+        IProject project = Mockito.mock(IProject.class);
+        Mockito.when(project.getName()).thenReturn(name);
+        Mockito.when(project.isAccessible()).thenReturn(true);
+        return project;
+    }
+
+    private static BazelWorkspace mockWorkspace() {
+        OperatingEnvironmentDetectionStrategy osStrategy = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        return new BazelWorkspace("test", new File(System.getProperty("java.io.tmpdir")), osStrategy);
+    }
+
+    /**
+     * Records the builds instead of running Bazel.
+     */
+    private static class RecordingCoalescer extends BazelBuildCoalescer {
+        final BlockingQueue<Map<IProject, Set<String>>> builds = new LinkedBlockingQueue<>();
+        volatile boolean cancelNextBuild = false;
+        volatile boolean cleanOnNextBuild = false;
+        volatile IProject requestOnNextBuild = null;
+
+        RecordingCoalescer() {
+            super(mockWorkspace(), () -> DELAY_MS);
+        }
+
+        @Override
+        void buildDirtyProjects(Map<IProject, Set<String>> dirtyProjects, IProgressMonitor monitor) {
+            if (cleanOnNextBuild) {
+                cleanOnNextBuild = false;
+                cancelPendingBuilds();
+            }
+            if (requestOnNextBuild != null) {
+                // a newer request cancels the running build
+                requestBuild(requestOnNextBuild);
+                requestOnNextBuild = null;
+                monitor.setCanceled(true);
+            }
+            if (cancelNextBuild) {
+                cancelNextBuild = false;
+                monitor.setCanceled(true);
+            }
+            builds.add(new LinkedHashMap<>(dirtyProjects));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.builder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
+
+public class BazelMarkerManagerSingletonTest {
+
+    private static final Collection<BazelLabel> LABELS = Collections.singletonList(new BazelLabel("projects/libs/apple:apple"));
+
+    @Test
+    public void testSync_onlyChangedMarkersAreTouched() throws Exception {
+        IWorkspace workspace = mock(IWorkspace.class);
+        IProject project = mock(IProject.class);
+        IResource appleJava = mock(IResource.class);
+        when(project.getWorkspace()).thenReturn(workspace);
+        when(project.findMember("/src/main/java/Apple.java")).thenReturn(appleJava);
+
+        IMarker unchangedMarker = mockMarker(appleJava, 10, "unchanged error");
+        IMarker fixedMarker = mockMarker(appleJava, 20, "fixed error");
+        when(project.findMarkers(BazelMarkerManagerSingleton.BAZEL_MARKER, true, IResource.DEPTH_INFINITE))
+                .thenReturn(new IMarker[] { unchangedMarker, fixedMarker });
+        IMarker newMarker = mock(IMarker.class);
+        when(appleJava.createMarker(BazelMarkerManagerSingleton.BAZEL_MARKER)).thenReturn(newMarker);
+
+        BazelMarkerManagerSingleton.getInstance().syncProblemMarkersForProject(project,
+            Arrays.asList(new BazelMarkerDetails("projects/libs/apple/src/main/java/Apple.java", 10, "unchanged error"),
+                new BazelMarkerDetails("projects/libs/apple/src/main/java/Apple.java", 30, "new error")),
+            LABELS);
+
+        ArgumentCaptor<IMarker[]> deleted = ArgumentCaptor.forClass(IMarker[].class);
+        verify(workspace).deleteMarkers(deleted.capture());
+        assertArrayEquals(new IMarker[] { fixedMarker }, deleted.getValue());
+        verify(appleJava, times(1)).createMarker(BazelMarkerManagerSingleton.BAZEL_MARKER);
+        verify(newMarker).setAttributes(any(String[].class), any(Object[].class));
+        verify(newMarker, never()).setAttribute(anyString(), anyInt());
+    }
+
+    @Test
+    public void testSync_noChanges() throws Exception {
+        IWorkspace workspace = mock(IWorkspace.class);
+        IProject project = mock(IProject.class);
+        IResource appleJava = mock(IResource.class);
+        when(project.getWorkspace()).thenReturn(workspace);
+        when(project.findMember("/src/main/java/Apple.java")).thenReturn(appleJava);
+        IMarker marker = mockMarker(appleJava, 10, "error");
+        when(project.findMarkers(BazelMarkerManagerSingleton.BAZEL_MARKER, true, IResource.DEPTH_INFINITE))
+                .thenReturn(new IMarker[] { marker });
+
+        BazelMarkerManagerSingleton.getInstance().syncProblemMarkersForProject(project,
+            Collections.singletonList(new BazelMarkerDetails("projects/libs/apple/src/main/java/Apple.java", 10, "error")),
+            LABELS);
+
+        verify(workspace, never()).deleteMarkers(any());
+        verify(appleJava, never()).createMarker(eq(BazelMarkerManagerSingleton.BAZEL_MARKER));
+    }
+
+    // HELPERS
+
+    private static IMarker mockMarker(IResource resource, int lineNumber, String message) {
+        IMarker marker = mock(IMarker.class);
+        when(marker.getResource()).thenReturn(resource);
+        when(marker.getAttribute(IMarker.LINE_NUMBER, -1)).thenReturn(lineNumber);
+        when(marker.getAttribute(IMarker.MESSAGE, "")).thenReturn(message);
+        return marker;
+    }
+}
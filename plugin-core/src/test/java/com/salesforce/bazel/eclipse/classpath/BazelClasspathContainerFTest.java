@@ -42,6 +42,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -53,6 +56,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
 import com.salesforce.bazel.eclipse.mock.EclipseFunctionalTestEnvironmentFactory;
 import com.salesforce.bazel.eclipse.mock.MockEclipse;
 import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
@@ -202,7 +206,98 @@ public class BazelClasspathContainerFTest {
         assertEquals(0, entries.length);
     }
 
+    /**
+     * The targets shared by the projects are resolved once for all projects, and the classpath of a project lists each
+     * jar and project once.
+     */
+    @Test
+    public void testClasspath_SharedTargetsResolvedOnce() throws Exception {
+        boolean explicitJavaTestDeps = true;
+        setupMockEnvironmentForClasspathTest("tcpstro", explicitJavaTestDeps);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        BazelClasspathContainer.clean();
+
+        IClasspathEntry[] javalib0Entries = new BazelClasspathContainer(javalib0_IProject).getClasspathEntries();
+        assertNoDuplicatePaths(javalib0Entries);
+
+        long targets = metrics.getCount("classpath.targets");
+        long resolvedTargets = metrics.getCount("classpath.targets.resolved");
+        long javalib0Timings = metrics.getCount("classpath.entries." + javalib0_IProject.getName());
+        long javalib1Timings = metrics.getCount("classpath.entries." + javalib1_IProject.getName());
+        IClasspathEntry[] javalib1Entries = new BazelClasspathContainer(javalib1_IProject).getClasspathEntries();
+        // each project has its own timer
+        assertEquals(javalib0Timings, metrics.getCount("classpath.entries." + javalib0_IProject.getName()));
+        assertEquals(javalib1Timings + 1, metrics.getCount("classpath.entries." + javalib1_IProject.getName()));
+        targets = metrics.getCount("classpath.targets") - targets;
+        resolvedTargets = metrics.getCount("classpath.targets.resolved") - resolvedTargets;
+        assertNoDuplicatePaths(javalib1Entries);
+        // the javalib0 target was resolved to its project when the classpath of javalib0 was computed
+        assertTrue(resolvedTargets < targets);
+
+        // nothing is resolved again until the next build
+        resolvedTargets = metrics.getCount("classpath.targets.resolved");
+        BazelClasspathContainer javalib1Container = new BazelClasspathContainer(javalib1_IProject);
+        assertEquals(javalib1Entries.length, javalib1Container.getClasspathEntries().length);
+        assertEquals(resolvedTargets, metrics.getCount("classpath.targets.resolved"));
+    }
+
+    /**
+     * The jars of the classpath are staged under the hash of their content, a jar that Bazel rewrote with the same
+     * content keeps its classpath entry.
+     */
+    @Test
+    public void testClasspath_StagedJars() throws Exception {
+        boolean explicitJavaTestDeps = true;
+        setupMockEnvironmentForClasspathTest("tcpsj", explicitJavaTestDeps);
+        File stagingDirectory = tmpFolder.newFolder("staged-jars");
+        // the jars do not exist until now, so the entries point to the Bazel output base
+        IClasspathEntry[] bazelEntries = new BazelClasspathContainer(javalib0_IProject).getClasspathEntries();
+        for (IClasspathEntry entry : bazelEntries) {
+            writeJar(entry.getPath().toFile(), entry.getPath().lastSegment(), 1000);
+        }
+
+        BazelJarStagingArea.getInstance().setStagingDirectory(stagingDirectory);
+        try {
+            BazelClasspathContainer.clean();
+            IClasspathEntry[] entries = new BazelClasspathContainer(javalib0_IProject).getClasspathEntries();
+            assertEquals(4, entries.length);
+            for (int i = 0; i < entries.length; i++) {
+                File stagedJar = entries[i].getPath().toFile();
+                assertEquals(stagingDirectory, stagedJar.getParentFile().getParentFile());
+                assertEquals(bazelEntries[i].getPath().lastSegment(), stagedJar.getName());
+            }
+
+            // a build rewrites the jars with the same content
+            for (IClasspathEntry entry : bazelEntries) {
+                writeJar(entry.getPath().toFile(), entry.getPath().lastSegment(), 5000);
+            }
+            BazelPluginActivator.getInstance().getWorkspaceCommandRunner().incrementBuildGeneration();
+            BazelClasspathContainer.clean();
+            IClasspathEntry[] rebuiltEntries = new BazelClasspathContainer(javalib0_IProject).getClasspathEntries();
+            for (int i = 0; i < entries.length; i++) {
+                assertEquals(entries[i].getPath(), rebuiltEntries[i].getPath());
+            }
+        } finally {
+            BazelJarStagingArea.getInstance().setStagingDirectory(null);
+            BazelClasspathContainer.clean();
+        }
+    }
+
     // HELPERS
+
+    private static void assertNoDuplicatePaths(IClasspathEntry[] entries) {
+        Set<String> paths = new TreeSet<>();
+        for (IClasspathEntry entry : entries) {
+            assertTrue("duplicate classpath entry " + entry.getPath(), paths.add(entry.getPath().toString()));
+        }
+    }
+
+    private static void writeJar(File jar, String content, long lastModified) throws IOException {
+        jar.getParentFile().mkdirs();
+        jar.delete();
+        Files.write(jar.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        jar.setLastModified(lastModified);
+    }
     
     private MockEclipse setupMockEnvironmentForClasspathTest(String testName, boolean explicitJavaTestDeps) throws Exception {
         File testDir = tmpFolder.newFolder();
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.config.BazelEclipseProjectFactory;
+import com.salesforce.bazel.eclipse.importer.BazelProjectImportScanner;
+import com.salesforce.bazel.eclipse.mock.EclipseFunctionalTestEnvironmentFactory;
+import com.salesforce.bazel.eclipse.metrics.Counter;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.mock.MockEclipse;
+import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
+import com.salesforce.bazel.eclipse.model.BazelPackageLocation;
+import com.salesforce.bazel.eclipse.preferences.BazelPreferencePage;
+import com.salesforce.bazel.eclipse.runtime.impl.EclipseWorkProgressMonitor;
+
+/**
+ * Compile classpath with the interface jars of the dependencies instead of their full jars, see
+ * BazelClasspathContainer. The interface jars are the ijar of a java_import and the hjar (header jar) of a
+ * java_library; launches run with the full jars.
+ */
+public class BazelClasspathInterfaceJarFTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private MockEclipse mockEclipse;
+
+    @After
+    public void tearDown() {
+        BazelClasspathContainer.clean();
+    }
+
+    @Test
+    public void testClasspath_FullJars() throws Exception {
+        setupMockEnvironment("icfull");
+
+        IClasspathEntry[] entries = computeClasspath("javalib0", false);
+
+        // guava, junit, hamcrest, slf4j
+        assertEquals(4, entries.length);
+        for (IClasspathEntry entry : entries) {
+            assertFalse(entry.getPath().toString().endsWith("-ijar.jar"));
+            assertEquals(0, entry.getExtraAttributes().length);
+            assertEquals(entry.getPath(), BazelClasspathContainer.getRuntimeJarPath(entry));
+        }
+    }
+
+    @Test
+    public void testClasspath_InterfaceJars() throws Exception {
+        setupMockEnvironment("icijar");
+
+        IClasspathEntry[] entries = computeClasspath("javalib0", true);
+
+        assertEquals(4, entries.length);
+        assertTrue(entries[0].getPath().toString().endsWith("/_ijar/jar/external/com_google_guava_guava/jar/guava-20.0-ijar.jar"));
+        for (IClasspathEntry entry : entries) {
+            assertTrue(entry.getPath().toString().endsWith("-ijar.jar"));
+            // the sources are attached to the interface jar
+            assertNotNull(entry.getSourceAttachmentPath());
+            assertTrue(entry.getSourceAttachmentPath().toString().endsWith("-sources.jar"));
+            // the full jar is used at runtime
+            IClasspathAttribute[] attributes = entry.getExtraAttributes();
+            assertEquals(1, attributes.length);
+            assertEquals(BazelClasspathContainer.RUNTIME_JAR_ATTRIBUTE, attributes[0].getName());
+            String runtimeJar = BazelClasspathContainer.getRuntimeJarPath(entry).toString();
+            assertTrue(runtimeJar.endsWith(".jar") && !runtimeJar.endsWith("-ijar.jar"));
+            assertTrue(runtimeJar.contains("/external/"));
+        }
+    }
+
+    @Test
+    public void testClasspath_HeaderJarsOfLibrariesWithoutProject() throws Exception {
+        // javalib1 depends on javalib0, which is not imported, so the jars of javalib0 are on the classpath
+        setupMockEnvironment("ichjar", "javalib1");
+
+        IClasspathEntry javalib0Entry = findEntry(computeClasspath("javalib1", true), "/libjavalib0-hjar.jar");
+        assertNotNull(javalib0Entry);
+        assertTrue(javalib0Entry.getSourceAttachmentPath().toString().endsWith("/libjavalib0-src.jar"));
+        // the header jar has no method bodies, launches run with the full jar
+        String runtimeJar = BazelClasspathContainer.getRuntimeJarPath(javalib0Entry).toString();
+        assertTrue(runtimeJar.endsWith("/projects/libs/javalib0/libjavalib0.jar"));
+
+        IClasspathEntry[] fullJarEntries = computeClasspath("javalib1", false);
+        assertEquals(null, findEntry(fullJarEntries, "-hjar.jar"));
+        javalib0Entry = findEntry(fullJarEntries, "/libjavalib0.jar");
+        assertNotNull(javalib0Entry);
+        assertEquals(javalib0Entry.getPath(), BazelClasspathContainer.getRuntimeJarPath(javalib0Entry));
+    }
+
+    @Test
+    public void testImplementationChange_ChangesTheCompileJarsOnlyWithFullJars() throws Exception {
+        // javalib1 depends on javalib0, which is not imported, so the jars of javalib0 are on the classpath
+        setupMockEnvironment("icchange", "javalib1");
+
+        // a changed compile jar is indexed again by JDT, and the dependent project is rebuilt
+        assertEquals(1, countChangedCompileJarsAfterImplementationChange(false));
+        assertEquals(0, countChangedCompileJarsAfterImplementationChange(true));
+    }
+
+    // HELPERS
+
+    /**
+     * Computes the classpath of javalib1 before and after a build of an implementation change of javalib0: the full jar
+     * of javalib0 changes, its header jar does not. Returns how many jars of the compile classpath changed.
+     */
+    private long countChangedCompileJarsAfterImplementationChange(boolean useInterfaceJars) throws Exception {
+        IProject project = mockEclipse.getImportedProject("javalib1");
+        mockEclipse.getMockPrefsStore().setValue(BazelPreferencePage.CLASSPATH_INTERFACE_JARS_PREF_NAME, useInterfaceJars);
+        BazelClasspathContainer.clean();
+        BazelClasspathContainer container = new BazelClasspathContainer(project);
+        IClasspathEntry javalib0Entry = findEntry(container.getClasspathEntries(),
+            useInterfaceJars ? "/libjavalib0-hjar.jar" : "/libjavalib0.jar");
+        File fullJar = BazelClasspathContainer.getRuntimeJarPath(javalib0Entry).toFile();
+        File headerJar = new File(fullJar.getParentFile(), "libjavalib0-hjar.jar");
+        fullJar.getParentFile().mkdirs();
+        writeJar(fullJar, "implementation");
+        writeJar(headerJar, "api");
+        recomputeClasspathAfterBuild(container);
+
+        Counter changedJars = MetricsRegistry.getInstance().counter("classpath.compile.jars.changed");
+        long changedJarsBefore = changedJars.getCount();
+        writeJar(fullJar, "changed implementation");
+        recomputeClasspathAfterBuild(container);
+        return changedJars.getCount() - changedJarsBefore;
+    }
+
+    private static void recomputeClasspathAfterBuild(BazelClasspathContainer container) {
+        BazelPluginActivator.getInstance().getWorkspaceCommandRunner().incrementBuildGeneration();
+        BazelClasspathContainer.clean();
+        container.getClasspathEntries();
+    }
+
+    private static void writeJar(File jar, String content) throws IOException {
+        Files.write(jar.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Creates a Bazel workspace with two Java packages, javalib1 depending on javalib0, and imports the passed
+     * packages, all of them if none is passed.
+     */
+    private void setupMockEnvironment(String testName, String... importedPackages) throws Exception {
+        File testTempDir = new File(tmpFolder.newFolder(), testName);
+        testTempDir.mkdirs();
+        // explicit test deps, so the classpath of javalib0 only has the jars of external dependencies
+        if (importedPackages.length == 0) {
+            mockEclipse = EclipseFunctionalTestEnvironmentFactory.createMockEnvironment_Imported_All_JavaPackages(
+                testTempDir, 2, false, true);
+            return;
+        }
+        mockEclipse = EclipseFunctionalTestEnvironmentFactory.createMockEnvironment_PriorToImport_JavaPackages(
+            testTempDir, 2, true, false);
+        BazelPackageInfo workspaceRootPackage = new BazelProjectImportScanner().getProjects(mockEclipse.getBazelWorkspaceRoot());
+        List<BazelPackageLocation> selectedPackages = new ArrayList<>();
+        selectedPackages.add(workspaceRootPackage);
+        for (BazelPackageInfo child : workspaceRootPackage.getChildPackageInfos()) {
+            for (String importedPackage : importedPackages) {
+                if (importedPackage.equals(child.getBazelPackageNameLastSegment())) {
+                    selectedPackages.add(child);
+                }
+            }
+        }
+        mockEclipse.setImportedProjectsList(BazelEclipseProjectFactory.importWorkspace(workspaceRootPackage,
+            selectedPackages, new EclipseWorkProgressMonitor(), null));
+    }
+
+    private IClasspathEntry[] computeClasspath(String projectName, boolean useInterfaceJars) throws Exception {
+        IProject project = mockEclipse.getImportedProject(projectName);
+        mockEclipse.getMockPrefsStore().setValue(BazelPreferencePage.CLASSPATH_INTERFACE_JARS_PREF_NAME, useInterfaceJars);
+        BazelClasspathContainer.clean();
+        return new BazelClasspathContainer(project).getClasspathEntries();
+    }
+
+    private static IClasspathEntry findEntry(IClasspathEntry[] entries, String pathSuffix) {
+        for (IClasspathEntry entry : entries) {
+            if (entry.getPath().toString().endsWith(pathSuffix)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.mock.EclipseFunctionalTestEnvironmentFactory;
+import com.salesforce.bazel.eclipse.mock.MockEclipse;
+import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
+import com.salesforce.bazel.eclipse.test.TestBazelWorkspaceFactory;
+
+/**
+ * Scale tests for the import and the classpath computation. A Bazel workspace with thousands of Java packages is
+ * generated, imported through the mocking layer, and then the classpath of every imported project is computed, as
+ * Eclipse does after an import.
+ * <p>
+ * Each run logs the wall time of both phases, the number of simulated Bazel invocations and the heap retained by the
+ * imported workspace (measured before the classpaths are computed), and fails if one of them is over its budget. The
+ * budgets are deliberately loose, as the tests run on machines of varying speed, and can be tightened (or loosened) with
+ * system properties of the form bazel.scale.[packages].[budget], for example -Dbazel.scale.1000.maxImportMillis=20000.
+ * The budgets are:
+ * <p><ul>
+ * <li>maxImportMillis: wall time of the import
+ * <li>maxClasspathMillis: wall time of computing the classpath of every project
+ * <li>maxInvocationsPerPackage: simulated Bazel invocations for the import and the classpaths, per Java package
+ * <li>maxRetainedHeapMB: heap retained by the imported workspace, after a GC and before the classpath phase
+ * </ul>
+ * <p>
+ * The 5,000 package run takes minutes, so it is only run when -Dbazel.scale.large=true is set.
+ */
+public class BazelClasspathScaleFTest {
+    static final LogHelper LOG = LogHelper.log(BazelClasspathScaleFTest.class);
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    // each package depends on the previous one plus a few random lower numbered packages
+    private static final int DEPENDENCY_FAN_OUT = 4;
+
+    @Test
+    public void testImportAndClasspath_1000Packages() throws Exception {
+        runScaleTest(1000, 30000, 60000, 2, 256);
+    }
+
+    @Test
+    public void testImportAndClasspath_5000Packages() throws Exception {
+        assumeTrue(Boolean.getBoolean("bazel.scale.large"));
+        runScaleTest(5000, 120000, 600000, 2, 1024);
+    }
+
+    // HELPERS
+
+    private void runScaleTest(int numberOfJavaPackages, long maxImportMillis, long maxClasspathMillis,
+            int maxInvocationsPerPackage, long maxRetainedHeapMB) throws Exception {
+        File testDir = tmpFolder.newFolder("scale" + numberOfJavaPackages);
+        File wsDir = new File(testDir, MockEclipse.BAZEL_WORKSPACE_NAME);
+        wsDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+
+        long heapBefore = getUsedHeap();
+        TestBazelWorkspaceFactory bazelWorkspaceCreator = new TestBazelWorkspaceFactory(wsDir, outputbaseDir)
+                .javaPackages(numberOfJavaPackages).javaPackageDependencies(DEPENDENCY_FAN_OUT);
+        bazelWorkspaceCreator.build();
+        MockEclipse mockEclipse = new MockEclipse(bazelWorkspaceCreator, testDir);
+
+        // IMPORT
+        long start = System.nanoTime();
+        List<IProject> importedProjects = EclipseFunctionalTestEnvironmentFactory.importAllJavaPackages(mockEclipse);
+        long importMillis = (System.nanoTime() - start) / 1000000;
+        // the workspace project plus one project per Java package
+        assertEquals(numberOfJavaPackages + 1, importedProjects.size());
+        // measured before the classpaths are computed, so that it only covers the import
+        long retainedHeapMB = (getUsedHeap() - heapBefore) / (1024 * 1024);
+
+        // CLASSPATH
+        start = System.nanoTime();
+        JavaCoreHelper javaHelper = mockEclipse.getMockJavaCoreHelper();
+        int classpathEntries = 0;
+        for (IProject project : importedProjects) {
+            IClasspathEntry[] entries = javaHelper.getResolvedClasspath(javaHelper.getJavaProjectForProject(project), false);
+            classpathEntries += entries.length;
+        }
+        long classpathMillis = (System.nanoTime() - start) / 1000000;
+        int invocations = mockEclipse.getMockCommandBuilder().getCommandCount();
+        // every project but the workspace project depends on at least one jar or project
+        assertTrue("only " + classpathEntries + " classpath entries", classpathEntries >= numberOfJavaPackages);
+
+        LOG.info("{} packages (fan out {}): import {} ms, classpath {} ms ({} entries), {} simulated Bazel invocations, "
+                + "{} MB retained heap after the import", numberOfJavaPackages, DEPENDENCY_FAN_OUT, importMillis,
+            classpathMillis, classpathEntries, invocations, retainedHeapMB);
+
+        String prefix = "bazel.scale." + numberOfJavaPackages + ".";
+        assertWithinBudget("import time (ms)", importMillis, Long.getLong(prefix + "maxImportMillis", maxImportMillis));
+        assertWithinBudget("classpath time (ms)", classpathMillis,
+            Long.getLong(prefix + "maxClasspathMillis", maxClasspathMillis));
+        assertWithinBudget("simulated Bazel invocations", invocations,
+            numberOfJavaPackages * Long.getLong(prefix + "maxInvocationsPerPackage", maxInvocationsPerPackage));
+        assertWithinBudget("retained heap (MB)", retainedHeapMB,
+            Long.getLong(prefix + "maxRetainedHeapMB", maxRetainedHeapMB));
+
+        // keeps the imported workspace reachable until the heap has been measured
+        assertTrue(mockEclipse.getImportedProjectsList().size() > 0);
+    }
+
+    private static void assertWithinBudget(String measure, long actual, long budget) {
+        assertTrue(measure + " is " + actual + ", over the budget of " + budget, actual <= budget);
+    }
+
+    private static long getUsedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
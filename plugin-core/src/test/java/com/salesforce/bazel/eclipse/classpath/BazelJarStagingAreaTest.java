@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BazelJarStagingAreaTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testStage_disabled() throws Exception {
+        File jar = writeJar("bazel-out/libapple.jar", "apple", 1000);
+        BazelJarStagingArea stagingArea = new BazelJarStagingArea();
+        assertFalse(stagingArea.isEnabled());
+
+        assertSame(jar, stagingArea.stage(jar));
+    }
+
+    @Test
+    public void testStage_missingJar() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        File jar = new File(tmpFolder.getRoot(), "bazel-out/libmissing.jar");
+
+        assertSame(jar, stagingArea.stage(jar));
+    }
+
+    @Test
+    public void testStage_sameContentKeepsStagedJar() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        File jar = writeJar("bazel-out/libapple.jar", "apple", 1000);
+
+        File stagedJar = stagingArea.stage(jar);
+        assertNotEquals(jar, stagedJar);
+        assertEquals("libapple.jar", stagedJar.getName());
+        assertEquals(BazelJarStagingArea.hash(jar), stagedJar.getParentFile().getName());
+        assertArrayEquals(Files.readAllBytes(jar.toPath()), Files.readAllBytes(stagedJar.toPath()));
+        long stagedLastModified = stagedJar.lastModified();
+
+        // a build rewrites the jar with the same content
+        jar.delete();
+        writeJar("bazel-out/libapple.jar", "apple", 5000);
+
+        assertEquals(stagedJar, stagingArea.stage(jar));
+        assertEquals(stagedLastModified, stagedJar.lastModified());
+    }
+
+    @Test
+    public void testStage_changedContentStagesNewJar() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        File jar = writeJar("bazel-out/libapple.jar", "apple", 1000);
+        File stagedJar = stagingArea.stage(jar);
+
+        jar.delete();
+        writeJar("bazel-out/libapple.jar", "green apple", 5000);
+        File newStagedJar = stagingArea.stage(jar);
+
+        assertNotEquals(stagedJar, newStagedJar);
+        assertEquals("green apple", new String(Files.readAllBytes(newStagedJar.toPath()), StandardCharsets.UTF_8));
+        // nothing else uses the previous content
+        assertFalse(stagedJar.exists());
+        assertFalse(stagedJar.getParentFile().exists());
+    }
+
+    @Test
+    public void testStage_sharedContent() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        File apple = writeJar("bazel-out/apple/lib.jar", "fruit", 1000);
+        File banana = writeJar("bazel-out/banana/lib.jar", "fruit", 1000);
+        File stagedApple = stagingArea.stage(apple);
+        assertEquals(stagedApple, stagingArea.stage(banana));
+
+        apple.delete();
+        writeJar("bazel-out/apple/lib.jar", "apple", 5000);
+        stagingArea.stage(apple);
+
+        // still used by banana
+        assertTrue(stagedApple.exists());
+    }
+
+    @Test
+    public void testStage_sharedContentStagedConcurrently() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        int jarCount = 8;
+        List<File> jars = new ArrayList<>();
+        for (int i = 0; i < jarCount; i++) {
+            jars.add(writeJar("bazel-out/fruit" + i + "/lib.jar", "fruit", 1000));
+        }
+        // the jars are copied outside of the lock, all of them end up with the one staged copy
+        ExecutorService executor = Executors.newFixedThreadPool(jarCount);
+        List<Future<File>> stagedJars = new ArrayList<>();
+        for (File jar : jars) {
+            stagedJars.add(executor.submit(() -> stagingArea.stage(jar)));
+        }
+        File stagedJar = stagedJars.get(0).get();
+        for (Future<File> otherStagedJar : stagedJars) {
+            assertEquals(stagedJar, otherStagedJar.get());
+        }
+        executor.shutdown();
+        assertEquals("fruit", new String(Files.readAllBytes(stagedJar.toPath()), StandardCharsets.UTF_8));
+
+        // the copy is deleted once none of the jars uses it
+        for (int i = 0; i < jarCount; i++) {
+            jars.get(i).delete();
+            writeJar("bazel-out/fruit" + i + "/lib.jar", "fruit " + i, 5000);
+            stagingArea.stage(jars.get(i));
+            assertEquals(i < jarCount - 1, stagedJar.exists());
+        }
+    }
+
+    @Test
+    public void testStage_sharedContentOfJarsWithOtherNames() throws Exception {
+        BazelJarStagingArea stagingArea = newStagingArea();
+        File apple = writeJar("bazel-out/apple/libapple.jar", "fruit", 1000);
+        File banana = writeJar("bazel-out/banana/libbanana.jar", "fruit", 1000);
+        File stagedApple = stagingArea.stage(apple);
+        File stagedBanana = stagingArea.stage(banana);
+        assertEquals(stagedApple.getParentFile(), stagedBanana.getParentFile());
+
+        apple.delete();
+        writeJar("bazel-out/apple/libapple.jar", "apple", 5000);
+        stagingArea.stage(apple);
+
+        // the copy of apple is not used anymore, the one of banana still is
+        assertFalse(stagedApple.exists());
+        assertTrue(stagedBanana.exists());
+    }
+
+    @Test
+    public void testStage_marksReusedCopyAsUsed() throws Exception {
+        File stagingDirectory = tmpFolder.newFolder("staged-jars");
+        File jar = writeJar("bazel-out/libapple.jar", "apple", 1000);
+        // staged by a previous session, a while ago
+        File hashDirectory = new File(stagingDirectory, BazelJarStagingArea.hash(jar));
+        hashDirectory.mkdirs();
+        Files.copy(jar.toPath(), new File(hashDirectory, "libapple.jar").toPath());
+        long stagedAWhileAgo = System.currentTimeMillis() - 20L * 24 * 60 * 60 * 1000;
+        hashDirectory.setLastModified(stagedAWhileAgo);
+        BazelJarStagingArea stagingArea = new BazelJarStagingArea();
+        stagingArea.setStagingDirectory(stagingDirectory);
+
+        assertEquals(new File(hashDirectory, "libapple.jar"), stagingArea.stage(jar));
+
+        assertTrue(hashDirectory.lastModified() > stagedAWhileAgo);
+    }
+
+    @Test
+    public void testSetStagingDirectory_deletesUnusedCopies() throws Exception {
+        File stagingDirectory = tmpFolder.newFolder("staged-jars");
+        File unused = new File(stagingDirectory, "0123");
+        unused.mkdirs();
+        new File(unused, "libold.jar").createNewFile();
+        unused.setLastModified(System.currentTimeMillis() - 60L * 24 * 60 * 60 * 1000);
+        File recent = new File(stagingDirectory, "4567");
+        recent.mkdirs();
+        new File(recent, "libnew.jar").createNewFile();
+
+        new BazelJarStagingArea().setStagingDirectory(stagingDirectory);
+
+        assertFalse(unused.exists());
+        assertTrue(new File(recent, "libnew.jar").exists());
+    }
+
+    // HELPERS
+
+    private BazelJarStagingArea newStagingArea() throws IOException {
+        BazelJarStagingArea stagingArea = new BazelJarStagingArea();
+        stagingArea.setStagingDirectory(tmpFolder.newFolder("staged-jars"));
+        assertTrue(stagingArea.isEnabled());
+        return stagingArea;
+    }
+
+    private File writeJar(String path, String content, long lastModified) throws IOException {
+        File jar = new File(tmpFolder.getRoot(), path);
+        jar.getParentFile().mkdirs();
+        Files.write(jar.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        jar.setLastModified(lastModified);
+        return jar;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.classpath.BazelOutputFileCache.FileStamp;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+
+public class BazelOutputFileCacheTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testExists_cachedUntilNextBuildGeneration() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        fileCache.setBuildGeneration(1);
+        File jar = new File(tmpFolder.getRoot(), "libapple.jar");
+        assertFalse(fileCache.exists(jar));
+
+        // the jar is written by the build, which is not over yet
+        assertTrue(jar.createNewFile());
+        fileCache.setBuildGeneration(1);
+        assertFalse(fileCache.exists(jar));
+
+        // the build is over
+        fileCache.setBuildGeneration(2);
+        assertTrue(fileCache.exists(jar));
+    }
+
+    @Test
+    public void testResolveSymbolicLink() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        fileCache.setBuildGeneration(1);
+        Path jar = tmpFolder.newFile("libapple.jar").toPath();
+        Path link = tmpFolder.getRoot().toPath().resolve("libapple-link.jar");
+        Files.createSymbolicLink(link, jar);
+
+        assertEquals(jar, fileCache.resolveSymbolicLink(link).get());
+        assertEquals(jar, fileCache.resolveSymbolicLink(jar).get());
+    }
+
+    @Test
+    public void testGetStagedJar_stagedOncePerBuildGeneration() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        fileCache.setBuildGeneration(1);
+        File jar = new File(tmpFolder.getRoot(), "libapple.jar");
+        File stagedJar = new File(tmpFolder.getRoot(), "staged/libapple.jar");
+        AtomicInteger stageCount = new AtomicInteger();
+
+        BiFunction<File, FileStamp, File> stager = (j, stamp) -> {
+            stageCount.incrementAndGet();
+            return stagedJar;
+        };
+
+        assertEquals(stagedJar, fileCache.getStagedJar(jar, stager));
+        assertEquals(stagedJar, fileCache.getStagedJar(jar, stager));
+        assertEquals(1, stageCount.get());
+
+        fileCache.setBuildGeneration(2);
+        fileCache.getStagedJar(jar, stager);
+        assertEquals(2, stageCount.get());
+    }
+
+    @Test
+    public void testGetStagedJar_stagedAgainWhenRewritten() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        fileCache.setBuildGeneration(1);
+        File jar = tmpFolder.newFile("libapple.jar");
+        jar.setLastModified(1000);
+        AtomicInteger stageCount = new AtomicInteger();
+
+        fileCache.getStagedJar(jar, (j, stamp) -> { stageCount.incrementAndGet(); return j; });
+        // the jar is not looked at again in the generation
+        Files.write(jar.toPath(), new byte[] { 1 });
+        jar.setLastModified(5000);
+        fileCache.getStagedJar(jar, (j, stamp) -> { stageCount.incrementAndGet(); return j; });
+        assertEquals(1, stageCount.get());
+
+        // the build that rewrote it started a new generation
+        fileCache.setBuildGeneration(2);
+        fileCache.getStagedJar(jar, (j, stamp) -> {
+            stageCount.incrementAndGet();
+            assertEquals(5000, stamp.getLastModified());
+            return j;
+        });
+        assertEquals(2, stageCount.get());
+    }
+
+    @Test
+    public void testIsFirstReport_forgetsOldestPaths() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        Path firstJar = tmpFolder.getRoot().toPath().resolve("libmissing0.jar");
+        assertTrue(fileCache.isFirstReport(firstJar));
+        for (int i = 1; i < BazelOutputFileCache.MAX_REPORTED_PATHS; i++) {
+            assertTrue(fileCache.isFirstReport(tmpFolder.getRoot().toPath().resolve("libmissing" + i + ".jar")));
+        }
+        Path lastJar = tmpFolder.getRoot().toPath().resolve("libmissing.jar");
+        assertTrue(fileCache.isFirstReport(lastJar));
+
+        // only the oldest path was forgotten
+        assertFalse(fileCache.isFirstReport(lastJar));
+        assertFalse(fileCache.isFirstReport(tmpFolder.getRoot().toPath().resolve("libmissing1.jar")));
+        assertTrue(fileCache.isFirstReport(firstJar));
+    }
+
+    @Test
+    public void testIsFirstReport() throws Exception {
+        BazelOutputFileCache fileCache = new BazelOutputFileCache();
+        Path jar = tmpFolder.getRoot().toPath().resolve("libmissing.jar");
+
+        assertTrue(fileCache.isFirstReport(jar));
+        assertFalse(fileCache.isFirstReport(jar));
+        // a missing jar is still reported once after a build
+        fileCache.setBuildGeneration(2);
+        assertFalse(fileCache.isFirstReport(jar));
+
+        fileCache.clear();
+        assertTrue(fileCache.isFirstReport(jar));
+    }
+
+    @Test
+    public void testGetInstance_onePerBazelWorkspace() throws Exception {
+        BazelWorkspace workspace1 = new BazelWorkspace("ws1", tmpFolder.newFolder("ws1"), () -> "linux");
+        BazelWorkspace workspace2 = new BazelWorkspace("ws2", tmpFolder.newFolder("ws2"), () -> "linux");
+        BazelOutputFileCache fileCache1 = BazelOutputFileCache.getInstance(workspace1);
+        BazelOutputFileCache fileCache2 = BazelOutputFileCache.getInstance(workspace2);
+        assertSame(fileCache1, BazelOutputFileCache.getInstance(workspace1));
+        assertNotSame(fileCache1, fileCache2);
+
+        // a build in one workspace does not empty the cache of the other
+        File jar = new File(tmpFolder.getRoot(), "libapple.jar");
+        fileCache1.setBuildGeneration(1);
+        fileCache2.setBuildGeneration(1);
+        assertFalse(fileCache1.exists(jar));
+        assertTrue(jar.createNewFile());
+        fileCache2.setBuildGeneration(2);
+        assertFalse(fileCache1.exists(jar));
+        assertTrue(fileCache2.exists(jar));
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class BazelProjectDependencyIndexTest {
+
+    @Test
+    public void testDownstreamProjects() {
+        IProject apple = mockProject("apple");
+        IProject banana = mockProject("banana");
+        IProject cherry = mockProject("cherry");
+        BazelProjectDependencyIndex index = new BazelProjectDependencyIndex();
+        assertFalse(index.isIndexed(banana));
+
+        index.updateProjectDependencies(banana, Collections.singletonList(apple));
+        index.updateProjectDependencies(cherry, Arrays.asList(apple, banana));
+        assertTrue(index.isIndexed(banana));
+        assertTrue(index.isIndexed(cherry));
+        // only referenced so far, its own dependencies are unknown
+        assertFalse(index.isIndexed(apple));
+
+        Set<IProject> downstreams = index.getDownstreamProjects(apple);
+        assertEquals(2, downstreams.size());
+        assertTrue(downstreams.contains(banana));
+        assertTrue(downstreams.contains(cherry));
+        assertEquals(Collections.singleton(cherry), index.getDownstreamProjects(banana));
+        assertTrue(index.getDownstreamProjects(cherry).isEmpty());
+    }
+
+    @Test
+    public void testDownstreamProjects_updateRemovesStaleEdges() {
+        IProject apple = mockProject("apple");
+        IProject banana = mockProject("banana");
+        BazelProjectDependencyIndex index = new BazelProjectDependencyIndex();
+
+        index.updateProjectDependencies(banana, Collections.singletonList(apple));
+        index.updateProjectDependencies(banana, Collections.emptyList());
+
+        assertTrue(index.getDownstreamProjects(apple).isEmpty());
+    }
+
+    @Test
+    public void testOwningProject() {
+        IProject apple = mockProject("apple");
+        IProject appleTests = mockProject("apple-tests");
+        BazelProjectDependencyIndex index = new BazelProjectDependencyIndex();
+
+        index.updateProjectPackagePaths(apple, Collections.singletonList("projects/libs/apple"));
+        index.updateProjectPackagePaths(appleTests, Collections.singletonList("projects/libs/apple/tests"));
+
+        assertSame(apple, index.getOwningProject("projects/libs/apple/src/main/java/Apple.java"));
+        // the innermost package wins
+        assertSame(appleTests, index.getOwningProject("projects/libs/apple/tests/AppleTest.java"));
+        assertNull(index.getOwningProject("projects/libs/banana/src/main/java/Banana.java"));
+        assertNull(index.getOwningProject("Root.java"));
+
+        assertSame(appleTests, index.getProjectForPackagePath("projects/libs/apple/tests"));
+        assertNull(index.getProjectForPackagePath("projects/libs"));
+    }
+
+    @Test
+    public void testOwningProject_updateAndRemove() {
+        IProject apple = mockProject("apple");
+        BazelProjectDependencyIndex index = new BazelProjectDependencyIndex();
+
+        index.updateProjectPackagePaths(apple, Collections.singletonList("projects/libs/apple"));
+        index.updateProjectPackagePaths(apple, Collections.singletonList("projects/libs/apple2"));
+        assertNull(index.getOwningProject("projects/libs/apple/Apple.java"));
+        assertSame(apple, index.getOwningProject("projects/libs/apple2/Apple.java"));
+
+        index.removeProject(apple);
+        assertNull(index.getOwningProject("projects/libs/apple2/Apple.java"));
+        assertFalse(index.isIndexed(apple));
+    }
+
+    // HELPERS
+
+    private static IProject mockProject(String name) {
+        IProject project = Mockito.mock(IProject.class);
+        Mockito.when(project.getName()).thenReturn(name);
+        return project;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.junit.Test;
+
+public class BazelRawClasspathChangeListenerTest {
+
+    @Test
+    public void testRawClasspathChanged() {
+        IJavaElementDelta projectDelta = mockDelta(IJavaElement.JAVA_PROJECT, IJavaElementDelta.F_CLASSPATH_CHANGED);
+
+        assertTrue(BazelRawClasspathChangeListener.isRawClasspathChanged(mockModelDelta(projectDelta)));
+    }
+
+    @Test
+    public void testResolvedClasspathChanged() {
+        // the Bazel classpath container was updated
+        IJavaElementDelta projectDelta =
+                mockDelta(IJavaElement.JAVA_PROJECT, IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED);
+
+        assertFalse(BazelRawClasspathChangeListener.isRawClasspathChanged(mockModelDelta(projectDelta)));
+    }
+
+    @Test
+    public void testSourceChanged() {
+        IJavaElementDelta projectDelta = mockDelta(IJavaElement.JAVA_PROJECT, IJavaElementDelta.F_CHILDREN);
+        IJavaElementDelta unitDelta = mockDelta(IJavaElement.COMPILATION_UNIT, IJavaElementDelta.F_CONTENT);
+        when(projectDelta.getAffectedChildren()).thenReturn(new IJavaElementDelta[] { unitDelta });
+
+        assertFalse(BazelRawClasspathChangeListener.isRawClasspathChanged(mockModelDelta(projectDelta)));
+    }
+
+    // HELPERS
+
+    private static IJavaElementDelta mockModelDelta(IJavaElementDelta... projectDeltas) {
+        IJavaElementDelta modelDelta = mockDelta(IJavaElement.JAVA_MODEL, IJavaElementDelta.F_CHILDREN);
+        when(modelDelta.getAffectedChildren()).thenReturn(projectDeltas);
+        return modelDelta;
+    }
+
+    private static IJavaElementDelta mockDelta(int elementType, int flags) {
+        IJavaElement element = mock(IJavaElement.class);
+        when(element.getElementType()).thenReturn(elementType);
+        IJavaElementDelta delta = mock(IJavaElementDelta.class);
+        when(delta.getElement()).thenReturn(element);
+        when(delta.getFlags()).thenReturn(flags);
+        when(delta.getAffectedChildren()).thenReturn(new IJavaElementDelta[0]);
+        return delta;
+    }
+}
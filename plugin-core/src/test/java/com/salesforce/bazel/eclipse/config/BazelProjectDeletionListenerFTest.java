@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.eclipse.BazelPluginActivator;
+import com.salesforce.bazel.eclipse.mock.EclipseFunctionalTestEnvironmentFactory;
+import com.salesforce.bazel.eclipse.mock.MockEclipse;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+
+public class BazelProjectDeletionListenerFTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testDeletingTheLastProjectRemovesTheBazelWorkspace() throws Exception {
+        File testTempDir = tmpFolder.newFolder();
+        MockEclipse mockEclipse = EclipseFunctionalTestEnvironmentFactory.createMockEnvironment_Imported_All_JavaPackages(
+            testTempDir, 2, false, false);
+        BazelWorkspace bazelWorkspace = BazelPluginActivator.getBazelWorkspace();
+        File rootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        assertNotNull(BazelPluginActivator.getInstance().getWorkspaceCommandRunner(bazelWorkspace));
+        BazelProjectDeletionListener listener = new BazelProjectDeletionListener();
+
+        // the other projects of the Bazel workspace are still there
+        List<IProject> projects = new ArrayList<>(mockEclipse.getImportedProjectsList());
+        IProject javalib0 = mockEclipse.getImportedProject("javalib0");
+        listener.resourceChanged(newPreDeleteEvent(javalib0));
+        projects.remove(javalib0);
+        mockEclipse.setImportedProjectsList(projects);
+        assertEquals(bazelWorkspace, BazelPluginActivator.getBazelWorkspace(rootDirectory));
+
+        // the Bazel workspace goes away with its last project
+        IProject lastProject = projects.get(projects.size() - 1);
+        mockEclipse.setImportedProjectsList(Collections.singletonList(lastProject));
+        listener.resourceChanged(newPreDeleteEvent(lastProject));
+        assertNull(BazelPluginActivator.getBazelWorkspace(rootDirectory));
+        assertTrue(BazelPluginActivator.getBazelCommandManager().getWorkspaceCommandRunners().isEmpty());
+        IPreferenceStore prefsStore = mockEclipse.getMockPrefsStore();
+        assertEquals("", prefsStore.getString(BazelPluginActivator.BAZEL_WORKSPACE_PATHS_PREF_NAME));
+        assertEquals("", prefsStore.getString(BazelPluginActivator.BAZEL_WORKSPACE_PATH_PREF_NAME));
+    }
+
+    private static IResourceChangeEvent newPreDeleteEvent(IProject project) {
+        IResourceChangeEvent event = Mockito.mock(IResourceChangeEvent.class);
+        Mockito.when(event.getType()).thenReturn(IResourceChangeEvent.PRE_DELETE);
+        Mockito.when(event.getResource()).thenReturn(project);
+        return event;
+    }
+}
@@ -24,9 +24,14 @@
 package com.salesforce.bazel.eclipse.importer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -55,6 +60,41 @@ public class BazelProjectImportScannerTest {
         assertEquals(5, rootWorkspacePackage.getChildPackageInfos().size());
     }
 
+    @Test
+    public void testPackagesAreStreamed() throws Exception {
+        File tmpWorkspaceDir = tmpFolder.newFolder().getCanonicalFile();
+        File tmpOutputBase = tmpFolder.newFolder().getCanonicalFile();
+        new TestBazelWorkspaceFactory(tmpWorkspaceDir, tmpOutputBase).javaPackages(5).genrulePackages(2).build();
+
+        BazelProjectImportScanner scanner = new BazelProjectImportScanner();
+        List<BazelPackageInfo> foundPackages = new ArrayList<>();
+        BazelPackageInfo rootWorkspacePackage = scanner.getProjects(tmpWorkspaceDir, new NullProgressMonitor(),
+            foundPackages::add);
+
+        // the root first, then each package after its parent
+        assertEquals(6, foundPackages.size());
+        assertSame(rootWorkspacePackage, foundPackages.get(0));
+        for (BazelPackageInfo packageInfo : foundPackages.subList(1, foundPackages.size())) {
+            assertTrue(foundPackages.indexOf(packageInfo.getParentPackageInfo()) < foundPackages.indexOf(packageInfo));
+        }
+    }
+
+    @Test
+    public void testCancelledScan() throws Exception {
+        File tmpWorkspaceDir = tmpFolder.newFolder().getCanonicalFile();
+        File tmpOutputBase = tmpFolder.newFolder().getCanonicalFile();
+        new TestBazelWorkspaceFactory(tmpWorkspaceDir, tmpOutputBase).javaPackages(5).build();
+
+        BazelProjectImportScanner scanner = new BazelProjectImportScanner();
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        List<BazelPackageInfo> foundPackages = new ArrayList<>();
+        BazelPackageInfo rootWorkspacePackage = scanner.getProjects(tmpWorkspaceDir, monitor, foundPackages::add);
+
+        assertEquals(1, foundPackages.size());
+        assertEquals(0, rootWorkspacePackage.getChildPackageInfos().size());
+    }
+
     // UNHAPPY PATHS
     
     @Test(expected = IllegalArgumentException.class)
@@ -24,14 +24,20 @@
 package com.salesforce.bazel.eclipse.launch;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
@@ -133,6 +139,56 @@ public class BazelLaunchConfigurationDelegateFTest {
         assertEquals("//projects/libs/javalib0", cmdLine[13]);
     }
     
+    @Test
+    public void testCacheAwareMultiTargetTestLaunch() throws Exception {
+        // setup functional test env
+        MockEclipse mockEclipse = createMockEnvironment();
+        MockILaunchConfiguration launchConfig = createLaunchConfiguration("test");
+        launchConfig.attributes.put(BazelLaunchConfigAttributes.ADDITIONAL_LABELS.getAttributeName(),
+            Collections.singletonList("//projects/libs/javalib1"));
+        launchConfig.attributes.put(BazelLaunchConfigAttributes.TEST_FILTER.getAttributeName(), "FooTest#|BarTest#");
+        launchConfig.attributes.put(BazelLaunchConfigAttributes.CACHE_TEST_RESULTS.getAttributeName(), true);
+        launchConfig.attributes.put(BazelLaunchConfigAttributes.LOCAL_TEST_JOBS.getAttributeName(), 4);
+        ILaunch launch = new MockILaunch(launchConfig);
+        IProgressMonitor progress = new EclipseWorkProgressMonitor();
+        addBazelCommandOutput(mockEclipse.getBazelCommandEnvironmentFactory(), "test", "bazel test result");
+        BazelLaunchConfigurationDelegate delegate = mockEclipse.getLaunchDelegate();
+
+        // method under test
+        delegate.launch(launchConfig, "run", launch, progress);
+
+        // verify
+        MockResourceHelper mockResourceHelper = mockEclipse.getMockResourceHelper();
+        List<String> cmdLine = Arrays.asList(mockResourceHelper.lastExecCommandLine);
+        assertEquals("test", cmdLine.get(1));
+        assertFalse(cmdLine.contains("--nocache_test_results"));
+        assertTrue(cmdLine.contains("--test_filter=FooTest#|BarTest#"));
+        assertTrue(cmdLine.contains("--local_test_jobs=4"));
+        assertEquals(Arrays.asList("--", "//projects/libs/javalib0", "//projects/libs/javalib1"),
+            cmdLine.subList(cmdLine.size() - 3, cmdLine.size()));
+    }
+
+    @Test
+    public void testMultiTargetDebugLaunchIsRejected() throws Exception {
+        // setup functional test env
+        MockEclipse mockEclipse = createMockEnvironment();
+        MockILaunchConfiguration launchConfig = createLaunchConfiguration("test");
+        launchConfig.attributes.put(BazelLaunchConfigAttributes.ADDITIONAL_LABELS.getAttributeName(),
+            Collections.singletonList("//projects/libs/javalib1"));
+        ILaunch launch = new MockILaunch(launchConfig);
+        IProgressMonitor progress = new EclipseWorkProgressMonitor();
+        BazelLaunchConfigurationDelegate delegate = mockEclipse.getLaunchDelegate();
+
+        // method under test
+        try {
+            delegate.launch(launchConfig, "debug", launch, progress);
+            fail("Expected the debug launch of two targets to be rejected");
+        } catch (CoreException expected) {
+            assertTrue(expected.getMessage().contains("single target"));
+        }
+        assertNull(mockEclipse.getMockResourceHelper().lastExecCommandLine);
+    }
+
     // HELPERS
 
     private MockEclipse createMockEnvironment() throws Exception {
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.launch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BazelSourceJarIndexTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testLookupByPackage() throws Exception {
+        String apple = createSourceJar("apple-src.jar", "com/salesforce/apple/Apple.java", "com/salesforce/apple/AppleTree.java");
+        String banana = createSourceJar("banana-src.jar", "com/salesforce/banana/Banana.java", "Default.java");
+        String split = createSourceJar("split-src.jar", "com/salesforce/apple/AppleSeed.java");
+        BazelSourceJarIndex index = new BazelSourceJarIndex(Arrays.asList(apple, banana, split));
+
+        // classpath order is kept when a package is split across jars
+        assertEquals(Arrays.asList(apple, split), index.getSourceJars("com/salesforce/apple/Apple.java"));
+        assertEquals(Collections.singletonList(banana), index.getSourceJars("com/salesforce/banana/Banana.java"));
+        assertEquals(Collections.singletonList(banana), index.getSourceJars("Default.java"));
+        assertTrue(index.getSourceJars("com/salesforce/cherry/Cherry.java").isEmpty());
+        // only exact packages match, not parent packages
+        assertTrue(index.getSourceJars("com/salesforce/Fruit.java").isEmpty());
+    }
+
+    @Test
+    public void testMissingSourceJarIsIgnored() throws Exception {
+        String apple = createSourceJar("apple-src.jar", "com/salesforce/apple/Apple.java");
+        String missing = new File(tmpFolder.getRoot(), "missing-src.jar").getAbsolutePath();
+        BazelSourceJarIndex index = new BazelSourceJarIndex(Arrays.asList(missing, apple));
+
+        assertEquals(Collections.singletonList(apple), index.getSourceJars("com/salesforce/apple/Apple.java"));
+        assertEquals(2, index.getAllSourceJars().size());
+    }
+
+    // HELPERS
+
+    private String createSourceJar(String name, String... sourceFiles) throws Exception {
+        File jar = new File(tmpFolder.getRoot(), name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String sourceFile : sourceFiles) {
+                out.putNextEntry(new ZipEntry(sourceFile));
+                out.write("class X {}".getBytes("UTF-8"));
+                out.closeEntry();
+            }
+        }
+        return jar.getAbsolutePath();
+    }
+}
@@ -96,6 +96,24 @@ public class EclipseFunctionalTestEnvironmentFactory {
         MockEclipse mockEclipse = createMockEnvironment_PriorToImport_JavaPackages(testTempDir, numberOfJavaPackages,
             explicitJavaTestDeps, false);
 
+        List<IProject> importedProjectsList = importAllJavaPackages(mockEclipse);
+        
+        // do you want to simulate Eclipse calling getClasspath on the classpath container for each project?
+        if (computeClasspaths) {
+            for (IProject project : importedProjectsList) {
+                JavaCoreHelper javaHelper = mockEclipse.getMockJavaCoreHelper();
+                javaHelper.getResolvedClasspath(javaHelper.getJavaProjectForProject(project), false);
+            }
+        }
+        
+        return mockEclipse;
+    }
+    
+    /**
+     * Runs the Bazel import of all the Java packages of the Bazel workspace of the passed MockEclipse environment, as
+     * if the user selected all of them in the import wizard.
+     */
+    public static List<IProject> importAllJavaPackages(MockEclipse mockEclipse) throws Exception {
         // scan the bazel workspace filesystem to build the list of Java projects
         BazelProjectImportScanner scanner = new BazelProjectImportScanner();
         BazelPackageInfo workspaceRootProject = scanner.getProjects(mockEclipse.getBazelWorkspaceRoot());
@@ -109,15 +127,7 @@ public class EclipseFunctionalTestEnvironmentFactory {
         List<IProject> importedProjectsList = BazelEclipseProjectFactory.importWorkspace(workspaceRootProject, bazelPackagesToImport, new EclipseWorkProgressMonitor(), null);
         mockEclipse.setImportedProjectsList(importedProjectsList);
         
-        // do you want to simulate Eclipse calling getClasspath on the classpath container for each project?
-        if (computeClasspaths) {
-            for (IProject project : importedProjectsList) {
-                JavaCoreHelper javaHelper = mockEclipse.getMockJavaCoreHelper();
-                javaHelper.getResolvedClasspath(javaHelper.getJavaProjectForProject(project), false);
-            }
-        }
-        
-        return mockEclipse;
+        return importedProjectsList;
     }
     
     private static void addBazelPackageInfosToSelectedList(BazelPackageInfo currentNode, List<BazelPackageLocation> bazelPackagesToImport) {
@@ -25,7 +25,9 @@ package com.salesforce.bazel.eclipse.mock;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
 
@@ -76,6 +78,7 @@ public class MockEclipse {
     // if this is a full functional test, we will import the Bazel workspace which will result in 
     // a list of imported IProjects, which is kept here 
     private List<IProject> importedProjectsList = new ArrayList<>();
+    private Map<String, IProject> importedProjectsByName = new HashMap<>();
     
     /**
      * Create a MockEclipse environment with an empty Bazel workspace. The Bazel workspace
@@ -238,17 +241,15 @@ public class MockEclipse {
     }
 
     public IProject getImportedProject(String name) {
-        for (IProject project : this.importedProjectsList) {
-            String pName = project.getName();
-            if (name.equals(pName)) {
-                return project;
-            }
-        }
-        return null;
+        return this.importedProjectsByName.get(name);
     }
     
     public void setImportedProjectsList(List<IProject> importedProjectsList) {
         this.importedProjectsList = importedProjectsList;
+        this.importedProjectsByName = new HashMap<>();
+        for (IProject project : importedProjectsList) {
+            this.importedProjectsByName.putIfAbsent(project.getName(), project);
+        }
     }
 
 }
@@ -38,6 +38,7 @@ public class MockIClasspathEntry implements IClasspathEntry {
     private final int entryKind;
     private final IPath sourcePath;
     private IPath outputLocation;
+    private IPath sourceAttachmentPath;
     
     // TODO need to test behaviors related to inclusion/exclusion patterns, right now we assume they aren't set, which is the default behavior
     private IPath[] exclusionPatterns = new IPath[] {};
@@ -68,6 +69,10 @@ public class MockIClasspathEntry implements IClasspathEntry {
         this.outputLocation = out;
     }
     
+    public void setSourceAttachmentPath(IPath sourceAttachmentPath) {
+        this.sourceAttachmentPath = sourceAttachmentPath;
+    }
+    
     // API
     
     @Override
@@ -101,6 +106,11 @@ public class MockIClasspathEntry implements IClasspathEntry {
         return sourcePath;
     }
 
+    @Override
+    public IPath getSourceAttachmentPath() {
+        return sourceAttachmentPath;
+    }
+
 
 
     // UNIMPLEMENTED METHODS
@@ -121,11 +131,6 @@ public class MockIClasspathEntry implements IClasspathEntry {
         throw new UnsupportedOperationException(UOE_MSG);
     }
 
-    @Override
-    public IPath getSourceAttachmentPath() {
-        throw new UnsupportedOperationException(UOE_MSG);
-    }
-
     @Override
     public IPath getSourceAttachmentRootPath() {
         throw new UnsupportedOperationException(UOE_MSG);
@@ -36,6 +36,7 @@ public class MockIPreferenceStore implements IPreferenceStore {
     private static final String UOE_MSG = "MockIPreferenceStore is pay as you go, you have hit a method that is not implemented."; 
     
     public Map<String, String> strings = new TreeMap<>();
+    public Map<String, Boolean> booleans = new TreeMap<>();
     private List<IPropertyChangeListener> propChangeListeners = new ArrayList<>();
 
     // MOCKED METHODS
@@ -45,6 +46,12 @@ public class MockIPreferenceStore implements IPreferenceStore {
         propChangeListeners.add(listener);
     }
 
+    @Override
+    public boolean getBoolean(String name) {
+        Boolean value = booleans.get(name);
+        return value != null && value;
+    }
+
     @Override
     public String getString(String name) {
         return strings.get(name);
@@ -55,6 +62,11 @@ public class MockIPreferenceStore implements IPreferenceStore {
         strings.put(name, value);
     }
 
+    @Override
+    public void setValue(String name, boolean value) {
+        booleans.put(name, value);
+    }
+
 
     
     // UNIMPLEMENTED METHODS
@@ -71,11 +83,6 @@ public class MockIPreferenceStore implements IPreferenceStore {
         throw new UnsupportedOperationException(UOE_MSG);
     }
 
-    @Override
-    public boolean getBoolean(String name) {
-        throw new UnsupportedOperationException(UOE_MSG);
-    }
-
     @Override
     public boolean getDefaultBoolean(String name) {
         throw new UnsupportedOperationException(UOE_MSG);
@@ -201,9 +208,4 @@ public class MockIPreferenceStore implements IPreferenceStore {
         throw new UnsupportedOperationException(UOE_MSG);
     }
 
-    @Override
-    public void setValue(String name, boolean value) {
-        throw new UnsupportedOperationException(UOE_MSG);
-    }
-
 }
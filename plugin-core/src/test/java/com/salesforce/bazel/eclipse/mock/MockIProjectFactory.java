@@ -46,7 +46,9 @@ import com.salesforce.bazel.eclipse.BazelPluginActivator;
 public class MockIProjectFactory {
         
     public IProject buildIProject(MockIProjectDescriptor bom) {
-        IProject mockProject = Mockito.mock(IProject.class);
+        // stub only, otherwise Mockito records every call to the project (with a stack trace) for verification, which
+        // dominates the time and heap of tests with thousands of projects
+        IProject mockProject = Mockito.mock(IProject.class, Mockito.withSettings().stubOnly());
         Mockito.when(mockProject.getProject()).thenReturn(mockProject);
         
         Mockito.when(mockProject.getName()).thenReturn(bom.name);
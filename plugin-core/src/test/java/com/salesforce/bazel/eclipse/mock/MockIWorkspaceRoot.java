@@ -129,6 +129,11 @@ public class MockIWorkspaceRoot implements IWorkspaceRoot {
         return BazelPluginActivator.getResourceHelper().getEclipseWorkspace();
     }
 
+    @Override
+    public IProject getProject(String name) {
+        return mockEclipse.getImportedProject(name);
+    }
+
     @Override
     public IProject[] getProjects() {
         return mockEclipse.getImportedProjectsList().toArray(new IProject[] {});
@@ -625,11 +630,6 @@ public class MockIWorkspaceRoot implements IWorkspaceRoot {
         throw new UnsupportedOperationException(UOE_MSG);
     }
 
-    @Override
-    public IProject getProject(String name) {
-        throw new UnsupportedOperationException(UOE_MSG);
-    }
-
     @Override
     public IProject[] getProjects(int memberFlags) {
         throw new UnsupportedOperationException(UOE_MSG);
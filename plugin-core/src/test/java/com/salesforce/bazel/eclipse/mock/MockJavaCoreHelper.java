@@ -23,6 +23,7 @@
  */
 package com.salesforce.bazel.eclipse.mock;
 
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -43,6 +44,9 @@ public class MockJavaCoreHelper implements JavaCoreHelper {
     private static final String UOE_MSG = "MockJavaCoreHelper is pay as you go, you have hit a method that is not implemented."; 
 
     Map<String, MockIJavaProject> javaProjects = new TreeMap<>();
+    // the classpath container looks up the java project of every project for every dependency, and getName() on a 
+    // Mockito project is slow
+    Map<IProject, MockIJavaProject> javaProjectsByProject = new IdentityHashMap<>();
     
     // IMPLEMENTED METHODS
 
@@ -53,12 +57,17 @@ public class MockJavaCoreHelper implements JavaCoreHelper {
     
     @Override
     public IJavaProject getJavaProjectForProject(IProject project) {
+        MockIJavaProject mockJavaProject = javaProjectsByProject.get(project);
+        if (mockJavaProject != null) {
+            return mockJavaProject;
+        }
         String projectName = project.getName();
-        MockIJavaProject mockJavaProject = javaProjects.get(projectName);
+        mockJavaProject = javaProjects.get(projectName);
         if (mockJavaProject == null) {
             mockJavaProject = new MockIJavaProject(project);
             javaProjects.put(projectName, mockJavaProject);
         }
+        javaProjectsByProject.put(project, mockJavaProject);
         return mockJavaProject;
     }
 
@@ -105,7 +114,25 @@ public class MockJavaCoreHelper implements JavaCoreHelper {
 
     @Override
     public IClasspathEntry newLibraryEntry(IPath path, IPath sourceAttachmentPath, IPath sourceAttachmentRootPath) {
-        return new MockIClasspathEntry(IClasspathEntry.CPE_LIBRARY, path);
+        MockIClasspathEntry libraryEntry = new MockIClasspathEntry(IClasspathEntry.CPE_LIBRARY, path);
+        libraryEntry.setSourceAttachmentPath(sourceAttachmentPath);
+        return libraryEntry;
+    }
+
+    @Override
+    public IClasspathEntry newLibraryEntry(IPath path, IPath sourceAttachmentPath, IPath sourceAttachmentRootPath,
+            IClasspathAttribute[] extraAttributes) {
+        MockIClasspathEntry libraryEntry = new MockIClasspathEntry(IClasspathEntry.CPE_LIBRARY, path);
+        libraryEntry.setSourceAttachmentPath(sourceAttachmentPath);
+        for (IClasspathAttribute extraAttribute : extraAttributes) {
+            libraryEntry.addExtraAttribute(extraAttribute);
+        }
+        return libraryEntry;
+    }
+
+    @Override
+    public IClasspathAttribute newClasspathAttribute(String name, String value) {
+        return new MockIClasspathAttribute(name, value);
     }
     
     // UNIMPLEMENTED METHODS
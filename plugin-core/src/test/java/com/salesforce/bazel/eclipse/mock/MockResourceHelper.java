@@ -265,8 +265,11 @@ public class MockResourceHelper implements ResourceHelper {
 
     @Override
     public IProcess newProcess(ILaunch launch, Process process, String label) {
-        // we aren't mocking out all the side effects of launching an external process
-        return Mockito.mock(IProcess.class);
+        // we aren't mocking out all the side effects of launching an external process, the mock process has
+        // already exited, so that whatever waits for the process to terminate stops
+        IProcess mockProcess = Mockito.mock(IProcess.class);
+        Mockito.when(mockProcess.isTerminated()).thenReturn(true);
+        return mockProcess;
     }
 
 }
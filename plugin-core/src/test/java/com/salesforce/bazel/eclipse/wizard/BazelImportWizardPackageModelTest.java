@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.wizard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.model.BazelPackageInfo;
+
+public class BazelImportWizardPackageModelTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testSetAllChecked_appliesToPackagesAddedLater() throws Exception {
+        File workspaceDir = tmpFolder.newFolder();
+        new File(workspaceDir, "WORKSPACE").createNewFile();
+        for (String packagePath : Arrays.asList("projects/libs/apple", "projects/libs/banana", "projects/libs/cherry")) {
+            new File(workspaceDir, packagePath).mkdirs();
+        }
+        BazelPackageInfo root = new BazelPackageInfo(workspaceDir);
+        BazelPackageInfo apple = new BazelPackageInfo(root, "projects/libs/apple");
+        BazelPackageInfo banana = new BazelPackageInfo(root, "projects/libs/banana");
+        BazelImportWizardPackageModel model = new BazelImportWizardPackageModel(root);
+        model.add(apple);
+
+        // select all while the workspace is still scanned
+        model.setAllChecked(true);
+        model.add(banana);
+        assertTrue(model.isChecked(banana));
+        assertEquals(Arrays.asList(root, apple, banana), model.getCheckedPackages());
+
+        // deselect all is remembered too
+        model.setAllChecked(false);
+        BazelPackageInfo cherry = new BazelPackageInfo(root, "projects/libs/cherry");
+        model.add(cherry);
+        assertFalse(model.isChecked(cherry));
+        assertFalse(model.hasCheckedPackages());
+    }
+}
@@ -30,7 +30,11 @@ package com.salesforce.bazel.eclipse.abstractions;
  */
 public enum BazelCommandArgs {
 
-    TEST_FILTER("--test_filter");
+    TEST_FILTER("--test_filter"),
+
+    TEST_SHARDING_STRATEGY("--test_sharding_strategy"),
+
+    LOCAL_TEST_JOBS("--local_test_jobs");
 
     private final String argName;
 
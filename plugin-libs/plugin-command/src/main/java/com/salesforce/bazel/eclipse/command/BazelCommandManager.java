@@ -37,8 +37,10 @@
 package com.salesforce.bazel.eclipse.command;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.salesforce.bazel.eclipse.abstractions.BazelAspectLocation;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
@@ -64,10 +66,10 @@ public class BazelCommandManager {
     private final BazelWorkspaceCommandRunner genericCommandRunner;
     
     /**
-    * The set of workspace specific command runners. The key is the File workspaceRoot. We don't yet support
-    * multiple Bazel workspaces, but when we do this will be important.
-    */
-    private final Map<File, BazelWorkspaceCommandRunner> workspaceCommandRunners = new TreeMap<>();    
+     * The set of workspace specific command runners. The key is the File workspaceRoot. Each runner has its own command
+     * builder, command scheduler and caches, so the commands of one Bazel workspace don't wait for the ones of another.
+     */
+    private final Map<File, BazelWorkspaceCommandRunner> workspaceCommandRunners = new ConcurrentHashMap<>();
 
     /**
      * Create a {@link BazelCommandManager} object, providing the implementation for locating aspect and getting console
@@ -110,15 +112,34 @@ public class BazelCommandManager {
                 return null;
             }
             
-            workspaceCommandRunner = new BazelWorkspaceCommandRunner(bazelExecutable, this.aspectLocation, 
-                this.commandBuilder, this.consoleFactory, bazelWorkspaceRootDirectory); 
-            workspaceCommandRunners.put(bazelWorkspaceRootDirectory, workspaceCommandRunner);
+            File finalBazelExecutable = bazelExecutable;
+            workspaceCommandRunner = workspaceCommandRunners.computeIfAbsent(bazelWorkspaceRootDirectory,
+                root -> new BazelWorkspaceCommandRunner(finalBazelExecutable, this.aspectLocation,
+                    this.commandBuilder.newInstance(), this.consoleFactory, root));
         }
         return workspaceCommandRunner;
     }
-    
 
+    /**
+     * Returns the runners of the Bazel workspaces that have been opened.
+     */
+    public Collection<BazelWorkspaceCommandRunner> getWorkspaceCommandRunners() {
+        return new ArrayList<>(workspaceCommandRunners.values());
+    }
+
+    /**
+     * Stops the runner of the Bazel workspace, if it has one, when the workspace is removed from the Eclipse workspace.
+     * The next call to {@link #getWorkspaceCommandRunner(BazelWorkspace)} creates a new runner.
+     */
+    public void closeWorkspaceCommandRunner(BazelWorkspace bazelWorkspace) {
+        BazelWorkspaceCommandRunner workspaceCommandRunner =
+                workspaceCommandRunners.remove(bazelWorkspace.getBazelWorkspaceRootDirectory());
+        if (workspaceCommandRunner != null) {
+            workspaceCommandRunner.close();
+        }
+    }
     
+
     // BAZEL EXECUTABLE
     
     /**
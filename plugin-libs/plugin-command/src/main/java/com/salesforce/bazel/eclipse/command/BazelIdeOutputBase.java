@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The dedicated output base the commands of the plugin run with, instead of the default output base of the workspace.
+ * <p>
+ * Bazel runs one server per output base, and a server runs one command at a time. With an output base of its own, the
+ * plugin gets a server of its own: its aspect builds and queries don't wait for the builds run in a terminal, and the
+ * two don't throw away each other's analysis cache. The builds of the plugin and of the terminal share the outputs of
+ * their actions through the disk cache, so that an action is only run once.
+ * <p>
+ * The dedicated server gets its own memory settings, and shuts itself down after being idle for a while. The builds of
+ * the plugin don't create the bazel-* convenience symlinks, which are left pointing into the default output base.
+ */
+public class BazelIdeOutputBase {
+
+    private final File outputBaseDirectory;
+    private final File diskCacheDirectory;
+    private final List<String> hostJvmArgs;
+    private final int maxIdleSeconds;
+
+    /**
+     * @param outputBaseDirectory
+     *            the output base of the plugin commands
+     * @param diskCacheDirectory
+     *            the disk cache shared with the terminal builds, null to use the one configured in the .bazelrc files
+     * @param hostJvmArgs
+     *            the JVM arguments of the server, such as -Xmx2g
+     * @param maxIdleSeconds
+     *            how long the server stays up without running a command, 0 for the Bazel default
+     */
+    public BazelIdeOutputBase(File outputBaseDirectory, File diskCacheDirectory, List<String> hostJvmArgs,
+            int maxIdleSeconds) {
+        this.outputBaseDirectory = Objects.requireNonNull(outputBaseDirectory);
+        this.diskCacheDirectory = diskCacheDirectory;
+        this.hostJvmArgs = ImmutableList.copyOf(hostJvmArgs);
+        this.maxIdleSeconds = maxIdleSeconds;
+    }
+
+    public File getOutputBaseDirectory() {
+        return outputBaseDirectory;
+    }
+
+    public File getDiskCacheDirectory() {
+        return diskCacheDirectory;
+    }
+
+    /**
+     * The startup options of the commands, which come before the Bazel command.
+     */
+    public List<String> getStartupOptions() {
+        List<String> options = new ArrayList<>();
+        options.add("--output_base=" + outputBaseDirectory.getAbsolutePath());
+        for (String hostJvmArg : hostJvmArgs) {
+            options.add("--host_jvm_args=" + hostJvmArg);
+        }
+        if (maxIdleSeconds > 0) {
+            options.add("--max_idle_secs=" + maxIdleSeconds);
+        }
+        return options;
+    }
+
+    /**
+     * The options of the commands that build code. None of them changes the build configuration.
+     */
+    public List<String> getBuildOptions() {
+        List<String> options = new ArrayList<>();
+        if (diskCacheDirectory != null) {
+            options.add("--disk_cache=" + diskCacheDirectory.getAbsolutePath());
+        }
+        // "/" turns off the convenience symlinks
+        options.add("--symlink_prefix=/");
+        return options;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BazelIdeOutputBase)) {
+            return false;
+        }
+        BazelIdeOutputBase other = (BazelIdeOutputBase) obj;
+        return outputBaseDirectory.equals(other.outputBaseDirectory)
+                && Objects.equals(diskCacheDirectory, other.diskCacheDirectory)
+                && hostJvmArgs.equals(other.hostJvmArgs) && maxIdleSeconds == other.maxIdleSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(outputBaseDirectory, diskCacheDirectory, hostJvmArgs, maxIdleSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return outputBaseDirectory.getAbsolutePath();
+    }
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Objects;
 
 import com.google.common.collect.ImmutableList;
+import com.salesforce.bazel.eclipse.abstractions.BazelCommandArgs;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.internal.ConsoleType;
 import com.salesforce.bazel.eclipse.model.BazelLabel;
@@ -40,16 +41,26 @@ import com.salesforce.bazel.eclipse.model.TargetKind;
 /**
  * Convenience class that manufactures Bazel Command instances used for Bazel 'run' or 'test' commands 
  * (e.g. for Eclipse Launch Configs).
+ * <p>
+ * By default a test launch reruns the tests, one test action at a time, and streams their output to the console. With
+ * {@link #setCacheTestResults(boolean)} the launch leaves it to Bazel: cached results of unchanged tests are reused and
+ * test actions (and shards) run in parallel. A debug launch always runs the tests, one at a time, as the debugger
+ * attaches to a single JVM on a fixed port.
  */
 public class BazelLauncherBuilder {
 
     private final BazelWorkspaceCommandRunner bazelCommandRunner;
     private final CommandBuilder commandBuilder;
     
-    private BazelLabel bazelLabel;
+    private List<BazelLabel> bazelLabels;
     private TargetKind targetKind;
     private Map<String, String> bazelArgs;
 
+    private String testFilter;
+    private boolean cacheTestResults;
+    private String testShardingStrategy;
+    private int localTestJobs;
+
     private boolean isDebugMode;
     private String debugHost;
     private int debugPort;
@@ -66,7 +77,7 @@ public class BazelLauncherBuilder {
         BazelLabel bazelLabel, TargetKind targetKind, Map<String, String> bazelArgs) {
         this.bazelCommandRunner = Objects.requireNonNull(bazelRunner);
         this.commandBuilder = Objects.requireNonNull(commandBuilder);
-        this.bazelLabel = Objects.requireNonNull(bazelLabel);
+        this.bazelLabels = Collections.singletonList(Objects.requireNonNull(bazelLabel));
         this.targetKind = Objects.requireNonNull(targetKind);
         this.bazelArgs = Objects.requireNonNull(bazelArgs);
     }
@@ -75,10 +86,19 @@ public class BazelLauncherBuilder {
     // SETTERS
     
     public BazelLauncherBuilder setLabel(BazelLabel bazelLabel) {
-         this.bazelLabel = bazelLabel;
+         this.bazelLabels = bazelLabel == null ? null : Collections.singletonList(bazelLabel);
          return this;
     }
 
+    /**
+     * Sets the targets to launch in a single invocation. Only test targets can be launched together, "bazel run" takes
+     * a single target.
+     */
+    public BazelLauncherBuilder setLabels(List<BazelLabel> bazelLabels) {
+        this.bazelLabels = bazelLabels;
+        return this;
+    }
+
     public BazelLauncherBuilder setTargetKind(TargetKind targetKind) {
         this.targetKind = targetKind;
         return this;
@@ -89,6 +109,40 @@ public class BazelLauncherBuilder {
         return this;
    }
 
+    /**
+     * Restricts a test launch to the matching test classes and methods, see {@link #getTestFilter(String, String)}.
+     */
+    public BazelLauncherBuilder setTestFilter(String testFilter) {
+        this.testFilter = testFilter;
+        return this;
+    }
+
+    /**
+     * When true, a test launch reuses the cached results of tests that are up to date and runs the other tests in
+     * parallel. Ignored in debug mode.
+     */
+    public BazelLauncherBuilder setCacheTestResults(boolean cacheTestResults) {
+        this.cacheTestResults = cacheTestResults;
+        return this;
+    }
+
+    /**
+     * Sets the value of --test_sharding_strategy (e.g. explicit or disabled), null to use the Bazel default.
+     */
+    public BazelLauncherBuilder setTestShardingStrategy(String testShardingStrategy) {
+        this.testShardingStrategy = testShardingStrategy;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of test actions run at the same time (--local_test_jobs), 0 to use the Bazel default,
+     * which is the number of local cores.
+     */
+    public BazelLauncherBuilder setLocalTestJobs(int localTestJobs) {
+        this.localTestJobs = localTestJobs;
+        return this;
+    }
+
     public BazelLauncherBuilder setDebugMode(boolean isDebugMode, String debugHost, int debugPort) {
         this.isDebugMode = isDebugMode;
         this.debugHost = debugHost;
@@ -101,11 +155,18 @@ public class BazelLauncherBuilder {
     
     public Command build() {
         Objects.requireNonNull(bazelCommandRunner);
-        Objects.requireNonNull(bazelLabel);
+        Objects.requireNonNull(bazelLabels);
         Objects.requireNonNull(targetKind);
+        if (bazelLabels.isEmpty()) {
+            throw new IllegalStateException("No Bazel target to launch");
+        }
+        if (!targetKind.isTestable() && bazelLabels.size() > 1) {
+            throw new IllegalStateException("Only test targets can be launched together: " + bazelLabels);
+        }
         Objects.requireNonNull(bazelArgs);
         
-        List<String> args = new ArrayList<>();
+        // the same options as the builds, so that the launch does not discard the Bazel analysis cache
+        List<String> args = new ArrayList<>(bazelCommandRunner.getAnalysisOptions());
         if (isDebugMode) {
             if (targetKind.isTestable()) {
                 args.add("--test_arg=--wrapper_script_flag=--debug=" + debugHost + ":" + debugPort);
@@ -115,19 +176,45 @@ public class BazelLauncherBuilder {
             }
         }
 
+        if (targetKind.isTestable()) {
+            if (testFilter != null && !testFilter.isEmpty()) {
+                args.add(BazelCommandArgs.TEST_FILTER.getName() + "=" + testFilter);
+            }
+            if (testShardingStrategy != null && !testShardingStrategy.isEmpty()) {
+                args.add(BazelCommandArgs.TEST_SHARDING_STRATEGY.getName() + "=" + testShardingStrategy);
+            }
+            if (localTestJobs > 0) {
+                args.add(BazelCommandArgs.LOCAL_TEST_JOBS.getName() + "=" + localTestJobs);
+            }
+        }
+
         for (Map.Entry<String, String> arg : bazelArgs.entrySet()) {
             args.add(arg.getKey() + "=" + arg.getValue());
         }
 
+        List<String> targets = new ArrayList<>();
+        for (BazelLabel bazelLabel : bazelLabels) {
+            targets.add(bazelLabel.toString());
+        }
         try {
             return targetKind.isTestable()
-                    ? getBazelTestCommand(Collections.singletonList(bazelLabel.toString()), args)
-                    : getBazelRunCommand(Collections.singletonList(bazelLabel.toString()), args);
+                    ? getBazelTestCommand(targets, args)
+                    : getBazelRunCommand(targets, args);
         } catch (IOException | BazelCommandLineToolConfigurationException ex) {
             throw new IllegalStateException(ex);
         }
     }
     
+    /**
+     * Returns the --test_filter value that selects a test class, or a single test method of the class if methodName is
+     * not null. The Bazel JUnit runner matches the filter, a regular expression, against "className#methodName", so
+     * filters can be combined with '|' to select several classes or methods in one launch.
+     */
+    public static String getTestFilter(String className, String methodName) {
+        String classFilter = className.replace(".", "\\.") + "#";
+        return methodName == null ? classFilter : classFilter + methodName + "$";
+    }
+
     /**
      * Builds and returns a Command instance representing a "bazel run" invocation.
      *
@@ -147,6 +234,7 @@ public class BazelLauncherBuilder {
                 .setConsoleName(consoleName)
                 .setDirectory(workspaceDirectory)
                 .addArguments(BazelWorkspaceCommandRunner.getBazelExecutablePath())
+                .addArguments(this.bazelCommandRunner.getStartupOptions())
                 .addArguments(args)
                 .setProgressMonitor(progressMonitor)
                 .build();
@@ -160,13 +248,15 @@ public class BazelLauncherBuilder {
     private Command getBazelTestCommand(List<String> bazelTargets, List<String> extraArgs)
             throws IOException, BazelCommandLineToolConfigurationException {
 
-        // need to add single method support:
-        // --test_filter=com.blah.foo.hello.HelloAgain2Test#testHelloAgain2$
-
-        List<String> args = ImmutableList.<String> builder().add("test")
-                .add("--test_output=streamed").add("--test_strategy=exclusive").add("--test_timeout=9999")
-                .add("--nocache_test_results").add("--runs_per_test=1").add("--flaky_test_attempts=1").addAll(extraArgs)
-                .add("--").addAll(bazelTargets).build();
+        ImmutableList.Builder<String> argsBuilder = ImmutableList.<String> builder().add("test");
+        if (cacheTestResults && !isDebugMode) {
+            // streamed output would force the tests to run locally and one at a time again
+            argsBuilder.add("--test_output=errors");
+        } else {
+            argsBuilder.add("--test_output=streamed").add("--test_strategy=exclusive").add("--test_timeout=9999")
+                    .add("--nocache_test_results").add("--runs_per_test=1").add("--flaky_test_attempts=1");
+        }
+        List<String> args = argsBuilder.addAll(extraArgs).add("--").addAll(bazelTargets).build();
 
         WorkProgressMonitor progressMonitor = null;
         
@@ -178,6 +268,7 @@ public class BazelLauncherBuilder {
                 .setConsoleName(consoleName)
                 .setDirectory(workspaceDirectory)
                 .addArguments(BazelWorkspaceCommandRunner.getBazelExecutablePath())
+                .addArguments(this.bazelCommandRunner.getStartupOptions())
                 .addArguments(args)
                 .setProgressMonitor(progressMonitor)
                 .build();
@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.internal.BazelCommandScheduler;
+import com.salesforce.bazel.eclipse.command.internal.PrefixTrie;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * In memory index of the directories, packages and targets of a Bazel workspace, for the content assist of the
+ * project view editor and the target search. Lookups only read the index, so they return within a frame and can run
+ * on the UI thread.
+ * <p>
+ * The index is filled in the background:
+ * <ul>
+ * <li>the directories and packages by a scan of the workspace, which is repeated when the index is used and the last
+ * scan is older than {@link #RESCAN_INTERVAL_MILLIS}</li>
+ * <li>the targets of a package by a "bazel query [package]:*", run the first time the targets of the package are
+ * completed, and again after a failure or a change of the BUILD file of the package (see
+ * {@link #invalidatePackage(String)})</li>
+ * <li>the targets found in aspect data and query results, see {@link #addLabels(Collection)}</li>
+ * </ul>
+ * While a scan or a query runs, lookups return what the index already knows, and report the result as partial.
+ */
+public class BazelTargetCompletionIndex {
+    static final LogHelper LOG = LogHelper.log(BazelTargetCompletionIndex.class);
+
+    static final int MAX_PROPOSALS = 500;
+
+    // the scan stops there, so a huge tree (or a file system loop) cannot exhaust the heap
+    static final int MAX_DIRECTORIES = 250000;
+
+    static final long RESCAN_INTERVAL_MILLIS = 60000;
+
+    private static final List<String> BUILD_FILE_NAMES = Arrays.asList("BUILD", "BUILD.bazel");
+
+    // a completion request for a newer prefix makes the waiting query of an older one stale
+    private static final String TARGET_COMPLETION_SUPERSEDE_KEY = "target-completion";
+
+    /**
+     * Lists the targets of a package.
+     */
+    @FunctionalInterface
+    public interface PackageTargetsQuery {
+        /**
+         * @param packagePath
+         *            the workspace relative path of the package, e.g. projects/libs/apple
+         * @return the names of the targets of the package, e.g. [apple, apple-test]
+         */
+        List<String> listTargets(String packagePath, WorkProgressMonitor progressMonitor) throws Exception;
+    }
+
+    private final File bazelWorkspaceRootDirectory;
+    private final BazelCommandScheduler commandScheduler;
+    private final PackageTargetsQuery packageTargetsQuery;
+
+    /**
+     * Workspace relative path of each directory (projects/libs/apple) -> true if the directory is a package.
+     */
+    private volatile PrefixTrie<Boolean> directories = new PrefixTrie<>();
+
+    /**
+     * [package path]:[target name] of each known target.
+     */
+    private final PrefixTrie<Boolean> targets = new PrefixTrie<>();
+
+    /**
+     * Package path -> the query that lists all targets of the package.
+     */
+    private final Map<String, CompletableFuture<Void>> packageQueries = new ConcurrentHashMap<>();
+
+    private CompletableFuture<Void> scan;
+    private long scanStartMillis;
+    private ExecutorService scanExecutor;
+    private boolean closed;
+
+    public BazelTargetCompletionIndex(File bazelWorkspaceRootDirectory, BazelCommandScheduler commandScheduler,
+            PackageTargetsQuery packageTargetsQuery) {
+        this.bazelWorkspaceRootDirectory = bazelWorkspaceRootDirectory;
+        this.commandScheduler = commandScheduler;
+        this.packageTargetsQuery = packageTargetsQuery;
+    }
+
+    /**
+     * Gives the completions of a partial target pattern, e.g. //projects/li or //projects/libs/apple:app. Same
+     * completions as {@link BazelWorkspaceCommandRunner#getMatchingTargets(String, WorkProgressMonitor)}, without
+     * waiting for Bazel or the file system.
+     */
+    public Completions getMatchingTargets(String userSearchString) {
+        List<String> proposals = new ArrayList<>();
+        if (userSearchString.equals("/") || userSearchString.isEmpty()) {
+            proposals.add("//");
+            return new Completions(proposals, CompletableFuture.completedFuture(null));
+        } else if (userSearchString.contains(":")) {
+            // complete targets
+            int idx = userSearchString.indexOf(':');
+            String packageName = userSearchString.substring(0, idx);
+            String targetPrefix = userSearchString.substring(idx + 1);
+            String packagePath = packageName.startsWith("//") ? packageName.substring(2) : packageName;
+            CompletableFuture<Void> update = queryPackageTargets(packagePath);
+            for (String key : targets.getKeys(packagePath + ":" + targetPrefix, PrefixTrie.NO_SEPARATOR, MAX_PROPOSALS)) {
+                proposals.add(packageName + key.substring(packagePath.length()));
+            }
+            if ("all".startsWith(targetPrefix)) {
+                proposals.add(packageName + ":all");
+            }
+            if ("*".startsWith(targetPrefix)) {
+                proposals.add(packageName + ":*");
+            }
+            return new Completions(proposals, update);
+        } else {
+            // complete packages
+            int lastSlash = userSearchString.lastIndexOf('/');
+            String prefix = lastSlash > 0 ? userSearchString.substring(0, lastSlash + 1) : "";
+            String suffix = lastSlash > 0 ? userSearchString.substring(lastSlash + 1) : userSearchString;
+            String directory = (prefix.isEmpty() || prefix.equals("//")) ? ""
+                    : prefix.substring(userSearchString.startsWith("//") ? 2 : 0, prefix.length() - 1);
+            Completions childDirectories = getChildDirectories(directory, suffix);
+            for (String name : childDirectories.getProposals()) {
+                proposals.add(prefix + name + "/");
+                if (isPackage(directory.isEmpty() ? name : directory + "/" + name)) {
+                    proposals.add(prefix + name + ":");
+                }
+            }
+            if ("...".startsWith(suffix)) {
+                proposals.add(prefix + "...");
+            }
+            return new Completions(proposals, childDirectories.getUpdate());
+        }
+    }
+
+    /**
+     * Returns the names of the sub directories of a directory that start with the name prefix, in lexical order.
+     * Hidden directories and the Bazel convenience links are not listed.
+     *
+     * @param directory
+     *            the workspace relative path of the directory, / separated, empty for the workspace root
+     */
+    public Completions getChildDirectories(String directory, String namePrefix) {
+        CompletableFuture<Void> update = scanIfStale();
+        String parentPrefix = directory.isEmpty() ? "" : directory + "/";
+        List<String> names = new ArrayList<>();
+        for (String key : directories.getKeys(parentPrefix + namePrefix, '/', MAX_PROPOSALS)) {
+            names.add(key.substring(parentPrefix.length()));
+        }
+        return new Completions(names, update);
+    }
+
+    /**
+     * Returns true if the index knows the directory, the workspace root is always known.
+     */
+    public boolean isDirectory(String directory) {
+        scanIfStale();
+        return directory.isEmpty() || directories.containsKey(directory);
+    }
+
+    /**
+     * Returns true if the index knows the directory as a package, a directory with a BUILD file.
+     */
+    public boolean isPackage(String directory) {
+        return Boolean.TRUE.equals(directories.get(directory));
+    }
+
+    /**
+     * Adds targets found by other means, e.g. in the aspect data. External labels (@repo//...) are ignored.
+     */
+    public void addLabels(Collection<String> labels) {
+        for (String label : labels) {
+            if (label.startsWith("@")) {
+                continue;
+            }
+            String key = label.startsWith("//") ? label.substring(2) : label;
+            if (key.indexOf(':') > -1) {
+                targets.put(key, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Replaces the targets of a package with the result of a query.
+     */
+    public void setPackageTargets(String packagePath, Collection<String> targetNames) {
+        String packagePrefix = packagePath + ":";
+        targets.removeKeys(packagePrefix);
+        for (String targetName : targetNames) {
+            targets.put(packagePrefix + targetName, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Queries the targets of the package again the next time they are completed, to be called when the BUILD file of
+     * the package changed. Until then, lookups answer with the targets the index knows.
+     */
+    public void invalidatePackage(String packagePath) {
+        packageQueries.remove(packagePath);
+    }
+
+    /**
+     * Stops the scan thread. The lookups keep answering from the current content of the index, but it is not updated
+     * anymore.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (scanExecutor != null) {
+            scanExecutor.shutdownNow();
+            scanExecutor = null;
+        }
+    }
+
+    // INTERNAL
+
+    private synchronized CompletableFuture<Void> scanIfStale() {
+        if (scan == null
+                || (scan.isDone() && System.currentTimeMillis() - scanStartMillis > RESCAN_INTERVAL_MILLIS)) {
+            return startScan();
+        }
+        return scan;
+    }
+
+    private synchronized CompletableFuture<Void> startScan() {
+        if (scan != null && !scan.isDone()) {
+            return scan;
+        }
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // the first scan fills the index as it goes, so lookups have partial results; a rescan is swapped in when done
+        PrefixTrie<Boolean> scannedDirectories = scan == null ? directories : new PrefixTrie<>();
+        if (scanExecutor == null) {
+            scanExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Bazel target completion index [" + bazelWorkspaceRootDirectory.getName() + "]");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scanStartMillis = System.currentTimeMillis();
+        scan = CompletableFuture.runAsync(() -> {
+            scanDirectories(scannedDirectories);
+            directories = scannedDirectories;
+        }, scanExecutor);
+        return scan;
+    }
+
+    private void scanDirectories(PrefixTrie<Boolean> scannedDirectories) {
+        long start = System.currentTimeMillis();
+        Path root = bazelWorkspaceRootDirectory.toPath();
+        Deque<Path> toScan = new ArrayDeque<>();
+        toScan.add(root);
+        int scanned = 0;
+        // breadth first, so the top of the tree is there first for the lookups that run during the first scan
+        while (!toScan.isEmpty() && scanned < MAX_DIRECTORIES && !Thread.currentThread().isInterrupted()) {
+            Path directory = toScan.poll();
+            boolean isRoot = directory.equals(root);
+            boolean isPackage = false;
+            List<Path> childDirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        // not hidden, and not a Bazel convenience link (those are links, but may be junctions)
+                        if (!name.startsWith(".") && !(isRoot && name.startsWith("bazel-"))) {
+                            childDirectories.add(entry);
+                        }
+                    } else if (BUILD_FILE_NAMES.contains(name)) {
+                        isPackage = true;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.debug("Could not list {}: {}", directory, e.getMessage());
+            }
+            if (!isRoot) {
+                scannedDirectories.put(root.relativize(directory).toString().replace(File.separatorChar, '/'), isPackage);
+            }
+            Collections.sort(childDirectories);
+            toScan.addAll(childDirectories);
+            scanned++;
+        }
+        if (!toScan.isEmpty()) {
+            LOG.info("Stopped indexing the directories of {} after {} directories", bazelWorkspaceRootDirectory, scanned);
+        }
+        LOG.debug("Indexed {} directories of {} in {} ms", scanned, bazelWorkspaceRootDirectory,
+            System.currentTimeMillis() - start);
+    }
+
+    private CompletableFuture<Void> queryPackageTargets(String packagePath) {
+        return packageQueries.compute(packagePath, (p, query) -> {
+            if (query != null && !query.isCompletedExceptionally()) {
+                return query;
+            }
+            // a cancelled query was made stale by a newer request, and a failed one may succeed once the BUILD file is
+            // fixed; they run again if the package is completed again
+            return commandScheduler.submit(BazelCommandPriority.INTERACTIVE, "targets //" + p + ":*",
+                TARGET_COMPLETION_SUPERSEDE_KEY, null, monitor -> {
+                    setPackageTargets(p, packageTargetsQuery.listTargets(p, monitor));
+                    return null;
+                });
+        });
+    }
+
+    /**
+     * The result of a lookup.
+     */
+    public static class Completions {
+        private final List<String> proposals;
+        private final CompletableFuture<Void> update;
+
+        Completions(List<String> proposals, CompletableFuture<Void> update) {
+            this.proposals = Collections.unmodifiableList(proposals);
+            this.update = update;
+        }
+
+        public List<String> getProposals() {
+            return proposals;
+        }
+
+        /**
+         * False if the index was still being filled for the lookup, the proposals may then be missing some entries.
+         */
+        public boolean isComplete() {
+            return update.isDone();
+        }
+
+        /**
+         * Completes when the index has been filled for the lookup, a lookup run after that has the complete proposals.
+         */
+        public CompletableFuture<Void> getUpdate() {
+            return update;
+        }
+    }
+}
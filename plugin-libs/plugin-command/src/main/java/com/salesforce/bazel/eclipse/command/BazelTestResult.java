@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import java.io.File;
+
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+
+/**
+ * The outcome of a test action of a "bazel test" invocation, as read from the test.xml file Bazel writes in the
+ * testlogs directory. A sharded test target, or one run more than once, has one result per shard or run.
+ */
+public class BazelTestResult {
+
+    private final BazelLabel label;
+    private final File testXmlFile;
+    private final int tests;
+    private final int failures;
+    private final int errors;
+    private final int skipped;
+    private final double timeSeconds;
+    private final boolean cached;
+
+    BazelTestResult(BazelLabel label, File testXmlFile, int tests, int failures, int errors, int skipped,
+            double timeSeconds, boolean cached) {
+        this.label = label;
+        this.testXmlFile = testXmlFile;
+        this.tests = tests;
+        this.failures = failures;
+        this.errors = errors;
+        this.skipped = skipped;
+        this.timeSeconds = timeSeconds;
+        this.cached = cached;
+    }
+
+    public BazelLabel getLabel() {
+        return label;
+    }
+
+    /**
+     * The JUnit XML report of the test action.
+     */
+    public File getTestXmlFile() {
+        return testXmlFile;
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public double getTimeSeconds() {
+        return timeSeconds;
+    }
+
+    /**
+     * True if the test action did not run during the launch, as Bazel reused its cached result.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public boolean isPassed() {
+        return failures == 0 && errors == 0;
+    }
+
+    @Override
+    public String toString() {
+        return label + (isPassed() ? " PASSED" : " FAILED") + " (" + tests + " tests, " + failures + " failures, "
+                + errors + " errors, " + skipped + " skipped in " + timeSeconds + " s" + (cached ? ", cached" : "")
+                + ")";
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+
+/**
+ * Collects the results of a "bazel test" invocation while it runs, by watching the test.xml files Bazel writes in the
+ * testlogs directory as each test action finishes: testlogs/[package path]/[target name]/test.xml, or one level deeper
+ * (shard_1_of_4/test.xml, run_1_of_2/test.xml) for sharded targets and targets run more than once.
+ * <p>
+ * The collector is polled during the invocation and returns the results written since the previous poll, so the first
+ * failures can be looked at while the rest of the tests still run. The result of a test action that Bazel took from its
+ * cache is not rewritten, those results are only returned by {@link #collectRemainingResults()} once the invocation is
+ * over.
+ */
+public class BazelTestResultCollector {
+    static final LogHelper LOG = LogHelper.log(BazelTestResultCollector.class);
+
+    static final String TEST_XML_FILE_NAME = "test.xml";
+
+    private final File testLogsDirectory;
+    private final List<BazelLabel> labels;
+    private final long launchTimeMillis;
+
+    /**
+     * test.xml file -> the last modified time of the file when its result was returned
+     */
+    private final Map<File, Long> collectedFiles = new HashMap<>();
+
+    /**
+     * @param testLogsDirectory
+     *            the testlogs directory of the Bazel workspace
+     * @param labels
+     *            the test targets of the invocation
+     * @param launchTimeMillis
+     *            the time the invocation started, test.xml files written before are results of earlier invocations
+     */
+    public BazelTestResultCollector(File testLogsDirectory, List<BazelLabel> labels, long launchTimeMillis) {
+        this.testLogsDirectory = testLogsDirectory;
+        this.labels = labels;
+        // file systems with a one second last modified resolution would round down a result written just after launch
+        this.launchTimeMillis = launchTimeMillis - launchTimeMillis % 1000;
+    }
+
+    /**
+     * Returns the results of the test actions that finished since the previous call.
+     */
+    public synchronized List<BazelTestResult> collectFinishedResults() {
+        return collect(false);
+    }
+
+    /**
+     * Returns the results that have not been returned yet, including the cached results. To be called once the
+     * invocation is over.
+     */
+    public synchronized List<BazelTestResult> collectRemainingResults() {
+        return collect(true);
+    }
+
+    // INTERNAL
+
+    private List<BazelTestResult> collect(boolean isInvocationOver) {
+        List<BazelTestResult> results = new ArrayList<>();
+        for (BazelLabel label : labels) {
+            for (File testXmlFile : findTestXmlFiles(label)) {
+                long lastModified = testXmlFile.lastModified();
+                Long collectedLastModified = collectedFiles.get(testXmlFile);
+                if (collectedLastModified != null && collectedLastModified == lastModified) {
+                    continue;
+                }
+                boolean cached = lastModified < launchTimeMillis;
+                if (cached && !isInvocationOver) {
+                    continue;
+                }
+                BazelTestResult result = parseTestXmlFile(label, testXmlFile, cached);
+                if (result == null) {
+                    // most likely still being written, the next poll picks it up
+                    if (isInvocationOver) {
+                        LOG.warn("Could not read the test results of {} from {}", label, testXmlFile);
+                    }
+                    continue;
+                }
+                collectedFiles.put(testXmlFile, lastModified);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private List<File> findTestXmlFiles(BazelLabel label) {
+        List<File> testXmlFiles = new ArrayList<>();
+        String targetName = label.getTargetName();
+        if (targetName == null) {
+            return testXmlFiles;
+        }
+        File targetDirectory = new File(new File(testLogsDirectory, label.getPackagePath()), targetName);
+        File testXmlFile = new File(targetDirectory, TEST_XML_FILE_NAME);
+        if (testXmlFile.isFile()) {
+            testXmlFiles.add(testXmlFile);
+        }
+        File[] shardDirectories = targetDirectory.listFiles(File::isDirectory);
+        if (shardDirectories != null) {
+            Arrays.sort(shardDirectories);
+            for (File shardDirectory : shardDirectories) {
+                File shardTestXmlFile = new File(shardDirectory, TEST_XML_FILE_NAME);
+                if (shardTestXmlFile.isFile()) {
+                    testXmlFiles.add(shardTestXmlFile);
+                }
+            }
+        }
+        return testXmlFiles;
+    }
+
+    /**
+     * Reads the counts and the time of a JUnit XML report. Returns null if the file is not a complete XML document.
+     */
+    static BazelTestResult parseTestXmlFile(BazelLabel label, File testXmlFile, boolean cached) {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            // the reports are written by the test runner, don't let a DOCTYPE make the parser fetch anything
+            builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+            // fails on malformed (partially written) files without printing to stderr
+            builder.setErrorHandler(new DefaultHandler());
+            document = builder.parse(testXmlFile);
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            LOG.debug("Could not parse {}: {}", testXmlFile, e.getMessage());
+            return null;
+        }
+
+        int tests = 0;
+        int failures = 0;
+        int errors = 0;
+        int skipped = 0;
+        double timeSeconds = 0;
+        NodeList testCases = document.getElementsByTagName("testcase");
+        for (int i = 0; i < testCases.getLength(); i++) {
+            Element testCase = (Element) testCases.item(i);
+            tests++;
+            timeSeconds += parseTime(testCase.getAttribute("time"));
+            NodeList children = testCase.getChildNodes();
+            for (int j = 0; j < children.getLength(); j++) {
+                Node child = children.item(j);
+                if (child.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+                String name = child.getNodeName();
+                if ("failure".equals(name)) {
+                    failures++;
+                    break;
+                } else if ("error".equals(name)) {
+                    errors++;
+                    break;
+                } else if ("skipped".equals(name)) {
+                    skipped++;
+                    break;
+                }
+            }
+        }
+        return new BazelTestResult(label, testXmlFile, tests, failures, errors, skipped, timeSeconds, cached);
+    }
+
+    private static double parseTime(String time) {
+        if (time == null || time.isEmpty()) {
+            return 0;
+        }
+        try {
+            // some runners write a thousands separator
+            return Double.parseDouble(time.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
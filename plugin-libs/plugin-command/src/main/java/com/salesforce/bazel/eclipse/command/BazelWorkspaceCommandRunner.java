@@ -39,10 +39,21 @@ package com.salesforce.bazel.eclipse.command;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -51,14 +62,18 @@ import com.salesforce.bazel.eclipse.abstractions.BazelAspectLocation;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.internal.BazelCommandExecutor;
+import com.salesforce.bazel.eclipse.command.internal.BazelCommandScheduler;
+import com.salesforce.bazel.eclipse.command.internal.BazelCommandScheduler.BazelCommandTask;
 import com.salesforce.bazel.eclipse.command.internal.BazelQueryHelper;
 import com.salesforce.bazel.eclipse.command.internal.BazelVersionChecker;
 import com.salesforce.bazel.eclipse.command.internal.BazelWorkspaceAspectHelper;
+import com.salesforce.bazel.eclipse.command.internal.ConsoleType;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
 import com.salesforce.bazel.eclipse.logging.LoggerFacade;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
 import com.salesforce.bazel.eclipse.model.BazelMarkerDetails;
 import com.salesforce.bazel.eclipse.model.BazelOutputParser;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
 import com.salesforce.bazel.eclipse.model.BazelWorkspaceCommandOptions;
 import com.salesforce.bazel.eclipse.model.BazelWorkspaceMetadataStrategy;
 
@@ -146,12 +161,33 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      */
     private final BazelVersionChecker bazelVersionChecker;
 
+    /**
+     * Runs the build, aspect and query commands of the workspace one at a time, in priority order, see
+     * {@link #runScheduled(BazelCommandPriority, String, String, WorkProgressMonitor, BazelCommandTask)}.
+     */
+    private final BazelCommandScheduler commandScheduler;
+
+    /**
+     * The directories, packages and targets of the workspace, for content assist.
+     */
+    private final BazelTargetCompletionIndex targetCompletionIndex;
+
     /**
      * These arguments are added to all "bazel build" commands that run for the purpose of building code. These may be
      * workspace specific.
      */
     private List<String> buildOptions = Collections.emptyList();
+
+    /**
+     * The build flags of all the Eclipse projects of the workspace, sorted, see {@link #setProjectBuildFlags(Collection)}.
+     */
+    private volatile List<String> projectBuildFlags = Collections.emptyList();
     
+    /**
+     * The output base the commands run with instead of the default one of the workspace, null to use the default one.
+     */
+    private BazelIdeOutputBase ideOutputBase;
+
     /**
      * This is to cache the last query and return the query result without actually computing it. This is required 
      * because computeUnresolvedPath tries to compute the bazel query multiple time
@@ -159,6 +195,29 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     private String query;
     private List<String> queryResults;
 
+    /**
+     * The results of {@link #getBazelTargetInfos(String, Collection, WorkProgressMonitor, String)}, by sorted target
+     * patterns. Flushed along with the aspect data.
+     */
+    private final Map<String, Map<String, BazelTargetInfo>> targetInfoCache = new ConcurrentHashMap<>();
+
+    /**
+     * Set once Bazel rejected 'query --output=streamed_proto', which the Bazel versions before that output do; the
+     * target infos then come from the aspect data right away.
+     */
+    private volatile boolean streamedProtoQueryUnsupported = false;
+
+    /**
+     * Incremented after every command that can change the files of the output directories, see
+     * {@link #getBuildGeneration()}.
+     */
+    private final AtomicLong buildGeneration = new AtomicLong();
+
+    /**
+     * How often a caller waiting on a scheduled command checks its progress monitor for cancellation.
+     */
+    private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
     
     
     // CTORS
@@ -176,6 +235,8 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
         this.bazelWorkspaceRootDirectory = null;
         this.aspectHelper = null;
         this.bazelQueryHelper = null;
+        this.commandScheduler = null;
+        this.targetCompletionIndex = null;
     }
     
     /**
@@ -194,6 +255,26 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
         this.aspectHelper = new BazelWorkspaceAspectHelper(this, aspectLocation, this.bazelCommandExecutor);
         this.bazelVersionChecker = new BazelVersionChecker(this.commandBuilder);
         this.bazelQueryHelper = new BazelQueryHelper(bazelCommandExecutor);
+        this.commandScheduler = new BazelCommandScheduler("Bazel commands [" + bazelWorkspaceRoot.getName() + "]");
+        this.targetCompletionIndex = new BazelTargetCompletionIndex(bazelWorkspaceRoot, commandScheduler,
+            (packagePath, monitor) -> bazelQueryHelper.listTargetsInPackage(bazelWorkspaceRoot, packagePath, monitor));
+    }
+
+    /**
+     * Stops the background threads of the runner, when its workspace is removed from the Eclipse workspace. The waiting
+     * commands are cancelled, a running command is left to finish.
+     */
+    public void close() {
+        if (commandScheduler != null) {
+            commandScheduler.shutdown();
+        }
+        if (targetCompletionIndex != null) {
+            targetCompletionIndex.close();
+        }
+        if (ideOutputBase != null) {
+            // the server of the default output base is the user's, the one of the dedicated output base is ours
+            runBazelShutdown();
+        }
     }
 
     
@@ -216,8 +297,8 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
                 ImmutableList.Builder<String> argBuilder = ImmutableList.builder();
                 argBuilder.add("info").add("execution_root");
                 
-                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null, 
-                    argBuilder.build(), (t) -> t);
+                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE,
+                    bazelWorkspaceRootDirectory, null, argBuilder.build(), (t) -> t, true);
                 outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
                 bazelExecRootDirectory = new File(String.join("", outputLines));
                 bazelExecRootDirectory = getCanonicalFileSafely(bazelExecRootDirectory);
@@ -237,27 +318,47 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     @Override
     public List<String> computeBazelQuery(String query) {
     	
-    	if (this.query !=null && this.query.equals(query) ) {
-    		return this.queryResults;
-    	}
-    	
+        synchronized (this) {
+            if (this.query != null && this.query.equals(query)) {
+                return this.queryResults;
+            }
+        }
+
         List<String> results = new ArrayList<>();
         try {
         	ImmutableList.Builder<String> argBuilder = ImmutableList.builder();
             argBuilder.add("query").add(query);
-            
-            results = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null, argBuilder.build(), (t) -> t);
+            List<String> args = argBuilder.build();
+
+            results = runScheduled(BazelCommandPriority.USER, "query " + query, null, null,
+                monitor -> bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE,
+                    bazelWorkspaceRootDirectory, monitor, args, (t) -> t, true));
 
         } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
             throw new IllegalStateException(e);
         }
         //update cached values
-        this.query = query;
-        this.queryResults = results;
+        synchronized (this) {
+            this.query = query;
+            this.queryResults = results;
+        }
         
         return results;
     }
 
+    /**
+     * Returns the structure of the rules matched by the target patterns, see
+     * {@link #getBazelTargetInfos(String, Collection, WorkProgressMonitor, String)}.
+     */
+    @Override
+    public Map<String, BazelTargetInfo> computeBazelTargetInfos(List<String> targetPatterns) {
+        try {
+            return getBazelTargetInfos(null, targetPatterns, null, "computeBazelTargetInfos");
+        } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Returns the output base of the current Bazel workspace.
      */
@@ -267,8 +368,8 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
                 ImmutableList.Builder<String> argBuilder = ImmutableList.builder();
                 argBuilder.add("info").add("output_base");
                 
-                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null, 
-                    argBuilder.build(), (t) -> t);
+                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE,
+                    bazelWorkspaceRootDirectory, null, argBuilder.build(), (t) -> t, true);
                 outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
                 bazelOutputBaseDirectory = new File(String.join("", outputLines));
                 bazelOutputBaseDirectory = getCanonicalFileSafely(bazelOutputBaseDirectory);
@@ -288,8 +389,8 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
                 ImmutableList.Builder<String> argBuilder = ImmutableList.builder();
                 argBuilder.add("info").add("bazel-bin");
                 
-                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null, 
-                    argBuilder.build(), (t) -> t);
+                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE,
+                    bazelWorkspaceRootDirectory, null, argBuilder.build(), (t) -> t, true);
                 outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
                 bazelBinDirectory = new File(String.join("", outputLines));
                 bazelBinDirectory = getCanonicalFileSafely(bazelBinDirectory);
@@ -324,6 +425,76 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     public void setBuildOptions(List<String> buildOptions) {
         this.buildOptions = buildOptions;
     }
+
+    /**
+     * Sets the build flags configured on the Eclipse projects of the workspace. The flags of all the projects are
+     * passed to every command that builds code, whichever projects it builds: Bazel discards its analysis cache when the
+     * options of a build differ from the ones of the previous build.
+     */
+    public void setProjectBuildFlags(Collection<String> projectBuildFlags) {
+        this.projectBuildFlags = ImmutableList.copyOf(new TreeSet<>(projectBuildFlags));
+    }
+
+    /**
+     * Returns the canonical options of the commands that build or analyze code in the workspace (builds, aspect builds,
+     * launches): the build options followed by the project build flags, and the build options of the dedicated output
+     * base if there is one. The commands add the options of their own that do not change the build configuration, so
+     * that the Bazel analysis cache is kept from one command to the next.
+     */
+    public List<String> getAnalysisOptions() {
+        ImmutableList.Builder<String> options = ImmutableList.<String> builder().addAll(this.buildOptions)
+                .addAll(this.projectBuildFlags);
+        BazelIdeOutputBase outputBase = this.ideOutputBase;
+        if (outputBase != null) {
+            options.addAll(outputBase.getBuildOptions());
+        }
+        return options.build();
+    }
+
+    /**
+     * Runs the commands of the workspace with a dedicated output base, so with a Bazel server of their own, see
+     * {@link BazelIdeOutputBase}. Null runs them with the default output base again.
+     * <p>
+     * The server of the previous dedicated output base is shut down. A previous dedicated output base that is not used
+     * anymore is deleted, it holds a copy of the outputs of the workspace. The execution root, output base and bazel-bin
+     * directories are computed again, as are the aspect data that point into the previous output base.
+     */
+    public synchronized void setIdeOutputBase(BazelIdeOutputBase ideOutputBase) {
+        if (Objects.equals(this.ideOutputBase, ideOutputBase)) {
+            return;
+        }
+        if (this.ideOutputBase != null) {
+            if (ideOutputBase == null
+                    || !ideOutputBase.getOutputBaseDirectory().equals(this.ideOutputBase.getOutputBaseDirectory())) {
+                runBazelExpunge();
+            } else {
+                runBazelShutdown();
+            }
+        }
+        LOG.info("Bazel commands of {} run with the output base {}", bazelWorkspaceRootDirectory,
+            ideOutputBase == null ? "of the workspace" : ideOutputBase);
+        this.ideOutputBase = ideOutputBase;
+        this.bazelCommandExecutor.setStartupOptions(
+            ideOutputBase == null ? Collections.emptyList() : ideOutputBase.getStartupOptions());
+        this.bazelExecRootDirectory = null;
+        this.bazelOutputBaseDirectory = null;
+        this.bazelBinDirectory = null;
+        if (this.aspectHelper != null) {
+            this.aspectHelper.flushAspectInfoCache();
+        }
+        incrementBuildGeneration();
+    }
+
+    public BazelIdeOutputBase getIdeOutputBase() {
+        return this.ideOutputBase;
+    }
+
+    /**
+     * The startup options of the commands, which come before the Bazel command.
+     */
+    public List<String> getStartupOptions() {
+        return this.bazelCommandExecutor.getStartupOptions();
+    }
     
     // GLOBAL CONFIG
     
@@ -362,9 +533,13 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      *            can be null
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized List<String> listBazelTargetsInBuildFiles(WorkProgressMonitor progressMonitor,
+    public List<String> listBazelTargetsInBuildFiles(WorkProgressMonitor progressMonitor,
             File... directories) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        return this.bazelQueryHelper.listBazelTargetsInBuildFiles(bazelWorkspaceRootDirectory, progressMonitor, directories);
+        List<String> targets = runScheduled(BazelCommandPriority.USER, "targets in " + Arrays.toString(directories),
+            null, progressMonitor, monitor -> this.bazelQueryHelper.listBazelTargetsInBuildFiles(
+                bazelWorkspaceRootDirectory, monitor, directories));
+        targetCompletionIndex.addLabels(targets);
+        return targets;
     }
     
     /**
@@ -373,6 +548,8 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * <p>
      * <b>WARNING:</b> this method was written for the original Bazel plugin for a search feature, but was not actually
      * used as far as we can tell. It may or may not work as advertised.
+     * <p>
+     * Runs with {@link BazelCommandPriority#INTERACTIVE} priority, and a new lookup makes a waiting one stale.
      *
      * @param userSearchString
      *            the partial target string entered by the user
@@ -381,11 +558,22 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      */
     public List<String> getMatchingTargets(String userSearchString, WorkProgressMonitor progressMonitor)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        return this.bazelQueryHelper.getMatchingTargets(this.bazelWorkspaceRootDirectory, userSearchString, progressMonitor);
+        return runScheduled(BazelCommandPriority.INTERACTIVE, "matching " + userSearchString, "target-completion",
+            progressMonitor, monitor -> this.bazelQueryHelper.getMatchingTargets(this.bazelWorkspaceRootDirectory,
+                userSearchString, monitor));
+    }
+
+    /**
+     * Returns the in memory index of the directories, packages and targets of the workspace, which answers content
+     * assist lookups without running Bazel. See {@link BazelTargetCompletionIndex}.
+     */
+    public BazelTargetCompletionIndex getTargetCompletionIndex() {
+        return this.targetCompletionIndex;
     }
     
     /**
-     * Run a bazel build on a list of targets in the current workspace.
+     * Run a bazel build on a list of targets in the current workspace, with {@link BazelCommandPriority#USER}
+     * priority.
      *
      * @return a List of error details, this list is empty if the build was successful
      *
@@ -393,14 +581,33 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * @throws IOException
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized List<BazelMarkerDetails> runBazelBuild(List<String> bazelTargets,
+    public List<BazelMarkerDetails> runBazelBuild(List<String> bazelTargets,
             WorkProgressMonitor progressMonitor, List<String> extraArgs)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        List<String> extraArgsList = ImmutableList.<String> builder().add("build").addAll(this.buildOptions)
+        return runBazelBuild(bazelTargets, progressMonitor, extraArgs, BazelCommandPriority.USER);
+    }
+
+    /**
+     * Run a bazel build on a list of targets in the current workspace. An identical build that is already waiting to
+     * run is shared rather than run twice.
+     *
+     * @return a List of error details, this list is empty if the build was successful
+     */
+    public List<BazelMarkerDetails> runBazelBuild(List<String> bazelTargets,
+            WorkProgressMonitor progressMonitor, List<String> extraArgs, BazelCommandPriority priority)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        List<String> extraArgsList = ImmutableList.<String> builder().add("build").addAll(getAnalysisOptions())
                 .addAll(extraArgs).add("--").addAll(bazelTargets).build();
 
-        List<String> output = this.bazelCommandExecutor.runBazelAndGetErrorLines(bazelWorkspaceRootDirectory, progressMonitor,
-            extraArgsList, new ErrorOutputSelector());
+        List<String> output = runScheduled(priority, String.join(" ", extraArgsList), null, progressMonitor,
+            monitor -> {
+                try {
+                    return this.bazelCommandExecutor.runBazelAndGetErrorLines(bazelWorkspaceRootDirectory, monitor,
+                        extraArgsList, new ErrorOutputSelector());
+                } finally {
+                    incrementBuildGeneration();
+                }
+            });
         if (output.isEmpty()) {
             return Collections.emptyList();
         } else {
@@ -424,14 +631,86 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * <p>
      * TODO it would be worthwhile to evaluate whether Aspects are the best way to get build info, as we could otherwise
      * use Bazel Query here as well.
+     * <p>
+     * The aspect builds run with {@link BazelCommandPriority#BACKGROUND} priority. The requests of several projects
+     * that wait at the same time are merged into a single Bazel invocation.
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized Map<String, AspectPackageInfo> getAspectPackageInfos(String eclipseProjectName,
+    public Map<String, AspectPackageInfo> getAspectPackageInfos(String eclipseProjectName,
             Collection<String> targets, WorkProgressMonitor progressMonitor, String caller)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        return this.aspectHelper.getAspectPackageInfos(eclipseProjectName, targets, progressMonitor, caller);
+        Map<String, AspectPackageInfo> aspectPackageInfos;
+        if (commandScheduler == null || commandScheduler.isSchedulerThread() || aspectHelper.isCached(targets)) {
+            aspectPackageInfos =
+                    this.aspectHelper.getAspectPackageInfos(eclipseProjectName, targets, progressMonitor, caller);
+        } else {
+            CompletableFuture<Map<String, AspectPackageInfo>> future = commandScheduler.submitMergeable(
+                BazelCommandPriority.BACKGROUND, "aspects", targets, aspectHelper::prefetchAspectPackageInfos,
+                progressMonitor,
+                monitor -> this.aspectHelper.getAspectPackageInfos(eclipseProjectName, targets, monitor, caller));
+            aspectPackageInfos = await(future, progressMonitor, "aspects " + targets);
+        }
+        targetCompletionIndex.addLabels(aspectPackageInfos.keySet());
+        return aspectPackageInfos;
+    }
+
+    /**
+     * Returns the label, kind, sources and dependencies of the rules matched by the target patterns, keyed by label.
+     * This is what launching and test discovery need, and unlike {@link #getAspectPackageInfos(String, Collection,
+     * WorkProgressMonitor, String)} it builds nothing: a single 'bazel query' whose proto output is decoded while it is
+     * written. If the query fails, the structure is taken from the aspect data instead. Once a Bazel version without
+     * --output=streamed_proto rejected the query, this runner goes to the aspect data right away.
+     * <p>
+     * This method caches its results until {@link #flushAspectInfoCache()} is called.
+     *
+     * @param eclipseProjectName
+     *            the project the aspect data is computed for if the query fails, can be null
+     */
+    public Map<String, BazelTargetInfo> getBazelTargetInfos(String eclipseProjectName,
+            Collection<String> targetPatterns, WorkProgressMonitor progressMonitor, String caller)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        String cacheKey = String.join(" ", new TreeSet<>(targetPatterns));
+        Map<String, BazelTargetInfo> targetInfos = this.targetInfoCache.get(cacheKey);
+        if (targetInfos != null) {
+            return targetInfos;
+        }
+        return runScheduled(BazelCommandPriority.USER, "target infos " + cacheKey, null, progressMonitor,
+            monitor -> queryTargetInfos(eclipseProjectName, targetPatterns, cacheKey, monitor, caller));
+    }
+
+    private Map<String, BazelTargetInfo> queryTargetInfos(String eclipseProjectName,
+            Collection<String> targetPatterns, String cacheKey, WorkProgressMonitor progressMonitor, String caller)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        Map<String, BazelTargetInfo> targetInfos = null;
+        if (!this.streamedProtoQueryUnsupported) {
+            try {
+                targetInfos = this.bazelQueryHelper.queryTargetInfos(this.bazelWorkspaceRootDirectory, targetPatterns,
+                    progressMonitor);
+                if (targetInfos == null) {
+                    LOG.info("{}: Bazel does not support the proto query output, the build info aspect is used instead",
+                        caller);
+                    this.streamedProtoQueryUnsupported = true;
+                } else {
+                    LOG.debug("{}: queried {} rule(s) of {}", caller, targetInfos.size(), targetPatterns);
+                }
+            } catch (IOException e) {
+                LOG.warn("{}: the query of {} failed, the build info aspect is used instead: {}", caller,
+                    targetPatterns, e.getMessage());
+            }
+        }
+        if (targetInfos == null) {
+            targetInfos = new LinkedHashMap<>();
+            for (AspectPackageInfo aspectPackageInfo : getAspectPackageInfos(eclipseProjectName, targetPatterns,
+                progressMonitor, caller).values()) {
+                targetInfos.put(aspectPackageInfo.getLabel(), BazelTargetInfo.fromAspectPackageInfo(aspectPackageInfo));
+            }
+        }
+        targetInfos = Collections.unmodifiableMap(targetInfos);
+        targetCompletionIndex.addLabels(targetInfos.keySet());
+        this.targetInfoCache.put(cacheKey, targetInfos);
+        return targetInfos;
     }
 
     /**
@@ -439,6 +718,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      */
     public synchronized void flushAspectInfoCache() {
         this.aspectHelper.flushAspectInfoCache();
+        this.targetInfoCache.clear();
     }
 
     /**
@@ -446,8 +726,17 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      */
     public synchronized void flushAspectInfoCache(List<String> targets) {
         this.aspectHelper.flushAspectInfoCache(targets);
+        // the query results are keyed by pattern, a pattern can match one of the targets without naming it
+        this.targetInfoCache.clear();
     }
     
+    /**
+     * Access to the command scheduler. Visible for tests.
+     */
+    BazelCommandScheduler getCommandScheduler() {
+        return this.commandScheduler;
+    }
+
     /**
      * Access to the low level aspect collaborator. Visible for tests.
      */
@@ -493,8 +782,54 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
                 argBuilder.build(), (t) -> t);
         } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
             e.printStackTrace();
+        } finally {
+            incrementBuildGeneration();
+        }
+    }
+
+    /**
+     * Shuts down the Bazel server the commands of the workspace run with.
+     */
+    public void runBazelShutdown() {
+        try {
+            bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE, bazelWorkspaceRootDirectory, null,
+                ImmutableList.of("shutdown"), (t) -> t, true);
+        } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
+            LOG.warn("Could not shut down the Bazel server of {}: {}", bazelWorkspaceRootDirectory, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the output base the commands of the workspace run with, and shuts down its Bazel server. The output base
+     * is moved away and deleted in the background, so this does not wait for the deletion.
+     */
+    public void runBazelExpunge() {
+        try {
+            bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE, bazelWorkspaceRootDirectory, null,
+                ImmutableList.of("clean", "--expunge_async"), (t) -> t, true);
+        } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
+            LOG.warn("Could not delete the output base of {}: {}", bazelWorkspaceRootDirectory, e.getMessage());
+        } finally {
+            incrementBuildGeneration();
         }
     }
+
+    /**
+     * Returns the build generation of the workspace. It is incremented after every command that can change the files
+     * of the output directories (builds, including the aspect builds, and cleans), so caches of the state of those
+     * files are valid for as long as the generation does not change.
+     */
+    public long getBuildGeneration() {
+        return buildGeneration.get();
+    }
+
+    /**
+     * Starts a new build generation. Called by the runner after its build commands, and by the collaborators that
+     * build outside of the runner.
+     */
+    public void incrementBuildGeneration() {
+        buildGeneration.incrementAndGet();
+    }
         
     /**
      * Checks the version of the bazel binary configured at the path specified in the Preferences.
@@ -508,6 +843,71 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
 
     // HELPERS
     
+    /**
+     * Runs the task on the command scheduler of the workspace and waits for its result. The build, aspect and query
+     * commands of the workspace run one at a time on the scheduler, higher priority first, so a content assist query
+     * does not wait behind the aspect builds of an import. A task submitted from a running task runs right away, it
+     * would wait for itself otherwise.
+     */
+    private <T> T runScheduled(BazelCommandPriority priority, String dedupeKey, String supersedeKey,
+            WorkProgressMonitor progressMonitor, BazelCommandTask<T> task)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        if (commandScheduler == null || commandScheduler.isSchedulerThread()) {
+            try {
+                return task.run(progressMonitor);
+            } catch (Exception e) {
+                throw rethrow(e);
+            }
+        }
+        return await(commandScheduler.submit(priority, dedupeKey, supersedeKey, progressMonitor, task),
+            progressMonitor, dedupeKey);
+    }
+
+    /**
+     * Waits for a scheduled command. Cancelling the progress monitor cancels the command, unless another caller waits
+     * on it too.
+     */
+    private static <T> T await(CompletableFuture<T> future, WorkProgressMonitor progressMonitor, String description)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        while (true) {
+            try {
+                return future.get(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (progressMonitor != null && progressMonitor.isCanceled()) {
+                    future.cancel(false);
+                    throw new BazelCommandCancelledException(description);
+                }
+            } catch (CancellationException e) {
+                throw new BazelCommandCancelledException(description);
+            } catch (InterruptedException e) {
+                future.cancel(false);
+                throw e;
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof InterruptedException) {
+            throw (InterruptedException) e;
+        }
+        if (e instanceof BazelCommandLineToolConfigurationException) {
+            throw (BazelCommandLineToolConfigurationException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e);
+    }
+
 
     private static class ErrorOutputSelector implements Function<String, String> {
 
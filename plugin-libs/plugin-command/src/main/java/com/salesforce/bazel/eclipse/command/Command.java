@@ -57,6 +57,12 @@ public interface Command {
      */
     ImmutableList<String> getSelectedOutputLines();
 
+    /**
+     * Returns how many bytes the executed command wrote to its standard output and standard error streams, whether
+     * they were selected, written to a stream of the caller or to a console.
+     */
+    long getOutputBytes();
+
     /**
      * Returns a BazelProcessBuilder configured to run this Command instance.
      */
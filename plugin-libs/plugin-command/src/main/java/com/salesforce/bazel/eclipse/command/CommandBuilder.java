@@ -44,7 +44,8 @@ import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
  * <p>
  * As currently implemented, this class is not thread-safe. Meaning a single builder is stateful and
  * can only build one command object at a time. Invoking build() clears the state and makes the builder
- * ready for the next command to build.
+ * ready for the next command to build. Each workspace command runner gets its own builder, see
+ * {@link #newInstance()}.
  */
 public abstract class CommandBuilder {
 
@@ -81,6 +82,12 @@ public abstract class CommandBuilder {
         this.timeoutMS = 100000; // default timeout
     }
 
+    /**
+     * Returns a builder of the same kind, for another workspace command runner. A builder is stateful, so runners that
+     * build commands at the same time cannot share one.
+     */
+    public abstract CommandBuilder newInstance();
+
     /**
      * Set the console name.
      *
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+
+/**
+ * Watches the options of the commands that build or analyze code, to report the commands that make the Bazel server
+ * discard its analysis cache.
+ * <p>
+ * Bazel keeps the analysis of the previous command in memory, and reuses it as long as the options that make up the
+ * build configuration stay the same. A command run with other configuration options (another --define, --copt...)
+ * throws the whole analysis away, and the next command with the original options analyzes everything again. The
+ * plugin runs its builds and its aspect builds with one canonical set of options (see
+ * BazelWorkspaceCommandRunner#getAnalysisOptions), this tracker reports the commands that still differ.
+ * <p>
+ * There is one tracker per command runner, so per Bazel server. The options that don't change the configuration
+ * (--aspects, --output_groups, -k, the test and UI options...) are ignored. Option values passed as a separate
+ * argument (--define a=b instead of --define=a=b) are not compared.
+ */
+public class BazelAnalysisOptionsTracker {
+    static final LogHelper LOG = LogHelper.log(BazelAnalysisOptionsTracker.class);
+
+    static final String DISCARDS_METRIC_NAME = "bazel.analysis.cache.discards";
+
+    /**
+     * The commands that analyze the targets with the build configuration.
+     */
+    private static final Set<String> ANALYSIS_VERBS = ImmutableSet.of("build", "test", "run", "coverage");
+
+    /**
+     * The options that don't change the build configuration, the value of a boolean option also matches its "no" form.
+     */
+    private static final Set<String> NON_ANALYSIS_OPTIONS = ImmutableSet.of("aspects", "output_groups", "k",
+        "keep_going", "experimental_show_artifacts", "override_repository", "profile", "build_event_json_file",
+        "build_event_text_file", "build_event_binary_file", "jobs", "j", "verbose_failures", "color", "curses",
+        "show_progress", "show_progress_rate_limit", "announce_rc", "tool_tag", "disk_cache", "symlink_prefix", "check_up_to_date",
+        "test_output", "test_filter", "test_strategy", "test_timeout", "cache_test_results", "runs_per_test",
+        "flaky_test_attempts", "test_sharding_strategy", "local_test_jobs", "test_arg", "test_summary");
+
+    private List<String> previousAnalysisOptions;
+    private String previousCommand;
+
+    /**
+     * Records the options of a command that is about to run, and reports it if it discards the analysis cache of the
+     * previous command that analyzed code.
+     *
+     * @return true if the command discards the analysis cache
+     */
+    public synchronized boolean recordCommand(List<String> args) {
+        String verb = BazelCommandExecutor.getBazelVerb(args);
+        if (!ANALYSIS_VERBS.contains(verb)) {
+            return false;
+        }
+        List<String> analysisOptions = getAnalysisOptions(args);
+        List<String> previousOptions = previousAnalysisOptions;
+        String previousVerb = previousCommand;
+        previousAnalysisOptions = analysisOptions;
+        previousCommand = verb;
+        if (previousOptions == null || previousOptions.equals(analysisOptions)) {
+            return false;
+        }
+        List<String> addedOptions = new ArrayList<>(analysisOptions);
+        addedOptions.removeAll(previousOptions);
+        List<String> removedOptions = new ArrayList<>(previousOptions);
+        removedOptions.removeAll(analysisOptions);
+        LOG.warn("'bazel {}' runs with other options than the previous 'bazel {}', Bazel discards its analysis cache "
+                + "(added: {}, removed: {})", verb, previousVerb, addedOptions, removedOptions);
+        MetricsRegistry.getInstance().counter(DISCARDS_METRIC_NAME).inc();
+        return true;
+    }
+
+    /**
+     * Returns the options of the command that change the build configuration, sorted: the options that come after the
+     * Bazel command and before the targets.
+     */
+    static List<String> getAnalysisOptions(List<String> args) {
+        String verb = BazelCommandExecutor.getBazelVerb(args);
+        int verbIndex = args.indexOf(verb);
+        if (verbIndex < 0) {
+            return Collections.emptyList();
+        }
+        List<String> analysisOptions = new ArrayList<>();
+        for (String arg : args.subList(verbIndex + 1, args.size())) {
+            if (arg.equals("--")) {
+                // the targets follow
+                break;
+            }
+            if (arg.startsWith("-") && affectsAnalysis(getOptionName(arg))) {
+                analysisOptions.add(arg);
+            }
+        }
+        Collections.sort(analysisOptions);
+        return analysisOptions;
+    }
+
+    // INTERNAL
+
+    private static String getOptionName(String option) {
+        String name = option.startsWith("--") ? option.substring(2) : option.substring(1);
+        int valueIndex = name.indexOf('=');
+        return valueIndex < 0 ? name : name.substring(0, valueIndex);
+    }
+
+    private static boolean affectsAnalysis(String optionName) {
+        if (NON_ANALYSIS_OPTIONS.contains(optionName)) {
+            return false;
+        }
+        return !(optionName.startsWith("no") && NON_ANALYSIS_OPTIONS.contains(optionName.substring(2)));
+    }
+}
@@ -38,74 +38,144 @@ package com.salesforce.bazel.eclipse.command.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.Command;
 import com.salesforce.bazel.eclipse.command.CommandBuilder;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.Timer;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 
 /**
  * Utility class that understands how to run Command objects and collect output from them.
+ * <p>
+ * Commands can be run from several threads. Only building a command from the shared {@link CommandBuilder} is
+ * serialized, the commands themselves run concurrently; the order of the commands of a workspace is decided by its
+ * {@link BazelCommandScheduler}.
  */
 public class BazelCommandExecutor {
+    /**
+     * The Bazel commands that are run with --profile while a trace is recorded.
+     */
+    private static final Set<String> PROFILED_VERBS =
+            ImmutableSet.of("build", "test", "run", "coverage", "query", "cquery", "aquery");
+
     private final File bazelExecutable;
     private final CommandBuilder commandBuilder;
+    private final BazelAnalysisOptionsTracker analysisOptionsTracker = new BazelAnalysisOptionsTracker();
+
+    /**
+     * Passed to Bazel before the arguments of every command, such as --output_base.
+     */
+    private volatile List<String> startupOptions = Collections.emptyList();
 
     public BazelCommandExecutor(File bazelExecutable, CommandBuilder commandBuilder) {
         this.bazelExecutable = bazelExecutable;
         this.commandBuilder = commandBuilder;
     }
 
+    /**
+     * Sets the startup options of the commands run from now on. A command run with other startup options than the
+     * previous one talks to another Bazel server, or restarts the server.
+     */
+    public void setStartupOptions(List<String> startupOptions) {
+        this.startupOptions = ImmutableList.copyOf(startupOptions);
+    }
+
+    public List<String> getStartupOptions() {
+        return this.startupOptions;
+    }
+
     // WHEN INTERESTING OUTPUT IS ON STDOUT...
 
-    public synchronized List<String> runBazelAndGetOutputLines(File workingDirectory, WorkProgressMonitor progressMonitor,
+    public List<String> runBazelAndGetOutputLines(File workingDirectory, WorkProgressMonitor progressMonitor,
             List<String> args, Function<String, String> selector) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        CommandBuilder builder = getConfiguredCommandBuilder(ConsoleType.WORKSPACE, workingDirectory, progressMonitor, args);
-        Command command = builder.setStdoutLineSelector(selector).build();
-        command.run();
-
-        return command.getSelectedOutputLines();
+        return runBazelAndGetOutputLines(ConsoleType.WORKSPACE, workingDirectory, progressMonitor, args, selector, true);
     }
 
-
-    public synchronized List<String> runBazelAndGetOuputLines(ConsoleType consoleType, File workingDirectory,
-            WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector)
+    /**
+     * Runs the command and returns the lines of its standard output picked by the selector. Commands whose output is
+     * only consumed by the plugin (info, query...) should use {@link ConsoleType#NO_CONSOLE}, so their output is not
+     * rendered in a console.
+     *
+     * @param returnOutputOnFailure
+     *            true to return the selected lines even if the command fails, false to return no lines then
+     */
+    public List<String> runBazelAndGetOutputLines(ConsoleType consoleType, File workingDirectory,
+            WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector,
+            boolean returnOutputOnFailure)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        
-        CommandBuilder builder = getConfiguredCommandBuilder(consoleType, workingDirectory, progressMonitor, args);
-        Command command = builder.setStdoutLineSelector(selector).build();
 
-        if (command.run() == 0) {
+        args = withProfileOption(args);
+        Command command;
+        synchronized (commandBuilder) {
+            CommandBuilder builder = getConfiguredCommandBuilder(consoleType, workingDirectory, progressMonitor, args);
+            command = builder.setStdoutLineSelector(selector).build();
+        }
+
+        if (runCommand(command, args) == 0 || returnOutputOnFailure) {
             return command.getSelectedOutputLines();
         }
         return ImmutableList.of();
     }
 
+    /**
+     * Writes the standard output of the command to the passed stream as it comes, without splitting it into lines or
+     * keeping it in memory. Meant for large or binary outputs, such as 'query --output=streamed_proto'. Returns the
+     * exit code of the command.
+     */
+    public int runBazelAndStreamOutput(ConsoleType consoleType, File workingDirectory,
+            WorkProgressMonitor progressMonitor, List<String> args, OutputStream stdout)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+
+        args = withProfileOption(args);
+        Command command;
+        synchronized (commandBuilder) {
+            CommandBuilder builder = getConfiguredCommandBuilder(consoleType, workingDirectory, progressMonitor, args);
+            command = builder.setStandardOutput(stdout).build();
+        }
+        return runCommand(command, args);
+    }
+
     // WHEN INTERESTING OUTPUT IS ON STDERR...
     
-    public synchronized List<String> runBazelAndGetErrorLines(File directory, WorkProgressMonitor progressMonitor,
+    public List<String> runBazelAndGetErrorLines(File directory, WorkProgressMonitor progressMonitor,
             List<String> args, Function<String, String> selector)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         
-        CommandBuilder builder = getConfiguredCommandBuilder(ConsoleType.WORKSPACE, directory, progressMonitor, args);
-        Command command = builder.setStderrLineSelector(selector).build();
-        command.run();
+        args = withProfileOption(args);
+        Command command;
+        synchronized (commandBuilder) {
+            CommandBuilder builder =
+                    getConfiguredCommandBuilder(ConsoleType.WORKSPACE, directory, progressMonitor, args);
+            command = builder.setStderrLineSelector(selector).build();
+        }
+        runCommand(command, args);
 
         return command.getSelectedErrorLines();
     }
 
-    public synchronized List<String> runBazelAndGetErrorLines(ConsoleType consoleType, File directory,
+    public List<String> runBazelAndGetErrorLines(ConsoleType consoleType, File directory,
             WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
        
-        CommandBuilder builder = getConfiguredCommandBuilder(consoleType, directory, progressMonitor, args);
-        Command command = builder.setStderrLineSelector(selector).build();
-        if (command.run() == 0) {
+        args = withProfileOption(args);
+        Command command;
+        synchronized (commandBuilder) {
+            CommandBuilder builder = getConfiguredCommandBuilder(consoleType, directory, progressMonitor, args);
+            command = builder.setStderrLineSelector(selector).build();
+        }
+        if (runCommand(command, args) == 0) {
             return command.getSelectedErrorLines();
         }
         
@@ -130,8 +200,77 @@ public class BazelCommandExecutor {
     }
     
     
+    /**
+     * Returns the Bazel command (build, query, info...) of the passed arguments, which is the first argument that is
+     * not a startup option.
+     */
+    static String getBazelVerb(List<String> args) {
+        for (String arg : args) {
+            if (!arg.startsWith("-")) {
+                return arg;
+            }
+        }
+        return "unknown";
+    }
+    
+    
     // INTERNAL
     
+    /**
+     * While a trace is recorded, the Bazel commands that support it are run with --profile, so that the Bazel profile
+     * can be merged into the trace.
+     */
+    private static List<String> withProfileOption(List<String> args) {
+        String verb = getBazelVerb(args);
+        if (!PROFILED_VERBS.contains(verb) || getProfileFile(args) != null) {
+            return args;
+        }
+        File profile = TraceRecorder.getInstance().newBazelProfileFile(verb);
+        if (profile == null) {
+            return args;
+        }
+        List<String> profiledArgs = new ArrayList<>(args);
+        profiledArgs.add(args.indexOf(verb) + 1, "--profile=" + profile.getAbsolutePath());
+        return profiledArgs;
+    }
+
+    private static String getProfileFile(List<String> args) {
+        for (String arg : args) {
+            if (arg.startsWith("--profile=")) {
+                return arg.substring("--profile=".length());
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Runs the command, recording its duration and the size of its output in the metrics registry. A command
+     * that makes Bazel discard its analysis cache is reported, see {@link BazelAnalysisOptionsTracker}.
+     */
+    private int runCommand(Command command, List<String> args) throws IOException, InterruptedException {
+        String metricName = "bazel.command." + getBazelVerb(args);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        analysisOptionsTracker.recordCommand(args);
+        int exitCode = -1;
+        Timer.Context timing = metrics.timer(metricName).time();
+        TraceRecorder.Span span = TraceRecorder.getInstance().span("bazel " + getBazelVerb(args), "bazel");
+        try {
+            String profile = getProfileFile(args);
+            if (profile != null) {
+                span.arg(TraceRecorder.BAZEL_PROFILE_ARG, profile);
+            }
+            exitCode = command.run();
+        } finally {
+            span.close();
+            timing.close();
+            if (exitCode != 0) {
+                metrics.counter(metricName + ".failures").inc();
+            }
+        }
+        metrics.histogram(metricName + ".outputBytes").update(command.getOutputBytes());
+        return exitCode;
+    }
+    
     private CommandBuilder getConfiguredCommandBuilder(ConsoleType type, File directory,
             WorkProgressMonitor progressMonitor, List<String> args) throws BazelCommandLineToolConfigurationException {
         
@@ -141,6 +280,7 @@ public class BazelCommandExecutor {
                 .setConsoleName(consoleName)
                 .setDirectory(directory)
                 .addArguments(this.bazelExecutable.getAbsolutePath())
+                .addArguments(this.startupOptions)
                 .addArguments(args)
                 .setProgressMonitor(progressMonitor);
     }
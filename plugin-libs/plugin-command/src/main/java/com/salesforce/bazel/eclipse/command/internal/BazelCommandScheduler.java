@@ -0,0 +1,418 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.BazelCommandCancelledException;
+import com.salesforce.bazel.eclipse.command.BazelCommandPriority;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Runs Bazel commands for a workspace one at a time, in priority order, on a dedicated thread. The builds, aspect
+ * builds and queries of a {@link com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner} are submitted here,
+ * and the caller waits for the result, so the order of the commands is decided by their priority rather than by which
+ * thread got to Bazel first.
+ * <p>
+ * Waiting commands are optimized before they run:
+ * <ul>
+ * <li>Deduplication: a command with the same key as a waiting command is not queued again, the caller shares the
+ * result of the waiting command.</li>
+ * <li>Merging: commands that operate on sets of items (e.g. the targets to compute aspects for) and have the same merge
+ * key are folded into one waiting command, which runs a single batch operation for the union of the items before
+ * answering each of the callers.</li>
+ * <li>Superseding: a command with a supersede key replaces any waiting command with the same supersede key, as the
+ * result of the older command is stale (e.g. content assist for a prefix the user has since typed past).</li>
+ * </ul>
+ * When an {@link BazelCommandPriority#INTERACTIVE} command is submitted while a
+ * {@link BazelCommandPriority#BACKGROUND} command is running, the running command's progress monitor reports it as
+ * cancelled. If the command gives up with a {@link BazelCommandCancelledException} (or a {@link CancellationException})
+ * it is put back in the queue and runs again after the interactive work is done.
+ */
+public class BazelCommandScheduler {
+    static final LogHelper LOG = LogHelper.log(BazelCommandScheduler.class);
+
+    /**
+     * A unit of work that runs a Bazel command.
+     */
+    @FunctionalInterface
+    public interface BazelCommandTask<T> {
+        T run(WorkProgressMonitor progressMonitor) throws Exception;
+    }
+
+    /**
+     * A batch operation that runs once for the union of the items of merged commands.
+     */
+    @FunctionalInterface
+    public interface BazelCommandBatchTask {
+        void run(Collection<String> items, WorkProgressMonitor progressMonitor) throws Exception;
+    }
+
+    private final String name;
+    private final PriorityQueue<ScheduledCommand> queue = new PriorityQueue<>();
+    private final Map<String, ScheduledCommand> waitingByDedupeKey = new HashMap<>();
+    private final Map<String, ScheduledCommand> waitingByMergeKey = new HashMap<>();
+    private final Map<String, ScheduledCommand> waitingBySupersedeKey = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ScheduledCommand runningCommand;
+    private Thread worker;
+    private boolean shutdown;
+
+    public BazelCommandScheduler(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Queues a command.
+     *
+     * @param dedupeKey
+     *            identifies identical commands, can be null
+     * @param supersedeKey
+     *            identifies commands that make each other stale, can be null
+     */
+    public synchronized <T> CompletableFuture<T> submit(BazelCommandPriority priority, String dedupeKey,
+            String supersedeKey, WorkProgressMonitor progressMonitor, BazelCommandTask<T> task) {
+        if (dedupeKey != null) {
+            ScheduledCommand waiting = waitingByDedupeKey.get(dedupeKey);
+            if (waiting != null && !waiting.isCancelled()) {
+                waiting.raisePriority(this, priority);
+                @SuppressWarnings("unchecked")
+                CompletableFuture<T> future = (CompletableFuture<T>) waiting.requests.get(0).future;
+                return future;
+            }
+        }
+        if (supersedeKey != null) {
+            ScheduledCommand stale = waitingBySupersedeKey.remove(supersedeKey);
+            if (stale != null) {
+                LOG.debug("Dropping stale Bazel command {}", stale.description());
+                dequeue(stale);
+                stale.cancel();
+            }
+        }
+        ScheduledCommand command = new ScheduledCommand(priority, sequence.incrementAndGet(), dedupeKey, supersedeKey, null, null);
+        Request<T> request = command.addRequest(task, progressMonitor);
+        enqueue(command);
+        return request.future;
+    }
+
+    /**
+     * Queues a command that can be merged with other waiting commands that have the same merge key. The batch task runs
+     * once for the union of the items of all merged commands, then each task runs to produce its caller's result.
+     */
+    public synchronized <T> CompletableFuture<T> submitMergeable(BazelCommandPriority priority, String mergeKey,
+            Collection<String> items, BazelCommandBatchTask batchTask, WorkProgressMonitor progressMonitor,
+            BazelCommandTask<T> task) {
+        ScheduledCommand command = waitingByMergeKey.get(mergeKey);
+        if (command == null || command.isCancelled()) {
+            command = new ScheduledCommand(priority, sequence.incrementAndGet(), null, null, mergeKey, batchTask);
+            enqueue(command);
+        } else {
+            command.raisePriority(this, priority);
+        }
+        command.mergeItems.addAll(items);
+        return command.addRequest(task, progressMonitor).future;
+    }
+
+    /**
+     * Cancels the waiting commands, and the commands submitted from now on. The running command, if any, is left to
+     * finish, then the worker thread ends. Used when the workspace of the scheduler is closed.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (ScheduledCommand command : new ArrayList<>(queue)) {
+            dequeue(command);
+            command.cancel();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns true if the current thread is the one running the commands. A command that needs another command runs it
+     * directly, it would wait for itself otherwise.
+     */
+    public synchronized boolean isSchedulerThread() {
+        return worker == Thread.currentThread();
+    }
+
+    /**
+     * Returns the number of commands waiting to run.
+     */
+    public synchronized int getWaitingCount() {
+        return queue.size();
+    }
+
+    // INTERNAL
+
+    private void enqueue(ScheduledCommand command) {
+        if (shutdown) {
+            command.cancel();
+            return;
+        }
+        queue.add(command);
+        if (command.dedupeKey != null) {
+            waitingByDedupeKey.put(command.dedupeKey, command);
+        }
+        if (command.mergeKey != null) {
+            waitingByMergeKey.put(command.mergeKey, command);
+        }
+        if (command.supersedeKey != null) {
+            waitingBySupersedeKey.put(command.supersedeKey, command);
+        }
+        if (runningCommand != null && command.priority == BazelCommandPriority.INTERACTIVE
+                && runningCommand.priority == BazelCommandPriority.BACKGROUND) {
+            LOG.info("Asking background Bazel command {} to yield to an interactive command", runningCommand.description());
+            runningCommand.preempted = true;
+        }
+        if (worker == null) {
+            worker = new Thread(this::runCommands, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        notifyAll();
+    }
+
+    private void dequeue(ScheduledCommand command) {
+        queue.remove(command);
+        if (command.dedupeKey != null) {
+            waitingByDedupeKey.remove(command.dedupeKey, command);
+        }
+        if (command.mergeKey != null) {
+            waitingByMergeKey.remove(command.mergeKey, command);
+        }
+        if (command.supersedeKey != null) {
+            waitingBySupersedeKey.remove(command.supersedeKey, command);
+        }
+    }
+
+    private void runCommands() {
+        while (true) {
+            ScheduledCommand command;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    if (shutdown) {
+                        worker = null;
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        worker = null;
+                        return;
+                    }
+                }
+                command = queue.peek();
+                dequeue(command);
+                runningCommand = command;
+            }
+            boolean requeue = false;
+            try {
+                requeue = command.run();
+            } finally {
+                synchronized (this) {
+                    runningCommand = null;
+                    if (requeue) {
+                        command.preempted = false;
+                        enqueue(command);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A caller waiting on a command.
+     */
+    private static final class Request<T> {
+        final BazelCommandTask<T> task;
+        final WorkProgressMonitor progressMonitor;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Request(BazelCommandTask<T> task, WorkProgressMonitor progressMonitor) {
+            this.task = task;
+            this.progressMonitor = progressMonitor != null ? progressMonitor : WorkProgressMonitor.NOOP;
+        }
+
+        void run(WorkProgressMonitor monitor) throws Exception {
+            future.complete(task.run(monitor));
+        }
+    }
+
+    private static final class ScheduledCommand implements Comparable<ScheduledCommand> {
+        BazelCommandPriority priority;
+        final long sequence;
+        final String dedupeKey;
+        final String supersedeKey;
+        final String mergeKey;
+        final BazelCommandBatchTask batchTask;
+        final Set<String> mergeItems = new LinkedHashSet<>();
+        final List<Request<?>> requests = new ArrayList<>();
+        volatile boolean preempted;
+
+        ScheduledCommand(BazelCommandPriority priority, long sequence, String dedupeKey, String supersedeKey,
+                String mergeKey, BazelCommandBatchTask batchTask) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.dedupeKey = dedupeKey;
+            this.supersedeKey = supersedeKey;
+            this.mergeKey = mergeKey;
+            this.batchTask = batchTask;
+        }
+
+        <T> Request<T> addRequest(BazelCommandTask<T> task, WorkProgressMonitor progressMonitor) {
+            Request<T> request = new Request<>(task, progressMonitor);
+            synchronized (requests) {
+                requests.add(request);
+            }
+            return request;
+        }
+
+        void raisePriority(BazelCommandScheduler scheduler, BazelCommandPriority newPriority) {
+            if (newPriority.ordinal() < priority.ordinal()) {
+                // re-insert, the queue does not reorder elements in place
+                scheduler.queue.remove(this);
+                priority = newPriority;
+                scheduler.queue.add(this);
+            }
+        }
+
+        boolean isCancelled() {
+            synchronized (requests) {
+                return requests.stream().allMatch(r -> r.future.isDone());
+            }
+        }
+
+        void cancel() {
+            synchronized (requests) {
+                requests.forEach(r -> r.future.cancel(false));
+            }
+        }
+
+        String description() {
+            return dedupeKey != null ? dedupeKey : mergeKey != null ? mergeKey + mergeItems : supersedeKey;
+        }
+
+        /**
+         * Runs the command, and returns true if it yielded to a higher priority command and needs to run again.
+         */
+        boolean run() {
+            List<Request<?>> toRun;
+            synchronized (requests) {
+                toRun = new ArrayList<>(requests);
+            }
+            if (isCancelled()) {
+                return false;
+            }
+            WorkProgressMonitor monitor = new SchedulerProgressMonitor(this, toRun.get(0).progressMonitor);
+            try {
+                if (batchTask != null) {
+                    batchTask.run(new ArrayList<>(mergeItems), monitor);
+                }
+                for (Request<?> request : toRun) {
+                    if (!request.future.isDone()) {
+                        request.run(request == toRun.get(0) ? monitor : new SchedulerProgressMonitor(this, request.progressMonitor));
+                    }
+                }
+            } catch (CancellationException | BazelCommandCancelledException e) {
+                if (preempted && !isCancelled()) {
+                    return true;
+                }
+                toRun.forEach(r -> r.future.cancel(false));
+            } catch (Throwable e) {
+                toRun.forEach(r -> r.future.completeExceptionally(e));
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(ScheduledCommand o) {
+            int c = Integer.compare(priority.ordinal(), o.priority.ordinal());
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * Reports the command as cancelled when it has been preempted, or when every caller has cancelled its future.
+     */
+    private static final class SchedulerProgressMonitor implements WorkProgressMonitor {
+        private final ScheduledCommand command;
+        private final WorkProgressMonitor delegate;
+
+        SchedulerProgressMonitor(ScheduledCommand command, WorkProgressMonitor delegate) {
+            this.command = command;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return command.preempted || command.isCancelled() || delegate.isCanceled();
+        }
+
+        @Override
+        public void setCanceled(boolean value) {
+            delegate.setCanceled(value);
+        }
+
+        @Override
+        public void beginTask(String name, int totalWork) {
+            delegate.beginTask(name, totalWork);
+        }
+
+        @Override
+        public void done() {
+            delegate.done();
+        }
+
+        @Override
+        public void subTask(String name) {
+            delegate.subTask(name);
+        }
+
+        @Override
+        public void worked(int work) {
+            delegate.worked(work);
+        }
+    }
+}
@@ -25,12 +25,16 @@ package com.salesforce.bazel.eclipse.command.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import com.google.common.collect.ImmutableList;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
 
 /**
  * Helper that knows how to run bazel query commands.
@@ -54,7 +58,7 @@ public class BazelQueryHelper {
      *            can be null
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized List<String> listBazelTargetsInBuildFiles(File bazelWorkspaceRootDirectory, WorkProgressMonitor progressMonitor,
+    public List<String> listBazelTargetsInBuildFiles(File bazelWorkspaceRootDirectory, WorkProgressMonitor progressMonitor,
             File... directories) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         ImmutableList.Builder<String> argBuilder = ImmutableList.builder();
         argBuilder.add("query");
@@ -66,7 +70,67 @@ public class BazelQueryHelper {
             argBuilder.build(), (t) -> t);
     }
 
-    
+
+    /**
+     * Returns the names of the targets of a package, e.g. [apple, apple-test] for projects/libs/apple. Uses Bazel Query
+     * to build the list.
+     *
+     * @param packagePath
+     *            the workspace relative path of the package, empty for the root package
+     * @throws BazelCommandLineToolConfigurationException
+     */
+    public List<String> listTargetsInPackage(File bazelWorkspaceRootDirectory, String packagePath,
+            WorkProgressMonitor progressMonitor)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        List<String> args = ImmutableList.<String> builder().add("query", "//" + packagePath + ":*").build();
+        Function<String, String> selector = line -> {
+            int i = line.indexOf(':');
+            String s = line.substring(i + 1);
+            return i == -1 || s.isEmpty() ? null : s;
+        };
+        // only consumed by the completion index, not shown in a console
+        return this.bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.NO_CONSOLE, bazelWorkspaceRootDirectory,
+            progressMonitor, args, selector, false);
+    }
+
+    /**
+     * Returns the label, kind, sources and dependencies of the rules matched by the target patterns, by label, using
+     * 'bazel query --output=streamed_proto'. The output is decoded while the query runs, and only the attributes the
+     * plugin uses are requested, so memory stays flat even for patterns that match many targets.
+     * <p>
+     * With --keep_going, a query that fails for some of the packages still returns the rules of the others.
+     *
+     * @return null if Bazel rejects the command line (exit code 2), as the Bazel versions without
+     *         --output=streamed_proto do
+     * @throws IOException
+     *             if the query fails, or if its output cannot be decoded
+     */
+    public Map<String, BazelTargetInfo> queryTargetInfos(File bazelWorkspaceRootDirectory,
+            Collection<String> targetPatterns, WorkProgressMonitor progressMonitor)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        Map<String, BazelTargetInfo> targetInfos = new LinkedHashMap<>();
+        if (targetPatterns.isEmpty()) {
+            return targetInfos;
+        }
+        List<String> args = ImmutableList.<String> builder().add("query", "--output=streamed_proto", "--keep_going",
+            "--proto:output_rule_attrs=srcs,deps,runtime_deps,main_class", "--noproto:rule_inputs_and_outputs",
+            "kind(rule, " + String.join(" + ", targetPatterns) + ")").build();
+        BazelQueryProtoDecoder decoder =
+                new BazelQueryProtoDecoder(targetInfo -> targetInfos.put(targetInfo.getLabel(), targetInfo));
+        // only consumed by the plugin, not shown in a console
+        int exitCode = this.bazelCommandExecutor.runBazelAndStreamOutput(ConsoleType.NO_CONSOLE,
+            bazelWorkspaceRootDirectory, progressMonitor, args, decoder);
+        if (exitCode == 2) {
+            return null;
+        }
+        // 3: some packages could not be loaded, the output has the rules of the others
+        if (exitCode != 0 && exitCode != 3) {
+            throw new IOException("bazel query of " + targetPatterns + " failed with exit code " + exitCode);
+        }
+        decoder.finish();
+        return targetInfos;
+    }
+
     /**
      * Gives a list of target completions for the given beginning string. The result is the list of possible completion
      * for a target pattern starting with string.
@@ -95,8 +159,8 @@ public class BazelQueryHelper {
                 return !s.isEmpty() && s.startsWith(targetPrefix) ? (packageName + ":" + s) : null;
             };
 
-            List<String> outputLines = this.bazelCommandExecutor.runBazelAndGetOuputLines(ConsoleType.WORKSPACE,
-                bazelWorkspaceRootDirectory, progressMonitor, args, selector);
+            List<String> outputLines = this.bazelCommandExecutor.runBazelAndGetOutputLines(ConsoleType.WORKSPACE,
+                bazelWorkspaceRootDirectory, progressMonitor, args, selector, false);
 
             ImmutableList.Builder<String> builder = ImmutableList.builder();
             builder.addAll(outputLines);
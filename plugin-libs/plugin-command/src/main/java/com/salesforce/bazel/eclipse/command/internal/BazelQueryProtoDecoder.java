@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
+
+/**
+ * Decodes the output of 'bazel query --output=streamed_proto' while the command writes it: a sequence of Target
+ * messages of Bazel's build.proto, each one preceded by its size as a varint. A target is passed on as soon as all its
+ * bytes are there, so only one target is held in memory at a time, whatever the size of the query result.
+ * <p>
+ * Only the fields the plugin uses are read (the name, the rule class and the srcs, deps, runtime_deps and main_class
+ * attributes of the rules), the others are skipped. This saves depending on the protobuf runtime and on classes
+ * generated from build.proto.
+ */
+public class BazelQueryProtoDecoder extends OutputStream {
+
+    // field numbers of build.proto
+    private static final int TARGET_RULE = 2;
+    private static final int RULE_NAME = 1;
+    private static final int RULE_CLASS = 2;
+    private static final int RULE_ATTRIBUTE = 4;
+    private static final int ATTRIBUTE_NAME = 1;
+    private static final int ATTRIBUTE_STRING_VALUE = 5;
+    private static final int ATTRIBUTE_STRING_LIST_VALUE = 6;
+
+    // wire types of the protobuf encoding
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final Consumer<BazelTargetInfo> consumer;
+
+    private byte[] buffer = new byte[8192];
+    /**
+     * The first byte that has not been decoded yet.
+     */
+    private int start;
+    /**
+     * The end of the bytes written so far.
+     */
+    private int end;
+    private int targetCount;
+    /**
+     * The error that stopped the decoding, thrown by {@link #finish()}.
+     */
+    private IOException decodeError;
+
+    /**
+     * @param consumer
+     *            receives the rules of the query result, in the order of the output
+     */
+    public BazelQueryProtoDecoder(Consumer<BazelTargetInfo> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    /**
+     * Decodes the targets whose bytes are all there. Malformed output does not fail the write, which would stop the
+     * copy of the output of the command and leave it blocked on a full pipe: the error is kept for {@link #finish()},
+     * and the rest of the output is discarded.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (decodeError != null) {
+            return;
+        }
+        try {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, end, len);
+            end += len;
+            decodeTargets();
+        } catch (IOException e) {
+            decodeError = e;
+            start = 0;
+            end = 0;
+        }
+    }
+
+    /**
+     * To be called once the command is over. Returns the number of targets of the output, rules or not.
+     *
+     * @throws IOException
+     *             if the output is malformed, or ends in the middle of a target
+     */
+    public int finish() throws IOException {
+        if (decodeError != null) {
+            throw decodeError;
+        }
+        if (start != end) {
+            throw new IOException("The query output ends in the middle of a target, " + (end - start) + " bytes left");
+        }
+        return targetCount;
+    }
+
+    /**
+     * Returns the workspace relative path of a source file label, null for a label of an external repository.
+     */
+    static String getSourcePath(String label) {
+        if (!label.startsWith("//")) {
+            return null;
+        }
+        int colon = label.indexOf(':');
+        if (colon < 0) {
+            // //a/b is //a/b:b
+            String packagePath = label.substring(2);
+            return packagePath + "/" + packagePath.substring(packagePath.lastIndexOf('/') + 1);
+        }
+        String packagePath = label.substring(2, colon);
+        String name = label.substring(colon + 1);
+        return packagePath.isEmpty() ? name : packagePath + "/" + name;
+    }
+
+    // INTERNAL
+
+    private void ensureCapacity(int len) {
+        if (end + len <= buffer.length) {
+            return;
+        }
+        // drop the decoded bytes first
+        int remaining = end - start;
+        byte[] target = remaining + len <= buffer.length ? buffer
+                : new byte[Math.max(buffer.length * 2, remaining + len)];
+        System.arraycopy(buffer, start, target, 0, remaining);
+        buffer = target;
+        start = 0;
+        end = remaining;
+    }
+
+    private void decodeTargets() throws IOException {
+        while (true) {
+            int pos = start;
+            long size = 0;
+            int shift = 0;
+            while (true) {
+                if (pos == end) {
+                    return;
+                }
+                byte b = buffer[pos++];
+                size |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    throw new IOException("Malformed target size in the query output");
+                }
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Target of " + size + " bytes in the query output");
+            }
+            if (end - pos < size) {
+                // wait for the rest of the target
+                return;
+            }
+            decodeTarget(new ProtoReader(buffer, pos, pos + (int) size));
+            start = pos + (int) size;
+            targetCount++;
+        }
+    }
+
+    private void decodeTarget(ProtoReader target) throws IOException {
+        BazelTargetInfo rule = null;
+        while (target.next()) {
+            if (target.fieldNumber == TARGET_RULE && target.wireType == WIRE_LENGTH_DELIMITED) {
+                rule = decodeRule(target.readMessage());
+            } else {
+                target.skip();
+            }
+        }
+        if (rule != null) {
+            consumer.accept(rule);
+        }
+    }
+
+    private static BazelTargetInfo decodeRule(ProtoReader rule) throws IOException {
+        String name = null;
+        String ruleClass = null;
+        List<String> sources = new ArrayList<>();
+        List<String> deps = new ArrayList<>();
+        String mainClass = null;
+        while (rule.next()) {
+            if (rule.fieldNumber == RULE_NAME && rule.wireType == WIRE_LENGTH_DELIMITED) {
+                name = rule.readString();
+            } else if (rule.fieldNumber == RULE_CLASS && rule.wireType == WIRE_LENGTH_DELIMITED) {
+                ruleClass = rule.readString();
+            } else if (rule.fieldNumber == RULE_ATTRIBUTE && rule.wireType == WIRE_LENGTH_DELIMITED) {
+                ProtoReader attribute = rule.readMessage();
+                String attributeName = null;
+                String stringValue = null;
+                List<String> stringListValue = new ArrayList<>();
+                while (attribute.next()) {
+                    if (attribute.fieldNumber == ATTRIBUTE_NAME && attribute.wireType == WIRE_LENGTH_DELIMITED) {
+                        attributeName = attribute.readString();
+                    } else if (attribute.fieldNumber == ATTRIBUTE_STRING_VALUE
+                            && attribute.wireType == WIRE_LENGTH_DELIMITED) {
+                        stringValue = attribute.readString();
+                    } else if (attribute.fieldNumber == ATTRIBUTE_STRING_LIST_VALUE
+                            && attribute.wireType == WIRE_LENGTH_DELIMITED) {
+                        stringListValue.add(attribute.readString());
+                    } else {
+                        attribute.skip();
+                    }
+                }
+                if ("srcs".equals(attributeName)) {
+                    for (String label : stringListValue) {
+                        String sourcePath = getSourcePath(label);
+                        if (sourcePath != null) {
+                            sources.add(sourcePath);
+                        }
+                    }
+                } else if ("deps".equals(attributeName) || "runtime_deps".equals(attributeName)) {
+                    deps.addAll(stringListValue);
+                } else if ("main_class".equals(attributeName) && stringValue != null && !stringValue.isEmpty()) {
+                    mainClass = stringValue;
+                }
+            } else {
+                rule.skip();
+            }
+        }
+        if (name == null || ruleClass == null) {
+            throw new IOException("Rule without a name or a rule class in the query output");
+        }
+        return new BazelTargetInfo(name, ruleClass, sources, deps, mainClass);
+    }
+
+    /**
+     * Reads the fields of an encoded message, in place.
+     */
+    private static class ProtoReader {
+        private final byte[] bytes;
+        private final int limit;
+        private int pos;
+
+        int fieldNumber;
+        int wireType;
+
+        ProtoReader(byte[] bytes, int pos, int limit) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        /**
+         * Reads the tag of the next field, returns false at the end of the message.
+         */
+        boolean next() throws IOException {
+            if (pos >= limit) {
+                return false;
+            }
+            long tag = readVarint();
+            fieldNumber = (int) (tag >>> 3);
+            wireType = (int) (tag & 0x7);
+            return true;
+        }
+
+        String readString() throws IOException {
+            int length = readLength();
+            String value = new String(bytes, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        ProtoReader readMessage() throws IOException {
+            int length = readLength();
+            ProtoReader message = new ProtoReader(bytes, pos, pos + length);
+            pos += length;
+            return message;
+        }
+
+        void skip() throws IOException {
+            switch (wireType) {
+            case WIRE_VARINT:
+                readVarint();
+                break;
+            case WIRE_FIXED64:
+                advance(8);
+                break;
+            case WIRE_LENGTH_DELIMITED:
+                advance(readLength());
+                break;
+            case WIRE_FIXED32:
+                advance(4);
+                break;
+            default:
+                throw new IOException("Unsupported wire type " + wireType + " in the query output");
+            }
+        }
+
+        private int readLength() throws IOException {
+            long length = readVarint();
+            if (length < 0 || length > limit - pos) {
+                throw new IOException("Field of " + length + " bytes past the end of its message in the query output");
+            }
+            return (int) length;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) {
+                    throw new IOException("Truncated varint in the query output");
+                }
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in the query output");
+        }
+
+        private void advance(int length) throws IOException {
+            if (length > limit - pos) {
+                throw new IOException("Field past the end of its message in the query output");
+            }
+            pos += length;
+        }
+    }
+}
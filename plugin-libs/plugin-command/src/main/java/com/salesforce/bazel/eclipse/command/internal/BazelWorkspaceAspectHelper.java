@@ -26,11 +26,12 @@ package com.salesforce.bazel.eclipse.command.internal;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -41,7 +42,11 @@ import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.eclipse.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+import com.salesforce.bazel.eclipse.metrics.Timer;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.BazelLabel;
 
 /**
  * Manages running, collecting, and caching all of the build info aspects for a specific workspace.
@@ -53,7 +58,9 @@ public class BazelWorkspaceAspectHelper {
     private final BazelCommandExecutor bazelCommandExecutor;
     
     /**
-     * These arguments are added to all "bazel build" commands that run for aspect processing
+     * These arguments are added to all "bazel build" commands that run for aspect processing, after the analysis options
+     * of the workspace (see BazelWorkspaceCommandRunner#getAnalysisOptions). None of them changes the build
+     * configuration, so an aspect build reuses the analysis of the previous build and the other way around.
      */
     private List<String> aspectOptions;
 
@@ -62,14 +69,14 @@ public class BazelWorkspaceAspectHelper {
      * running the aspect. This cache is cleared often (currently, every build, but that is too often)
      */
     @VisibleForTesting
-    final Map<String, AspectPackageInfo> aspectInfoCache_current = new HashMap<>();
+    final Map<String, AspectPackageInfo> aspectInfoCache_current = new ConcurrentHashMap<>();
 
     /**
      * For wildcard targets //a/b/c:* we need to capture the resulting aspects that come from evaluation
      * so that the underlying list of aspects can be rebuilt from cache
      */
     @VisibleForTesting
-    final Map<String, Set<String>> aspectInfoCache_wildcards = new HashMap<>();
+    final Map<String, Set<String>> aspectInfoCache_wildcards = new ConcurrentHashMap<>();
 
     /**
      * Cache of the Aspect data for each target. key=String target (//a/b/c) value=AspectPackageInfo data that came from
@@ -77,7 +84,7 @@ public class BazelWorkspaceAspectHelper {
      * error into the package, such that the Aspect will fail to run.
      */
     @VisibleForTesting
-    final Map<String, AspectPackageInfo> aspectInfoCache_lastgood = new HashMap<>();
+    final Map<String, AspectPackageInfo> aspectInfoCache_lastgood = new ConcurrentHashMap<>();
 
     /**
      * Tracks the number of cache hits for getAspectPackageInfos() invocations.
@@ -113,32 +120,38 @@ public class BazelWorkspaceAspectHelper {
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized Map<String, AspectPackageInfo> getAspectPackageInfos(String eclipseProjectName,
+    public Map<String, AspectPackageInfo> getAspectPackageInfos(String eclipseProjectName,
             Collection<String> targets, WorkProgressMonitor progressMonitor, String caller)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
         progressMonitor.subTask("Load Bazel dependency information");
         Map<String, AspectPackageInfo> resultMap = new LinkedHashMap<>();
 
-        for (String target : targets) {
-            // is this a wilcard target? we have to handle that differently
-            if (target.endsWith("*")) {
-                Set<String> wildcardTargets = aspectInfoCache_wildcards.get(target);
-                if (wildcardTargets != null) {
-                    // we know what sub-targets resolve from the wildcard target, so add each sub-target aspect
-                    for (String wildcardTarget : wildcardTargets) {
-                        getAspectPackageInfoForTarget(wildcardTarget, eclipseProjectName, progressMonitor, caller, resultMap);
+        TraceRecorder.Span span = TraceRecorder.getInstance().span("getAspectPackageInfos", "aspect")
+                .arg("project", eclipseProjectName).arg("caller", caller).arg("targets", targets);
+        try {
+            for (String target : targets) {
+                // is this a wilcard target? we have to handle that differently
+                if (target.endsWith("*")) {
+                    Set<String> wildcardTargets = aspectInfoCache_wildcards.get(target);
+                    if (wildcardTargets != null) {
+                        // we know what sub-targets resolve from the wildcard target, so add each sub-target aspect
+                        for (String wildcardTarget : wildcardTargets) {
+                            getAspectPackageInfoForTarget(wildcardTarget, eclipseProjectName, progressMonitor, caller, resultMap);
+                        }
+                    } else {
+                        // we haven't seen this wildcard before, we need to ask bazel what sub-targets it maps to
+                        Map<String, AspectPackageInfo> wildcardResultMap = new LinkedHashMap<>();
+                        getAspectPackageInfoForTarget(target, eclipseProjectName, progressMonitor, caller, wildcardResultMap);
+                        resultMap.putAll(wildcardResultMap);
+                        aspectInfoCache_wildcards.put(target, wildcardResultMap.keySet());
                     }
                 } else {
-                    // we haven't seen this wildcard before, we need to ask bazel what sub-targets it maps to
-                    Map<String, AspectPackageInfo> wildcardResultMap = new LinkedHashMap<>();
-                    getAspectPackageInfoForTarget(target, eclipseProjectName, progressMonitor, caller, wildcardResultMap);
-                    resultMap.putAll(wildcardResultMap);
-                    aspectInfoCache_wildcards.put(target, wildcardResultMap.keySet());
+                    getAspectPackageInfoForTarget(target, eclipseProjectName, progressMonitor, caller, resultMap);
                 }
-            } else {
-                getAspectPackageInfoForTarget(target, eclipseProjectName, progressMonitor, caller, resultMap);
             }
+        } finally {
+            span.close();
         }
 
         progressMonitor.worked(resultMap.size());
@@ -146,10 +159,65 @@ public class BazelWorkspaceAspectHelper {
         return resultMap;
     }
     
+    /**
+     * Returns true if the aspects of all passed targets are cached, so that
+     * {@link #getAspectPackageInfos(String, Collection, WorkProgressMonitor, String)} does not run Bazel.
+     */
+    public boolean isCached(Collection<String> targets) {
+        for (String target : targets) {
+            boolean cached = target.endsWith("*") ? aspectInfoCache_wildcards.containsKey(target)
+                    : aspectInfoCache_current.containsKey(target);
+            if (!cached) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the aspects of all passed targets that are not cached yet with a single Bazel invocation, and loads them
+     * into the cache. This is used to merge the aspect requests of several projects into one build, after which
+     * {@link #getAspectPackageInfos(String, Collection, WorkProgressMonitor, String)} is served from the cache.
+     */
+    public void prefetchAspectPackageInfos(Collection<String> targets, WorkProgressMonitor progressMonitor)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        List<String> missingTargets = new ArrayList<>();
+        for (String target : targets) {
+            if (!isCached(ImmutableList.of(target)) && !missingTargets.contains(target)) {
+                missingTargets.add(target);
+            }
+        }
+        if (missingTargets.size() < 2) {
+            // nothing to merge, the regular lookup handles it
+            return;
+        }
+        LOG.info("ASPECT CACHE PREFETCH targets: {}", missingTargets);
+        List<String> discoveredAspectFilePaths = generateAspectPackageInfoFiles(missingTargets, progressMonitor);
+        ImmutableMap<String, AspectPackageInfo> map = loadAspectFilePaths(discoveredAspectFilePaths);
+        aspectInfoCache_current.putAll(map);
+        aspectInfoCache_lastgood.putAll(map);
+
+        for (String target : missingTargets) {
+            if (target.endsWith("*")) {
+                // a wildcard resolves to the targets of its package, plus everything they depend on
+                String packagePath = new BazelLabel(target).getPackagePath();
+                Set<String> wildcardTargets = new LinkedHashSet<>();
+                for (AspectPackageInfo aspectInfo : map.values()) {
+                    if (packagePath.equals(new BazelLabel(aspectInfo.getLabel()).getPackagePath())) {
+                        collectTransitiveLabels(aspectInfo.getLabel(), map, wildcardTargets);
+                    }
+                }
+                if (!wildcardTargets.isEmpty()) {
+                    aspectInfoCache_wildcards.put(target, wildcardTargets);
+                }
+            }
+        }
+    }
+
     /**
      * Clear the entire AspectPackageInfo cache. This flushes the dependency graph for the workspace.
      */
-    public synchronized void flushAspectInfoCache() {
+    public void flushAspectInfoCache() {
         this.aspectInfoCache_current.clear();
         this.aspectInfoCache_wildcards.clear();
     }
@@ -157,7 +225,7 @@ public class BazelWorkspaceAspectHelper {
     /**
      * Clear the AspectPackageInfo cache for the passed targets. This flushes the dependency graph for those targets.
      */
-    public synchronized void flushAspectInfoCache(List<String> targets) {
+    public void flushAspectInfoCache(List<String> targets) {
         for (String target : targets) {
             // the target may not even be in cache, that is ok, just try to remove it from both current and wildcard caches
             // if the target exists in either it will get flushed
@@ -168,27 +236,41 @@ public class BazelWorkspaceAspectHelper {
 
 
     // INTERNALS
+
+    private static void collectTransitiveLabels(String label, Map<String, AspectPackageInfo> aspectInfos,
+            Set<String> labels) {
+        AspectPackageInfo aspectInfo = aspectInfos.get(label);
+        if (aspectInfo == null || !labels.add(label)) {
+            return;
+        }
+        for (String dep : aspectInfo.getDeps()) {
+            collectTransitiveLabels(dep, aspectInfos, labels);
+        }
+    }
     
     private void getAspectPackageInfoForTarget(String target, String eclipseProjectName,
             WorkProgressMonitor progressMonitor, String caller,
             Map<String, AspectPackageInfo> resultMap)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
-        String logstr = " [prj=" + eclipseProjectName + ", src=" + caller + "]";
-        
         AspectPackageInfo aspectInfo = aspectInfoCache_current.get(target);
         if (aspectInfo != null) {
-            LOG.info("ASPECT CACHE HIT target: " + target + logstr);
+            // this is the hot path, keep it free of allocations when DEBUG is off
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("ASPECT CACHE HIT target: {} [prj={}, src={}]", target, eclipseProjectName, caller);
+            }
             resultMap.put(target, aspectInfo);
             this.numberCacheHits++;
+            MetricsRegistry.getInstance().counter("aspect.cache.hits").inc();
         } else {
-            LOG.info("ASPECT CACHE MISS target: " + target + logstr);
+            LOG.info("ASPECT CACHE MISS target: {} [prj={}, src={}]", target, eclipseProjectName, caller);
+            MetricsRegistry.getInstance().counter("aspect.cache.misses").inc();
             List<String> lookupTargets = new ArrayList<>();
             lookupTargets.add(target);
             List<String> discoveredAspectFilePaths = generateAspectPackageInfoFiles(lookupTargets, progressMonitor);
-            ImmutableMap<String, AspectPackageInfo> map = AspectPackageInfo.loadAspectFilePaths(discoveredAspectFilePaths);
+            ImmutableMap<String, AspectPackageInfo> map = loadAspectFilePaths(discoveredAspectFilePaths);
             resultMap.putAll(map);
             for (String resultTarget : map.keySet()) {
-                LOG.info("ASPECT CACHE LOAD target: " + resultTarget + logstr);
+                LOG.debug("ASPECT CACHE LOAD target: {} [prj={}, src={}]", resultTarget, eclipseProjectName, caller);
                 aspectInfoCache_current.put(resultTarget, map.get(resultTarget));
                 aspectInfoCache_lastgood.put(resultTarget, map.get(resultTarget));
             }
@@ -201,8 +283,9 @@ public class BazelWorkspaceAspectHelper {
                 aspectInfo = aspectInfoCache_lastgood.get(target);
                 if (aspectInfo != null) {
                     resultMap.put(target, aspectInfo);
+                    MetricsRegistry.getInstance().counter("aspect.cache.lastgoodFallbacks").inc();
                 } else {
-                    LOG.info("ASPECT CACHE FAIL target: " + target + logstr);
+                    LOG.info("ASPECT CACHE FAIL target: {} [prj={}, src={}]", target, eclipseProjectName, caller);
                 }
             }
         }
@@ -210,26 +293,44 @@ public class BazelWorkspaceAspectHelper {
         progressMonitor.worked(resultMap.size());
     }
     
+    private static ImmutableMap<String, AspectPackageInfo> loadAspectFilePaths(List<String> aspectFilePaths)
+            throws IOException, InterruptedException {
+        Timer.Context timing = MetricsRegistry.getInstance().timer("aspect.json.parse").time();
+        TraceRecorder.Span span = TraceRecorder.getInstance().span("loadAspectFilePaths", "aspect")
+                .arg("files", aspectFilePaths.size());
+        try {
+            return AspectPackageInfo.loadAspectFilePaths(aspectFilePaths);
+        } finally {
+            span.close();
+            timing.close();
+        }
+    }
+
     /**
      * Runs the Aspect for the list of passed targets. Returns the list of file paths to the output artifacts created by
      * the Aspects.
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    private synchronized List<String> generateAspectPackageInfoFiles(Collection<String> targets, WorkProgressMonitor progressMonitor)
+    private List<String> generateAspectPackageInfoFiles(Collection<String> targets, WorkProgressMonitor progressMonitor)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        List<String> args = ImmutableList.<String> builder().add("build").addAll(this.aspectOptions).addAll(targets).build();
+        List<String> args = ImmutableList.<String> builder().add("build")
+                .addAll(this.bazelWorkspaceCommandRunner.getAnalysisOptions()).addAll(this.aspectOptions)
+                .addAll(targets).build();
 
         // Strip out the artifact list, keeping the xyz.bzleclipse-build.json files (located in subdirs in the bazel-out path)
         // Line must start with >>> and end with the aspect file suffix
         Function<String, String> filter = t -> t.startsWith(">>>")
                 ? (t.endsWith(AspectPackageInfo.ASPECT_FILENAME_SUFFIX) ? t.substring(3) : "") : null;
 
-        List<String> listOfGeneratedFilePaths = this.bazelCommandExecutor.runBazelAndGetErrorLines(ConsoleType.WORKSPACE,
-            this.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory(), progressMonitor, args, filter);
-
-        return listOfGeneratedFilePaths;
+        try {
+            return this.bazelCommandExecutor.runBazelAndGetErrorLines(ConsoleType.WORKSPACE,
+                this.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory(), progressMonitor, args, filter);
+        } finally {
+            // the aspect build also builds the jars of the targets
+            this.bazelWorkspaceCommandRunner.incrementBuildGeneration();
+        }
     }
 
 }
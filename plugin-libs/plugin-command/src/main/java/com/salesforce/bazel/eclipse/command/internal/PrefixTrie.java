@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A map of strings to values that finds the keys starting with a prefix in time proportional to the length of the
+ * prefix and the number of keys found, independent of the number of keys in the map. Keys are returned in lexical
+ * order.
+ * <p>
+ * The trie is thread safe, lookups run while a background thread adds keys.
+ */
+public class PrefixTrie<V> {
+
+    /**
+     * For {@link #getKeys(String, char, int)}, no character ends a key.
+     */
+    public static final char NO_SEPARATOR = '\0';
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    public synchronized void put(String key, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        if (!node.hasValue) {
+            size++;
+        }
+        node.hasValue = true;
+        node.value = value;
+    }
+
+    /**
+     * Returns the value of the key, null if the key is not in the trie.
+     */
+    public synchronized V get(String key) {
+        Node<V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    public synchronized boolean containsKey(String key) {
+        Node<V> node = find(key);
+        return node != null && node.hasValue;
+    }
+
+    /**
+     * Removes all keys that start with the prefix.
+     */
+    public synchronized void removeKeys(String prefix) {
+        if (prefix.isEmpty()) {
+            root.children.clear();
+            root.hasValue = false;
+            root.value = null;
+            size = 0;
+            return;
+        }
+        Node<V> parent = find(prefix.substring(0, prefix.length() - 1));
+        if (parent == null) {
+            return;
+        }
+        Node<V> node = parent.children.remove(prefix.charAt(prefix.length() - 1));
+        if (node != null) {
+            size -= node.countKeys();
+        }
+    }
+
+    /**
+     * Returns, in lexical order, up to limit keys that start with the prefix. If a separator is passed, the keys that
+     * contain it after the prefix are skipped, e.g. with '/' the direct children of a directory are returned but not
+     * its grand children.
+     */
+    public synchronized List<String> getKeys(String prefix, char separator, int limit) {
+        List<String> keys = new ArrayList<>();
+        Node<V> node = find(prefix);
+        if (node != null) {
+            collectKeys(node, new StringBuilder(prefix), separator, limit, keys);
+        }
+        return keys;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // INTERNAL
+
+    private Node<V> find(String key) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static <V> void collectKeys(Node<V> node, StringBuilder key, char separator, int limit, List<String> keys) {
+        if (keys.size() >= limit) {
+            return;
+        }
+        if (node.hasValue) {
+            keys.add(key.toString());
+        }
+        for (Map.Entry<Character, Node<V>> child : node.children.entrySet()) {
+            char c = child.getKey();
+            if (separator != NO_SEPARATOR && c == separator) {
+                continue;
+            }
+            key.append(c);
+            collectKeys(child.getValue(), key, separator, limit, keys);
+            key.setLength(key.length() - 1);
+        }
+    }
+
+    private static class Node<V> {
+        private final Map<Character, Node<V>> children = new TreeMap<>();
+        private boolean hasValue;
+        private V value;
+
+        int countKeys() {
+            int count = hasValue ? 1 : 0;
+            for (Node<V> child : children.values()) {
+                count += child.countKeys();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * An output stream that sits between a command and a (slow) console. Writes are copied into a bounded ring buffer and
+ * return immediately; the buffered output is written to the console in batches by {@link #drain()}, which is meant to
+ * be called from a background job. The flush requester passed to the constructor is called when output becomes
+ * available, so the caller can schedule that job.
+ * <p>
+ * If the console falls behind by more than the capacity of the buffer, the oldest pending output is dropped and a
+ * notice is written to the console instead. The dropped output is not lost if a spill stream is passed: every byte
+ * written to this stream is also written to the spill stream (typically a log file).
+ */
+public class BoundedConsoleOutputStream extends OutputStream {
+
+    private final OutputStream console;
+    private final OutputStream spill;
+    private final File spillFile;
+    private final Consumer<BoundedConsoleOutputStream> flushRequester;
+    private final Object drainLock = new Object();
+
+    private final byte[] ring;
+    private int head = 0;
+    private int size = 0;
+    private long droppedBytes = 0;
+    private boolean closed = false;
+
+    /**
+     * @param console
+     *            the stream the output is eventually rendered to
+     * @param capacity
+     *            the maximum number of bytes waiting to be written to the console
+     * @param spill
+     *            receives all the output as it is written, can be null. It is not closed by this stream, as it may
+     *            be shared with other streams.
+     * @param spillFile
+     *            the file the spill stream writes to, only used to point the user to the full output
+     * @param flushRequester
+     *            called with this stream when output becomes available, it should (eventually) call
+     *            {@link #drain()}
+     */
+    public BoundedConsoleOutputStream(OutputStream console, int capacity, OutputStream spill, File spillFile,
+            Consumer<BoundedConsoleOutputStream> flushRequester) {
+        this.console = console;
+        this.ring = new byte[capacity];
+        this.spill = spill;
+        this.spillFile = spillFile;
+        this.flushRequester = flushRequester;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        boolean requestFlush;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Attempted to write on a closed stream");
+            }
+            if (spill != null) {
+                synchronized (spill) {
+                    spill.write(b, off, len);
+                }
+            }
+            requestFlush = size == 0 && droppedBytes == 0;
+            append(b, off, len);
+        }
+        if (requestFlush && len > 0) {
+            flushRequester.accept(this);
+        }
+    }
+
+    /**
+     * Writes the pending output to the console. Returns the number of bytes that were written.
+     */
+    public int drain() throws IOException {
+        // concurrent drains (the background job and close) must not reorder the output
+        synchronized (drainLock) {
+            return drainInternal();
+        }
+    }
+
+    /**
+     * Returns the number of bytes waiting to be written to the console.
+     */
+    public synchronized int getPendingSize() {
+        return size;
+    }
+
+    /**
+     * Writes the remaining output to the console, and closes the console stream. The spill stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (spill != null) {
+            synchronized (spill) {
+                spill.flush();
+            }
+        }
+        synchronized (drainLock) {
+            drainInternal();
+            console.close();
+        }
+    }
+
+    // INTERNAL
+
+    private int drainInternal() throws IOException {
+        byte[] pending;
+        long dropped;
+        synchronized (this) {
+            pending = new byte[size];
+            int firstChunk = Math.min(size, ring.length - head);
+            System.arraycopy(ring, head, pending, 0, firstChunk);
+            System.arraycopy(ring, 0, pending, firstChunk, size - firstChunk);
+            head = 0;
+            size = 0;
+            dropped = droppedBytes;
+            droppedBytes = 0;
+        }
+        // the console is written outside of the lock, so the command never waits for the console
+        if (dropped > 0) {
+            console.write(getDroppedNotice(dropped).getBytes(StandardCharsets.UTF_8));
+        }
+        if (pending.length > 0) {
+            console.write(pending);
+        }
+        if (dropped > 0 || pending.length > 0) {
+            console.flush();
+        }
+        return pending.length;
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (len >= ring.length) {
+            // only the tail of the chunk fits, which replaces everything pending
+            droppedBytes += size + len - ring.length;
+            System.arraycopy(b, off + len - ring.length, ring, 0, ring.length);
+            head = 0;
+            size = ring.length;
+            return;
+        }
+        int overflow = size + len - ring.length;
+        if (overflow > 0) {
+            // drop the oldest output, the newest is the most useful (build errors are reported last)
+            head = (head + overflow) % ring.length;
+            size -= overflow;
+            droppedBytes += overflow;
+        }
+        int tail = (head + size) % ring.length;
+        int firstChunk = Math.min(len, ring.length - tail);
+        System.arraycopy(b, off, ring, tail, firstChunk);
+        System.arraycopy(b, off + firstChunk, ring, 0, len - firstChunk);
+        size += len;
+    }
+
+    private String getDroppedNotice(long dropped) {
+        StringBuilder notice = new StringBuilder("\n[... ").append(dropped).append(" bytes of output not shown");
+        if (spillFile != null) {
+            notice.append(", the full output is in ").append(spillFile.getAbsolutePath());
+        }
+        return notice.append(" ...]\n").toString();
+    }
+}
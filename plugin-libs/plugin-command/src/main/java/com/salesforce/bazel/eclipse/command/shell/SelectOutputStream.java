@@ -58,7 +58,6 @@ public class SelectOutputStream extends OutputStream {
     private Function<String, String> selector;
     private boolean closed = false;
     private List<String> lines = new LinkedList<>();
-    private List<String> outputLines = new LinkedList<>();
     private ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
     /**
@@ -89,6 +88,25 @@ public class SelectOutputStream extends OutputStream {
         }
     }
 
+    /**
+     * Scans the chunk for line ends instead of going through {@link #write(int)} for each byte, as commands can
+     * produce a lot of output.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Preconditions.checkState(!closed, "Attempted to write on a closed stream");
+        int lineStart = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (b[i] == '\n') {
+                stream.write(b, lineStart, i - lineStart);
+                select(true);
+                lineStart = i + 1;
+            }
+        }
+        stream.write(b, lineStart, end - lineStart);
+    }
+
     private void select(boolean appendNewLine) throws UnsupportedEncodingException, IOException {
         String line = null;
         if (selector != null) {
@@ -102,7 +120,6 @@ public class SelectOutputStream extends OutputStream {
                 stream.write('\n');
             }
             output.write(stream.toByteArray());
-            outputLines.add(stream.toString(StandardCharsets.UTF_8.name()));
         }
         stream.reset();
     }
@@ -111,7 +128,10 @@ public class SelectOutputStream extends OutputStream {
     public void close() throws IOException {
         Preconditions.checkState(!closed);
         super.close();
-        select(false);
+        if (stream.size() > 0) {
+            // the last line did not end with a line break
+            select(false);
+        }
         closed = true;
     }
 
@@ -121,11 +141,4 @@ public class SelectOutputStream extends OutputStream {
     ImmutableList<String> getLines() {
         return ImmutableList.copyOf(lines);
     }
-
-    /**
-     * Returns the list of output lines.
-     */
-    ImmutableList<String> getOutputLines() {
-        return ImmutableList.copyOf(outputLines);
-    }
 }
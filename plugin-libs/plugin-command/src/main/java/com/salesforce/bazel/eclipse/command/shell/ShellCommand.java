@@ -40,16 +40,23 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsole;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
 import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.BazelCommandCancelledException;
 import com.salesforce.bazel.eclipse.command.BazelProcessBuilder;
 import com.salesforce.bazel.eclipse.command.Command;
 import com.salesforce.bazel.eclipse.command.CommandBuilder;
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+import com.salesforce.bazel.eclipse.metrics.TraceRecorder;
 
 /**
  * A utility class to spawn a command in the shell and parse its output. It allows to filter the output, 
@@ -58,29 +65,50 @@ import com.salesforce.bazel.eclipse.command.CommandBuilder;
  * This class can only be initialized using a builder created with the {@link #builder()} method.
  */
 public final class ShellCommand implements Command {
+    static final LogHelper LOG = LogHelper.log(ShellCommand.class);
 
     private final File directory;
     private final ImmutableList<String> args;
     private final SelectOutputStream stdout;
     private final SelectOutputStream stderr;
+    private final OutputStream consoleStdout;
+    private final OutputStream consoleStderr;
     private final WorkProgressMonitor progressMonitor;
     private final long timeoutMS;
 
     private boolean executed = false;
 
+    // the bytes read from the standard output and error streams of the process
+    private final AtomicLong outputBytes = new AtomicLong();
+
+    /**
+     * How often the progress monitor is checked for cancellation while the command runs.
+     */
+    private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
+    /**
+     * How long a cancelled process is given to exit after being asked to terminate, before it is killed.
+     */
+    private static final long DESTROY_GRACE_PERIOD_MS = 2000;
+
     ShellCommand(CommandConsole console, File directory, ImmutableList<String> args,
             Function<String, String> stdoutSelector, Function<String, String> stderrSelector, OutputStream stdout,
             OutputStream stderr, WorkProgressMonitor progressMonitor, long timeoutMS) {
         this.directory = directory;
         this.args = args;
+        // the streams created here are owned by the command, the ones passed in by the caller are not
+        OutputStream consoleStdout = null;
+        OutputStream consoleStderr = null;
         if (console != null) {
             if (stdout == null) {
-                stdout = console.createOutputStream();
+                stdout = consoleStdout = console.createOutputStream();
             }
             if (stderr == null) {
-                stderr = console.createErrorStream();
+                stderr = consoleStderr = console.createErrorStream();
             }
         }
+        this.consoleStdout = consoleStdout;
+        this.consoleStderr = consoleStderr;
         this.stderr = new SelectOutputStream(stderr, stderrSelector);
         this.stdout = new SelectOutputStream(stdout, stdoutSelector);
         this.progressMonitor = progressMonitor;
@@ -99,6 +127,10 @@ public final class ShellCommand implements Command {
     /**
      * Executes the command represented by this instance, and return the exit code of the command. This method should
      * not be called twice on the same object.
+     * <p>
+     * While the command runs, the progress monitor is polled for cancellation. If the operation is cancelled (or the
+     * calling thread is interrupted) the process is destroyed and a {@link BazelCommandCancelledException} is thrown
+     * (an {@link InterruptedException} if interrupted).
      *
      * @throws CoreException
      */
@@ -106,6 +138,10 @@ public final class ShellCommand implements Command {
     public int run() throws IOException, InterruptedException {
         Preconditions.checkState(!executed);
         executed = true;
+        String command = String.join(" ", args);
+        if (isCanceled()) {
+            throw new BazelCommandCancelledException(command);
+        }
         BazelProcessBuilder builder = getProcessBuilder();
         builder.redirectOutput(ProcessBuilder.Redirect.PIPE);
         builder.redirectError(ProcessBuilder.Redirect.PIPE);
@@ -114,16 +150,20 @@ public final class ShellCommand implements Command {
         if (this.progressMonitor != null) {
             this.progressMonitor.worked(1);
         }
-        String command = "";
-        for (String arg : args) {
-            command = command + arg + " ";
-        }
-        System.out.println("Executing command: "+command);
+        LOG.info("Executing command: {}", command);
 
+        TraceRecorder.Span span =
+                TraceRecorder.getInstance().span("ShellCommand.run", "command").arg("command", command);
         try {
-            Thread err = copyStream(process.getErrorStream(), stderr);
-            Thread out = copyStream(process.getInputStream(), stdout);
-            int exitCode = process.waitFor();
+            Thread err = copyStream(process.getErrorStream(), stderr, outputBytes);
+            Thread out = copyStream(process.getInputStream(), stdout, outputBytes);
+            while (!process.waitFor(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (isCanceled()) {
+                    // the process tree is torn down below
+                    throw new BazelCommandCancelledException(command);
+                }
+            }
+            int exitCode = process.exitValue();
             if (err != null) {
                 err.join(timeoutMS);
             }
@@ -132,11 +172,64 @@ public final class ShellCommand implements Command {
             }
             return exitCode;
         } catch (InterruptedException interrupted) {
+            destroyProcessTree(process);
             throw interrupted;
         }
         finally {
+            span.close();
             closeQuietly(stderr);
             closeQuietly(stdout);
+            if (consoleStderr != null) {
+                closeQuietly(consoleStderr);
+            }
+            if (consoleStdout != null) {
+                closeQuietly(consoleStdout);
+            }
+        }
+    }
+
+    private boolean isCanceled() {
+        return this.progressMonitor != null && this.progressMonitor.isCanceled();
+    }
+
+    /**
+     * Stops the process and the processes it spawned. The process is first asked to terminate, which gives the Bazel
+     * client the chance to tell the Bazel server to abort the command (and release the workspace lock), and is killed
+     * if it does not exit within the grace period.
+     */
+    private static void destroyProcessTree(Process process) {
+        destroyDescendants(process);
+        process.destroy();
+        try {
+            if (!process.waitFor(DESTROY_GRACE_PERIOD_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The ProcessHandle API to find the children of a process is only available from Java 9, so it is looked up
+     * reflectively. On Java 8 only the process itself is destroyed. The Bazel server is not affected either way, as it
+     * detaches itself from the client that started it.
+     */
+    private static void destroyDescendants(Process process) {
+        try {
+            Class<?> processHandleClass = Class.forName("java.lang.ProcessHandle");
+            Object handle = Process.class.getMethod("toHandle").invoke(process);
+            Method destroy = processHandleClass.getMethod("destroy");
+            Stream<?> descendants = (Stream<?>) processHandleClass.getMethod("descendants").invoke(handle);
+            descendants.forEach(descendant -> {
+                try {
+                    destroy.invoke(descendant);
+                } catch (ReflectiveOperationException e) {
+                    // best effort
+                }
+            });
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not available on this JVM
         }
     }
 
@@ -149,10 +242,12 @@ public final class ShellCommand implements Command {
     private static class CopyStreamRunnable implements Runnable {
         private InputStream inputStream;
         private OutputStream outputStream;
+        private AtomicLong copiedBytes;
 
-        CopyStreamRunnable(InputStream inputStream, OutputStream outputStream) {
+        CopyStreamRunnable(InputStream inputStream, OutputStream outputStream, AtomicLong copiedBytes) {
             this.inputStream = inputStream;
             this.outputStream = outputStream;
+            this.copiedBytes = copiedBytes;
         }
 
         @Override
@@ -161,6 +256,7 @@ public final class ShellCommand implements Command {
             int read;
             try {
                 while ((read = inputStream.read(buffer)) > 0) {
+                    copiedBytes.addAndGet(read);
                     synchronized (outputStream) {
                         outputStream.write(buffer, 0, read);
                     }
@@ -172,9 +268,9 @@ public final class ShellCommand implements Command {
     }
 
     // Launch a thread to copy all data from inputStream to outputStream
-    private static Thread copyStream(InputStream inputStream, OutputStream outputStream) {
+    private static Thread copyStream(InputStream inputStream, OutputStream outputStream, AtomicLong copiedBytes) {
         if (outputStream != null) {
-            Thread t = new Thread(new CopyStreamRunnable(inputStream, outputStream), "CopyStream");
+            Thread t = new Thread(new CopyStreamRunnable(inputStream, outputStream, copiedBytes), "CopyStream");
             t.start();
             return t;
         }
@@ -203,6 +299,11 @@ public final class ShellCommand implements Command {
         return stdout.getLines();
     }
 
+    @Override
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
     /**
      * Returns a {@link CommandBuilder} object to use to create a {@link ShellCommand} object.
      */
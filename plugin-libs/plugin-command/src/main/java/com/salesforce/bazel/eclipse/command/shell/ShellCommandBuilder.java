@@ -44,6 +44,11 @@ public class ShellCommandBuilder extends CommandBuilder {
         super(consoleFactory);
     }
 
+    @Override
+    public ShellCommandBuilder newInstance() {
+        return new ShellCommandBuilder(consoleFactory);
+    }
+
     /**
      * Build a Command object.
      */
@@ -29,6 +29,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -183,6 +184,93 @@ public class BazelLauncherBuilderTest {
         assertTrue(cmdTokens.contains("--test_arg=--wrapper_script_flag=--debug=localhost:" + DEBUG_PORT));
     }
     
+    @Test
+    public void testBuildTestCommandRerunsTestsByDefault() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv();
+        BazelLauncherBuilder launcherBuilder = env.bazelWorkspaceCommandRunner.getBazelLauncherBuilder();
+        launcherBuilder.setLabel(new BazelLabel("//a/b/c"));
+        launcherBuilder.setTargetKind(TargetKind.JAVA_TEST);
+        launcherBuilder.setArgs(Collections.emptyMap());
+
+        addBazelCommandOutput(env, "test", "bazel test result");
+
+        List<String> cmdTokens = launcherBuilder.build().getProcessBuilder().command();
+
+        assertTrue(cmdTokens.contains("--nocache_test_results"));
+        assertTrue(cmdTokens.contains("--test_strategy=exclusive"));
+        assertTrue(cmdTokens.contains("--test_output=streamed"));
+    }
+
+    @Test
+    public void testBuildCacheAwareTestCommand() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv();
+        BazelLabel label1 = new BazelLabel("//a/b/c");
+        BazelLabel label2 = new BazelLabel("//d/e/f:ftest");
+
+        BazelLauncherBuilder launcherBuilder = env.bazelWorkspaceCommandRunner.getBazelLauncherBuilder();
+        launcherBuilder.setLabels(Arrays.asList(label1, label2));
+        launcherBuilder.setTargetKind(TargetKind.JAVA_TEST);
+        launcherBuilder.setArgs(Collections.emptyMap());
+        launcherBuilder.setCacheTestResults(true);
+        launcherBuilder.setTestShardingStrategy("explicit");
+        launcherBuilder.setLocalTestJobs(8);
+        launcherBuilder.setTestFilter("com\\.salesforce\\.FooTest#");
+
+        addBazelCommandOutput(env, "test", "bazel test result");
+
+        List<String> cmdTokens = launcherBuilder.build().getProcessBuilder().command();
+
+        assertEquals("test", cmdTokens.get(1));
+        assertFalse(cmdTokens.contains("--nocache_test_results"));
+        assertFalse(cmdTokens.contains("--test_strategy=exclusive"));
+        assertFalse(cmdTokens.contains("--runs_per_test=1"));
+        assertFalse(cmdTokens.contains("--test_output=streamed"));
+        assertTrue(cmdTokens.contains("--test_sharding_strategy=explicit"));
+        assertTrue(cmdTokens.contains("--local_test_jobs=8"));
+        assertTrue(cmdTokens.contains("--test_filter=com\\.salesforce\\.FooTest#"));
+        // both targets in the same invocation, after the options
+        int separator = cmdTokens.indexOf("--");
+        assertEquals(Arrays.asList(label1.getLabel(), label2.getLabel()),
+            cmdTokens.subList(separator + 1, cmdTokens.size()));
+    }
+
+    @Test
+    public void testBuildCacheAwareTestCommandWithDebugEnabled() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv();
+        BazelLauncherBuilder launcherBuilder = env.bazelWorkspaceCommandRunner.getBazelLauncherBuilder();
+        launcherBuilder.setLabel(new BazelLabel("//a/b/c"));
+        launcherBuilder.setTargetKind(TargetKind.JAVA_TEST);
+        launcherBuilder.setArgs(Collections.emptyMap());
+        launcherBuilder.setCacheTestResults(true);
+        launcherBuilder.setDebugMode(true, "localhost", DEBUG_PORT);
+
+        addBazelCommandOutput(env, "test", "bazel test result");
+
+        List<String> cmdTokens = launcherBuilder.build().getProcessBuilder().command();
+
+        // the debugger needs the test to run, in a single JVM
+        assertTrue(cmdTokens.contains("--nocache_test_results"));
+        assertTrue(cmdTokens.contains("--test_strategy=exclusive"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuildRunCommandWithSeveralTargets() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv();
+        BazelLauncherBuilder launcherBuilder = env.bazelWorkspaceCommandRunner.getBazelLauncherBuilder();
+        launcherBuilder.setLabels(Arrays.asList(new BazelLabel("//a/b/c"), new BazelLabel("//d/e/f")));
+        launcherBuilder.setTargetKind(TargetKind.JAVA_BINARY);
+        launcherBuilder.setArgs(Collections.emptyMap());
+
+        launcherBuilder.build();
+    }
+
+    @Test
+    public void testGetTestFilter() {
+        assertEquals("com\\.salesforce\\.FooTest#", BazelLauncherBuilder.getTestFilter("com.salesforce.FooTest", null));
+        assertEquals("com\\.salesforce\\.FooTest#testBar$",
+            BazelLauncherBuilder.getTestFilter("com.salesforce.FooTest", "testBar"));
+    }
+
     // INTERNALS
 
     private TestBazelCommandEnvironmentFactory createEnv() throws Exception {
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.command.BazelTargetCompletionIndex.Completions;
+import com.salesforce.bazel.eclipse.command.internal.BazelCommandScheduler;
+
+public class BazelTargetCompletionIndexTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testPackageCompletion() throws Exception {
+        File workspaceRoot = createWorkspace();
+        BazelTargetCompletionIndex index = new BazelTargetCompletionIndex(workspaceRoot,
+                new BazelCommandScheduler("test"), (packagePath, monitor) -> Collections.emptyList());
+
+        // the first lookup starts the scan
+        Completions completions = index.getMatchingTargets("//projects/libs/");
+        completions.getUpdate().get(5, TimeUnit.SECONDS);
+
+        completions = index.getMatchingTargets("//projects/libs/");
+        assertTrue(completions.isComplete());
+        assertEquals(Arrays.asList("//projects/libs/apple/", "//projects/libs/apple:", "//projects/libs/banana/",
+            "//projects/libs/..."), completions.getProposals());
+
+        completions = index.getMatchingTargets("//projects/libs/b");
+        assertEquals(Arrays.asList("//projects/libs/banana/"), completions.getProposals());
+
+        // hidden directories and the convenience links are not indexed
+        assertEquals(Arrays.asList("projects"), index.getChildDirectories("", "").getProposals());
+        assertTrue(index.isDirectory("projects/libs/banana/src"));
+        assertFalse(index.isPackage("projects/libs/banana"));
+    }
+
+    @Test
+    public void testTargetCompletion() throws Exception {
+        File workspaceRoot = createWorkspace();
+        CountDownLatch queryBlocker = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        BazelTargetCompletionIndex index = new BazelTargetCompletionIndex(workspaceRoot,
+                new BazelCommandScheduler("test"), (packagePath, monitor) -> {
+                    queryBlocker.await();
+                    queries.incrementAndGet();
+                    return Arrays.asList("apple", "apple-test", "apple_deploy.jar");
+                });
+        index.addLabels(Arrays.asList("//projects/libs/apple:apple", "@junit_junit//jar:jar"));
+
+        // while the query runs, the targets found in the aspect data are proposed
+        Completions completions = index.getMatchingTargets("//projects/libs/apple:app");
+        assertFalse(completions.isComplete());
+        assertEquals(Arrays.asList("//projects/libs/apple:apple"), completions.getProposals());
+
+        queryBlocker.countDown();
+        completions.getUpdate().get(5, TimeUnit.SECONDS);
+        completions = index.getMatchingTargets("//projects/libs/apple:app");
+        assertTrue(completions.isComplete());
+        assertEquals(Arrays.asList("//projects/libs/apple:apple", "//projects/libs/apple:apple-test",
+            "//projects/libs/apple:apple_deploy.jar"), completions.getProposals());
+
+        completions = index.getMatchingTargets("projects/libs/apple:");
+        assertEquals(Arrays.asList("projects/libs/apple:apple", "projects/libs/apple:apple-test",
+            "projects/libs/apple:apple_deploy.jar", "projects/libs/apple:all", "projects/libs/apple:*"),
+            completions.getProposals());
+        // the package was only queried once
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testTargetCompletion_failedQueryRunsAgain() throws Exception {
+        File workspaceRoot = createWorkspace();
+        AtomicInteger queries = new AtomicInteger();
+        BazelTargetCompletionIndex index = new BazelTargetCompletionIndex(workspaceRoot,
+                new BazelCommandScheduler("test"), (packagePath, monitor) -> {
+                    if (queries.incrementAndGet() == 1) {
+                        throw new IOException("syntax error in BUILD file");
+                    }
+                    return Arrays.asList("apple");
+                });
+
+        Completions completions = index.getMatchingTargets("//projects/libs/apple:");
+        try {
+            completions.getUpdate().get(5, TimeUnit.SECONDS);
+            fail("The query should have failed");
+        } catch (ExecutionException expected) {
+        }
+
+        completions = index.getMatchingTargets("//projects/libs/apple:");
+        completions.getUpdate().get(5, TimeUnit.SECONDS);
+        assertEquals(2, queries.get());
+        assertEquals("//projects/libs/apple:apple",
+            index.getMatchingTargets("//projects/libs/apple:").getProposals().get(0));
+    }
+
+    @Test
+    public void testInvalidatePackage() throws Exception {
+        File workspaceRoot = createWorkspace();
+        AtomicInteger queries = new AtomicInteger();
+        BazelTargetCompletionIndex index = new BazelTargetCompletionIndex(workspaceRoot,
+                new BazelCommandScheduler("test"), (packagePath, monitor) -> queries.incrementAndGet() == 1
+                        ? Arrays.asList("apple") : Arrays.asList("apple", "apple2"));
+        index.getMatchingTargets("//projects/libs/apple:").getUpdate().get(5, TimeUnit.SECONDS);
+        index.getMatchingTargets("//projects/libs/apple:").getUpdate().get(5, TimeUnit.SECONDS);
+        assertEquals(1, queries.get());
+
+        // a target was added to the BUILD file
+        index.invalidatePackage("projects/libs/apple");
+
+        index.getMatchingTargets("//projects/libs/apple:").getUpdate().get(5, TimeUnit.SECONDS);
+        assertEquals(2, queries.get());
+        assertEquals(Arrays.asList("//projects/libs/apple:apple", "//projects/libs/apple:apple2"),
+            index.getMatchingTargets("//projects/libs/apple:apple").getProposals());
+    }
+
+    private File createWorkspace() throws Exception {
+        File workspaceRoot = tmpFolder.newFolder("ws");
+        new File(workspaceRoot, "WORKSPACE").createNewFile();
+        File apple = new File(workspaceRoot, "projects/libs/apple");
+        apple.mkdirs();
+        new File(apple, "BUILD").createNewFile();
+        new File(workspaceRoot, "projects/libs/banana/src").mkdirs();
+        new File(workspaceRoot, ".git/objects").mkdirs();
+        new File(workspaceRoot, "bazel-out").mkdirs();
+        return workspaceRoot;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.eclipse.model.BazelLabel;
+
+public class BazelTestResultCollectorTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static final long LAUNCH_TIME = 1600000000000L;
+
+    @Test
+    public void testResultsAreCollectedAsTargetsFinish() throws Exception {
+        File testLogs = tmpFolder.newFolder("testlogs");
+        BazelLabel apple = new BazelLabel("//fruit/apple:apple_test");
+        BazelLabel banana = new BazelLabel("//fruit/banana");
+        BazelTestResultCollector collector =
+                new BazelTestResultCollector(testLogs, Arrays.asList(apple, banana), LAUNCH_TIME);
+
+        assertTrue(collector.collectFinishedResults().isEmpty());
+
+        // apple finishes first, with a failure
+        writeTestXml(testLogs, "fruit/apple/apple_test/test.xml", LAUNCH_TIME + 1000,
+            testCase("testRed", "0.5", null) + testCase("testGreen", "1.5", "failure"));
+        List<BazelTestResult> results = collector.collectFinishedResults();
+        assertEquals(1, results.size());
+        BazelTestResult result = results.get(0);
+        assertEquals(apple, result.getLabel());
+        assertEquals(2, result.getTests());
+        assertEquals(1, result.getFailures());
+        assertEquals(2.0, result.getTimeSeconds(), 0.001);
+        assertFalse(result.isPassed());
+        assertFalse(result.isCached());
+
+        // each result is returned once
+        assertTrue(collector.collectFinishedResults().isEmpty());
+
+        // then the two shards of banana
+        writeTestXml(testLogs, "fruit/banana/banana/shard_1_of_2/test.xml", LAUNCH_TIME + 2000,
+            testCase("testYellow", "1", null));
+        writeTestXml(testLogs, "fruit/banana/banana/shard_2_of_2/test.xml", LAUNCH_TIME + 2000,
+            testCase("testPeel", "1", "skipped"));
+        results = collector.collectFinishedResults();
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isPassed());
+        assertEquals(1, results.get(1).getSkipped());
+    }
+
+    @Test
+    public void testCachedResultsAreCollectedAtTheEnd() throws Exception {
+        File testLogs = tmpFolder.newFolder("testlogs");
+        BazelLabel apple = new BazelLabel("//fruit/apple:apple_test");
+        // written by an earlier invocation, Bazel reuses it
+        writeTestXml(testLogs, "fruit/apple/apple_test/test.xml", LAUNCH_TIME - 60000, testCase("testRed", "1", "error"));
+        BazelTestResultCollector collector =
+                new BazelTestResultCollector(testLogs, Arrays.asList(apple), LAUNCH_TIME);
+
+        assertTrue(collector.collectFinishedResults().isEmpty());
+        List<BazelTestResult> results = collector.collectRemainingResults();
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isCached());
+        assertEquals(1, results.get(0).getErrors());
+        assertTrue(collector.collectRemainingResults().isEmpty());
+    }
+
+    @Test
+    public void testPartiallyWrittenResultIsRetried() throws Exception {
+        File testLogs = tmpFolder.newFolder("testlogs");
+        BazelLabel apple = new BazelLabel("//fruit/apple:apple_test");
+        BazelTestResultCollector collector =
+                new BazelTestResultCollector(testLogs, Arrays.asList(apple), LAUNCH_TIME);
+
+        File testXml = new File(testLogs, "fruit/apple/apple_test/test.xml");
+        testXml.getParentFile().mkdirs();
+        Files.write(testXml.toPath(), "<testsuites><testsuite><testcase name=\"testRed\"".getBytes(StandardCharsets.UTF_8));
+        testXml.setLastModified(LAUNCH_TIME + 1000);
+        assertTrue(collector.collectFinishedResults().isEmpty());
+
+        writeTestXml(testLogs, "fruit/apple/apple_test/test.xml", LAUNCH_TIME + 2000, testCase("testRed", "1", null));
+        assertEquals(1, collector.collectFinishedResults().size());
+    }
+
+    // HELPERS
+
+    private static String testCase(String name, String time, String outcome) {
+        String testCase = "<testcase name=\"" + name + "\" classname=\"com.fruit.FruitTest\" time=\"" + time + "\">";
+        if (outcome != null) {
+            testCase += "<" + outcome + " message=\"boom\">stack trace</" + outcome + ">";
+        }
+        return testCase + "</testcase>";
+    }
+
+    private static void writeTestXml(File testLogs, String path, long lastModified, String testCases)
+            throws Exception {
+        File testXml = new File(testLogs, path);
+        testXml.getParentFile().mkdirs();
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuites><testsuite name=\"com.fruit.FruitTest\">"
+                + testCases + "</testsuite></testsuites>";
+        Files.write(testXml.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        testXml.setLastModified(lastModified);
+    }
+}
@@ -24,19 +24,33 @@
 package com.salesforce.bazel.eclipse.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.salesforce.bazel.eclipse.command.internal.BazelQueryProtoDecoderTest;
 import com.salesforce.bazel.eclipse.command.mock.MockWorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.mock.TestBazelCommandEnvironmentFactory;
 import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
+import com.salesforce.bazel.eclipse.model.TargetKind;
 import com.salesforce.bazel.eclipse.test.TestBazelWorkspaceFactory;
 
 public class BazelWorkspaceCommandRunnerTest {
@@ -81,6 +95,209 @@ public class BazelWorkspaceCommandRunnerTest {
         assertEquals(4, aspectMap.size());
         
         // run a clean, should not throw an exception
+        long buildGeneration = workspaceRunner.getBuildGeneration();
         workspaceRunner.runBazelClean(new MockWorkProgressMonitor());
+        // the outputs are gone, the file state cached for the previous generation is stale
+        assertEquals(buildGeneration + 1, workspaceRunner.getBuildGeneration());
+    }
+
+    @Test
+    public void testTargetInfosFallBackToAspects() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(1).build();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(workspace, testDir, null);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+
+        // the mocked Bazel cannot run the proto query, the structure comes from the aspect data
+        Map<String, BazelTargetInfo> targetInfos = workspaceRunner.getBazelTargetInfos("javalib0",
+            Collections.singleton("//projects/libs/javalib0:*"), new MockWorkProgressMonitor(), "testTargetInfos");
+        assertEquals(4, targetInfos.size());
+        int testTargetCount = 0;
+        for (BazelTargetInfo targetInfo : targetInfos.values()) {
+            if (targetInfo.getTargetKind() == TargetKind.JAVA_TEST) {
+                testTargetCount++;
+                assertEquals(2, targetInfo.getSources().size());
+            }
+        }
+        assertEquals(1, testTargetCount);
+
+        // cached until the aspect data is flushed
+        int commandCount = env.commandBuilder.getCommandCount();
+        assertSame(targetInfos, workspaceRunner.getBazelTargetInfos("javalib0",
+            Collections.singleton("//projects/libs/javalib0:*"), new MockWorkProgressMonitor(), "testTargetInfos"));
+        assertEquals(commandCount, env.commandBuilder.getCommandCount());
+
+        // this Bazel rejected the query, it is not run again
+        assertEquals(1, env.commandBuilder.getStreamedProtoQueryCount());
+        workspaceRunner.flushAspectInfoCache();
+        targetInfos = workspaceRunner.getBazelTargetInfos("javalib0",
+            Collections.singleton("//projects/libs/javalib0:*"), new MockWorkProgressMonitor(), "testTargetInfos");
+        assertEquals(4, targetInfos.size());
+        assertEquals(1, env.commandBuilder.getStreamedProtoQueryCount());
+    }
+
+    @Test
+    public void testTargetInfosFromStreamedProtoQuery() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(1).build();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(workspace, testDir, null);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        // a java_test rule and one of its source files
+        env.commandBuilder.mockStreamedProtoQueryOutput(BazelQueryProtoDecoderTest.queryOutput());
+
+        int commandCount = env.commandBuilder.getCommandCount();
+        Map<String, BazelTargetInfo> targetInfos = workspaceRunner.getBazelTargetInfos("apple",
+            Collections.singleton("//projects/libs/apple:*"), new MockWorkProgressMonitor(), "testTargetInfos");
+
+        // a single query, and no aspect build
+        assertEquals(commandCount + 1, env.commandBuilder.getCommandCount());
+        assertEquals(1, env.commandBuilder.getStreamedProtoQueryCount());
+        assertEquals(1, targetInfos.size());
+        BazelTargetInfo targetInfo = targetInfos.get("//projects/libs/apple:apple-test");
+        assertEquals(TargetKind.JAVA_TEST, targetInfo.getTargetKind());
+        assertEquals(Collections.singletonList("projects/libs/apple/src/test/java/AppleTest.java"),
+            targetInfo.getSources());
+        assertEquals("com.salesforce.AppleTest", targetInfo.getMainClass());
+    }
+
+    @Test
+    public void testInteractiveCommandRunsBeforeWaitingBackgroundCommands() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(2).build();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(workspace, testDir, null);
+        env.commandBuilder.addSimulatedOutput("query", Arrays.asList("//projects/libs/javalib0:javalib0"), null);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+
+        // the aspects of javalib0 hold the scheduler until they are released
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockWorkProgressMonitor blockingMonitor = new MockWorkProgressMonitor() {
+            @Override
+            public void subTask(String name) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        // records the command that ran last when the aspects of javalib1 start
+        AtomicReference<List<String>> commandBeforeAspects = new AtomicReference<>();
+        MockWorkProgressMonitor recordingMonitor = new MockWorkProgressMonitor() {
+            @Override
+            public void subTask(String name) {
+                commandBeforeAspects.set(env.commandBuilder.getLastCommandTokens());
+            }
+        };
+
+        ExecutorService callers = Executors.newCachedThreadPool();
+        try {
+            Future<Map<String, AspectPackageInfo>> runningAspects = callers.submit(() -> workspaceRunner
+                    .getAspectPackageInfos("javalib0", Collections.singleton("//projects/libs/javalib0:*"),
+                        blockingMonitor, "test"));
+            started.await(10, TimeUnit.SECONDS);
+            Future<Map<String, AspectPackageInfo>> waitingAspects = callers.submit(() -> workspaceRunner
+                    .getAspectPackageInfos("javalib1", Collections.singleton("//projects/libs/javalib1:*"),
+                        recordingMonitor, "test"));
+            awaitWaitingCount(workspaceRunner, 1);
+            Future<List<String>> completion = callers.submit(
+                () -> workspaceRunner.getMatchingTargets("//projects/libs/javalib0:", new MockWorkProgressMonitor()));
+            awaitWaitingCount(workspaceRunner, 2);
+            release.countDown();
+
+            assertTrue(runningAspects.get(10, TimeUnit.SECONDS).containsKey("projects/libs/javalib0:javalib0"));
+            assertTrue(waitingAspects.get(10, TimeUnit.SECONDS).containsKey("projects/libs/javalib1:javalib1"));
+            assertTrue(completion.get(10, TimeUnit.SECONDS).contains("//projects/libs/javalib0:javalib0"));
+            // the content assist query was submitted last, and ran before the waiting aspect build
+            assertTrue(commandBeforeAspects.get().contains("query"));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private static void awaitWaitingCount(BazelWorkspaceCommandRunner runner, int count) throws InterruptedException {
+        for (int i = 0; i < 1000 && runner.getCommandScheduler().getWaitingCount() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, runner.getCommandScheduler().getWaitingCount());
+    }
+
+    @Test
+    public void testIdeOutputBase() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(1).build();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(workspace, testDir, null);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        workspaceRunner.setBuildOptions(Arrays.asList("--define=a=b"));
+        assertEquals(Collections.emptyList(), workspaceRunner.getStartupOptions());
+        assertEquals(Arrays.asList("--define=a=b"), workspaceRunner.getAnalysisOptions());
+
+        File ideOutputBaseDir = new File(testDir, "ide-outputbase");
+        File diskCacheDir = new File(testDir, "disk-cache");
+        long buildGeneration = workspaceRunner.getBuildGeneration();
+        workspaceRunner.setIdeOutputBase(new BazelIdeOutputBase(ideOutputBaseDir, diskCacheDir, Arrays.asList("-Xmx2g"), 600));
+
+        assertEquals(Arrays.asList("--output_base=" + ideOutputBaseDir.getAbsolutePath(), "--host_jvm_args=-Xmx2g",
+            "--max_idle_secs=600"), workspaceRunner.getStartupOptions());
+        assertEquals(Arrays.asList("--define=a=b", "--disk_cache=" + diskCacheDir.getAbsolutePath(), "--symlink_prefix=/"),
+            workspaceRunner.getAnalysisOptions());
+        // the outputs of the previous output base are not the ones of the workspace anymore
+        assertEquals(buildGeneration + 1, workspaceRunner.getBuildGeneration());
+
+        // the same output base again changes nothing
+        workspaceRunner.setIdeOutputBase(new BazelIdeOutputBase(ideOutputBaseDir, diskCacheDir, Arrays.asList("-Xmx2g"), 600));
+        assertEquals(buildGeneration + 1, workspaceRunner.getBuildGeneration());
+    }
+
+    @Test
+    public void testIdeOutputBase_deletedWhenTurnedOff() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(1).build();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(workspace, testDir, null);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        File ideOutputBaseDir = new File(testDir, "ide-outputbase");
+        workspaceRunner.setIdeOutputBase(new BazelIdeOutputBase(ideOutputBaseDir, null, Collections.emptyList(), 0));
+        List<String> startupOptions = workspaceRunner.getStartupOptions();
+
+        // other server options keep the output base, its server is restarted
+        workspaceRunner.setIdeOutputBase(new BazelIdeOutputBase(ideOutputBaseDir, null, Arrays.asList("-Xmx2g"), 0));
+        List<String> command = env.commandBuilder.getLastCommandTokens();
+        assertEquals(startupOptions, command.subList(1, command.size() - 1));
+        assertEquals("shutdown", command.get(command.size() - 1));
+
+        // the output base is deleted by the server that runs with it
+        startupOptions = workspaceRunner.getStartupOptions();
+        workspaceRunner.setIdeOutputBase(null);
+        command = env.commandBuilder.getLastCommandTokens();
+        assertEquals(startupOptions, command.subList(1, command.size() - 2));
+        assertEquals(Arrays.asList("clean", "--expunge_async"), command.subList(command.size() - 2, command.size()));
+        assertEquals(Collections.emptyList(), workspaceRunner.getStartupOptions());
     }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.command.shell.BoundedConsoleOutputStream;
+
+public class BoundedConsoleOutputStreamTest {
+
+    @Test
+    public void testOutputIsWrittenOnDrain() throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        List<BoundedConsoleOutputStream> flushRequests = new ArrayList<>();
+        BoundedConsoleOutputStream subject = new BoundedConsoleOutputStream(console, 64, null, null, flushRequests::add);
+
+        write(subject, "hello ");
+        write(subject, "world\n");
+        // the console is only written to by drain, and a flush is requested only once per batch
+        assertThat(console.size()).isEqualTo(0);
+        assertThat(flushRequests).containsExactly(subject);
+        assertThat(subject.getPendingSize()).isEqualTo(12);
+
+        assertThat(subject.drain()).isEqualTo(12);
+        assertThat(console.toString("UTF-8")).isEqualTo("hello world\n");
+        assertThat(subject.getPendingSize()).isEqualTo(0);
+
+        write(subject, "again\n");
+        assertThat(flushRequests).hasSize(2);
+        subject.close();
+        assertThat(console.toString("UTF-8")).isEqualTo("hello world\nagain\n");
+    }
+
+    @Test
+    public void testOldestOutputIsDroppedAndSpilled() throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ByteArrayOutputStream spill = new ByteArrayOutputStream();
+        File spillFile = new File("console.log");
+        BoundedConsoleOutputStream subject = new BoundedConsoleOutputStream(console, 10, spill, spillFile, s -> {});
+
+        write(subject, "0123456789");
+        write(subject, "abcd");
+        write(subject, "ABCDEFGHIJKLMNOP");
+        subject.drain();
+
+        String output = console.toString("UTF-8");
+        assertThat(output).contains("20 bytes of output not shown");
+        assertThat(output).contains(spillFile.getAbsolutePath());
+        assertThat(output).endsWith("GHIJKLMNOP");
+        assertThat(spill.toString("UTF-8")).isEqualTo("0123456789abcdABCDEFGHIJKLMNOP");
+    }
+
+    @Test
+    public void testRingWrapsAround() throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        BoundedConsoleOutputStream subject = new BoundedConsoleOutputStream(console, 8, null, null, s -> {});
+
+        write(subject, "abcdef");
+        subject.drain();
+        write(subject, "ghijk");
+        write(subject, "lmn");
+        subject.drain();
+
+        assertThat(console.toString("UTF-8")).isEqualTo("abcdefghijklmn");
+    }
+
+    private static void write(BoundedConsoleOutputStream stream, String text) throws IOException {
+        stream.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.eclipse.command.mock.MockBazelAspectLocation;
+import com.salesforce.bazel.eclipse.command.mock.MockCommandConsole;
+import com.salesforce.bazel.eclipse.command.mock.MockWorkProgressMonitor;
+import com.salesforce.bazel.eclipse.command.shell.ShellCommandBuilder;
+import com.salesforce.bazel.eclipse.model.AspectPackageInfo;
+import com.salesforce.bazel.eclipse.model.BazelWorkspace;
+import com.salesforce.bazel.eclipse.model.BazelWorkspaceCommandOptions;
+import com.salesforce.bazel.eclipse.model.OperatingEnvironmentDetectionStrategy;
+import com.salesforce.bazel.eclipse.test.FakeBazelExecutable;
+import com.salesforce.bazel.eclipse.test.TestBazelWorkspaceFactory;
+
+/**
+ * Runs the workspace command runner against the fake Bazel executable, so that the real process path (ShellCommand,
+ * stream copying, output selection) is exercised, unlike the tests based on the MockCommandBuilder.
+ */
+public class FakeBazelCommandRunnerTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testWorkspaceRunnerWithFakeBazel() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazel-workspace");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "outputbase");
+        outputbaseDir.mkdirs();
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(workspaceDir, outputbaseDir).javaPackages(3).build();
+        File execDir = new File(testDir, "executable");
+        execDir.mkdirs();
+        File bazelExecutable = new FakeBazelExecutable(workspace).progressLines(1000).install(execDir);
+
+        MockCommandConsole console = new MockCommandConsole();
+        BazelCommandManager bazelCommandManager = new BazelCommandManager(
+            new MockBazelAspectLocation(testDir, "test-aspect-label"), new ShellCommandBuilder(console), console,
+            bazelExecutable);
+        BazelWorkspace bazelWorkspace = new BazelWorkspace("test", workspace.dirWorkspaceRoot,
+            Mockito.mock(OperatingEnvironmentDetectionStrategy.class));
+        BazelWorkspaceCommandRunner workspaceRunner = bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
+        workspaceRunner.runBazelVersionCheck();
+
+        assertEquals(workspace.dirExecRoot.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceExecRoot());
+        assertEquals(workspace.dirOutputBase.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceOutputBase());
+
+        List<String> labels = workspaceRunner.computeBazelQuery("//projects/libs/...");
+        assertEquals(6, labels.size());
+        assertTrue(labels.contains("//projects/libs/javalib1:javalib1Test"));
+
+        BazelWorkspaceCommandOptions commandOptions = new BazelWorkspaceCommandOptions(bazelWorkspace);
+        workspaceRunner.populateBazelWorkspaceCommandOptions(commandOptions);
+        assertEquals("false", commandOptions.getOption("explicit_java_test_deps"));
+
+        // the aspect json files are written by the fake Bazel, then parsed from the paths in its output
+        Map<String, AspectPackageInfo> aspectMap = workspaceRunner.getAspectPackageInfos("javalib1",
+            Collections.singleton("//projects/libs/javalib1:*"), new MockWorkProgressMonitor(), "testWorkspaceRunnerWithFakeBazel");
+        // aspect infos returned for: guava, slf4j, javalib0, javalib1, javalib1-test
+        assertEquals(5, aspectMap.size());
+        assertTrue(aspectMap.containsKey("projects/libs/javalib0:javalib0"));
+    }
+}
@@ -37,6 +37,7 @@
 package com.salesforce.bazel.eclipse.command;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -53,6 +54,7 @@ import org.junit.rules.TemporaryFolder;
 
 import com.salesforce.bazel.eclipse.abstractions.CommandConsole;
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
+import com.salesforce.bazel.eclipse.abstractions.WorkProgressMonitor;
 import com.salesforce.bazel.eclipse.command.shell.ShellCommand;
 
 /**
@@ -148,6 +150,7 @@ public class ShellCommandTest {
         assertThat(cmd.run()).isEqualTo(0);
         assertThat(cmd.getSelectedErrorLines()).containsExactly("a", "b");
         assertThat(cmd.getSelectedOutputLines()).containsExactly("a", "b");
+        assertThat(cmd.getOutputBytes()).isEqualTo(8);
     }
 
     @Test
@@ -165,6 +168,8 @@ public class ShellCommandTest {
         String stderrStr = new String(console.stderr.toByteArray(), StandardCharsets.UTF_8).trim();
         assertThat(stdoutStr).isEqualTo("a\nb");
         assertThat(stderrStr).isEqualTo("a\nb");
+        // the output shown in the console is counted too
+        assertThat(cmd.getOutputBytes()).isEqualTo(8);
     }
 
     @Test
@@ -178,4 +183,43 @@ public class ShellCommandTest {
         assertThat(cmd.getSelectedErrorLines()).isEmpty();
         assertThat(cmd.getSelectedOutputLines()).containsExactly(folder.getRoot().getCanonicalPath());
     }
+
+    @Test
+    public void testCommandCancelled() throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        WorkProgressMonitor cancelAfterDelay = new WorkProgressMonitor() {
+            private boolean canceled = false;
+
+            @Override
+            public boolean isCanceled() {
+                return canceled || System.currentTimeMillis() - start > 200;
+            }
+
+            @Override
+            public void setCanceled(boolean value) {
+                canceled = value;
+            }
+
+            @Override
+            public void worked(int work) {}
+
+            @Override
+            public void subTask(String name) {}
+
+            @Override
+            public void done() {}
+
+            @Override
+            public void beginTask(String name, int totalWork) {}
+        };
+        CommandBuilder builder = ShellCommand.builder(mockConsoleFactory).setConsoleName(null)
+                .setDirectory(folder.getRoot()).setProgressMonitor(cancelAfterDelay);
+        builder.addArguments("sleep", "30");
+        Command cmd = builder.build();
+        try {
+            cmd.run();
+            fail("Expected the command to be cancelled");
+        } catch (BazelCommandCancelledException expected) {}
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
+    }
 }
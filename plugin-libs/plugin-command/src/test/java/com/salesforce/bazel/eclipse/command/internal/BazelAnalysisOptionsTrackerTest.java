@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.metrics.MetricsRegistry;
+
+public class BazelAnalysisOptionsTrackerTest {
+
+    @Test
+    public void testGetAnalysisOptions() {
+        assertEquals(Arrays.asList("--define=a=b", "--javacopt=-Werror"),
+            BazelAnalysisOptionsTracker.getAnalysisOptions(Arrays.asList("--host_jvm_args=-Xmx4g", "build",
+                "--javacopt=-Werror", "--output_groups=json-files", "-k", "--define=a=b", "--nokeep_going",
+                "--profile=/tmp/profile.gz", "--", "//projects/libs/javalib0:*")));
+        assertEquals(Collections.emptyList(), BazelAnalysisOptionsTracker.getAnalysisOptions(
+            Arrays.asList("test", "--test_output=errors", "--nocache_test_results", "//projects/libs/javalib0")));
+    }
+
+    @Test
+    public void testRecordCommand_sameOptions() {
+        BazelAnalysisOptionsTracker tracker = new BazelAnalysisOptionsTracker();
+
+        assertFalse(tracker.recordCommand(Arrays.asList("build", "--define=a=b", "--", "//projects/libs/javalib0")));
+        // aspect builds, test launches and queries keep the analysis cache
+        assertFalse(tracker.recordCommand(Arrays.asList("build", "--define=a=b", "--aspects=@local_eclipse_aspect//:a.bzl",
+            "--output_groups=json-files,classpath-jars,-_,-defaults", "-k", "//projects/libs/javalib1")));
+        assertFalse(tracker.recordCommand(
+            Arrays.asList("test", "--test_filter=a\\.b#", "--define=a=b", "--", "//projects/libs/javalib0")));
+        assertFalse(tracker.recordCommand(Arrays.asList("query", "--define=c=d", "//...")));
+    }
+
+    @Test
+    public void testRecordCommand_otherOptions() {
+        BazelAnalysisOptionsTracker tracker = new BazelAnalysisOptionsTracker();
+        long discards = getDiscards();
+
+        assertFalse(tracker.recordCommand(Arrays.asList("build", "--define=a=b", "--", "//projects/libs/javalib0")));
+        assertTrue(tracker.recordCommand(Arrays.asList("build", "--aspects=@local_eclipse_aspect//:a.bzl",
+            "//projects/libs/javalib0")));
+        assertTrue(tracker.recordCommand(Arrays.asList("build", "--define=a=b", "--", "//projects/libs/javalib0")));
+        assertFalse(tracker.recordCommand(Arrays.asList("build", "--define=a=b", "--", "//projects/libs/javalib1")));
+
+        assertEquals(discards + 2, getDiscards());
+    }
+
+    private static long getDiscards() {
+        return MetricsRegistry.getInstance().counter(BazelAnalysisOptionsTracker.DISCARDS_METRIC_NAME).getCount();
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.command.BazelCommandPriority;
+
+public class BazelCommandSchedulerTest {
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        BazelCommandScheduler scheduler = new BazelCommandScheduler("test");
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // occupy the worker so the following commands all wait in the queue
+        CompletableFuture<String> first = scheduler.submit(BazelCommandPriority.USER, "first", null, null, m -> {
+            blocker.await();
+            return "first";
+        });
+        waitForWaitingCount(scheduler, 0);
+        CompletableFuture<String> background = scheduler.submit(BazelCommandPriority.BACKGROUND, "background", null, null, m -> record(order, "background"));
+        CompletableFuture<String> user = scheduler.submit(BazelCommandPriority.USER, "user", null, null, m -> record(order, "user"));
+        CompletableFuture<String> interactive = scheduler.submit(BazelCommandPriority.INTERACTIVE, "interactive", null, null, m -> record(order, "interactive"));
+        blocker.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        background.get(5, TimeUnit.SECONDS);
+        user.get(5, TimeUnit.SECONDS);
+        interactive.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("interactive", "user", "background"), order);
+    }
+
+    @Test
+    public void testDedupeAndSupersede() throws Exception {
+        BazelCommandScheduler scheduler = new BazelCommandScheduler("test");
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        scheduler.submit(BazelCommandPriority.USER, "blocker", null, null, m -> blocker.await(5, TimeUnit.SECONDS));
+        waitForWaitingCount(scheduler, 0);
+        CompletableFuture<Integer> query1 = scheduler.submit(BazelCommandPriority.USER, "query a", null, null, m -> runs.incrementAndGet());
+        CompletableFuture<Integer> query2 = scheduler.submit(BazelCommandPriority.USER, "query a", null, null, m -> runs.incrementAndGet());
+        assertSame(query1, query2);
+
+        CompletableFuture<String> stale = scheduler.submit(BazelCommandPriority.INTERACTIVE, "complete a", "completion", null, m -> "a");
+        CompletableFuture<String> latest = scheduler.submit(BazelCommandPriority.INTERACTIVE, "complete ab", "completion", null, m -> "ab");
+        assertTrue(stale.isCancelled());
+        blocker.countDown();
+
+        assertEquals("ab", latest.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), query1.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        BazelCommandScheduler scheduler = new BazelCommandScheduler("test");
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.submit(BazelCommandPriority.USER, "blocker", null, null, m -> blocker.await(5, TimeUnit.SECONDS));
+        waitForWaitingCount(scheduler, 0);
+        CompletableFuture<String> a = scheduler.submitMergeable(BazelCommandPriority.BACKGROUND, "aspects",
+            Arrays.asList("//a:*"), (items, m) -> batches.add(new ArrayList<>(items)), null, m -> "a");
+        CompletableFuture<String> b = scheduler.submitMergeable(BazelCommandPriority.BACKGROUND, "aspects",
+            Arrays.asList("//b:*", "//a:*"), (items, m) -> batches.add(new ArrayList<>(items)), null, m -> "b");
+        assertEquals(1, scheduler.getWaitingCount());
+        blocker.countDown();
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS));
+        assertEquals("b", b.get(5, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("//a:*", "//b:*"), batches.get(0));
+    }
+
+    @Test
+    public void testBackgroundYieldsToInteractive() throws Exception {
+        BazelCommandScheduler scheduler = new BazelCommandScheduler("test");
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger backgroundRuns = new AtomicInteger();
+
+        CompletableFuture<String> background = scheduler.submit(BazelCommandPriority.BACKGROUND, "aspects", null, null, m -> {
+            if (backgroundRuns.incrementAndGet() == 1) {
+                backgroundStarted.countDown();
+                // a long running command that polls for cancellation
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!m.isCanceled() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                throw new CancellationException();
+            }
+            return record(order, "background");
+        });
+        backgroundStarted.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> interactive = scheduler.submit(BazelCommandPriority.INTERACTIVE, "query", null, null, m -> record(order, "interactive"));
+
+        interactive.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("interactive", "background"), order);
+        assertEquals(2, backgroundRuns.get());
+    }
+
+    @Test
+    public void testSchedulersRunIndependently() throws Exception {
+        // one scheduler per Bazel workspace, a long command in one does not hold up the other
+        BazelCommandScheduler scheduler1 = new BazelCommandScheduler("workspace1");
+        BazelCommandScheduler scheduler2 = new BazelCommandScheduler("workspace2");
+        CountDownLatch blocker = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> longBuild = scheduler1.submit(BazelCommandPriority.BACKGROUND, "aspects", null, null,
+            m -> blocker.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> query = scheduler2.submit(BazelCommandPriority.USER, "query", null, null, m -> "query");
+
+        assertEquals("query", query.get(5, TimeUnit.SECONDS));
+        assertFalse(longBuild.isDone());
+        blocker.countDown();
+        assertTrue(longBuild.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        BazelCommandScheduler scheduler = new BazelCommandScheduler("test");
+        CountDownLatch blocker = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> running = scheduler.submit(BazelCommandPriority.USER, "running", null, null,
+            m -> blocker.await(5, TimeUnit.SECONDS));
+        waitForWaitingCount(scheduler, 0);
+        CompletableFuture<String> waiting = scheduler.submit(BazelCommandPriority.USER, "waiting", null, null, m -> "waiting");
+        scheduler.shutdown();
+        CompletableFuture<String> late = scheduler.submit(BazelCommandPriority.USER, "late", null, null, m -> "late");
+
+        assertTrue(waiting.isCancelled());
+        assertTrue(late.isCancelled());
+        assertEquals(0, scheduler.getWaitingCount());
+        // the running command is left to finish
+        blocker.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+    }
+
+    // HELPERS
+
+    private static String record(List<String> order, String name) {
+        order.add(name);
+        return name;
+    }
+
+    private static void waitForWaitingCount(BazelCommandScheduler scheduler, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getWaitingCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
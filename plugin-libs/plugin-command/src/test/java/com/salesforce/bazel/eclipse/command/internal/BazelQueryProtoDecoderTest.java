@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
+
+public class BazelQueryProtoDecoderTest {
+
+    @Test
+    public void testDecode() throws Exception {
+        List<BazelTargetInfo> targetInfos = new ArrayList<>();
+        BazelQueryProtoDecoder decoder = new BazelQueryProtoDecoder(targetInfos::add);
+        decoder.write(queryOutput());
+
+        assertEquals(2, decoder.finish());
+        // the source file target is not a rule
+        assertEquals(1, targetInfos.size());
+        assertAppleTest(targetInfos.get(0));
+    }
+
+    @Test
+    public void testDecode_byteByByte() throws Exception {
+        List<BazelTargetInfo> targetInfos = new ArrayList<>();
+        BazelQueryProtoDecoder decoder = new BazelQueryProtoDecoder(targetInfos::add);
+        for (byte b : queryOutput()) {
+            decoder.write(b);
+        }
+
+        assertEquals(2, decoder.finish());
+        assertEquals(1, targetInfos.size());
+        assertAppleTest(targetInfos.get(0));
+    }
+
+    @Test
+    public void testDecode_truncated() throws Exception {
+        byte[] output = queryOutput();
+        List<BazelTargetInfo> targetInfos = new ArrayList<>();
+        BazelQueryProtoDecoder decoder = new BazelQueryProtoDecoder(targetInfos::add);
+        decoder.write(output, 0, output.length - 3);
+        try {
+            decoder.finish();
+            fail("the output ends in the middle of a target");
+        } catch (IOException expected) {}
+    }
+
+    @Test
+    public void testDecode_malformed() throws Exception {
+        List<BazelTargetInfo> targetInfos = new ArrayList<>();
+        BazelQueryProtoDecoder decoder = new BazelQueryProtoDecoder(targetInfos::add);
+        // a target of 2 bytes with a field of wire type 7, which does not exist
+        decoder.write(new byte[] { 2, (1 << 3) | 7, 0 });
+        // the rest of the output is discarded, the command is not stopped in the middle of its output
+        decoder.write(queryOutput());
+        assertEquals(0, targetInfos.size());
+        try {
+            decoder.finish();
+            fail("the output is malformed");
+        } catch (IOException expected) {
+            assertEquals("Unsupported wire type 7 in the query output", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetSourcePath() {
+        assertEquals("projects/libs/apple/src/Apple.java",
+            BazelQueryProtoDecoder.getSourcePath("//projects/libs/apple:src/Apple.java"));
+        assertEquals("Root.java", BazelQueryProtoDecoder.getSourcePath("//:Root.java"));
+        assertEquals("projects/apple/apple", BazelQueryProtoDecoder.getSourcePath("//projects/apple"));
+        assertNull(BazelQueryProtoDecoder.getSourcePath("@guava//jar:Guava.java"));
+    }
+
+    // HELPERS
+
+    private static void assertAppleTest(BazelTargetInfo targetInfo) {
+        assertEquals("//projects/libs/apple:apple-test", targetInfo.getLabel());
+        assertEquals("java_test", targetInfo.getKind());
+        assertEquals(Arrays.asList("projects/libs/apple/src/test/java/AppleTest.java"), targetInfo.getSources());
+        assertEquals(Arrays.asList("//projects/libs/apple", "@junit_junit//jar", "//projects/libs/banana"),
+            targetInfo.getDeps());
+        assertEquals("com.salesforce.AppleTest", targetInfo.getMainClass());
+    }
+
+    /**
+     * The output of 'bazel query --output=streamed_proto' for a java_test rule and a source file. Also the query output
+     * of BazelWorkspaceCommandRunnerTest.
+     */
+    public static byte[] queryOutput() throws IOException {
+        ByteArrayOutputStream rule = new ByteArrayOutputStream();
+        writeString(rule, 1, "//projects/libs/apple:apple-test");
+        writeString(rule, 2, "java_test");
+        writeMessage(rule, 4, attribute("srcs", null, Arrays.asList("//projects/libs/apple:src/test/java/AppleTest.java",
+            "@generated//:Gen.java")));
+        writeMessage(rule, 4, attribute("deps", null, Arrays.asList("//projects/libs/apple", "@junit_junit//jar")));
+        writeMessage(rule, 4, attribute("runtime_deps", null, Arrays.asList("//projects/libs/banana")));
+        writeMessage(rule, 4, attribute("main_class", "com.salesforce.AppleTest", Collections.emptyList()));
+        // fields the decoder does not read: location, public_by_default
+        writeString(rule, 3, "/ws/projects/libs/apple/BUILD:3:10");
+        writeTag(rule, 6, 0);
+        writeVarint(rule, 1);
+
+        ByteArrayOutputStream ruleTarget = new ByteArrayOutputStream();
+        writeTag(ruleTarget, 1, 0);
+        writeVarint(ruleTarget, 1);
+        writeMessage(ruleTarget, 2, rule.toByteArray());
+
+        ByteArrayOutputStream sourceFile = new ByteArrayOutputStream();
+        writeString(sourceFile, 1, "//projects/libs/apple:src/test/java/AppleTest.java");
+        // a fixed32 and a fixed64, to skip
+        writeTag(sourceFile, 9, 5);
+        sourceFile.write(new byte[4]);
+        writeTag(sourceFile, 10, 1);
+        sourceFile.write(new byte[8]);
+        ByteArrayOutputStream sourceFileTarget = new ByteArrayOutputStream();
+        writeTag(sourceFileTarget, 1, 0);
+        writeVarint(sourceFileTarget, 2);
+        writeMessage(sourceFileTarget, 3, sourceFile.toByteArray());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] target : Arrays.asList(ruleTarget.toByteArray(), sourceFileTarget.toByteArray())) {
+            writeVarint(output, target.length);
+            output.write(target);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] attribute(String name, String stringValue, List<String> stringListValue) throws IOException {
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        writeString(attribute, 1, name);
+        // type, which the decoder does not read
+        writeTag(attribute, 2, 0);
+        writeVarint(attribute, 5);
+        if (stringValue != null) {
+            writeString(attribute, 5, stringValue);
+        }
+        for (String value : stringListValue) {
+            writeString(attribute, 6, value);
+        }
+        return attribute.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, int fieldNumber, String value) throws IOException {
+        writeMessage(out, fieldNumber, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeMessage(ByteArrayOutputStream out, int fieldNumber, byte[] bytes) throws IOException {
+        writeTag(out, fieldNumber, 2);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int fieldNumber, int wireType) {
+        writeVarint(out, (fieldNumber << 3) | wireType);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void testGetKeys() {
+        PrefixTrie<Integer> trie = newTrie("projects", "projects/libs", "projects/libs/banana", "projects/libs/apple",
+            "projects/libs/apple/api", "projects/services");
+
+        assertEquals(Arrays.asList("projects/libs", "projects/libs/apple", "projects/libs/apple/api",
+            "projects/libs/banana"), trie.getKeys("projects/l", PrefixTrie.NO_SEPARATOR, 100));
+        assertEquals(Collections.emptyList(), trie.getKeys("projects/x", PrefixTrie.NO_SEPARATOR, 100));
+        assertEquals(Arrays.asList("projects/libs"), trie.getKeys("projects/l", PrefixTrie.NO_SEPARATOR, 1));
+    }
+
+    @Test
+    public void testGetKeys_separator() {
+        PrefixTrie<Integer> trie = newTrie("projects", "projects/libs", "projects/libs/banana", "projects/libs/apple",
+            "projects/libs/apple/api", "projects/services");
+
+        // the children, not the grand children
+        assertEquals(Arrays.asList("projects/libs/apple", "projects/libs/banana"),
+            trie.getKeys("projects/libs/", '/', 100));
+        assertEquals(Arrays.asList("projects/libs", "projects/services"), trie.getKeys("projects/", '/', 100));
+        assertEquals(Arrays.asList("projects"), trie.getKeys("", '/', 100));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        PrefixTrie<Integer> trie = newTrie("a/b:apple", "a/b:banana", "a/bc:cherry");
+        assertEquals(3, trie.size());
+        assertEquals(Integer.valueOf(1), trie.get("a/b:banana"));
+        assertNull(trie.get("a/b:"));
+        assertFalse(trie.containsKey("a/b"));
+
+        trie.put("a/b:banana", 42);
+        assertEquals(3, trie.size());
+        assertEquals(Integer.valueOf(42), trie.get("a/b:banana"));
+
+        trie.removeKeys("a/b:");
+        assertEquals(1, trie.size());
+        assertTrue(trie.containsKey("a/bc:cherry"));
+        assertFalse(trie.containsKey("a/b:apple"));
+
+        trie.removeKeys("");
+        assertEquals(0, trie.size());
+    }
+
+    private static PrefixTrie<Integer> newTrie(String... keys) {
+        PrefixTrie<Integer> trie = new PrefixTrie<>();
+        for (String key : keys) {
+            trie.put(key, 1);
+        }
+        return trie;
+    }
+}
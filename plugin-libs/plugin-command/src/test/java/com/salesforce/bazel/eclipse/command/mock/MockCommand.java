@@ -24,6 +24,7 @@
 package com.salesforce.bazel.eclipse.command.mock;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.mockito.Mockito;
@@ -42,10 +43,17 @@ public class MockCommand implements Command {
     public List<String> commandTokens;
     public List<String> outputLines;
     public List<String> errorLines;
+    public int exitCode = 0;
+    // the raw output, written to the standard output stream passed to the builder (e.g. a streamed query output)
+    public byte[] outputBytes;
+    public OutputStream standardOutput;
     
     @Override
     public int run() throws IOException, InterruptedException {
-        return 0;
+        if (outputBytes != null && standardOutput != null) {
+            standardOutput.write(outputBytes);
+        }
+        return exitCode;
     }
 
     @Override
@@ -74,4 +82,16 @@ public class MockCommand implements Command {
         return ImmutableList.of();
     }
 
+    @Override
+    public long getOutputBytes() {
+        long bytes = outputBytes == null ? 0 : outputBytes.length;
+        for (String line : getSelectedOutputLines()) {
+            bytes += line.length() + 1;
+        }
+        for (String line : getSelectedErrorLines()) {
+            bytes += line.length() + 1;
+        }
+        return bytes;
+    }
+
 }
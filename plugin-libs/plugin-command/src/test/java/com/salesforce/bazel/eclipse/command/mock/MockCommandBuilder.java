@@ -28,9 +28,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.salesforce.bazel.eclipse.abstractions.CommandConsoleFactory;
 import com.salesforce.bazel.eclipse.command.Command;
@@ -72,6 +74,33 @@ public class MockCommandBuilder extends CommandBuilder {
      */
     public List<MockCommandSimulatedOutput> simulatedOutputLines = new ArrayList<>();
 
+    /**
+     * The aspect build outputs, keyed by the wildcard target of the package (//projects/libs/javalib0:*). They are
+     * also in simulatedOutputLines, this index just avoids a linear scan per command for workspaces with thousands of
+     * packages.
+     */
+    private Map<String, MockCommandSimulatedOutput> aspectOutputsByTarget = new HashMap<>();
+    
+    /**
+     * Number of commands built by this builder, which is the number of simulated Bazel invocations.
+     */
+    private final AtomicInteger commandCount = new AtomicInteger();
+
+    /**
+     * The tokens of the last command built by this builder.
+     */
+    private volatile List<String> lastCommandTokens;
+
+    /**
+     * The output of 'bazel query --output=streamed_proto', null to reject the query like the mocked Bazel 1.0.0.
+     */
+    private volatile byte[] streamedProtoQueryOutput;
+
+    /**
+     * Number of 'bazel query --output=streamed_proto' commands built by this builder.
+     */
+    private final AtomicInteger streamedProtoQueryCount = new AtomicInteger();
+
     /**
      * If an aspect build command is run, we need to know the list of aspect file paths for the workspace to be
      * able to create the specific output.
@@ -87,6 +116,18 @@ public class MockCommandBuilder extends CommandBuilder {
         this.commandOptions = commandOptions;
     }
     
+    /**
+     * Makes 'bazel query --output=streamed_proto' succeed with the passed output, as a Bazel version with this output
+     * would.
+     */
+    public void mockStreamedProtoQueryOutput(byte[] queryOutput) {
+        this.streamedProtoQueryOutput = queryOutput;
+    }
+
+    public int getStreamedProtoQueryCount() {
+        return streamedProtoQueryCount.get();
+    }
+
     public MockCommandBuilder mockReturnOutputLines(List<String> outputLines) {
         return this;
     }
@@ -130,9 +171,24 @@ public class MockCommandBuilder extends CommandBuilder {
             String nameForLog = "Aspect file set for target: "+wildcardTarget;
             MockCommandSimulatedOutput aspectOutput = new MockCommandSimulatedOutput(nameForLog, Arrays.asList(outputLines), aspectFilePathsList, matchers);
             simulatedOutputLines.add(aspectOutput);
+            aspectOutputsByTarget.put("//"+packagePath+":*", aspectOutput);
         }
     }
     
+    /**
+     * Returns the number of Bazel commands that have been simulated so far. 
+     */
+    public int getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * Returns the tokens of the last simulated Bazel command, the executable included, null if none has been run.
+     */
+    public List<String> getLastCommandTokens() {
+        return lastCommandTokens;
+    }
+    
     // CUSTOM OUTPUT LINES
     // If your use case invokes a command that will have specific output, use these methods
     
@@ -166,11 +222,21 @@ public class MockCommandBuilder extends CommandBuilder {
     
     // MOCK METHOD UNDER TEST
     
+    /**
+     * The simulated outputs are configured on the builder the test created, so all runners share it.
+     */
+    @Override
+    public MockCommandBuilder newInstance() {
+        return this;
+    }
+
     @Override
     public Command build_impl() throws IOException {
         MockCommand mockCommand = new MockCommand();
+        commandCount.incrementAndGet();
         
         mockCommand.commandTokens = args;
+        lastCommandTokens = args;
         String commandPretty = "";
         for (String token : mockCommand.commandTokens) {
             commandPretty = commandPretty + token + " ";
@@ -199,10 +265,13 @@ public class MockCommandBuilder extends CommandBuilder {
             } else {
                 throw new IllegalArgumentException("MockCommandBuilder does not know how to mock 'bazel info "+mockCommand.commandTokens.get(2)+"'. Please add code to handle this case.");
             }
-        } else if ("clean".equals(mockCommand.commandTokens.get(1))) {
-            // "bazel clean"
+        } else if ("clean".equals(getVerb(mockCommand.commandTokens))) {
+            // "bazel clean", possibly with the startup options of a dedicated output base
             addSimulatedOutputToCommandStdOut(mockCommand, "INFO: Starting clean.");
             handled = true;
+        } else if ("shutdown".equals(getVerb(mockCommand.commandTokens))) {
+            addSimulatedOutputToCommandStdOut(mockCommand);
+            handled = true;
         } else if ("version".equals(mockCommand.commandTokens.get(1))) {
             // "bazel version"
             addSimulatedOutputToCommandStdOut(mockCommand, "Build label: 1.0.0", "Build time: Thu Oct 10 10:19:27 2019 (1570702767)",
@@ -226,9 +295,31 @@ public class MockCommandBuilder extends CommandBuilder {
                 }
                 handled = true;
             }
+        } else if ("query".equals(mockCommand.commandTokens.get(1))
+                && mockCommand.commandTokens.contains("--output=streamed_proto")) {
+            streamedProtoQueryCount.incrementAndGet();
+            byte[] queryOutput = streamedProtoQueryOutput;
+            if (queryOutput != null) {
+                addSimulatedOutputToCommandStdOut(mockCommand);
+                mockCommand.outputBytes = queryOutput;
+                mockCommand.standardOutput = stdout;
+            } else {
+                // the mocked Bazel is 1.0.0, which does not have this output
+                addSimulatedOutputToCommandStdErr(mockCommand, "ERROR: Unrecognized option: --output=streamed_proto");
+                mockCommand.exitCode = 2;
+            }
+            handled = true;
         } 
         
         // if it wasn't a standard command, get ready for it
+        if (!handled) {
+            MockCommandSimulatedOutput aspectOutput = aspectOutputsByTarget.get(getFirstTarget(mockCommand.commandTokens));
+            if (aspectOutput != null && aspectOutput.doesMatch(mockCommand.commandTokens)) {
+                mockCommand.outputLines = aspectOutput.outputLines;
+                mockCommand.errorLines = aspectOutput.errorLines;
+                handled = true;
+            }
+        }
         if (!handled) {
             for (MockCommandSimulatedOutput candidateOutput: this.simulatedOutputLines) {
                 if (candidateOutput.doesMatch(mockCommand.commandTokens)) {
@@ -249,6 +340,40 @@ public class MockCommandBuilder extends CommandBuilder {
         return mockCommand;
     }
 
+    /**
+     * Returns the first target of a build command, which is the token after '--' if there is one, else the first token
+     * after 'build' that is not an option. Returns null if the command is not a build.
+     */
+    private static String getFirstTarget(List<String> commandTokens) {
+        int i = commandTokens.indexOf("build");
+        if (i == -1) {
+            return null;
+        }
+        int separator = commandTokens.indexOf("--");
+        if (separator > i) {
+            return separator + 1 < commandTokens.size() ? commandTokens.get(separator + 1) : null;
+        }
+        for (i++; i < commandTokens.size(); i++) {
+            if (!commandTokens.get(i).startsWith("-")) {
+                return commandTokens.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the Bazel command (build, clean...), which is the first token after the executable that is not a startup
+     * option.
+     */
+    private static String getVerb(List<String> commandTokens) {
+        for (int i = 1; i < commandTokens.size(); i++) {
+            if (!commandTokens.get(i).startsWith("-")) {
+                return commandTokens.get(i);
+            }
+        }
+        return null;
+    }
+
     private void addSimulatedOutputToCommandStdOut(MockCommand mockCommand, String... someStrings) {
         mockCommand.outputLines = new ArrayList<>();
         for (String someString : someStrings) {
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Facade that hands the log messages over to another facade on a background thread, so logging threads never block
+ * on console or file I/O.
+ * <p>
+ * Messages are queued in a bounded ring buffer. If the buffer is full (the writer cannot keep up) new messages are
+ * dropped instead of blocking the caller, and the number of dropped messages is logged once the writer catches up.
+ * Messages are formatted on the calling thread, and only if their level is enabled, so that the arguments are captured
+ * in the state they had when the message was logged.
+ */
+public class AsyncLoggerFacade extends LoggerFacade {
+
+    static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final LoggerFacade delegate;
+
+    /**
+     * Reports the failures of the delegate, which cannot report them itself.
+     */
+    private final LoggerFacade fallback;
+    private final BlockingQueue<Object> buffer;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread writer;
+
+    public AsyncLoggerFacade(LoggerFacade delegate) {
+        this(delegate, DEFAULT_BUFFER_SIZE);
+    }
+
+    AsyncLoggerFacade(LoggerFacade delegate, int bufferSize) {
+        this(delegate, bufferSize, new BasicLoggerFacade());
+    }
+
+    AsyncLoggerFacade(LoggerFacade delegate, int bufferSize, LoggerFacade fallback) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.writer = new Thread(this::writeMessages, "Bazel log writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public boolean isEnabled(Class<?> from, LogLevel level) {
+        return delegate.isEnabled(from, level);
+    }
+
+    @Override
+    public LogLevel getLevel() {
+        return delegate.getLevel();
+    }
+
+    @Override
+    public void setLevel(LogLevel level) {
+        delegate.setLevel(level);
+    }
+
+    @Override
+    public void error(Class<?> from, String message, Object... args) {
+        enqueue(LogLevel.ERROR, from, message, null, args);
+    }
+
+    @Override
+    public void error(Class<?> from, String message, Throwable exception, Object... args) {
+        enqueue(LogLevel.ERROR, from, message, exception, args);
+    }
+
+    @Override
+    public void warn(Class<?> from, String message, Object... args) {
+        enqueue(LogLevel.WARN, from, message, null, args);
+    }
+
+    @Override
+    public void info(Class<?> from, String message, Object... args) {
+        enqueue(LogLevel.INFO, from, message, null, args);
+    }
+
+    @Override
+    public void debug(Class<?> from, String message, Object... args) {
+        enqueue(LogLevel.DEBUG, from, message, null, args);
+    }
+
+    /**
+     * Waits until the messages logged so far have been handed over to the delegate, or the timeout elapses. Returns
+     * true if the messages were written.
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!buffer.offer(flushed, timeout, unit)) {
+            return false;
+        }
+        return flushed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // INTERNAL
+
+    private void enqueue(LogLevel level, Class<?> from, String message, Throwable exception, Object[] args) {
+        if (!delegate.isEnabled(from, level)) {
+            return;
+        }
+        LogRecord record = new LogRecord(level, from, formatMessage(message, args), exception);
+        if (!buffer.offer(record)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private void writeMessages() {
+        long reportedDropped = 0;
+        while (true) {
+            Object next;
+            try {
+                next = buffer.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                boolean isFlush = next instanceof CountDownLatch;
+                if (!isFlush) {
+                    ((LogRecord) next).writeTo(delegate);
+                }
+                // report the dropped messages once the writer has caught up, or before a flush completes
+                long dropped = droppedCount.get();
+                if (dropped > reportedDropped && (isFlush || buffer.isEmpty())) {
+                    delegate.warn(AsyncLoggerFacade.class, "{} log messages were dropped because the log buffer was full",
+                        dropped - reportedDropped);
+                    reportedDropped = dropped;
+                }
+            } catch (RuntimeException e) {
+                // the writer must survive a failing delegate, or logging stops for good
+                fallback.error(AsyncLoggerFacade.class, "Could not write a log message to {}", e,
+                    delegate.getClass().getName());
+            }
+            if (next instanceof CountDownLatch) {
+                ((CountDownLatch) next).countDown();
+            }
+        }
+    }
+
+    private static class LogRecord {
+        private final LogLevel level;
+        private final Class<?> from;
+        private final String message;
+        private final Throwable exception;
+
+        LogRecord(LogLevel level, Class<?> from, String message, Throwable exception) {
+            this.level = level;
+            this.from = from;
+            this.message = message;
+            this.exception = exception;
+        }
+
+        void writeTo(LoggerFacade facade) {
+            switch (level) {
+            case ERROR:
+                if (exception != null) {
+                    facade.error(from, message, exception);
+                } else {
+                    facade.error(from, message);
+                }
+                break;
+            case WARN:
+                facade.warn(from, message);
+                break;
+            case INFO:
+                facade.info(from, message);
+                break;
+            default:
+                facade.debug(from, message);
+                break;
+            }
+        }
+    }
+}
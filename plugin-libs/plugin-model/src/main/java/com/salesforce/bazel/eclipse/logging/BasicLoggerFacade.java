@@ -45,6 +45,10 @@ package com.salesforce.bazel.eclipse.logging;
  */
 public class BasicLoggerFacade extends LoggerFacade {
 
+    public BasicLoggerFacade() {
+        setLevel(LogLevel.INFO);
+    }
+
     @Override
     public void error(Class<?> from, String message, Object... args) {
         // LoggerFactory.getLogger(from).error(message, args);
@@ -55,28 +59,37 @@ public class BasicLoggerFacade extends LoggerFacade {
     public void error(Class<?> from, String message, Throwable exception, Object... args) {
         //LoggerFactory.getLogger(from).error(message, exception, args);
         System.err.println(formatMsg(from, message, args));
+        if (exception != null) {
+            exception.printStackTrace();
+        }
     }
 
     @Override
     public void warn(Class<?> from, String message, Object... args) {
         // LoggerFactory.getLogger(from).warn(message, args);
-        System.out.println(formatMsg(from, message, args));
+        if (isEnabled(from, LogLevel.WARN)) {
+            System.out.println(formatMsg(from, message, args));
+        }
     }
 
     @Override
     public void info(Class<?> from, String message, Object... args) {
         // LoggerFactory.getLogger(from).info(message, args);
-        System.out.println(formatMsg(from, message, args));
+        if (isEnabled(from, LogLevel.INFO)) {
+            System.out.println(formatMsg(from, message, args));
+        }
     }
 
     @Override
     public void debug(Class<?> from, String message, Object... args) {
         // LoggerFactory.getLogger(from).debug(message, args);
-        // System.out.println(formatMsg(from, message, args));
+        if (isEnabled(from, LogLevel.DEBUG)) {
+            System.out.println(formatMsg(from, message, args));
+        }
     }
 
     private String formatMsg(Class<?> from, String message, Object... args) {
-        return "["+from.getName()+"] "+message;
+        return "["+from.getName()+"] "+formatMessage(message, args);
     }
     
 }
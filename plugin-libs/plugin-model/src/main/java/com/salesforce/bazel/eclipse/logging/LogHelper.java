@@ -35,6 +35,8 @@
  */
 package com.salesforce.bazel.eclipse.logging;
 
+import java.util.function.Supplier;
+
 /**
  * Helper to log messages. Doesn't cache anything but class name for common logging frameworks. This allows the
  * LoggerFacade to be changed and without having to constantly give the class.
@@ -55,6 +57,14 @@ public class LogHelper {
         this.from = from;
     }
 
+    public boolean isDebugEnabled() {
+        return getFacade().isEnabled(from, LogLevel.DEBUG);
+    }
+
+    public boolean isInfoEnabled() {
+        return getFacade().isEnabled(from, LogLevel.INFO);
+    }
+
     public void error(String message, Object... args) {
         getFacade().error(from, message, args);
     }
@@ -64,15 +74,89 @@ public class LogHelper {
     }
 
     public void warn(String message, Object... args) {
-        getFacade().warn(from, message, args);
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.WARN)) {
+            facade.warn(from, message, args);
+        }
+    }
+
+    // INFO and DEBUG are disabled most of the time, the fixed argument variants avoid allocating the varargs array on
+    // hot paths when they are
+
+    public void info(String message) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.INFO)) {
+            facade.info(from, message);
+        }
+    }
+
+    public void info(String message, Object arg) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.INFO)) {
+            facade.info(from, message, arg);
+        }
+    }
+
+    public void info(String message, Object arg1, Object arg2) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.INFO)) {
+            facade.info(from, message, arg1, arg2);
+        }
     }
 
     public void info(String message, Object... args) {
-        getFacade().info(from, message, args);
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.INFO)) {
+            facade.info(from, message, args);
+        }
+    }
+
+    /**
+     * Logs the message built by the supplier, which is only called if INFO is enabled.
+     */
+    public void info(Supplier<String> messageSupplier) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.INFO)) {
+            facade.info(from, messageSupplier.get());
+        }
+    }
+
+    public void debug(String message) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.DEBUG)) {
+            facade.debug(from, message);
+        }
+    }
+
+    public void debug(String message, Object arg) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.DEBUG)) {
+            facade.debug(from, message, arg);
+        }
+    }
+
+    public void debug(String message, Object arg1, Object arg2) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.DEBUG)) {
+            facade.debug(from, message, arg1, arg2);
+        }
     }
 
     public void debug(String message, Object... args) {
-        getFacade().debug(from, message, args);
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.DEBUG)) {
+            facade.debug(from, message, args);
+        }
+    }
+
+    /**
+     * Logs the message built by the supplier, which is only called if DEBUG is enabled.
+     */
+    public void debug(Supplier<String> messageSupplier) {
+        LoggerFacade facade = getFacade();
+        if (facade.isEnabled(from, LogLevel.DEBUG)) {
+            facade.debug(from, messageSupplier.get());
+        }
     }
 
     private LoggerFacade getFacade() {
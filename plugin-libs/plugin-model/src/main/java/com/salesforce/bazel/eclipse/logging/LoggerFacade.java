@@ -46,6 +46,8 @@ package com.salesforce.bazel.eclipse.logging;
 public abstract class LoggerFacade {
     static LoggerFacade instance = new BasicLoggerFacade();
 
+    private volatile LogLevel level = LogLevel.DEBUG;
+
     /**
      * Default instance, this can change - DO NOT CACHE or STORE
      * 
@@ -101,6 +103,56 @@ public abstract class LoggerFacade {
      */
     public abstract void debug(Class<?> from, String message, Object... args);
 
+    /**
+     * Returns true if messages of the passed level are logged. Callers use this to skip building messages that would
+     * be discarded anyway.
+     * 
+     * @param from
+     * @param level
+     * @return
+     */
+    public boolean isEnabled(Class<?> from, LogLevel level) {
+        return level.isLoggedAt(this.level);
+    }
+
+    /**
+     * The least severe level that is logged, DEBUG (everything) unless configured otherwise
+     * 
+     * @return
+     */
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * Replaces each {} placeholder in the message with the next argument
+     * 
+     * @param message
+     * @param args
+     * @return
+     */
+    public static String formatMessage(String message, Object... args) {
+        if (message == null || args == null || args.length == 0) {
+            return message;
+        }
+        StringBuilder formatted = new StringBuilder(message.length() + 16 * args.length);
+        int argIndex = 0;
+        int start = 0;
+        int placeholder = message.indexOf("{}");
+        while (placeholder >= 0 && argIndex < args.length) {
+            formatted.append(message, start, placeholder);
+            formatted.append(args[argIndex++]);
+            start = placeholder + 2;
+            placeholder = message.indexOf("{}", start);
+        }
+        formatted.append(message, start, message.length());
+        return formatted.toString();
+    }
+
     /**
      * Use only by bazel eclipse plugin activator or tests
      * 
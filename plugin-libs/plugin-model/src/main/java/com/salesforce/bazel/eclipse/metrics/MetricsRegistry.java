@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.json.JSONObject;
+
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Registry of the performance metrics of the plugin: counters, timers and histograms, identified by a dotted name
+ * (e.g. bazel.command.build, aspect.cache.hits, classpath.entries). Metrics are created on first use.
+ * <p>
+ * The registry is exposed over JMX (see {@link #registerMBean()}) and can be dumped as JSON, which helps to tell
+ * whether a slow operation spent its time in Bazel, in parsing the aspect output or in Eclipse.
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+    static final LogHelper LOG = LogHelper.log(MetricsRegistry.class);
+
+    public static final String MBEAN_NAME = "com.salesforce.bazel.eclipse:type=Metrics";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    MetricsRegistry() {}
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Returns all metrics as a JSON object, with one section per kind of metric. Metrics are sorted by name.
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        JSONObject countersJson = new JSONObject();
+        for (Map.Entry<String, Counter> counter : new TreeMap<>(counters).entrySet()) {
+            countersJson.put(counter.getKey(), counter.getValue().getCount());
+        }
+        JSONObject timersJson = new JSONObject();
+        for (Map.Entry<String, Timer> timer : new TreeMap<>(timers).entrySet()) {
+            timersJson.put(timer.getKey(), timer.getValue().toJson());
+        }
+        JSONObject histogramsJson = new JSONObject();
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            histogramsJson.put(histogram.getKey(), histogram.getValue().toJson());
+        }
+        json.put("counters", countersJson);
+        json.put("timers", timersJson);
+        json.put("histograms", histogramsJson);
+        return json;
+    }
+
+    // MBEAN
+
+    @Override
+    public String getMetricsJson() {
+        return toJson().toString(2);
+    }
+
+    @Override
+    public long getCount(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter.getCount();
+        }
+        Timer timer = timers.get(name);
+        if (timer != null) {
+            return timer.getCount();
+        }
+        Histogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram.getCount();
+        }
+        return 0;
+    }
+
+    @Override
+    public String dumpJson(String filePath) throws IOException {
+        File file = new File(filePath);
+        Files.write(file.toPath(), getMetricsJson().getBytes(StandardCharsets.UTF_8));
+        return file.getAbsolutePath();
+    }
+
+    @Override
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Registers this registry with the platform MBean server. Does nothing if it is already registered.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (!mbeanServer.isRegistered(objectName)) {
+                mbeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            LOG.warn("Could not register the metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOG.warn("Could not unregister the metrics MBean: {}", e.getMessage());
+        }
+    }
+}
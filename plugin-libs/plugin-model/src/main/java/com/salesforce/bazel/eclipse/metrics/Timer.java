@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+/**
+ * Tracks how long an operation takes, and how many bytes the operation allocated on the heap. Typical usage:
+ *
+ * <pre>
+ * Timer.Context timing = MetricsRegistry.getInstance().timer("classpath.compute").time();
+ * try {
+ *     ...
+ * } finally {
+ *     timing.close();
+ * }
+ * </pre>
+ *
+ * The allocated bytes are those of the thread that started the timing, so the timing must be stopped on the same
+ * thread for them to be recorded.
+ */
+public class Timer {
+    private final Histogram durationsMS = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+
+    Timer() {}
+
+    /**
+     * Starts timing an operation, the returned context must be closed when the operation is done.
+     */
+    public Context time() {
+        return new Context();
+    }
+
+    public void update(long duration, TimeUnit unit) {
+        durationsMS.update(unit.toMillis(duration));
+    }
+
+    public long getCount() {
+        return durationsMS.getCount();
+    }
+
+    public Histogram getDurationsMS() {
+        return durationsMS;
+    }
+
+    public Histogram getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    JSONObject toJson() {
+        JSONObject json = durationsMS.toJson();
+        json.put("allocatedBytes", allocatedBytes.toJson());
+        return json;
+    }
+
+    void reset() {
+        durationsMS.reset();
+        allocatedBytes.reset();
+    }
+
+    public class Context implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private final Thread thread = Thread.currentThread();
+        private final long startAllocatedBytes = ThreadAllocation.getAllocatedBytes();
+        private boolean stopped = false;
+
+        private Context() {}
+
+        /**
+         * Records the operation, and returns its duration in milliseconds. Stopping a context twice only records it
+         * once.
+         */
+        public long stop() {
+            long elapsedMS = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (!stopped) {
+                stopped = true;
+                durationsMS.update(elapsedMS);
+                if (startAllocatedBytes >= 0 && thread == Thread.currentThread()) {
+                    long endAllocatedBytes = ThreadAllocation.getAllocatedBytes();
+                    if (endAllocatedBytes >= startAllocatedBytes) {
+                        allocatedBytes.update(endAllocatedBytes - startAllocatedBytes);
+                    }
+                }
+            }
+            return elapsedMS;
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.metrics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.salesforce.bazel.eclipse.logging.LogHelper;
+
+/**
+ * Records a timeline of the operations of the plugin (import, aspect lookups, Bazel commands, classpath computations)
+ * and writes it in the Chrome trace event format, which can be opened in chrome://tracing or https://ui.perfetto.dev.
+ * <p>
+ * Tracing is off by default, and a disabled recorder hands out a shared no-op span, so instrumented code pays next to
+ * nothing for it. When Bazel profiles are enabled, the Bazel commands issued by the plugin are run with
+ * --profile=&lt;file&gt;, and the Bazel profiles are merged into the trace when it is written. Each Bazel profile is shown
+ * as a separate process, aligned with the span of the command that produced it.
+ */
+public class TraceRecorder {
+    static final LogHelper LOG = LogHelper.log(TraceRecorder.class);
+
+    /**
+     * Span argument that holds the path of the Bazel profile written by the command of the span.
+     */
+    public static final String BAZEL_PROFILE_ARG = "bazelProfile";
+
+    static final int MAX_EVENTS = 200000;
+
+    static final int PLUGIN_PID = 1;
+
+    private static final String PROFILE_FILE_SUFFIX = ".profile.json";
+
+    private static final TraceRecorder INSTANCE = new TraceRecorder();
+
+    private static final Span NOOP_SPAN = new Span(null, null, null) {
+        @Override
+        public Span arg(String key, Object value) {
+            return this;
+        }
+
+        @Override
+        public void close() {}
+    };
+
+    private volatile boolean enabled = false;
+    private volatile File bazelProfileDirectory;
+    private final AtomicInteger bazelProfileCount = new AtomicInteger();
+    private final List<File> bazelProfiles = new ArrayList<>();
+    private final List<JSONObject> events = new ArrayList<>();
+    private final Map<Long, String> threadNames = new LinkedHashMap<>();
+    private boolean overflowReported = false;
+
+    public static TraceRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    TraceRecorder() {}
+
+    /**
+     * Starts recording spans.
+     *
+     * @param bazelProfileDirectory
+     *            the directory in which the Bazel profiles are written, or null to not add --profile to Bazel commands
+     */
+    public synchronized void start(File bazelProfileDirectory) {
+        if (bazelProfileDirectory != null) {
+            bazelProfileDirectory.mkdirs();
+            // left over by a session that ended without writing its trace
+            File[] staleProfiles = bazelProfileDirectory.listFiles((dir, name) -> name.endsWith(PROFILE_FILE_SUFFIX));
+            if (staleProfiles != null) {
+                for (File staleProfile : staleProfiles) {
+                    staleProfile.delete();
+                }
+            }
+        }
+        this.bazelProfileDirectory = bazelProfileDirectory;
+        this.enabled = true;
+    }
+
+    /**
+     * Stops recording spans. The spans recorded so far are kept until {@link #clear()} is called.
+     */
+    public synchronized void stop() {
+        this.enabled = false;
+        this.bazelProfileDirectory = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Discards the recorded spans, and deletes the Bazel profiles they reference. Called once the trace has been written
+     * for good, or when it is discarded.
+     */
+    public synchronized void clear() {
+        events.clear();
+        threadNames.clear();
+        overflowReported = false;
+        for (File profile : bazelProfiles) {
+            if (profile.exists() && !profile.delete()) {
+                LOG.warn("Could not delete the Bazel profile {}", profile);
+            }
+        }
+        bazelProfiles.clear();
+    }
+
+    /**
+     * Starts a span, which is recorded when it is closed. Spans are closed in a finally block, on the thread
+     * that started them.
+     */
+    public Span span(String name) {
+        return span(name, "plugin");
+    }
+
+    public Span span(String name, String category) {
+        if (!enabled) {
+            return NOOP_SPAN;
+        }
+        return new Span(this, name, category);
+    }
+
+    /**
+     * Returns a new file for the profile of a Bazel command, or null if Bazel profiles are not being recorded.
+     */
+    public synchronized File newBazelProfileFile(String bazelVerb) {
+        File directory = bazelProfileDirectory;
+        if (!enabled || directory == null) {
+            return null;
+        }
+        File profile = new File(directory,
+                "bazel-" + bazelProfileCount.incrementAndGet() + "-" + bazelVerb + PROFILE_FILE_SUFFIX);
+        bazelProfiles.add(profile);
+        return profile;
+    }
+
+    /**
+     * Writes the recorded spans, merged with the Bazel profiles they reference, as a Chrome trace to the passed file. The
+     * Bazel profiles are kept, as the trace may be written again later in the session, see {@link #clear()}.
+     */
+    public void writeChromeTrace(File file) throws IOException {
+        JSONArray traceEvents = new JSONArray();
+        List<JSONObject> recordedEvents;
+        synchronized (this) {
+            recordedEvents = new ArrayList<>(events);
+            traceEvents.put(metadataEvent("process_name", PLUGIN_PID, 0, "Bazel Eclipse plugin"));
+            for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+                traceEvents.put(metadataEvent("thread_name", PLUGIN_PID, threadName.getKey(), threadName.getValue()));
+            }
+        }
+        int bazelPid = PLUGIN_PID;
+        for (JSONObject event : recordedEvents) {
+            traceEvents.put(event);
+            JSONObject args = event.optJSONObject("args");
+            if (args != null && args.has(BAZEL_PROFILE_ARG)) {
+                File profile = new File(args.getString(BAZEL_PROFILE_ARG));
+                if (profile.exists()) {
+                    bazelPid++;
+                    mergeBazelProfile(profile, event.getLong("ts"), bazelPid, event.getString("name"), traceEvents);
+                }
+            }
+        }
+        JSONObject trace = new JSONObject();
+        trace.put("traceEvents", traceEvents);
+        trace.put("displayTimeUnit", "ms");
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            trace.write(writer);
+        }
+    }
+
+    // INTERNAL
+
+    synchronized List<JSONObject> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    private synchronized void record(Span span, long endMicros) {
+        if (events.size() >= MAX_EVENTS) {
+            if (!overflowReported) {
+                overflowReported = true;
+                LOG.warn("The trace has reached {} events, further spans are dropped", MAX_EVENTS);
+            }
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        threadNames.putIfAbsent(thread.getId(), thread.getName());
+
+        JSONObject event = new JSONObject();
+        event.put("name", span.name);
+        event.put("cat", span.category);
+        event.put("ph", "X");
+        event.put("ts", span.startMicros);
+        event.put("dur", endMicros - span.startMicros);
+        event.put("pid", PLUGIN_PID);
+        event.put("tid", thread.getId());
+        if (span.args != null) {
+            event.put("args", new JSONObject(span.args));
+        }
+        events.add(event);
+    }
+
+    /**
+     * Bazel profile timestamps are relative to the start of the command, so they are shifted to the start of the span
+     * of the command.
+     */
+    private static void mergeBazelProfile(File profile, long startMicros, int pid, String commandName,
+            JSONArray traceEvents) {
+        try (InputStream input = openProfile(profile)) {
+            JSONObject bazelTrace = new JSONObject(new JSONTokener(input));
+            JSONArray bazelEvents = bazelTrace.optJSONArray("traceEvents");
+            if (bazelEvents == null) {
+                return;
+            }
+            traceEvents.put(metadataEvent("process_name", pid, 0, commandName + " (" + profile.getName() + ")"));
+            for (int i = 0; i < bazelEvents.length(); i++) {
+                JSONObject bazelEvent = bazelEvents.optJSONObject(i);
+                if (bazelEvent == null) {
+                    continue;
+                }
+                bazelEvent.put("pid", pid);
+                if (bazelEvent.has("ts")) {
+                    bazelEvent.put("ts", startMicros + bazelEvent.getLong("ts"));
+                }
+                traceEvents.put(bazelEvent);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not merge the Bazel profile {} into the trace: {}", profile, e.getMessage());
+        }
+    }
+
+    private static InputStream openProfile(File profile) throws IOException {
+        InputStream input = new FileInputStream(profile);
+        if (profile.getName().endsWith(".gz")) {
+            return new GZIPInputStream(input);
+        }
+        return input;
+    }
+
+    private static JSONObject metadataEvent(String name, int pid, long tid, String value) {
+        JSONObject event = new JSONObject();
+        event.put("name", name);
+        event.put("ph", "M");
+        event.put("pid", pid);
+        event.put("tid", tid);
+        event.put("args", new JSONObject().put("name", value));
+        return event;
+    }
+
+    /**
+     * An operation being traced. Closing the span records it.
+     */
+    public static class Span implements AutoCloseable {
+        private final TraceRecorder recorder;
+        private final String name;
+        private final String category;
+        private final long startMicros = System.nanoTime() / 1000;
+        private Map<String, Object> args;
+        private boolean closed = false;
+
+        private Span(TraceRecorder recorder, String name, String category) {
+            this.recorder = recorder;
+            this.name = name;
+            this.category = category;
+        }
+
+        /**
+         * Adds an argument to the span, shown in the details of the span in the trace viewer.
+         */
+        public Span arg(String key, Object value) {
+            if (args == null) {
+                args = new LinkedHashMap<>();
+            }
+            args.put(key, String.valueOf(value));
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                recorder.record(this, System.nanoTime() / 1000);
+            }
+        }
+    }
+}
@@ -35,13 +35,19 @@ package com.salesforce.bazel.eclipse.model;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -56,6 +62,16 @@ public class AspectPackageInfos {
 
     private final Map<String, AspectPackageInfo> labelToAspectPackageInfo = new TreeMap<>();
 
+    /**
+     * Workspace relative source file path -> the AspectPackageInfo instances that list the file as a source.
+     */
+    private final Map<String, List<AspectPackageInfo>> sourcePathToAspectPackageInfos = new HashMap<>();
+
+    /**
+     * Label -> the labels of the AspectPackageInfo instances that directly depend on it.
+     */
+    private final Map<String, List<String>> labelToDependentLabels = new HashMap<>();
+
     public AspectPackageInfos(AspectPackageInfo... aspectPackageInfos) {
         this(Arrays.asList(aspectPackageInfos));
     }
@@ -67,9 +83,19 @@ public class AspectPackageInfos {
             if (previousValue != null) {
                 throw new IllegalStateException("Did not expect a duplicate label: " + previousValue.getLabel());
             }
+            for (String sourcePath : aspectPackageInfo.getSources()) {
+                sourcePathToAspectPackageInfos.computeIfAbsent(sourcePath, p -> new ArrayList<>()).add(aspectPackageInfo);
+            }
+            for (String dep : aspectPackageInfo.getDeps()) {
+                labelToDependentLabels.computeIfAbsent(dep, l -> new ArrayList<>()).add(aspectPackageInfo.getLabel());
+            }
         }
     }
 
+    public Collection<AspectPackageInfo> getAll() {
+        return Collections.unmodifiableCollection(labelToAspectPackageInfo.values());
+    }
+
     public AspectPackageInfo lookupByLabel(String label) {
         return labelToAspectPackageInfo.get(label);
     }
@@ -102,6 +128,110 @@ public class AspectPackageInfos {
         return aspectPackageInfos;
     }
 
+    /**
+     * Returns all AspectPackageInfo instances that list the specified workspace relative source file path as one of
+     * their sources.
+     */
+    public Collection<AspectPackageInfo> lookupBySourcePath(String sourcePath) {
+        List<AspectPackageInfo> aspectPackageInfos = sourcePathToAspectPackageInfos.get(sourcePath);
+        return aspectPackageInfos == null ? Collections.emptyList() : aspectPackageInfos;
+    }
+
+    /**
+     * Returns the labels of the specified targets along with the labels of all targets in this container that depend
+     * on them, directly or transitively. Only labels known to this container are returned.
+     */
+    public Set<String> lookupTransitiveDependents(Collection<String> labels) {
+        Set<String> dependents = new LinkedHashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(labels);
+        while (!toVisit.isEmpty()) {
+            String label = toVisit.pop();
+            if (labelToAspectPackageInfo.containsKey(label) && !dependents.add(label)) {
+                continue;
+            }
+            List<String> directDependents = labelToDependentLabels.get(label);
+            if (directDependents != null) {
+                for (String dependent : directDependents) {
+                    if (!dependents.contains(dependent)) {
+                        toVisit.push(dependent);
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Returns the labels of the specified targets along with the labels of all targets in this container they depend
+     * on, directly or transitively. Only labels known to this container are returned.
+     */
+    public Set<String> lookupTransitiveDependencies(Collection<String> labels) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(labels);
+        while (!toVisit.isEmpty()) {
+            String label = toVisit.pop();
+            AspectPackageInfo aspectPackageInfo = labelToAspectPackageInfo.get(label);
+            if (aspectPackageInfo == null || !dependencies.add(label)) {
+                continue;
+            }
+            for (String dep : aspectPackageInfo.getDeps()) {
+                if (!dependencies.contains(dep)) {
+                    toVisit.push(dep);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Returns all AspectPackageInfo instances in topological order: a target comes after the targets it depends on. Of
+     * the targets whose dependencies are all listed, the one with the lowest label comes first, so the order is the same
+     * for the same container content.
+     */
+    public List<AspectPackageInfo> getAllInDependencyOrder() {
+        // label -> the number of its deps in this container that are not listed yet
+        Map<String, Integer> remainingDepCounts = new HashMap<>();
+        PriorityQueue<String> ready = new PriorityQueue<>();
+        for (AspectPackageInfo aspectPackageInfo : labelToAspectPackageInfo.values()) {
+            int depCount = 0;
+            for (String dep : aspectPackageInfo.getDeps()) {
+                if (labelToAspectPackageInfo.containsKey(dep)) {
+                    depCount++;
+                }
+            }
+            remainingDepCounts.put(aspectPackageInfo.getLabel(), depCount);
+            if (depCount == 0) {
+                ready.add(aspectPackageInfo.getLabel());
+            }
+        }
+
+        List<AspectPackageInfo> ordered = new ArrayList<>(labelToAspectPackageInfo.size());
+        while (!ready.isEmpty()) {
+            String label = ready.poll();
+            ordered.add(labelToAspectPackageInfo.get(label));
+            List<String> dependents = labelToDependentLabels.get(label);
+            if (dependents == null) {
+                continue;
+            }
+            for (String dependent : dependents) {
+                int remainingDepCount = remainingDepCounts.get(dependent) - 1;
+                remainingDepCounts.put(dependent, remainingDepCount);
+                if (remainingDepCount == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() < labelToAspectPackageInfo.size()) {
+            // Bazel does not allow dependency cycles, but don't lose targets if the aspect data has one
+            for (AspectPackageInfo aspectPackageInfo : labelToAspectPackageInfo.values()) {
+                if (remainingDepCounts.get(aspectPackageInfo.getLabel()) > 0) {
+                    ordered.add(aspectPackageInfo);
+                }
+            }
+        }
+        return ordered;
+    }
+
     private static void assertAllSourcesHaveSameRootPath(Path rootSourcePath, AspectPackageInfo aspectPackageInfo) {
         for (String sourcePath : aspectPackageInfo.getSources()) {
             if (!Paths.get(sourcePath).startsWith(rootSourcePath)) {
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.model;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The structure of a rule target as written in its BUILD file: its label, kind, sources and dependencies. It is
+ * computed with a Bazel query, which is much cheaper than the build info aspect as nothing is built, but unlike
+ * {@link AspectPackageInfo} it does not know the jars of the target. See BazelWorkspace#getBazelTargetInfos.
+ */
+public class BazelTargetInfo {
+
+    private final String label;
+    private final String kind;
+    private final List<String> sources;
+    private final List<String> deps;
+    private final String mainClass;
+
+    public BazelTargetInfo(String label, String kind, List<String> sources, List<String> deps, String mainClass) {
+        this.label = label;
+        this.kind = kind;
+        this.sources = ImmutableList.copyOf(sources);
+        this.deps = ImmutableList.copyOf(deps);
+        this.mainClass = mainClass;
+    }
+
+    /**
+     * The same structure, taken from the aspect data of the target.
+     */
+    public static BazelTargetInfo fromAspectPackageInfo(AspectPackageInfo aspectPackageInfo) {
+        return new BazelTargetInfo(aspectPackageInfo.getLabel(), aspectPackageInfo.getKind(),
+                aspectPackageInfo.getSources(), aspectPackageInfo.getDeps(), aspectPackageInfo.getMainClass());
+    }
+
+    /**
+     * Label of the target, e.g. //projects/libs/apple:apple-api
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Kind of the target (e.g., java_test, java_binary, java_library, etc).
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * The kind of the target, null if it is not one the plugin knows.
+     */
+    public TargetKind getTargetKind() {
+        return TargetKind.valueOfIgnoresCase(kind);
+    }
+
+    /**
+     * The workspace relative paths of the sources of the target, e.g. projects/libs/apple/src/main/java/Apple.java
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * The labels of the direct dependencies of the target, including the runtime dependencies.
+     */
+    public List<String> getDeps() {
+        return deps;
+    }
+
+    /**
+     * The value of the "main_class" attribute of this target, null if the target doesn't specify a main_class.
+     */
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + label;
+    }
+}
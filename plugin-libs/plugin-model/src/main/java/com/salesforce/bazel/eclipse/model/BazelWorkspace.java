@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class BazelWorkspace {
     
@@ -134,6 +135,16 @@ public class BazelWorkspace {
         return this.bazelOutputBaseDirectory;
     }
     
+    /**
+     * Forgets the execution root, output base and bazel-bin directories, which are computed again the next time they
+     * are needed. Called when the commands of the workspace are switched to another output base.
+     */
+    public void resetBazelDirectories() {
+        this.bazelExecRootDirectory = null;
+        this.bazelOutputBaseDirectory = null;
+        this.bazelBinDirectory = null;
+    }
+
     public List<String> getTargetsForBazelQuery(String query) {
     	List<String> results = new ArrayList<String>();
     	for(String line: metadataStrategy.computeBazelQuery(query)) {
@@ -144,6 +155,14 @@ public class BazelWorkspace {
     	return results;
     }
 
+    /**
+     * Returns the kind, sources and dependencies of the rules matched by the target patterns, keyed by label, see
+     * {@link BazelTargetInfo}.
+     */
+    public Map<String, BazelTargetInfo> getBazelTargetInfos(List<String> targetPatterns) {
+        return metadataStrategy.computeBazelTargetInfos(targetPatterns);
+    }
+
     public File getBazelBinDirectory() {
         if (this.bazelBinDirectory == null && metadataStrategy != null) {
             this.bazelBinDirectory = metadataStrategy.computeBazelWorkspaceBin();
@@ -151,6 +170,14 @@ public class BazelWorkspace {
         return this.bazelBinDirectory;
     }
 
+    /**
+     * The directory Bazel writes the test logs and the test.xml results to, the testlogs directory next to bazel-bin.
+     */
+    public File getBazelTestLogsDirectory() {
+        File binDirectory = getBazelBinDirectory();
+        return binDirectory == null ? null : new File(binDirectory.getParentFile(), "testlogs");
+    }
+
     public String getOperatingSystem() {
         return operatingSystem;
     }
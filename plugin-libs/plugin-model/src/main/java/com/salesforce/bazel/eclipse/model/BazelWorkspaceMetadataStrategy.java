@@ -2,6 +2,7 @@ package com.salesforce.bazel.eclipse.model;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Worker interface for a delegate that can retrieve metadata for the BazelWorkspace.
@@ -33,4 +34,10 @@ public interface BazelWorkspaceMetadataStrategy {
      * Return the result of the bazel query
      */
     public List<String> computeBazelQuery(String query);
+
+    /**
+     * Returns the structure of the rules matched by the target patterns (kind, sources, dependencies), keyed by label.
+     * The primary implementation gets it from a single 'bazel query', without building anything.
+     */
+    public Map<String, BazelTargetInfo> computeBazelTargetInfos(List<String> targetPatterns);
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.logging.CaptureLoggerFacade.LogEvent;
+import com.salesforce.bazel.eclipse.logging.CaptureLoggerFacade.LogType;
+
+public class AsyncLoggerFacadeTest {
+
+    @Test
+    public void messagesAreWrittenInOrder() throws Exception {
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        AsyncLoggerFacade subject = new AsyncLoggerFacade(new CaptureLoggerFacade(events::add));
+        Exception exception = new Exception("boom");
+
+        subject.info(getClass(), "first {}", 1);
+        subject.error(getClass(), "second", exception);
+        subject.debug(getClass(), "third");
+        assertTrue(subject.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(3, events.size());
+        assertEquals(LogType.INFO, events.get(0).type);
+        // messages are formatted by the calling thread
+        assertEquals("first 1", events.get(0).message);
+        assertEquals(LogType.ERROR, events.get(1).type);
+        assertSame(exception, events.get(1).exception);
+        assertEquals(LogType.DEBUG, events.get(2).type);
+    }
+
+    @Test
+    public void disabledLevelsAreNotQueued() throws Exception {
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        CaptureLoggerFacade delegate = new CaptureLoggerFacade(events::add);
+        AsyncLoggerFacade subject = new AsyncLoggerFacade(delegate);
+        subject.setLevel(LogLevel.WARN);
+
+        subject.info(getClass(), "info");
+        subject.warn(getClass(), "warn");
+        assertTrue(subject.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(LogLevel.WARN, delegate.getLevel());
+        assertEquals(1, events.size());
+        assertEquals("warn", events.get(0).message);
+    }
+
+    @Test
+    public void fullBufferDropsInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        AsyncLoggerFacade subject = new AsyncLoggerFacade(new CaptureLoggerFacade(event -> {
+            try {
+                // simulates a console that cannot keep up
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }), 2);
+
+        for (int i = 0; i < 10; i++) {
+            subject.info(getClass(), "message {}", i);
+        }
+        assertTrue(subject.getDroppedCount() > 0);
+        release.countDown();
+        assertTrue(subject.flush(5, TimeUnit.SECONDS));
+
+        LogEvent last = events.get(events.size() - 1);
+        assertEquals(LogType.WARN, last.type);
+        assertTrue(last.message.contains("dropped"));
+        assertNull(last.exception);
+    }
+
+    @Test
+    public void delegateFailuresAreReportedToTheFallback() throws Exception {
+        RuntimeException failure = new IllegalStateException("console closed");
+        List<LogEvent> fallbackEvents = new CopyOnWriteArrayList<>();
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        AsyncLoggerFacade subject = new AsyncLoggerFacade(new CaptureLoggerFacade(event -> {
+            if (event.message.equals("first")) {
+                throw failure;
+            }
+            events.add(event);
+        }), 16, new CaptureLoggerFacade(fallbackEvents::add));
+
+        subject.info(getClass(), "first");
+        subject.info(getClass(), "second");
+        assertTrue(subject.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(1, fallbackEvents.size());
+        assertEquals(LogType.ERROR, fallbackEvents.get(0).type);
+        assertSame(failure, fallbackEvents.get(0).exception);
+        // the writer keeps going
+        assertEquals(1, events.size());
+        assertEquals("second", events.get(0).message);
+    }
+}
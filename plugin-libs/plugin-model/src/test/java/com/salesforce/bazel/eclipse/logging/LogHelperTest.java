@@ -99,4 +99,37 @@ public class LogHelperTest {
         assertEquals("last mistake", secondEvent.get().message);
     }
 
+    @Test
+    public void disabledLevelsAreSkipped() {
+        LogHelper subject = LogHelper.log(getClass());
+        final AtomicReference<LogEvent> testEvent = new AtomicReference<>();
+        LoggerFacade facade = new CaptureLoggerFacade((event) -> {
+            testEvent.set(event);
+        });
+        facade.setLevel(LogLevel.INFO);
+        LoggerFacade.setInstance(facade);
+        assertTrue(subject.isInfoEnabled());
+        assertFalse(subject.isDebugEnabled());
+
+        subject.debug("debug {}", 1);
+        subject.debug(() -> {
+            fail("the supplier must not be called when DEBUG is disabled");
+            return null;
+        });
+        assertNull(testEvent.get());
+
+        subject.info(() -> "built lazily");
+        assertEquals("built lazily", testEvent.get().message);
+        subject.info("two {} {}", 1, 2);
+        assertArrayEquals(new Object[] { 1, 2 }, testEvent.get().args);
+    }
+
+    @Test
+    public void formatMessage() {
+        assertEquals("a 1 b 2", LoggerFacade.formatMessage("a {} b {}", 1, 2));
+        assertEquals("a 1 b {}", LoggerFacade.formatMessage("a {} b {}", 1));
+        assertEquals("no placeholder", LoggerFacade.formatMessage("no placeholder", 1));
+        assertEquals("a {}", LoggerFacade.formatMessage("a {}"));
+    }
+
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetricsRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCounter() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("aspect.cache.hits").inc();
+        registry.counter("aspect.cache.hits").inc(2);
+
+        assertSame(registry.counter("aspect.cache.hits"), registry.counter("aspect.cache.hits"));
+        assertEquals(3, registry.getCount("aspect.cache.hits"));
+        assertEquals(0, registry.getCount("aspect.cache.misses"));
+    }
+
+    @Test
+    public void testHistogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("bazel.command.build.outputBytes");
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        assertEquals(50, histogram.getPercentile(0.5));
+        assertEquals(95, histogram.getPercentile(0.95));
+    }
+
+    @Test
+    public void testHistogram_percentilesUseRecentValues() {
+        Histogram histogram = new MetricsRegistry().histogram("h");
+        for (int i = 0; i < Histogram.RECENT_VALUES_SIZE; i++) {
+            histogram.update(1000);
+        }
+        for (int i = 0; i < Histogram.RECENT_VALUES_SIZE; i++) {
+            histogram.update(1);
+        }
+
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void testTimer() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer timer = registry.timer("classpath.entries");
+        Timer.Context timing = timer.time();
+        timing.stop();
+        // stopping twice records the operation once
+        timing.stop();
+        try (Timer.Context closed = timer.time()) {
+            // allocate something, the allocated bytes may not be tracked on every JVM
+            assertTrue(new StringBuilder("metrics").length() > 0);
+        }
+        timer.update(2, TimeUnit.SECONDS);
+
+        assertEquals(3, timer.getCount());
+        assertEquals(2000, timer.getDurationsMS().getMax());
+    }
+
+    @Test
+    public void testJsonAndReset() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("aspect.cache.hits").inc();
+        registry.timer("bazel.command.build").update(10, TimeUnit.MILLISECONDS);
+        registry.histogram("bazel.command.build.outputBytes").update(42);
+
+        File dump = new File(registry.dumpJson(folder.newFile("metrics.json").getAbsolutePath()));
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(dump.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, json.getJSONObject("counters").getLong("aspect.cache.hits"));
+        assertEquals(10, json.getJSONObject("timers").getJSONObject("bazel.command.build").getLong("max"));
+        assertEquals(42, json.getJSONObject("histograms").getJSONObject("bazel.command.build.outputBytes").getLong("sum"));
+
+        registry.reset();
+        assertEquals(0, registry.getCount("aspect.cache.hits"));
+        assertEquals(0, registry.getCount("bazel.command.build"));
+        assertEquals(0, registry.getCount("bazel.command.build.outputBytes"));
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2019, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+package com.salesforce.bazel.eclipse.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TraceRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        TraceRecorder recorder = new TraceRecorder();
+        try (TraceRecorder.Span span = recorder.span("getClasspathEntries").arg("project", "apple")) {
+            // nothing to do
+        }
+        assertFalse(recorder.isEnabled());
+        assertTrue(recorder.getEvents().isEmpty());
+        assertNull(recorder.newBazelProfileFile("build"));
+    }
+
+    @Test
+    public void testSpans() {
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(null);
+        try (TraceRecorder.Span outer = recorder.span("importWorkspace", "import")) {
+            try (TraceRecorder.Span inner = recorder.span("getClasspathEntries").arg("project", "apple")) {
+                // nothing to do
+            }
+        }
+        recorder.stop();
+        try (TraceRecorder.Span span = recorder.span("afterStop")) {
+            // nothing to do
+        }
+
+        List<JSONObject> events = recorder.getEvents();
+        assertEquals(2, events.size());
+        // spans are recorded when they end, so the inner span comes first
+        JSONObject inner = events.get(0);
+        JSONObject outer = events.get(1);
+        assertEquals("getClasspathEntries", inner.getString("name"));
+        assertEquals("X", inner.getString("ph"));
+        assertEquals("apple", inner.getJSONObject("args").getString("project"));
+        assertEquals("importWorkspace", outer.getString("name"));
+        assertEquals("import", outer.getString("cat"));
+        assertTrue(outer.getLong("ts") <= inner.getLong("ts"));
+        assertTrue(outer.getLong("ts") + outer.getLong("dur") >= inner.getLong("ts") + inner.getLong("dur"));
+        // no Bazel profiles when no profile directory was given
+        assertNull(recorder.newBazelProfileFile("build"));
+    }
+
+    @Test
+    public void testBazelProfileIsMerged() throws Exception {
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(folder.newFolder("profiles"));
+        File profile = recorder.newBazelProfileFile("build");
+        assertNotNull(profile);
+        assertTrue(profile.getName().contains("build"));
+        String bazelProfile = "{\"traceEvents\":[{\"name\":\"runAnalysisPhase\",\"ph\":\"X\",\"ts\":1000,\"dur\":50,"
+                + "\"pid\":1,\"tid\":7}]}";
+        Files.write(profile.toPath(), bazelProfile.getBytes(StandardCharsets.UTF_8));
+        try (TraceRecorder.Span span =
+                recorder.span("bazel build", "bazel").arg(TraceRecorder.BAZEL_PROFILE_ARG, profile.getAbsolutePath())) {
+            // nothing to do
+        }
+
+        File traceFile = folder.newFile("trace.json");
+        recorder.writeChromeTrace(traceFile);
+
+        JSONObject trace = new JSONObject(new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8));
+        JSONArray traceEvents = trace.getJSONArray("traceEvents");
+        JSONObject commandEvent = null;
+        JSONObject bazelEvent = null;
+        for (int i = 0; i < traceEvents.length(); i++) {
+            JSONObject event = traceEvents.getJSONObject(i);
+            if ("bazel build".equals(event.getString("name"))) {
+                commandEvent = event;
+            } else if ("runAnalysisPhase".equals(event.getString("name"))) {
+                bazelEvent = event;
+            }
+        }
+        assertNotNull(commandEvent);
+        assertNotNull(bazelEvent);
+        assertEquals(commandEvent.getLong("ts") + 1000, bazelEvent.getLong("ts"));
+        assertTrue(bazelEvent.getInt("pid") != TraceRecorder.PLUGIN_PID);
+    }
+
+    @Test
+    public void testBazelProfilesAreDeleted() throws Exception {
+        File profiles = folder.newFolder("profiles");
+        File staleProfile = new File(profiles, "bazel-1-build.profile.json");
+        Files.write(staleProfile.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(profiles);
+        assertFalse(staleProfile.exists());
+
+        File profile = recorder.newBazelProfileFile("build");
+        Files.write(profile.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        recorder.writeChromeTrace(folder.newFile("trace.json"));
+        assertTrue(profile.exists());
+
+        recorder.clear();
+        assertFalse(profile.exists());
+    }
+}
@@ -39,8 +39,11 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -173,6 +176,98 @@ public class AspectPackageInfosTest {
         apis.lookupByRootSourcePath("a/b/c");
     }
 
+    @Test
+    public void testLookupBySourcePath() {
+        AspectPackageInfo foo = getAspectPackageInfo("foo", "a/b/c/Foo.java", "a/b/c/Blah.java");
+        AspectPackageInfo fooTest = getAspectPackageInfo("foo-test", TargetKind.JAVA_TEST, "a/b/c/Foo.java");
+
+        AspectPackageInfos apis = new AspectPackageInfos(foo, fooTest);
+
+        Collection<AspectPackageInfo> infos = apis.lookupBySourcePath("a/b/c/Foo.java");
+        assertEquals(2, infos.size());
+        assertTrue(infos.contains(foo));
+        assertTrue(infos.contains(fooTest));
+        infos = apis.lookupBySourcePath("a/b/c/Blah.java");
+        assertEquals(1, infos.size());
+        assertSame(foo, infos.iterator().next());
+        assertEquals(0, apis.lookupBySourcePath("a/b/c").size());
+    }
+
+    @Test
+    public void testLookupTransitiveDependents() {
+        AspectPackageInfo api = getAspectPackageInfoWithDeps("api");
+        AspectPackageInfo impl = getAspectPackageInfoWithDeps("impl", "api");
+        AspectPackageInfo implTest = getAspectPackageInfoWithDeps("impl-test", "impl", "junit");
+        AspectPackageInfo other = getAspectPackageInfoWithDeps("other", "junit");
+
+        AspectPackageInfos apis = new AspectPackageInfos(api, impl, implTest, other);
+
+        Set<String> dependents = apis.lookupTransitiveDependents(Collections.singletonList("api"));
+        assertEquals(3, dependents.size());
+        assertTrue(dependents.containsAll(Arrays.asList("api", "impl", "impl-test")));
+
+        dependents = apis.lookupTransitiveDependents(Collections.singletonList("impl-test"));
+        assertEquals(Collections.singleton("impl-test"), dependents);
+
+        // a label that is not in the container (for example an external jar) still leads to its dependents
+        dependents = apis.lookupTransitiveDependents(Collections.singletonList("junit"));
+        assertEquals(2, dependents.size());
+        assertTrue(dependents.containsAll(Arrays.asList("impl-test", "other")));
+    }
+
+    @Test
+    public void testLookupTransitiveDependencies() {
+        AspectPackageInfo api = getAspectPackageInfoWithDeps("api");
+        AspectPackageInfo impl = getAspectPackageInfoWithDeps("impl", "api");
+        AspectPackageInfo implTest = getAspectPackageInfoWithDeps("impl-test", "impl", "junit");
+        AspectPackageInfo junit = getAspectPackageInfoWithDeps("junit", "hamcrest");
+        AspectPackageInfo other = getAspectPackageInfoWithDeps("other", "junit");
+
+        AspectPackageInfos apis = new AspectPackageInfos(api, impl, implTest, junit, other);
+
+        Set<String> dependencies = apis.lookupTransitiveDependencies(Collections.singletonList("impl-test"));
+        assertEquals(4, dependencies.size());
+        assertTrue(dependencies.containsAll(Arrays.asList("impl-test", "impl", "api", "junit")));
+
+        dependencies = apis.lookupTransitiveDependencies(Collections.singletonList("api"));
+        assertEquals(Collections.singleton("api"), dependencies);
+
+        // labels that are not in the container (hamcrest) are not followed
+        dependencies = apis.lookupTransitiveDependencies(Arrays.asList("other", "unknown"));
+        assertEquals(2, dependencies.size());
+        assertTrue(dependencies.containsAll(Arrays.asList("other", "junit")));
+    }
+
+    @Test
+    public void testGetAllInDependencyOrder() {
+        AspectPackageInfo api = getAspectPackageInfoWithDeps("api");
+        AspectPackageInfo impl = getAspectPackageInfoWithDeps("impl", "api");
+        AspectPackageInfo implTest = getAspectPackageInfoWithDeps("impl-test", "impl", "junit", "api");
+        AspectPackageInfo junit = getAspectPackageInfoWithDeps("junit", "hamcrest");
+        AspectPackageInfo other = getAspectPackageInfoWithDeps("other", "junit");
+
+        AspectPackageInfos apis = new AspectPackageInfos(junit, other, api, implTest, impl);
+
+        // impl-test comes after api, impl and junit, which come in label order
+        assertEquals(Arrays.asList(api, impl, junit, implTest, other), apis.getAllInDependencyOrder());
+    }
+
+    @Test
+    public void testGetAllInDependencyOrder_cycle() {
+        AspectPackageInfo a = getAspectPackageInfoWithDeps("a", "b");
+        AspectPackageInfo b = getAspectPackageInfoWithDeps("b", "a");
+        AspectPackageInfo c = getAspectPackageInfoWithDeps("c");
+
+        AspectPackageInfos apis = new AspectPackageInfos(a, b, c);
+
+        assertEquals(Arrays.asList(c, a, b), apis.getAllInDependencyOrder());
+    }
+
+    private static AspectPackageInfo getAspectPackageInfoWithDeps(String label, String... deps) {
+        return new AspectPackageInfo(new File(""), ImmutableList.of(), ImmutableList.of(), "some/path",
+                "java_library", label, ImmutableList.copyOf(deps), ImmutableList.of(), "main-class");
+    }
+
     private static AspectPackageInfo getAspectPackageInfo(String label, String... sourcePaths) {
         return getAspectPackageInfo(label, TargetKind.JAVA_LIBRARY, sourcePaths);
     }
@@ -2,8 +2,11 @@ package com.salesforce.bazel.eclipse.model.mock;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import com.salesforce.bazel.eclipse.model.BazelTargetInfo;
 import com.salesforce.bazel.eclipse.model.BazelWorkspaceCommandOptions;
 import com.salesforce.bazel.eclipse.model.BazelWorkspaceMetadataStrategy;
 import com.salesforce.bazel.eclipse.model.OperatingEnvironmentDetectionStrategy;
@@ -87,4 +90,9 @@ public class MockBazelWorkspaceMetadataStrategy implements BazelWorkspaceMetadat
 		return null;
 	}
 
+    @Override
+    public Map<String, BazelTargetInfo> computeBazelTargetInfos(List<String> targetPatterns) {
+        return Collections.emptyMap();
+    }
+
 }
@@ -0,0 +1,299 @@
+package com.salesforce.bazel.eclipse.test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A fake 'bazel' executable that answers the commands issued by the plugins for a workspace created by the
+ * {@link TestBazelWorkspaceFactory}. Unlike the MockCommandBuilder in the command plugin, the fake runs as a real
+ * process, so tests that use it exercise the whole command path (ShellCommand, BazelProcessBuilder, stream copying,
+ * output parsing). It is meant for end to end functional and performance tests on a machine without Bazel.
+ * <p>
+ * The executable is a shell script that launches this class with the classpath of the current JVM, so it only works
+ * on platforms with /bin/sh. The supported commands are: version, info, query, clean, build (with and without the
+ * build info aspect) and test (with and without --announce_rc). An aspect build writes the real aspect json files of
+ * the built packages to the output base, like Bazel does.
+ * <p>
+ * Each command can be slowed down with a fixed latency, and can print an arbitrary number of progress lines, to
+ * simulate large workspaces.
+ */
+public class FakeBazelExecutable {
+
+    public static final String CONFIG_PROPERTY = "fake.bazel.config";
+
+    public static final String FAKE_BAZEL_VERSION = "1.0.0";
+
+    private final TestBazelWorkspaceFactory workspace;
+    private long latencyMillis = 0;
+    private int progressLines = 0;
+
+    public FakeBazelExecutable(TestBazelWorkspaceFactory workspace) {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Every command waits this long before producing any output.
+     */
+    public FakeBazelExecutable latency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    /**
+     * Number of progress lines printed to stderr by the build and test commands.
+     */
+    public FakeBazelExecutable progressLines(int count) {
+        this.progressLines = count;
+        return this;
+    }
+
+    /**
+     * Writes the fake executable (and its configuration file) into the passed directory.
+     *
+     * @param executableDir directory in which the executable will be placed, must exist, must be writable
+     * @return the executable file, named 'bazel'
+     */
+    public File install(File executableDir) throws Exception {
+        Properties config = new Properties();
+        config.setProperty("workspace_root", workspace.dirWorkspaceRoot.getAbsolutePath());
+        config.setProperty("output_base", workspace.dirOutputBase.getAbsolutePath());
+        config.setProperty("workspace_name", workspace.workspaceName);
+        config.setProperty("java_packages", String.valueOf(workspace.numberJavaPackages));
+        config.setProperty("java_package_fan_out", String.valueOf(workspace.javaPackageDependencyFanOut));
+        config.setProperty("latency_ms", String.valueOf(latencyMillis));
+        config.setProperty("progress_lines", String.valueOf(progressLines));
+        for (String option : workspace.commandOptions.keySet()) {
+            config.setProperty("option." + option, workspace.commandOptions.get(option));
+        }
+        File configFile = new File(executableDir, "fake-bazel.properties");
+        try (OutputStream out = new FileOutputStream(configFile)) {
+            config.store(out, "fake bazel configuration");
+        }
+
+        File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+        File executable = new File(executableDir, "bazel");
+        try (PrintStream out = new PrintStream(new FileOutputStream(executable))) {
+            out.print("#!/bin/sh\n");
+            out.print("exec " + quote(java.getAbsolutePath()) + " -cp " + quote(System.getProperty("java.class.path"))
+                + " -D" + CONFIG_PROPERTY + "=" + quote(configFile.getAbsolutePath()) + " "
+                + FakeBazelExecutable.class.getName() + " \"$@\"\n");
+        }
+        executable.setExecutable(true);
+        return executable;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+
+    // FAKE BAZEL PROCESS
+
+    public static void main(String[] args) throws Exception {
+        // Bazel writes its output in chunks, not a syscall per line
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false));
+        System.setErr(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), false));
+
+        Properties config = new Properties();
+        try (InputStream in = new FileInputStream(System.getProperty(CONFIG_PROPERTY))) {
+            config.load(in);
+        }
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(new File(config.getProperty("workspace_root")),
+            new File(config.getProperty("output_base")), config.getProperty("workspace_name"));
+        workspace.javaPackages(Integer.parseInt(config.getProperty("java_packages")));
+        workspace.javaPackageDependencies(Integer.parseInt(config.getProperty("java_package_fan_out", "1")));
+        for (String key : config.stringPropertyNames()) {
+            if (key.startsWith("option.")) {
+                workspace.commandOptions.put(key.substring("option.".length()), config.getProperty(key));
+            }
+        }
+        workspace.createOutputBaseStructure();
+
+        long latencyMillis = Long.parseLong(config.getProperty("latency_ms", "0"));
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+        int progressLines = Integer.parseInt(config.getProperty("progress_lines", "0"));
+
+        int exitCode = run(workspace, progressLines, args);
+        System.out.flush();
+        System.err.flush();
+        System.exit(exitCode);
+    }
+
+    static int run(TestBazelWorkspaceFactory workspace, int progressLines, String[] args) {
+        // skip the startup options
+        int verbIndex = 0;
+        while (verbIndex < args.length && args[verbIndex].startsWith("-")) {
+            verbIndex++;
+        }
+        if (verbIndex == args.length) {
+            System.err.println("Usage: bazel <command> <options> ...");
+            return 2;
+        }
+        String verb = args[verbIndex];
+        List<String> options = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+        boolean afterDashDash = false;
+        for (int i = verbIndex + 1; i < args.length; i++) {
+            if ("--".equals(args[i])) {
+                afterDashDash = true;
+            } else if (!afterDashDash && args[i].startsWith("-")) {
+                options.add(args[i]);
+            } else {
+                targets.add(args[i]);
+            }
+        }
+
+        switch (verb) {
+        case "version":
+            System.out.println("Build label: " + FAKE_BAZEL_VERSION);
+            System.out.println("Build time: Thu Oct 10 10:19:27 2019 (1570702767)");
+            System.out.println("Build timestamp: 1570702767");
+            System.out.println("Build timestamp as int: 1570702767");
+            return 0;
+        case "info":
+            return info(workspace, targets);
+        case "query":
+            for (String label : query(workspace, targets)) {
+                System.out.println(label);
+            }
+            return 0;
+        case "clean":
+            System.err.println("INFO: Starting clean.");
+            return 0;
+        case "build":
+            printProgress(progressLines);
+            if (hasOptionStartingWith(options, "--aspects=")) {
+                // print the paths of the aspect files, as --experimental_show_artifacts does
+                System.err.println("INFO: Build completed successfully, " + targets.size() + " total actions");
+                System.err.println("Build artifacts:");
+                for (String aspectFile : buildAspects(workspace, targets)) {
+                    System.err.println(">>>" + aspectFile);
+                }
+                return 0;
+            }
+            System.err.println("INFO: Build completed successfully, " + targets.size() + " total actions");
+            return 0;
+        case "test":
+            if (options.contains("--announce_rc") && targets.isEmpty()) {
+                String explicitTestDeps = "true".equals(workspace.commandOptions.get("explicit_java_test_deps")) ? "true" : "false";
+                System.err.println("INFO: Reading rc options for 'test' from " + workspace.dirWorkspaceRoot + "/.bazelrc:");
+                System.err.println("   'test' options: --explicit_java_test_deps=" + explicitTestDeps);
+                System.err.println("WARNING: Usage: bazel test <options> <test-targets>.");
+                return 0;
+            }
+            printProgress(progressLines);
+            System.err.println("INFO: Build completed successfully, " + targets.size() + " total actions");
+            System.out.println("Executed " + targets.size() + " out of " + targets.size() + " tests: "
+                    + targets.size() + " tests pass.");
+            return 0;
+        default:
+            System.err.println("ERROR: The fake bazel does not support the '" + verb + "' command");
+            return 2;
+        }
+    }
+
+    private static int info(TestBazelWorkspaceFactory workspace, List<String> keys) {
+        String[][] values = {
+            { "workspace", workspace.dirWorkspaceRoot.getAbsolutePath() },
+            { "execution_root", workspace.dirExecRoot.getAbsolutePath() },
+            { "output_base", workspace.dirOutputBase.getAbsolutePath() },
+            { "output_path", workspace.dirOutputPath.getAbsolutePath() },
+            { "bazel-bin", workspace.dirBazelBin.getAbsolutePath() },
+            { "bazel-testlogs", workspace.dirBazelTestLogs.getAbsolutePath() },
+        };
+        for (String[] value : values) {
+            if (keys.isEmpty()) {
+                System.out.println(value[0] + ": " + value[1]);
+            } else if (keys.get(0).equals(value[0])) {
+                System.out.println(value[1]);
+                return 0;
+            }
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        System.err.println("ERROR: unknown key: '" + keys.get(0) + "'");
+        return 2;
+    }
+
+    /**
+     * Returns the labels of the Java targets matched by the target patterns (//..., //projects/libs/javalib0:*,
+     * projects/libs/...).
+     */
+    static List<String> query(TestBazelWorkspaceFactory workspace, List<String> patterns) {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < workspace.numberJavaPackages; i++) {
+            String packageName = "javalib" + i;
+            String packagePath = "projects/libs/" + packageName;
+            if (matchesPackage(packagePath, patterns)) {
+                labels.add("//" + packagePath + ":" + packageName);
+                labels.add("//" + packagePath + ":" + packageName + "Test");
+            }
+        }
+        return labels;
+    }
+
+    private static Set<String> buildAspects(TestBazelWorkspaceFactory workspace, List<String> targets) {
+        Set<String> aspectFiles = new TreeSet<>();
+        for (int i = 0; i < workspace.numberJavaPackages; i++) {
+            if (matchesPackage("projects/libs/javalib" + i, targets)) {
+                aspectFiles.addAll(workspace.createJavaPackageAspectFiles(i));
+            }
+        }
+        return aspectFiles;
+    }
+
+    private static boolean matchesPackage(String packagePath, List<String> patterns) {
+        for (String pattern : patterns) {
+            String path = pattern.startsWith("//") ? pattern.substring(2) : pattern;
+            int colon = path.indexOf(':');
+            if (colon >= 0) {
+                if (path.substring(0, colon).equals(packagePath)) {
+                    return true;
+                }
+                continue;
+            }
+            if (path.equals("...") || path.isEmpty()) {
+                return true;
+            }
+            if (path.endsWith("/...")) {
+                String prefix = path.substring(0, path.length() - "/...".length());
+                if (packagePath.equals(prefix) || packagePath.startsWith(prefix + "/")) {
+                    return true;
+                }
+            } else if (path.equals(packagePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasOptionStartingWith(List<String> options, String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void printProgress(int progressLines) {
+        for (int i = 0; i < progressLines; i++) {
+            System.err.println("[" + (i + 1) + " / " + progressLines + "] Compiling Java headers "
+                    + "projects/libs/javalib" + i + "/libjavalib" + i + "-hjar.jar (2 source files)");
+        }
+    }
+}
@@ -20,12 +20,6 @@ public class TestAspectFileCreator {
     static String createJavaAspectFile(File outputBase, String packageRelativePath, String packageName, String targetName, 
             String extraDependencies, List<String> sources, boolean isJavaLibrary, boolean explicitJavaTestDeps) {
 
-        String aspectJsonFilename = targetName+".bzleclipse-build.json";
-        
-        if (!isJavaLibrary) {
-            aspectJsonFilename = targetName+"-test.bzleclipse-build.json";
-        }
-        
         String json = null;
         if (isJavaLibrary) { // this boolean is not enough when we add java_binary, springboot
             json = createAspectJsonForJavaLibraryTarget(packageRelativePath, packageName, targetName, extraDependencies, sources);
@@ -34,11 +28,24 @@ public class TestAspectFileCreator {
                 extraDependencies, sources, explicitJavaTestDeps);
         }
         
-        File aspectJsonFile = createJavaAspectFileWithThisJson(outputBase, packageRelativePath, aspectJsonFilename, json);
+        File aspectJsonFile = getJavaAspectFile(outputBase, packageRelativePath, targetName, isJavaLibrary);
+        writeJson(aspectJsonFile, json);
         
         return aspectJsonFile.getAbsolutePath();
     }
     
+    /**
+     * Returns the location of the json file written by {@link #createJavaAspectFile}, without writing it.
+     */
+    static File getJavaAspectFile(File outputBase, String packageRelativePath, String targetName, boolean isJavaLibrary) {
+        String aspectJsonFilename = targetName+".bzleclipse-build.json";
+        
+        if (!isJavaLibrary) {
+            aspectJsonFilename = targetName+"-test.bzleclipse-build.json";
+        }
+        return new File(new File(outputBase, packageRelativePath), aspectJsonFilename);
+    }
+    
     /**
      * Write a particular json file as if generated by the Bazel aspect for Maven jar file found in the 
      * Bazel output_base/external directory.
@@ -53,7 +60,9 @@ public class TestAspectFileCreator {
         String label = "@"+mavenJarName+"//jar:jar";
         String kind = "java_import";
         String jar = externalName + "/jar/" + actualJarNameNoSuffix + ".jar";
-        String interfacejar = null;
+        // java_import runs ijar on the imported jar
+        String interfacejar = "bazel-out/darwin-fastbuild/bin/" + externalName + "/jar/_ijar/jar/" + externalName + "/jar/"
+                + actualJarNameNoSuffix + "-ijar.jar";
         String sourcejar = externalName + "/jar/" + actualJarNameNoSuffix + "-sources.jar";
                 
         String json = createAspectJsonForJavaArtifact(externalName+"/jar/BUILD.bazel", dependencies, sources, mainClass, label, kind, jar, interfacejar, sourcejar);
@@ -211,16 +220,19 @@ public class TestAspectFileCreator {
     }
 
     private static File createJavaAspectFileWithThisJson(File outputBase, String path, String aspectJsonFilename, String json) {
-        File packageBinDir = new File(outputBase, path);
-        packageBinDir.mkdirs();
-        File aspectJsonFile = new File(packageBinDir, aspectJsonFilename);
+        File aspectJsonFile = new File(new File(outputBase, path), aspectJsonFilename);
+        writeJson(aspectJsonFile, json);
+        return aspectJsonFile;
+    }
+
+    private static void writeJson(File aspectJsonFile, String json) {
+        aspectJsonFile.getParentFile().mkdirs();
         
         try (PrintStream out = new PrintStream(new FileOutputStream(aspectJsonFile))) {
             out.print(json);
         } catch (Exception anyE) {
             anyE.printStackTrace();
         }
-        return aspectJsonFile;
     }
 
 }
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -30,6 +31,7 @@ public class TestBazelWorkspaceFactory {
     public Map<String, String> commandOptions = new HashMap<>();
     public int numberJavaPackages = 0;
     public int numberGenrulePackages = 0;
+    public int javaPackageDependencyFanOut = 1;
     
     // OUTPUTS
     // directories
@@ -90,6 +92,16 @@ public class TestBazelWorkspaceFactory {
         return this;
     }
 
+    /**
+     * Number of other Java packages each Java package depends on. The default (1) chains the packages together, 
+     * javalibN depends on javalibN-1. With a larger fan out, each package also depends on a few randomly picked
+     * (but stable from run to run) lower numbered packages, which is closer to the shape of a real workspace. 
+     */
+    public TestBazelWorkspaceFactory javaPackageDependencies(int fanOut) {
+        javaPackageDependencyFanOut = fanOut;
+        return this;
+    }
+
     public TestBazelWorkspaceFactory genrulePackages(int count) {
         numberGenrulePackages = count;
         return this;
@@ -138,87 +150,39 @@ public class TestBazelWorkspaceFactory {
             anyE.printStackTrace();
             throw anyE;
         }
-        boolean explicitJavaTestDeps = "true".equals(commandOptions.get("explicit_java_test_deps"));
-        
-        String previousJavaLibTarget = null;
-        String previousAspectFilePath = null;
         for (int i=0; i<numberJavaPackages; i++) {
             String packageName = "javalib"+i;
             String packageRelativePath = libsRelativePath+"/"+packageName;
             File javaPackageDir = new File(libsDir, packageName);
             javaPackageDir.mkdir();
             
-            // we will be collecting locations of Aspect json files for this package
-            Set<String> packageAspectFiles = new TreeSet<>();
-            
             // create the BUILD file
             File buildFile = new File(javaPackageDir, this.buildFilename);
             buildFile.createNewFile();
             TestJavaRuleCreator.createJavaBuildFile(commandOptions, buildFile, packageName, i);
             
             // main source
-            List<String> sourceFiles = new ArrayList<>();
             String srcMainPath = "src/main/java/com/salesforce/fruit"+i;
             File javaSrcMainDir = new File(javaPackageDir, srcMainPath);
             javaSrcMainDir.mkdirs();
             // Apple.java
             File javaFile1 = new File(javaSrcMainDir, "Apple"+i+".java");
             javaFile1.createNewFile();
-            String appleSrc = packageRelativePath+"/"+srcMainPath+"/Apple"+i+".java";
-            sourceFiles.add(appleSrc);
             // Banana.java
             File javaFile2 = new File(javaSrcMainDir, "Banana"+i+".java");
             javaFile2.createNewFile();
-            String bananaSrc = packageRelativePath+"/"+srcMainPath+"/Banana"+i+".java";
-            sourceFiles.add(bananaSrc);
-            
-            // main fruit source aspect
-            String extraDep = previousJavaLibTarget != null ? "    \"//"+previousJavaLibTarget+"\",\n" : null;
-            String aspectFilePath_mainsource = TestAspectFileCreator.createJavaAspectFile(dirOutputBase, packageRelativePath, 
-                packageName, packageName, extraDep, sourceFiles, true, explicitJavaTestDeps);
-            packageAspectFiles.add(aspectFilePath_mainsource);
-            
-            // add aspects for maven jars (just picked a couple of typical maven jars to use)
-            String aspectFilePath_slf4j = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "org_slf4j_slf4j_api", "slf4j-api-1.7.25");
-            packageAspectFiles.add(aspectFilePath_slf4j);
-            String aspectFilePath_guava = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "com_google_guava_guava", "guava-20.0");
-            packageAspectFiles.add(aspectFilePath_guava);
 
             // test source
-            List<String> testSourceFiles = new ArrayList<>();
             String srcTestPath = "src/test/java/com/salesforce/fruit"+i;
             File javaSrcTestDir = new File(javaPackageDir, srcTestPath);
             javaSrcTestDir.mkdirs();
             File javaTestFile1 = new File(javaSrcTestDir, "Apple"+i+"Test.java");
             javaTestFile1.createNewFile();
-            String appleTestSrc = packageRelativePath+"/"+srcTestPath+"/Apple"+i+"Test.java";
-            testSourceFiles.add(appleTestSrc);
             File javaTestFile2 = new File(javaSrcTestDir, "Banana"+i+"Test.java");
             javaTestFile2.createNewFile();
-            String bananaTestSrc = packageRelativePath+"/"+srcTestPath+"/Banana"+i+"Test.java";
-            testSourceFiles.add(bananaTestSrc);
             
-            // test fruit source aspect
-            String aspectFilePath_testsource = TestAspectFileCreator.createJavaAspectFile(dirOutputBase, libsRelativePath+"/"+packageName, 
-                packageName, packageName, null, testSourceFiles, false, explicitJavaTestDeps);
-            packageAspectFiles.add(aspectFilePath_testsource);
-            
-            // add aspects for test maven jars if we have explicit java test deps mode enabled
-            if (explicitJavaTestDeps) {
-                String aspectFilePath_junit = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "junit_junit", "junit-4.12");
-                packageAspectFiles.add(aspectFilePath_junit);
-                String aspectFilePath_hamcrest = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "org_hamcrest_hamcrest_core", "hamcrest-core-1.3");
-                packageAspectFiles.add(aspectFilePath_hamcrest);
-            }
-            
-            // we chain the libs together to test inter project deps
-            // add the previous aspect file
-            if (previousAspectFilePath != null) {
-                packageAspectFiles.add(previousAspectFilePath);
-            }
-            // now save off our current lib target to add to the next
-            previousJavaLibTarget = packageRelativePath+":"+packageName;
-            previousAspectFilePath = aspectFilePath_mainsource;
+            // the aspect json files for this package and its deps
+            Set<String> packageAspectFiles = createJavaPackageAspectFiles(i);
             
             // finish
             createdPackages.put(packageName, javaPackageDir);
@@ -243,6 +207,91 @@ public class TestBazelWorkspaceFactory {
     }
     
     
+    // ASPECTS
+    
+    /**
+     * Writes the json files for the Java package with the passed index, as if generated by the Bazel aspect when
+     * building the package, and returns the absolute paths of the aspect files of the package and its deps. 
+     * This is called by build(), and by the FakeBazelExecutable when it simulates an aspect build.
+     */
+    public Set<String> createJavaPackageAspectFiles(int packageIndex) {
+        boolean explicitJavaTestDeps = "true".equals(commandOptions.get("explicit_java_test_deps"));
+        String libsRelativePath = "projects/libs";
+        String packageName = "javalib"+packageIndex;
+        String packageRelativePath = libsRelativePath+"/"+packageName;
+        
+        // we will be collecting locations of Aspect json files for this package
+        Set<String> packageAspectFiles = new TreeSet<>();
+
+        // main fruit source aspect
+        String srcMainPath = packageRelativePath+"/src/main/java/com/salesforce/fruit"+packageIndex;
+        List<String> sourceFiles = new ArrayList<>();
+        sourceFiles.add(srcMainPath+"/Apple"+packageIndex+".java");
+        sourceFiles.add(srcMainPath+"/Banana"+packageIndex+".java");
+
+        // we chain the libs together to test inter project deps
+        List<Integer> dependencyIndexes = getJavaPackageDependencies(packageIndex);
+        String extraDep = null;
+        for (int dependencyIndex : dependencyIndexes) {
+            String dependencyName = "javalib"+dependencyIndex;
+            extraDep = (extraDep == null ? "" : extraDep) + "    \"//"+libsRelativePath+"/"+dependencyName+":"+dependencyName+"\",\n";
+        }
+        String aspectFilePath_mainsource = TestAspectFileCreator.createJavaAspectFile(dirOutputBase, packageRelativePath, 
+            packageName, packageName, extraDep, sourceFiles, true, explicitJavaTestDeps);
+        packageAspectFiles.add(aspectFilePath_mainsource);
+        
+        // add aspects for maven jars (just picked a couple of typical maven jars to use)
+        String aspectFilePath_slf4j = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "org_slf4j_slf4j_api", "slf4j-api-1.7.25");
+        packageAspectFiles.add(aspectFilePath_slf4j);
+        String aspectFilePath_guava = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "com_google_guava_guava", "guava-20.0");
+        packageAspectFiles.add(aspectFilePath_guava);
+
+        // test fruit source aspect
+        String srcTestPath = packageRelativePath+"/src/test/java/com/salesforce/fruit"+packageIndex;
+        List<String> testSourceFiles = new ArrayList<>();
+        testSourceFiles.add(srcTestPath+"/Apple"+packageIndex+"Test.java");
+        testSourceFiles.add(srcTestPath+"/Banana"+packageIndex+"Test.java");
+        String aspectFilePath_testsource = TestAspectFileCreator.createJavaAspectFile(dirOutputBase, packageRelativePath, 
+            packageName, packageName, null, testSourceFiles, false, explicitJavaTestDeps);
+        packageAspectFiles.add(aspectFilePath_testsource);
+        
+        // add aspects for test maven jars if we have explicit java test deps mode enabled
+        if (explicitJavaTestDeps) {
+            String aspectFilePath_junit = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "junit_junit", "junit-4.12");
+            packageAspectFiles.add(aspectFilePath_junit);
+            String aspectFilePath_hamcrest = TestAspectFileCreator.createJavaAspectFileForMavenJar(dirOutputBase, "org_hamcrest_hamcrest_core", "hamcrest-core-1.3");
+            packageAspectFiles.add(aspectFilePath_hamcrest);
+        }
+        
+        // add the aspect files of the dependency libs
+        for (int dependencyIndex : dependencyIndexes) {
+            String dependencyName = "javalib"+dependencyIndex;
+            packageAspectFiles.add(TestAspectFileCreator.getJavaAspectFile(dirOutputBase, libsRelativePath+"/"+dependencyName, 
+                dependencyName, true).getAbsolutePath());
+        }
+        return packageAspectFiles;
+    }
+    
+    
+    /**
+     * Returns the indexes of the Java packages the Java package with the passed index depends on, see
+     * {@link #javaPackageDependencies(int)}.
+     */
+    public List<Integer> getJavaPackageDependencies(int packageIndex) {
+        Set<Integer> dependencyIndexes = new TreeSet<>();
+        if (packageIndex > 0) {
+            dependencyIndexes.add(packageIndex-1);
+        }
+        // seeded with the index, so the generated workspace is the same for every run
+        Random random = new Random(packageIndex);
+        int fanOut = Math.min(javaPackageDependencyFanOut, packageIndex);
+        while (dependencyIndexes.size() < fanOut) {
+            dependencyIndexes.add(random.nextInt(packageIndex));
+        }
+        return new ArrayList<>(dependencyIndexes);
+    }
+    
+    
     // OUTPUT BASE
     
     /**